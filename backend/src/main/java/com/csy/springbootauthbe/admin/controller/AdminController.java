@@ -9,11 +9,14 @@ import com.csy.springbootauthbe.student.dto.StudentDTO;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.utils.UserResponse;
+import com.csy.springbootauthbe.wallet.reconcile.ReconciliationRun;
+import com.csy.springbootauthbe.wallet.reconcile.WalletReconciler;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -138,4 +141,14 @@ public class AdminController {
     public ResponseEntity<BookingDTO> deleteBookingById(@PathVariable String adminId, @PathVariable String bookingId) {
         return ResponseEntity.ok(adminService.deleteBooking(adminId, bookingId));
     }
+
+    @PostMapping("/reconciliation/{adminId}")
+    public ResponseEntity<ReconciliationRun> startReconciliation(@PathVariable String adminId) {
+        return ResponseEntity.accepted().body(adminService.startReconciliation(adminId));
+    }
+
+    @GetMapping("/reconciliation/{adminId}")
+    public ResponseEntity<WalletReconciler.Progress> getReconciliationProgress(@PathVariable String adminId) {
+        return ResponseEntity.ok(adminService.getReconciliationProgress(adminId));
+    }
 }
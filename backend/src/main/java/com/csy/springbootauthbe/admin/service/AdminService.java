@@ -7,6 +7,8 @@ import com.csy.springbootauthbe.booking.dto.BookingDTO;
 import com.csy.springbootauthbe.student.dto.StudentDTO;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.user.utils.UserResponse;
+import com.csy.springbootauthbe.wallet.reconcile.ReconciliationRun;
+import com.csy.springbootauthbe.wallet.reconcile.WalletReconciler;
 
 import java.util.List;
 import java.util.Optional;
@@ -68,4 +70,11 @@ public interface AdminService {
     //  Booking Management
     // -------------------------------
     BookingDTO deleteBooking(String adminUserId, String bookingId);
+
+    // -------------------------------
+    //  Wallet Reconciliation
+    // -------------------------------
+    ReconciliationRun startReconciliation(String adminUserId);
+
+    WalletReconciler.Progress getReconciliationProgress(String adminUserId);
 }
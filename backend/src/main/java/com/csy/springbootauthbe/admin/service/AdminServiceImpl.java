@@ -7,6 +7,7 @@ import com.csy.springbootauthbe.admin.entity.Permissions;
 import com.csy.springbootauthbe.admin.mapper.AdminMapper;
 import com.csy.springbootauthbe.admin.repository.AdminRepository;
 import com.csy.springbootauthbe.admin.util.AdminResponse;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
 import com.csy.springbootauthbe.booking.service.BookingServiceImpl;
 import com.csy.springbootauthbe.common.utils.SanitizedLogger;
@@ -20,8 +21,11 @@ import com.csy.springbootauthbe.tutor.repository.TutorRepository;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.entity.User;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.repository.UserRepository;
 import com.csy.springbootauthbe.user.utils.UserResponse;
+import com.csy.springbootauthbe.wallet.reconcile.ReconciliationRun;
+import com.csy.springbootauthbe.wallet.reconcile.WalletReconciler;
 import com.csy.springbootauthbe.wallet.service.WalletService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -42,6 +46,9 @@ public class AdminServiceImpl implements AdminService {
     private final TutorRepository tutorRepository;
     private final WalletService walletService;
     private final BookingServiceImpl bookingService;
+    private final UserDisplayCache userDisplayCache;
+    private final FreeSlotCalendar freeSlotCalendar;
+    private final WalletReconciler walletReconciler;
     private static final SanitizedLogger logger = SanitizedLogger.getLogger(AdminServiceImpl.class);
 
 
@@ -101,6 +108,7 @@ public class AdminServiceImpl implements AdminService {
         User student = getUserOrThrow(studentId, Role.STUDENT);
         student.setStatus(AccountStatus.SUSPENDED);
         userRepository.save(student);
+        userDisplayCache.invalidate(student.getId());
         return studentId;
     }
 
@@ -110,6 +118,7 @@ public class AdminServiceImpl implements AdminService {
         User student = getUserOrThrow(studentId, Role.STUDENT);
         student.setStatus(AccountStatus.ACTIVE);
         userRepository.save(student);
+        userDisplayCache.invalidate(student.getId());
         return studentId;
     }
 
@@ -119,6 +128,7 @@ public class AdminServiceImpl implements AdminService {
         User student = getUserOrThrow(studentId, Role.STUDENT);
         student.setStatus(AccountStatus.DELETED);
         userRepository.save(student);
+        userDisplayCache.invalidate(student.getId());
         return studentId;
     }
 
@@ -205,7 +215,9 @@ public class AdminServiceImpl implements AdminService {
         //TODO: Send notification to tutor about approval
 
         userRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getId());
         tutorRepository.save(tutorDetails);
+        freeSlotCalendar.invalidateTutor(tutorId); // approved availability replaces the weekly windows
         return adminUserId;
     }
 
@@ -226,6 +238,7 @@ public class AdminServiceImpl implements AdminService {
 
         //TODO: Send notification to tutor about rejection reason
         userRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getId());
         tutorRepository.save(tutorDetails);
         return adminUserId;
     }
@@ -236,6 +249,7 @@ public class AdminServiceImpl implements AdminService {
         User tutor = getUserOrThrow(tutorId, Role.TUTOR);
         tutor.setStatus(AccountStatus.SUSPENDED);
         userRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getId());
         return tutorId;
     }
 
@@ -245,6 +259,7 @@ public class AdminServiceImpl implements AdminService {
         User tutor = getUserOrThrow(tutorId, Role.TUTOR);
         tutor.setStatus(AccountStatus.ACTIVE);
         userRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getId());
         return tutorId;
     }
 
@@ -254,6 +269,7 @@ public class AdminServiceImpl implements AdminService {
         User tutor = getUserOrThrow(tutorId, Role.TUTOR);
         tutor.setStatus(AccountStatus.DELETED);
         userRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getId());
         return tutorId;
     }
 
@@ -323,6 +339,7 @@ public class AdminServiceImpl implements AdminService {
         User target = getUserOrThrow(targetAdminId, Role.ADMIN);
         target.setStatus(AccountStatus.SUSPENDED);
         userRepository.save(target);
+        userDisplayCache.invalidate(target.getId());
         return targetAdminId;
     }
 
@@ -332,6 +349,7 @@ public class AdminServiceImpl implements AdminService {
         User target = getUserOrThrow(targetAdminId, Role.ADMIN);
         target.setStatus(AccountStatus.ACTIVE);
         userRepository.save(target);
+        userDisplayCache.invalidate(target.getId());
         return targetAdminId;
     }
 
@@ -341,6 +359,7 @@ public class AdminServiceImpl implements AdminService {
         User target = getUserOrThrow(targetAdminId, Role.ADMIN);
         target.setStatus(AccountStatus.DELETED);
         userRepository.save(target);
+        userDisplayCache.invalidate(target.getId());
         return targetAdminId;
     }
 
@@ -426,6 +445,21 @@ public class AdminServiceImpl implements AdminService {
         return bookingService.deleteBooking(bookingId);
     }
 
+    // -------------------------------
+    //  Wallet Reconciliation
+    // -------------------------------
+    @Override
+    public ReconciliationRun startReconciliation(String adminUserId) {
+        checkAdminWithPermission(adminUserId, new Permissions[]{Permissions.SUPER_ADMIN});
+        return walletReconciler.start("admin:" + adminUserId);
+    }
+
+    @Override
+    public WalletReconciler.Progress getReconciliationProgress(String adminUserId) {
+        checkAdminWithPermission(adminUserId, new Permissions[]{Permissions.SUPER_ADMIN});
+        return walletReconciler.progress();
+    }
+
     // -------------------------------
     // Helpers
     // -------------------------------
@@ -0,0 +1,120 @@
+package com.csy.springbootauthbe.booking.cache;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory per-tutor, per-day index of active booking intervals used for overlap checks.
+ * Buckets are loaded from Mongo on first access, kept current by the booking lifecycle
+ * through {@link #record(Booking)}, and reloaded once they expire or are invalidated.
+ */
+@Component
+public class BookingIntervalIndex {
+
+    public static final Set<String> ACTIVE_STATUSES = BookingStatus.ACTIVE.stream()
+            .map(Enum::name)
+            .collect(Collectors.toUnmodifiableSet());
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingIntervalIndex.class);
+
+    private final BookingRepository bookingRepository;
+    private final long ttlMillis;
+    private final Map<String, DayBucket> buckets;
+
+    public BookingIntervalIndex(BookingRepository bookingRepository,
+                                @Value("${booking.interval-index.max-buckets:5000}") int maxBuckets,
+                                @Value("${booking.interval-index.ttl-seconds:60}") long ttlSeconds) {
+        this.bookingRepository = bookingRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.buckets = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, DayBucket> eldest) {
+                return size() > maxBuckets;
+            }
+        });
+    }
+
+    /** True if an active booking of the tutor overlaps [start, end) on the given date. */
+    public boolean hasOverlap(String tutorId, String date, String start, String end) {
+        DayBucket bucket = buckets.computeIfAbsent(key(tutorId, date), k -> new DayBucket());
+        synchronized (bucket) {
+            if (!bucket.isFresh(ttlMillis)) {
+                load(bucket, tutorId, date);
+            }
+            return bucket.tree.overlaps(toMinutes(start), toMinutes(end));
+        }
+    }
+
+    /**
+     * Apply the current state of a booking to its day bucket: active bookings are
+     * (re)inserted, anything else is removed. Cold buckets are left alone, they will
+     * pick up the change from Mongo when first queried.
+     */
+    public void record(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getTutorId() == null || booking.getDate() == null) {
+            return;
+        }
+        DayBucket bucket = buckets.get(key(booking.getTutorId(), booking.getDate()));
+        if (bucket == null) return;
+        synchronized (bucket) {
+            if (!bucket.loaded) return;
+            if (ACTIVE_STATUSES.contains(booking.getStatus()) && booking.getStart() != null && booking.getEnd() != null) {
+                bucket.tree.put(booking.getId(), toMinutes(booking.getStart()), toMinutes(booking.getEnd()));
+            } else {
+                bucket.tree.remove(booking.getId());
+            }
+        }
+    }
+
+    /** Drop a day bucket so the next overlap check reloads it from Mongo. */
+    public void invalidate(String tutorId, String date) {
+        buckets.remove(key(tutorId, date));
+    }
+
+    public void invalidateAll() {
+        buckets.clear();
+    }
+
+    private void load(DayBucket bucket, String tutorId, String date) {
+        bucket.tree = new IntervalTree();
+        for (Booking b : bookingRepository.findByTutorIdAndStartAtRange(tutorId,
+                BookingTimes.startOfDay(date), BookingTimes.endOfDay(date))) {
+            if (ACTIVE_STATUSES.contains(b.getStatus()) && b.getStart() != null && b.getEnd() != null) {
+                bucket.tree.put(b.getId(), toMinutes(b.getStart()), toMinutes(b.getEnd()));
+            }
+        }
+        bucket.loaded = true;
+        bucket.loadedAt = System.currentTimeMillis();
+        logger.debug("Loaded {} active intervals for tutorId={} date={}", bucket.tree.size(), tutorId, date);
+    }
+
+    private static String key(String tutorId, String date) {
+        return tutorId + "|" + date;
+    }
+
+    static int toMinutes(String hhmm) {
+        return LocalTime.parse(hhmm).toSecondOfDay() / 60;
+    }
+
+    private static final class DayBucket {
+        private IntervalTree tree = new IntervalTree();
+        private boolean loaded;
+        private long loadedAt;
+
+        private boolean isFresh(long ttlMillis) {
+            return loaded && System.currentTimeMillis() - loadedAt < ttlMillis;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.csy.springbootauthbe.booking.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Augmented interval tree over half-open [start, end) minute ranges.
+ * Nodes are ordered by (start, id) in a treap and every node carries the max end
+ * of its subtree, so an overlap query only walks one root-to-leaf path.
+ * Not thread-safe; callers guard it with their own lock.
+ */
+class IntervalTree {
+
+    private static final class Node {
+        private final String id;
+        private final int start;
+        private final int end;
+        private final int priority;
+        private int maxEnd;
+        private Node left;
+        private Node right;
+
+        private Node(String id, int start, int end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+            this.priority = ThreadLocalRandom.current().nextInt();
+        }
+    }
+
+    private final Map<String, Node> byId = new HashMap<>();
+    private Node root;
+
+    /** Insert or replace the interval stored for the given id. */
+    void put(String id, int start, int end) {
+        remove(id);
+        Node node = new Node(id, start, end);
+        root = insert(root, node);
+        byId.put(id, node);
+    }
+
+    /** Remove the interval stored for the given id, returns false if absent. */
+    boolean remove(String id) {
+        Node node = byId.remove(id);
+        if (node == null) return false;
+        root = delete(root, node);
+        return true;
+    }
+
+    /** True if any stored interval overlaps [start, end). */
+    boolean overlaps(int start, int end) {
+        Node n = root;
+        while (n != null) {
+            if (n.start < end && start < n.end) return true;
+            // If the left subtree reaches past start and holds no overlap, nothing on the right can either
+            n = (n.left != null && n.left.maxEnd > start) ? n.left : n.right;
+        }
+        return false;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    // ----------------------------------------------------------------------
+    // Treap internals
+    // ----------------------------------------------------------------------
+    private static int compare(Node a, Node b) {
+        int c = Integer.compare(a.start, b.start);
+        return c != 0 ? c : a.id.compareTo(b.id);
+    }
+
+    private static Node insert(Node t, Node node) {
+        if (t == null) return node;
+        if (compare(node, t) < 0) {
+            t.left = insert(t.left, node);
+            if (t.left.priority > t.priority) t = rotateRight(t);
+        } else {
+            t.right = insert(t.right, node);
+            if (t.right.priority > t.priority) t = rotateLeft(t);
+        }
+        update(t);
+        return t;
+    }
+
+    private static Node delete(Node t, Node node) {
+        if (t == null) return null;
+        if (t == node) return merge(t.left, t.right);
+        if (compare(node, t) < 0) {
+            t.left = delete(t.left, node);
+        } else {
+            t.right = delete(t.right, node);
+        }
+        update(t);
+        return t;
+    }
+
+    private static Node merge(Node a, Node b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        }
+        b.left = merge(a, b.left);
+        update(b);
+        return b;
+    }
+
+    private static Node rotateRight(Node t) {
+        Node l = t.left;
+        t.left = l.right;
+        l.right = t;
+        update(t);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node t) {
+        Node r = t.right;
+        t.right = r.left;
+        r.left = t;
+        update(t);
+        update(r);
+        return r;
+    }
+
+    private static void update(Node t) {
+        int max = t.end;
+        if (t.left != null && t.left.maxEnd > max) max = t.left.maxEnd;
+        if (t.right != null && t.right.maxEnd > max) max = t.right.maxEnd;
+        t.maxEnd = max;
+    }
+}
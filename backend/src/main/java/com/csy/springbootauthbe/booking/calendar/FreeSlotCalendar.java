@@ -0,0 +1,214 @@
+package com.csy.springbootauthbe.booking.calendar;
+
+import com.csy.springbootauthbe.booking.cache.BookingIntervalIndex;
+import com.csy.springbootauthbe.booking.dto.FreeSlotDTO;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.tutor.entity.Availability;
+import com.csy.springbootauthbe.tutor.entity.Tutor;
+import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.TextStyle;
+import java.time.temporal.TemporalAdjusters;
+import java.util.*;
+
+/**
+ * Materialized free time per tutor and week: the weekly {@link Availability} expanded into
+ * concrete days, minus the active bookings of that week. A week is built with one tutor lookup
+ * and one bookings range query on first access, then kept current through {@link #record(Booking)}
+ * so reads never rescan bookings. Weeks are rebuilt once they expire or the tutor's availability
+ * changes.
+ */
+@Component
+public class FreeSlotCalendar {
+
+    /** Longest range a single free-slot request may cover. */
+    public static final int MAX_DAYS = 62;
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(FreeSlotCalendar.class);
+
+    private final TutorRepository tutorRepository;
+    private final BookingRepository bookingRepository;
+    private final long ttlMillis;
+    private final Map<String, TutorWeek> weeks;
+
+    public FreeSlotCalendar(TutorRepository tutorRepository,
+                            BookingRepository bookingRepository,
+                            @Value("${booking.free-slots.max-weeks:20000}") int maxWeeks,
+                            @Value("${booking.free-slots.ttl-seconds:300}") long ttlSeconds) {
+        this.tutorRepository = tutorRepository;
+        this.bookingRepository = bookingRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.weeks = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TutorWeek> eldest) {
+                return size() > maxWeeks;
+            }
+        });
+    }
+
+    /** Free slots of the tutor between the two dates, both inclusive, in date and time order. */
+    public List<FreeSlotDTO> freeSlots(String tutorId, LocalDate from, LocalDate to) {
+        if (to.isBefore(from) || from.plusDays(MAX_DAYS).isBefore(to)) {
+            throw new RuntimeException("Date range must be between 1 and " + MAX_DAYS + " days");
+        }
+        Tutor tutor = null;
+        List<FreeSlotDTO> slots = new ArrayList<>();
+        for (LocalDate week = weekOf(from); !week.isAfter(to); week = week.plusWeeks(1)) {
+            TutorWeek tutorWeek = weeks.computeIfAbsent(key(tutorId, week), k -> new TutorWeek());
+            synchronized (tutorWeek) {
+                if (!tutorWeek.isFresh(ttlMillis)) {
+                    if (tutor == null) {
+                        tutor = tutorRepository.findByUserId(tutorId)
+                                .orElseThrow(() -> new RuntimeException("Tutor not found"));
+                    }
+                    load(tutorWeek, tutor, week);
+                }
+                tutorWeek.free.forEach((date, intervals) -> {
+                    if (date.isBefore(from) || date.isAfter(to)) return;
+                    for (int[] free : intervals) {
+                        slots.add(new FreeSlotDTO(date.toString(), toTime(free[0]), toTime(free[1])));
+                    }
+                });
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Apply the current state of a booking to its week: active bookings take their time out of
+     * the free slots, anything else gives it back. Weeks that are not materialized are left alone.
+     */
+    public void record(Booking booking) {
+        if (booking == null || booking.getId() == null || booking.getTutorId() == null || booking.getDate() == null) {
+            return;
+        }
+        LocalDate date = LocalDate.parse(booking.getDate());
+        TutorWeek tutorWeek = weeks.get(key(booking.getTutorId(), weekOf(date)));
+        if (tutorWeek == null) return;
+        synchronized (tutorWeek) {
+            if (!tutorWeek.loaded) return;
+            Booked previous = tutorWeek.booked.remove(booking.getId());
+            if (isActive(booking)) {
+                tutorWeek.booked.put(booking.getId(), booked(booking));
+            }
+            if (previous != null && !previous.date.equals(date)) {
+                tutorWeek.recompute(previous.date);
+            }
+            tutorWeek.recompute(date);
+        }
+    }
+
+    /** Drop every materialized week of the tutor, e.g. after the weekly availability changed. */
+    public void invalidateTutor(String tutorId) {
+        String prefix = tutorId + "|";
+        synchronized (weeks) {
+            weeks.keySet().removeIf(k -> k.startsWith(prefix));
+        }
+    }
+
+    public void invalidateAll() {
+        weeks.clear();
+    }
+
+    private void load(TutorWeek tutorWeek, Tutor tutor, LocalDate week) {
+        tutorWeek.availability.clear();
+        tutorWeek.booked.clear();
+        tutorWeek.free.clear();
+        Map<String, Availability> availability = tutor.getAvailability() != null ? tutor.getAvailability() : Map.of();
+        for (int i = 0; i < 7; i++) {
+            LocalDate date = week.plusDays(i);
+            Availability day = availability.get(dayKey(date.getDayOfWeek()));
+            if (day == null || !day.isEnabled() || day.getStart() == null || day.getEnd() == null) continue;
+            int start = toMinutes(day.getStart());
+            int end = toMinutes(day.getEnd());
+            if (start < end) tutorWeek.availability.put(date, new int[]{start, end});
+        }
+        for (Booking b : bookingRepository.findByTutorIdAndStartAtRange(tutor.getUserId(),
+                BookingTimes.startOfDay(week), BookingTimes.startOfDay(week.plusWeeks(1)))) {
+            if (isActive(b)) tutorWeek.booked.put(b.getId(), booked(b));
+        }
+        for (LocalDate date : tutorWeek.availability.keySet()) {
+            tutorWeek.recompute(date);
+        }
+        tutorWeek.loaded = true;
+        tutorWeek.loadedAt = System.currentTimeMillis();
+        logger.debug("Materialized free slots for tutorId={} week={} with {} bookings",
+                tutor.getUserId(), week, tutorWeek.booked.size());
+    }
+
+    private static boolean isActive(Booking b) {
+        return BookingIntervalIndex.ACTIVE_STATUSES.contains(b.getStatus())
+                && b.getDate() != null && b.getStart() != null && b.getEnd() != null;
+    }
+
+    private static Booked booked(Booking b) {
+        return new Booked(LocalDate.parse(b.getDate()), toMinutes(b.getStart()), toMinutes(b.getEnd()));
+    }
+
+    private static LocalDate weekOf(LocalDate date) {
+        return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /** Availability is keyed by short English weekday names ("Mon", "Tue", ...). */
+    static String dayKey(DayOfWeek day) {
+        return day.getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+    }
+
+    private static String key(String tutorId, LocalDate week) {
+        return tutorId + "|" + week;
+    }
+
+    private static int toMinutes(String hhmm) {
+        return LocalTime.parse(hhmm).toSecondOfDay() / 60;
+    }
+
+    private static String toTime(int minutes) {
+        return LocalTime.ofSecondOfDay(minutes * 60L).toString();
+    }
+
+    private record Booked(LocalDate date, int start, int end) {
+    }
+
+    private static final class TutorWeek {
+        private final Map<LocalDate, int[]> availability = new HashMap<>();
+        private final Map<String, Booked> booked = new HashMap<>();
+        private final SortedMap<LocalDate, List<int[]>> free = new TreeMap<>();
+        private boolean loaded;
+        private long loadedAt;
+
+        private boolean isFresh(long ttlMillis) {
+            return loaded && System.currentTimeMillis() - loadedAt < ttlMillis;
+        }
+
+        /** Rebuild one day's free intervals: its availability window minus the bookings on it. */
+        private void recompute(LocalDate date) {
+            int[] window = availability.get(date);
+            if (window == null) {
+                free.remove(date);
+                return;
+            }
+            List<Booked> taken = booked.values().stream()
+                    .filter(b -> b.date.equals(date))
+                    .sorted(Comparator.comparingInt(Booked::start))
+                    .toList();
+            List<int[]> intervals = new ArrayList<>();
+            int cursor = window[0];
+            for (Booked b : taken) {
+                if (b.start > cursor) intervals.add(new int[]{cursor, Math.min(b.start, window[1])});
+                cursor = Math.max(cursor, b.end);
+                if (cursor >= window[1]) break;
+            }
+            if (cursor < window[1]) intervals.add(new int[]{cursor, window[1]});
+            intervals.removeIf(i -> i[0] >= i[1]);
+            free.put(date, intervals);
+        }
+    }
+}
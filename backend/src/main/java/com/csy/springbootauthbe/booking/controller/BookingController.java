@@ -2,27 +2,59 @@ package com.csy.springbootauthbe.booking.controller;
 
 
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingPage;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.dto.RecentBookingResponse;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
+import com.csy.springbootauthbe.booking.intake.BookingIntake;
+import com.csy.springbootauthbe.booking.intake.BookingShardExecutor;
+import com.csy.springbootauthbe.booking.observer.BookingEventBus;
 import com.csy.springbootauthbe.booking.service.BookingService;
+import com.csy.springbootauthbe.booking.stats.BookingStats;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.sweep.BookingSweeper;
+import com.csy.springbootauthbe.common.idempotency.IdempotencyService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/v1/bookings")
 @RequiredArgsConstructor
 public class BookingController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final BookingService bookingService;
+    private final BookingIntake bookingIntake;
+    private final BookingShardExecutor shardExecutor;
+    private final IdempotencyService idempotencyService;
+    private final BookingEventBus eventBus;
+    private final BookingStatsService bookingStatsService;
+    private final BookingSweeper bookingSweeper;
 
     @PostMapping
-    public ResponseEntity<BookingDTO> createBooking(@RequestBody BookingRequest dto) {
-        BookingDTO booking = bookingService.createBooking(dto);
-        return ResponseEntity.ok(booking);
+    public CompletableFuture<ResponseEntity<BookingDTO>> createBooking(@RequestBody BookingRequest dto,
+                                                                       @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.executeAsync("booking-create", idempotencyKey, dto, BookingDTO.class,
+                () -> bookingIntake.createBooking(dto).thenApply(ResponseEntity::ok));
+    }
+
+    /**Books every occurrence of a weekly rule or none; conflicting occurrences come back with 409*/
+    @PostMapping("/recurring")
+    public CompletableFuture<ResponseEntity<RecurringBookingResult>> createRecurringBookings(@RequestBody RecurringBookingRequest dto) {
+        return bookingIntake.createRecurringBookings(dto).thenApply(result -> {
+            if (!result.getConflicts().isEmpty()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(result);
+            }
+            return ResponseEntity.ok(result);
+        });
     }
 
     @GetMapping("/tutor/{tutorId}")
@@ -33,12 +65,18 @@ public class BookingController {
         return ResponseEntity.ok(bookings);
     }
 
+    /**Passing cursor or limit switches to keyset pages, the next cursor comes back in X-Next-Cursor*/
     @GetMapping("/tutor/range/{tutorId}")
     public ResponseEntity<List<BookingDTO>> getBookingsForTutorInRange(
             @PathVariable String tutorId,
             @RequestParam String startDate,
-            @RequestParam String endDate) {
+            @RequestParam String endDate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
 
+        if (cursor != null || limit != null) {
+            return pageResponse(bookingService.getBookingsForTutorBetweenDatesPage(tutorId, startDate, endDate, cursor, limit));
+        }
         List<BookingDTO> bookings = bookingService.getBookingsForTutorBetweenDates(tutorId, startDate, endDate);
         return ResponseEntity.ok(bookings);
     }
@@ -57,8 +95,14 @@ public class BookingController {
         return ResponseEntity.ok(response);
     }
 
+    /**Passing cursor or limit switches to keyset pages, the next cursor comes back in X-Next-Cursor*/
     @GetMapping("/student/{studentId}")
-    public ResponseEntity<List<BookingDTO>> getBookingsForStudent(@PathVariable String studentId) {
+    public ResponseEntity<List<BookingDTO>> getBookingsForStudent(@PathVariable String studentId,
+                                                                  @RequestParam(required = false) String cursor,
+                                                                  @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            return pageResponse(bookingService.getBookingsForStudentPage(studentId, cursor, limit));
+        }
         List<BookingDTO> bookings = bookingService.getBookingsForStudent(studentId);
         return ResponseEntity.ok(bookings);
     }
@@ -83,10 +127,9 @@ public class BookingController {
 
     /**Student requests to reschedule a confirmed booking*/
     @PostMapping("/{bookingId}/reschedule")
-    public ResponseEntity<BookingDTO> requestReschedule(@PathVariable String bookingId,
-                                                        @RequestBody BookingRequest newSlotRequest) {
-        BookingDTO rescheduleBooking = bookingService.requestReschedule(bookingId, newSlotRequest);
-        return ResponseEntity.ok(rescheduleBooking);
+    public CompletableFuture<ResponseEntity<BookingDTO>> requestReschedule(@PathVariable String bookingId,
+                                                                           @RequestBody BookingRequest newSlotRequest) {
+        return bookingIntake.requestReschedule(bookingId, newSlotRequest).thenApply(ResponseEntity::ok);
     }
 
     /**Tutor approves a reschedule request*/
@@ -102,9 +145,51 @@ public class BookingController {
         return ResponseEntity.ok(rejectedBooking);
     }
 
+    /**Queue depth and backpressure counters of the booking event observers*/
+    @GetMapping("/events/stats")
+    public ResponseEntity<List<BookingEventBus.ObserverStats>> getEventStats() {
+        return ResponseEntity.ok(eventBus.stats());
+    }
+
+    /**Queue depth and rejections of the tutor shards, empty unless booking.intake.mode=sharded*/
+    @GetMapping("/intake/stats")
+    public ResponseEntity<List<BookingShardExecutor.ShardStats>> getIntakeStats() {
+        return ResponseEntity.ok(shardExecutor.stats());
+    }
+
+    /**Totals and last-run throughput of the past-booking sweeper*/
+    @GetMapping("/sweep/stats")
+    public ResponseEntity<BookingSweeper.SweepStats> getSweepStats() {
+        return ResponseEntity.ok(bookingSweeper.stats());
+    }
+
+    /**Upcoming, completed and cancelled counts plus earnings of a tutor or student*/
+    @GetMapping("/stats/{userId}")
+    public ResponseEntity<BookingStats> getBookingStats(@PathVariable String userId) {
+        return ResponseEntity.ok(bookingStatsService.get(userId));
+    }
+
+    /**Passing cursor or limit switches to keyset pages, newest first; the next cursor also comes back in X-Next-Cursor*/
     @GetMapping("/student/{studentId}/past")
-    public ResponseEntity<RecentBookingResponse> getStudentPastSessions(@PathVariable String studentId) {
+    public ResponseEntity<RecentBookingResponse> getStudentPastSessions(@PathVariable String studentId,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        @RequestParam(required = false) Integer limit) {
+        if (cursor != null || limit != null) {
+            RecentBookingResponse page = bookingService.getPastSessionsForStudentPage(studentId, cursor, limit);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page);
+        }
         return ResponseEntity.ok(bookingService.getPastSessionsForStudent(studentId));
     }
 
-}
\ No newline at end of file
+    private ResponseEntity<List<BookingDTO>> pageResponse(BookingPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getItems());
+    }
+}
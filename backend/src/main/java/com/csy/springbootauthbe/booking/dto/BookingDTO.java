@@ -20,4 +20,5 @@ public class BookingDTO {
     private String end;
     private String status;
     private BigDecimal amount;
+    private String seriesId;
 }
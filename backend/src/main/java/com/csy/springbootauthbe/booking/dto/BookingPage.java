@@ -0,0 +1,17 @@
+package com.csy.springbootauthbe.booking.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BookingPage {
+    private List<BookingDTO> items;
+    private String nextCursor; // null on the last page
+}
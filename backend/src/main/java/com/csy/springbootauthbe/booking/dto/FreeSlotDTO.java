@@ -0,0 +1,13 @@
+package com.csy.springbootauthbe.booking.dto;
+
+import lombok.*;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class FreeSlotDTO {
+    private String date;   // yyyy-MM-dd
+    private String start;  // HH:mm
+    private String end;
+}
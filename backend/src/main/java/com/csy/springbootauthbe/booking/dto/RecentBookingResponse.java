@@ -14,4 +14,5 @@ import java.util.List;
 public class RecentBookingResponse {
     private long totalCount; // total sessions
     private List<BookingDTO> recentSessions;
+    private String nextCursor; // null on the last page, and when the whole list was returned
 }
@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.booking.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecurringBookingRequest {
+    private String tutorId;
+    private String tutorName;
+    private String studentName;
+    private String studentId;
+    private String lessonType;
+    private String start;  // HH:mm
+    private String end;
+    private BigDecimal amount; // per occurrence
+
+    // Recurrence rule: every intervalWeeks weeks on daysOfWeek, from startDate until the given date or count
+    private String startDate; // yyyy-MM-dd
+    private String until;     // yyyy-MM-dd, inclusive
+    private Integer count;
+    private Integer intervalWeeks;
+    private List<DayOfWeek> daysOfWeek; // defaults to the weekday of startDate
+}
@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.booking.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Outcome of a recurring booking request. Either every occurrence was booked, or none
+ * was and {@code conflicts} lists each occurrence that could not be taken.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class RecurringBookingResult {
+    private String seriesId;
+    private List<BookingDTO> bookings;
+    private List<Conflict> conflicts;
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Conflict {
+        private String date;
+        private String start;
+        private String end;
+        private String reason;
+    }
+}
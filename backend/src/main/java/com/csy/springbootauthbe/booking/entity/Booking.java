@@ -1,12 +1,13 @@
 package com.csy.springbootauthbe.booking.entity;
 
+import com.csy.springbootauthbe.common.money.Money;
 import lombok.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.mapping.Field;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 
 @Data
@@ -21,14 +22,20 @@ public class Booking {
     private String studentId;
     private String tutorName;
     private String studentName;
+    // Local wire format ("yyyy-MM-dd", "HH:mm"), kept for display only
     private String date;
     private String start;
     private String end;
+
+    // UTC lesson window, the fields all range queries and indexes use
+    private Instant startAt;
+    private Instant endAt;
     private String lessonType;
     private String status;
     private String originalBookingId;
+    private String seriesId; // set on every occurrence of a recurring booking
 
-    private BigDecimal amount; // 💰 Total booking cost
+    private Money amount; // 💰 Total booking cost
 
     @CreatedDate
     @Field("created_at")
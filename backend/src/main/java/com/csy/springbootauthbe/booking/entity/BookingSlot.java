@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.booking.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One claimed slot quantum of a tutor's day. The id is the slot key
+ * (tutorId|date|HH:mm), so Mongo's unique _id index guarantees a slot
+ * can only ever be held by a single booking.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "booking_slots")
+public class BookingSlot {
+
+    @Id
+    private String id;
+    private String tutorId;
+    private String date;
+    private String slotStart;
+    private String bookingId;
+
+    private LocalDateTime createdAt;
+}
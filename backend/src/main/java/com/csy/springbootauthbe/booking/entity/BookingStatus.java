@@ -0,0 +1,58 @@
+package com.csy.springbootauthbe.booking.entity;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Booking lifecycle states. Constant names are the values stored in {@code Booking.status}
+ * and sent on the wire, and {@link #canTransitionTo(BookingStatus)} is the one place that
+ * declares which moves between them are legal.
+ */
+public enum BookingStatus {
+    pending, confirmed, on_hold, reschedule_requested, cancelled, completed;
+
+    /** States that hold tutor time. */
+    public static final Set<BookingStatus> ACTIVE = Collections.unmodifiableSet(EnumSet.of(pending, confirmed, on_hold));
+
+    private static final Map<BookingStatus, Set<BookingStatus>> TRANSITIONS = new EnumMap<>(BookingStatus.class);
+
+    static {
+        TRANSITIONS.put(pending, EnumSet.of(confirmed, cancelled));
+        TRANSITIONS.put(confirmed, EnumSet.of(reschedule_requested, cancelled, completed));
+        // A reschedule request is approved (confirmed) or rejected (cancelled) by the tutor
+        TRANSITIONS.put(on_hold, EnumSet.of(confirmed, cancelled));
+        // The original booking is cancelled on approval and restored on rejection
+        TRANSITIONS.put(reschedule_requested, EnumSet.of(cancelled, confirmed));
+        TRANSITIONS.put(cancelled, EnumSet.noneOf(BookingStatus.class));
+        TRANSITIONS.put(completed, EnumSet.noneOf(BookingStatus.class));
+    }
+
+    public boolean canTransitionTo(BookingStatus next) {
+        return TRANSITIONS.get(this).contains(next);
+    }
+
+    public Set<BookingStatus> next() {
+        return Collections.unmodifiableSet(TRANSITIONS.get(this));
+    }
+
+    /** Every state the target can be reached from. */
+    public static Set<BookingStatus> sourcesOf(BookingStatus target) {
+        Set<BookingStatus> sources = EnumSet.noneOf(BookingStatus.class);
+        TRANSITIONS.forEach((from, to) -> {
+            if (to.contains(target)) sources.add(from);
+        });
+        return sources;
+    }
+
+    /** The status for a stored value, null when the value is unknown or missing. */
+    public static BookingStatus of(String value) {
+        if (value == null) return null;
+        for (BookingStatus status : values()) {
+            if (status.name().equals(value)) return status;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.csy.springbootauthbe.booking.intake;
+
+import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
+import com.csy.springbootauthbe.booking.service.BookingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Entry point for the booking writes that claim tutor time. Each call runs on the shard of its
+ * tutor, so the overlap check and the slot claim of one tutor's requests never interleave and
+ * the interval index locks they take stay uncontended.
+ */
+@Service
+@RequiredArgsConstructor
+public class BookingIntake {
+
+    private final BookingService bookingService;
+    private final BookingShardExecutor shardExecutor;
+
+    public CompletableFuture<BookingDTO> createBooking(BookingRequest dto) {
+        return shardExecutor.submit(dto.getTutorId(), () -> bookingService.createBooking(dto));
+    }
+
+    public CompletableFuture<RecurringBookingResult> createRecurringBookings(RecurringBookingRequest dto) {
+        return shardExecutor.submit(dto.getTutorId(), () -> bookingService.createRecurringBookings(dto));
+    }
+
+    public CompletableFuture<BookingDTO> requestReschedule(String bookingId, BookingRequest newSlotRequest) {
+        return shardExecutor.submit(newSlotRequest.getTutorId(),
+                () -> bookingService.requestReschedule(bookingId, newSlotRequest));
+    }
+}
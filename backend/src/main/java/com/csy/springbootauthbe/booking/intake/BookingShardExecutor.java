@@ -0,0 +1,156 @@
+package com.csy.springbootauthbe.booking.intake;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs booking mutations on single-threaded shards picked by consistent hashing of the tutorId,
+ * so every write of one tutor is applied in order by one thread and never races another write of
+ * that tutor, while different tutors spread over all shards. The ring holds
+ * {@code VIRTUAL_NODES} points per shard so tutors stay evenly spread for any shard count.
+ * <p>
+ * {@code booking.intake.mode=sharded} turns this on; the default {@code direct} mode runs the
+ * task on the caller thread and hands back an already completed future. A full shard queue
+ * fails the future instead of blocking the request thread.
+ */
+@Component
+public class BookingShardExecutor {
+
+    static final int VIRTUAL_NODES = 64;
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingShardExecutor.class);
+
+    private final boolean sharded;
+    private final List<Shard> shards = new ArrayList<>();
+    private final NavigableMap<Integer, Shard> ring = new TreeMap<>();
+
+    public BookingShardExecutor(@Value("${booking.intake.mode:direct}") String mode,
+                                @Value("${booking.intake.shards:0}") int shardCount,
+                                @Value("${booking.intake.queue-capacity:1000}") int queueCapacity) {
+        this.sharded = "sharded".equalsIgnoreCase(mode);
+        if (!sharded) return;
+
+        int count = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < count; i++) {
+            Shard shard = new Shard(i, queueCapacity);
+            shards.add(shard);
+            for (int v = 0; v < VIRTUAL_NODES; v++) {
+                ring.put(hash("shard-" + i + "#" + v), shard);
+            }
+        }
+        logger.info("Booking intake running on {} tutor shards", count);
+    }
+
+    public boolean isSharded() {
+        return sharded;
+    }
+
+    /** Run the task on the shard owning the key, or inline in direct mode. */
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        if (!sharded) {
+            return CompletableFuture.completedFuture(task.get());
+        }
+        Shard shard = shardFor(key);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            shard.executor.execute(() -> {
+                try {
+                    result.complete(task.get());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    shard.completed.increment();
+                }
+            });
+            shard.submitted.increment();
+        } catch (RejectedExecutionException e) {
+            shard.rejected.increment();
+            result.completeExceptionally(new RuntimeException("Booking service is busy, please try again."));
+        }
+        return result;
+    }
+
+    /** Index of the shard that owns the key, stable for a given shard count. */
+    int shardOf(String key) {
+        return shardFor(key).index;
+    }
+
+    public List<ShardStats> stats() {
+        return shards.stream().map(Shard::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Shard shard : shards) {
+            shard.executor.shutdown();
+        }
+        for (Shard shard : shards) {
+            try {
+                if (!shard.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    logger.warn("Booking shard {} still busy at shutdown, {} tasks dropped", shard.index,
+                            shard.executor.shutdownNow().size());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /** Point-in-time counters for one shard. */
+    public record ShardStats(int shard, long submitted, long completed, long rejected, int queued) {
+    }
+
+    private Shard shardFor(String key) {
+        Map.Entry<Integer, Shard> owner = ring.ceilingEntry(hash(key == null ? "" : key));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    /** 32-bit FNV-1a with a final avalanche, String.hashCode clusters similar ids too much for a ring. */
+    static int hash(String key) {
+        int h = 0x811c9dc5;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static final class Shard {
+        private final int index;
+        private final ThreadPoolExecutor executor;
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private Shard(int index, int queueCapacity) {
+            this.index = index;
+            String threadName = "booking-shard-" + index;
+            this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), r -> new Thread(r, threadName));
+            this.executor.prestartCoreThread();
+        }
+
+        private ShardStats stats() {
+            return new ShardStats(index, submitted.sum(), completed.sum(), rejected.sum(), executor.getQueue().size());
+        }
+    }
+}
@@ -3,15 +3,28 @@ package com.csy.springbootauthbe.booking.mapper;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.money.Money;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.math.BigDecimal;
+
 @Mapper(componentModel = "spring")
 public interface BookingMapper {
 
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "lessonType", source = "lessonType")
+    @Mapping(target = "startAt", ignore = true)
+    @Mapping(target = "endAt", ignore = true)
     Booking toEntity(BookingRequest request);
 
     BookingDTO toDto(Booking booking);
-}
\ No newline at end of file
+
+    default Money toMoney(BigDecimal amount) {
+        return Money.ofNullable(amount);
+    }
+
+    default BigDecimal toDecimal(Money amount) {
+        return amount != null ? amount.toBigDecimal() : null;
+    }
+}
@@ -0,0 +1,70 @@
+package com.csy.springbootauthbe.booking.migration;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Backfills startAt/endAt on bookings written before the typed time fields existed, in batches
+ * until no legacy document is left. The interval index, the overlap checks and the range queries
+ * only see bookings with startAt, so this runs to completion before the index catalog initializer
+ * and before the application reports itself ready; a failure stops the startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingTimeMigration implements ApplicationRunner {
+
+    private static final int BATCH_SIZE = 500;
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingTimeMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long migrated = 0;
+        long invalid = 0;
+        while (true) {
+            Query query = Query.query(Criteria.where("startAt").exists(false)).limit(BATCH_SIZE);
+            query.fields().include("date", "start", "end");
+            List<Booking> batch = mongoTemplate.find(query, Booking.class);
+            if (batch.isEmpty()) break;
+
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+            for (Booking b : batch) {
+                Instant startAt = null;
+                Instant endAt = null;
+                try {
+                    startAt = BookingTimes.toInstant(b.getDate(), b.getStart());
+                    endAt = BookingTimes.toInstant(b.getDate(), b.getEnd());
+                    migrated++;
+                } catch (RuntimeException e) {
+                    // Unparseable legacy values are stamped null so the next batch does not pick them up again
+                    invalid++;
+                }
+                ops.updateOne(Query.query(Criteria.where("_id").is(b.getId())),
+                        new Update().set("startAt", startAt).set("endAt", endAt));
+            }
+            ops.execute();
+        }
+        if (migrated + invalid > 0) {
+            logger.info("Booking time migration done: migrated={}, invalid={}", migrated, invalid);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.csy.springbootauthbe.booking.observer;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dispatches {@link BookingEvent}s to the registered {@link BookingObserver}s off the request thread.
+ * <p>
+ * Every observer gets its own set of single-threaded lanes with bounded queues. Events are routed
+ * to a lane by bookingId, so one observer always sees the events of a booking in publish order,
+ * while a slow observer never holds up the others. When a lane is full the publisher waits up to
+ * {@code booking.events.offer-timeout-ms} and then runs the event inline, which is counted as
+ * backpressure in {@link #stats()}. {@code booking.events.mode=sync} dispatches on the caller thread.
+ * The future returned by {@link #publish(BookingEvent)} completes once every observer has handled
+ * the event, and fails if any of them threw.
+ */
+@Component
+public class BookingEventBus {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingEventBus.class);
+
+    private final boolean async;
+    private final int lanesPerObserver;
+    private final int queueCapacity;
+    private final long offerTimeoutMs;
+    private final List<ObserverLanes> observers = new CopyOnWriteArrayList<>();
+
+    public BookingEventBus(@Value("${booking.events.mode:async}") String mode,
+                           @Value("${booking.events.lanes:4}") int lanesPerObserver,
+                           @Value("${booking.events.queue-capacity:1000}") int queueCapacity,
+                           @Value("${booking.events.offer-timeout-ms:200}") long offerTimeoutMs) {
+        this.async = !"sync".equalsIgnoreCase(mode);
+        this.lanesPerObserver = lanesPerObserver;
+        this.queueCapacity = queueCapacity;
+        this.offerTimeoutMs = offerTimeoutMs;
+    }
+
+    public void register(BookingObserver observer) {
+        observers.add(new ObserverLanes(observer));
+    }
+
+    public CompletableFuture<Void> publish(BookingEvent event) {
+        return CompletableFuture.allOf(observers.stream()
+                .map(lanes -> lanes.dispatch(event))
+                .toArray(CompletableFuture[]::new));
+    }
+
+    public List<ObserverStats> stats() {
+        return observers.stream().map(ObserverLanes::stats).toList();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ObserverLanes lanes : observers) {
+            lanes.shutdown();
+        }
+    }
+
+    /** Point-in-time counters for one observer. */
+    public record ObserverStats(String observer, long submitted, long completed, long failed,
+                                long inlined, int queued, long maxQueued) {
+    }
+
+    private final class ObserverLanes {
+        private final BookingObserver observer;
+        private final String name;
+        private final List<ThreadPoolExecutor> lanes = new ArrayList<>();
+        private final LongAdder submitted = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder inlined = new LongAdder();
+        private final AtomicLong maxQueued = new AtomicLong();
+
+        private ObserverLanes(BookingObserver observer) {
+            this.observer = observer;
+            this.name = observer.getClass().getSimpleName();
+            if (!async) return;
+            for (int i = 0; i < lanesPerObserver; i++) {
+                String threadName = "booking-events-" + name + "-" + i;
+                ThreadPoolExecutor lane = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity),
+                        r -> new Thread(r, threadName),
+                        (task, executor) -> waitOrRunInline(task, executor));
+                lane.prestartCoreThread();
+                lanes.add(lane);
+            }
+        }
+
+        private CompletableFuture<Void> dispatch(BookingEvent event) {
+            submitted.increment();
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            if (!async) {
+                handle(event, result);
+                return result;
+            }
+            String key = event.booking() != null ? event.booking().getId() : null;
+            ThreadPoolExecutor lane = lanes.get(Math.floorMod(Objects.hashCode(key), lanes.size()));
+            lane.execute(() -> handle(event, result));
+            maxQueued.accumulateAndGet(lane.getQueue().size(), Math::max);
+            return result;
+        }
+
+        private void handle(BookingEvent event, CompletableFuture<Void> result) {
+            try {
+                observer.handleBookingEvent(event);
+                completed.increment();
+                result.complete(null);
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.error("Observer {} failed on {} for bookingId={}: {}", name, event.type(),
+                        event.booking() != null ? event.booking().getId() : null, e.getMessage());
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void waitOrRunInline(Runnable task, ThreadPoolExecutor executor) {
+            if (!executor.isShutdown()) {
+                try {
+                    if (executor.getQueue().offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS)) return;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            inlined.increment();
+            task.run();
+        }
+
+        private ObserverStats stats() {
+            int queued = lanes.stream().mapToInt(l -> l.getQueue().size()).sum();
+            return new ObserverStats(name, submitted.sum(), completed.sum(), failed.sum(),
+                    inlined.sum(), queued, maxQueued.get());
+        }
+
+        private void shutdown() {
+            for (ThreadPoolExecutor lane : lanes) {
+                lane.shutdown();
+            }
+            for (ThreadPoolExecutor lane : lanes) {
+                try {
+                    if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+                        logger.warn("Observer {} lane still busy at shutdown, {} events dropped", name,
+                                lane.shutdownNow().size());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,15 @@
 package com.csy.springbootauthbe.booking.observer;
 
 import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.notification.entity.Notification;
 import com.csy.springbootauthbe.notification.service.NotificationService;
 import lombok.RequiredArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.csy.springbootauthbe.notification.service.NotificationService.notification;
+
 @RequiredArgsConstructor
 public class BookingNotificationObserver implements BookingObserver {
 
@@ -12,49 +18,50 @@ public class BookingNotificationObserver implements BookingObserver {
     @Override
     public void handleBookingEvent(BookingEvent event) {
         Booking b = event.booking();
+        List<Notification> notifications = new ArrayList<>();
 
         switch (event.type()) {
             case booking_created -> {
                 // Tutor
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getTutorId(),
                         "booking_created",
                         b.getId(),
                         b.getStudentName() + " has requested a new booking for " + b.getLessonType() +
                                 " on " + b.getDate() + " from " + b.getStart() + " to " + b.getEnd() + "."
-                );
+                ));
                 // Student
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getStudentId(),
                         "booking_created",
                         b.getId(),
                         "Your booking request for " + b.getLessonType() + " with " + b.getTutorName() +
                                 " on " + b.getDate() + " from " + b.getStart() + " to " + b.getEnd() +
                                 " has been created and is pending tutor approval."
-                );
+                ));
             }
             case booking_accepted -> {
                 // Student
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getStudentId(),
                         "booking_accepted",
                         b.getId(),
                         "Your booking for " + b.getLessonType() + " from " + b.getTutorName() + " has been confirmed!"
-                );
-                notificationService.createNotification(
+                ));
+                notifications.add(notification(
                         b.getStudentId(),
                         "credit_deducted",
                         b.getId(),
                         "An amount of $" + b.getAmount() + " has been deducted for booking " + b.getTutorName() + "."
-                );
+                ));
                 // Tutor
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getTutorId(),
                         "credit_released",
                         b.getId(),
                         "An amount of $" + b.getAmount() + " has been released to your wallet for booking " +
                                 b.getLessonType() + " for " + b.getStudentName() + "."
-                );
+                ));
             }
             case booking_cancelled -> {
                 // Notify the other user
@@ -62,46 +69,49 @@ public class BookingNotificationObserver implements BookingObserver {
                         ? b.getTutorId()
                         : b.getStudentId();
 
-                notificationService.createNotification(
+                notifications.add(notification(
                         recipientId,
                         "booking_cancelled",
                         b.getId(),
                         "Booking for " + b.getLessonType() + " has been cancelled."
-                );
+                ));
 
                 // Notify student about refund
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getStudentId(),
                         "credit_refunded",
                         b.getId(),
                         "An amount of $" + b.getAmount() + " has been refunded for booking " + b.getTutorName() + "."
-                );
+                ));
             }
             case reschedule_requested ->
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getTutorId(),
                         "reschedule_requested",
                         b.getId(),
                         "Student requested reschedule for booking: " + b.getLessonType()
-                );
+                ));
             case reschedule_approved -> {
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getStudentId(),
                         "reschedule_approved",
                         b.getId(),
                         "Your rescheduled booking has been confirmed!"
-                );
+                ));
 
                 // Notify tutor
-                notificationService.createNotification(
+                notifications.add(notification(
                         b.getTutorId(),
                         "reschedule_approved",
                         b.getId(),
                         "You confirmed the rescheduled booking."
-                );
+                ));
             }
             // Add more event types later, e.g., CANCELLED
         }
+
+        // One insertMany and one SSE pass per recipient for everything this event produced
+        notificationService.createNotifications(notifications);
     }
 }
 
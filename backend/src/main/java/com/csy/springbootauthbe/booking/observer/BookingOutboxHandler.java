@@ -0,0 +1,31 @@
+package com.csy.springbootauthbe.booking.observer;
+
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Turns BOOKING outbox entries back into {@link BookingEvent}s and publishes them on
+ * the event bus, so every registered {@link BookingObserver} receives them.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookingOutboxHandler implements OutboxHandler {
+
+    private final BookingEventBus eventBus;
+
+    @Override
+    public String aggregateType() {
+        return OutboxEntry.BOOKING;
+    }
+
+    @Override
+    public CompletableFuture<Void> handle(OutboxEntry entry) {
+        BookingEvent event = new BookingEvent(entry.getBooking(),
+                BookingEvent.Type.valueOf(entry.getEventType()), entry.getInitiatorUserId());
+        return eventBus.publish(event);
+    }
+}
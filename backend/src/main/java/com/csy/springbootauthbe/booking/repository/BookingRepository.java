@@ -1,27 +1,42 @@
 package com.csy.springbootauthbe.booking.repository;
 
 import com.csy.springbootauthbe.booking.entity.Booking;
+import org.bson.types.ObjectId;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 
-import java.time.LocalDate;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
-public interface BookingRepository extends MongoRepository<Booking, String> {
-    List<Booking> findByTutorIdAndDate(String tutorId, String date);
-    List<Booking> findByStudentId(String studentId);
-    @Query("{ 'tutorId': ?0, 'date': { $gte: ?1, $lte: ?2 } }")
-    List<Booking> findBookingsByTutorIdAndDateRange(String tutorId, String startDate, String endDate);
-    long countByTutorIdAndStatusAndDateBefore(String tutorId, String status, String date);
-    List<Booking> findTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc(
-            String tutorId, String status, String date);
-    List<Booking> findByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc(String tutorId, List<String> statuses, String todayStr);
+public interface BookingRepository extends MongoRepository<Booking, String>, BookingRepositoryCustom {
+    @Query("{ 'tutorId': ?0, 'startAt': { $gte: ?1, $lt: ?2 } }")
+    List<Booking> findByTutorIdAndStartAtRange(String tutorId, Instant from, Instant to);
 
-    List<Booking> findByStudentIdAndStatusInAndDateBeforeOrderByDateDesc(
-            String studentId, List<String> statuses, String date);
+    @Query("{ 'studentId': ?0, 'startAt': { $gte: ?1, $lt: ?2 } }")
+    List<Booking> findByStudentIdAndStartAtRange(String studentId, Instant from, Instant to);
 
-    List<Booking> findByStudentIdAndDate(String studentId, String date);
+    List<Booking> findByStudentIdOrderByStartAtAsc(String studentId);
 
+    // Keyset pages over (startAt, _id), the pageable only carries the sort and the page size
+    @Query("{ 'studentId': ?0, $or: [ { 'startAt': { $gt: ?1 } }, { 'startAt': ?1, '_id': { $gt: ?2 } } ] }")
+    List<Booking> findByStudentIdAfter(String studentId, Instant afterStartAt, ObjectId afterId, Pageable page);
 
+    // The same keyset run backwards, for newest-first listings
+    @Query("{ 'studentId': ?0, 'status': { $in: ?1 }, "
+            + "$or: [ { 'startAt': { $lt: ?2 } }, { 'startAt': ?2, '_id': { $lt: ?3 } } ] }")
+    List<Booking> findByStudentIdAndStatusBefore(String studentId, Collection<String> statuses,
+                                                 Instant beforeStartAt, ObjectId beforeId, Pageable page);
 
-}
\ No newline at end of file
+    @Query("{ 'studentId': ?0, 'status': { $in: ?1 }, "
+            + "$or: [ { 'startAt': { $lt: ?2 } }, { 'startAt': ?2, '_id': { $lt: ?3 } } ] }")
+    List<Booking> findByStudentIdAndStatusBefore(String studentId, Collection<String> statuses,
+                                                 Instant beforeStartAt, ObjectId beforeId, Sort sort);
+
+    @Query("{ 'tutorId': ?0, 'startAt': { $gte: ?1, $lt: ?2 }, "
+            + "$or: [ { 'startAt': { $gt: ?3 } }, { 'startAt': ?3, '_id': { $gt: ?4 } } ] }")
+    List<Booking> findByTutorIdAndStartAtRangeAfter(String tutorId, Instant from, Instant to,
+                                                    Instant afterStartAt, ObjectId afterId, Pageable page);
+}
@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.booking.repository;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+
+import java.util.List;
+import java.util.Set;
+
+public interface BookingRepositoryCustom {
+
+    /** Most bookings {@link #findTop} reads at once, so no listing pulls a whole booking history. */
+    int MAX_TOP_LIMIT = 100;
+
+    /**
+     * Top {@code limit} bookings matching the filter in the given order. A limit of 0 or less, or
+     * one above {@link #MAX_TOP_LIMIT}, reads {@link #MAX_TOP_LIMIT}. Counts are served by
+     * booking_stats, not by this query.
+     */
+    List<Booking> findTop(Criteria filter, Sort sort, int limit);
+
+    /**
+     * Move a booking from one of the {@code from} states to {@code to} in a single findAndModify
+     * that $sets only the status and the update time. Every move must be declared in
+     * {@link BookingStatus}; a booking in any other state is reported as a conflict.
+     */
+    BookingTransition transition(String bookingId, Set<BookingStatus> from, BookingStatus to);
+}
@@ -0,0 +1,57 @@
+package com.csy.springbootauthbe.booking.repository;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+@RequiredArgsConstructor
+public class BookingRepositoryImpl implements BookingRepositoryCustom {
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public List<Booking> findTop(Criteria filter, Sort sort, int limit) {
+        Query query = Query.query(filter).with(sort)
+                .limit(limit > 0 ? Math.min(limit, MAX_TOP_LIMIT) : MAX_TOP_LIMIT);
+        return mongoTemplate.find(query, Booking.class);
+    }
+
+    @Override
+    public BookingTransition transition(String bookingId, Set<BookingStatus> from, BookingStatus to) {
+        for (BookingStatus source : from) {
+            if (!source.canTransitionTo(to)) {
+                throw new RuntimeException("Undeclared booking transition " + source + " -> " + to);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        // The pre-image comes back, so the caller also learns which source state the booking left
+        Booking before = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("id").is(bookingId).and("status").in(from.stream().map(Enum::name).toList())),
+                new Update().set("status", to.name()).set("updatedAt", now),
+                Booking.class);
+        if (before != null) {
+            BookingStatus previous = BookingStatus.of(before.getStatus());
+            before.setStatus(to.name());
+            before.setUpdatedAt(now);
+            return BookingTransition.applied(before, previous);
+        }
+
+        // Only the losing side pays for a second read, to tell a conflict from a missing booking
+        Query current = Query.query(Criteria.where("id").is(bookingId));
+        current.fields().include("status");
+        Booking existing = mongoTemplate.findOne(current, Booking.class);
+        return existing == null
+                ? BookingTransition.notFound()
+                : BookingTransition.conflict(BookingStatus.of(existing.getStatus()));
+    }
+}
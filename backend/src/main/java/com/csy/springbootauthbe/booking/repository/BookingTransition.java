@@ -0,0 +1,30 @@
+package com.csy.springbootauthbe.booking.repository;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+
+/**
+ * Result of a conditional status change. {@code previous} is the status the booking was in when
+ * the change ran: the source state of an applied transition, or the state that caused a conflict.
+ * {@code booking} is the updated booking and is only set when the transition was applied.
+ */
+public record BookingTransition(Outcome outcome, Booking booking, BookingStatus previous) {
+
+    public enum Outcome {APPLIED, CONFLICT, NOT_FOUND}
+
+    public static BookingTransition applied(Booking booking, BookingStatus previous) {
+        return new BookingTransition(Outcome.APPLIED, booking, previous);
+    }
+
+    public static BookingTransition conflict(BookingStatus actual) {
+        return new BookingTransition(Outcome.CONFLICT, null, actual);
+    }
+
+    public static BookingTransition notFound() {
+        return new BookingTransition(Outcome.NOT_FOUND, null, null);
+    }
+
+    public boolean isApplied() {
+        return outcome == Outcome.APPLIED;
+    }
+}
@@ -1,8 +1,11 @@
 package com.csy.springbootauthbe.booking.service;
 
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingPage;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.dto.RecentBookingResponse;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
@@ -10,12 +13,16 @@ import java.util.Map;
 
 public interface BookingService {
     BookingDTO createBooking(BookingRequest dto);
+    RecurringBookingResult createRecurringBookings(RecurringBookingRequest dto);
     List<BookingDTO> getBookingsForTutor(String tutorId, String date);
     List<BookingDTO> getBookingsForStudent(String studentId);
+    BookingPage getBookingsForStudentPage(String studentId, String cursor, Integer limit);
     BookingDTO cancelBooking(String bookingId, String currentUserId);
     BookingDTO acceptBooking(String bookingId);
     BookingDTO getBookingById(String bookingId);
     List<BookingDTO> getBookingsForTutorBetweenDates(String tutorId, String startDate, String endDate);
+    BookingPage getBookingsForTutorBetweenDatesPage(String tutorId, String startDate, String endDate,
+                                                    String cursor, Integer limit);
     RecentBookingResponse getRecentPastBookings(String tutorId);
     RecentBookingResponse getUpcomingBookings(String tutorId);
     BookingDTO approveReschedule(String newBookingId);
@@ -23,5 +30,6 @@ public interface BookingService {
     BookingDTO rejectReschedule(String newBookingId);
 
     RecentBookingResponse getPastSessionsForStudent(String studentId);
+    RecentBookingResponse getPastSessionsForStudentPage(String studentId, String cursor, Integer limit);
     BookingDTO deleteBooking(String bookingId);
 }
\ No newline at end of file
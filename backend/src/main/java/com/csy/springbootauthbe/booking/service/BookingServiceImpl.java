@@ -1,28 +1,49 @@
 package com.csy.springbootauthbe.booking.service;
 
+import com.csy.springbootauthbe.booking.cache.BookingIntervalIndex;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingPage;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.dto.RecentBookingResponse;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
 import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
 import com.csy.springbootauthbe.booking.mapper.BookingMapper;
 import com.csy.springbootauthbe.booking.observer.BookingEvent;
+import com.csy.springbootauthbe.booking.observer.BookingEventBus;
 import com.csy.springbootauthbe.booking.observer.BookingNotificationObserver;
 import com.csy.springbootauthbe.booking.observer.BookingObserver;
 import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.booking.repository.BookingTransition;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.utils.BookingCursor;
+import com.csy.springbootauthbe.booking.utils.BookingRecurrence;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxService;
 import com.csy.springbootauthbe.common.utils.SanitizedLogger;
 import com.csy.springbootauthbe.notification.service.NotificationService;
-import com.csy.springbootauthbe.user.entity.User;
-import com.csy.springbootauthbe.user.repository.UserRepository;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache.UserDisplay;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
 import com.csy.springbootauthbe.wallet.service.WalletService;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -33,22 +54,38 @@ import java.util.stream.Stream;
 public class BookingServiceImpl implements BookingService {
 
     private final BookingRepository bookingRepository;
-    private final UserRepository userRepository;
+    private final UserDisplayCache userDisplayCache;
     private final BookingMapper bookingMapper;
     private final NotificationService notificationService;
     private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingServiceImpl.class);
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final int WIDGET_SIZE = 5;
+    private static final List<String> COMPLETED_STATUSES =
+            List.of(BookingStatus.confirmed.name(), BookingStatus.completed.name());
     private final WalletService walletService;
-    private static final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-    private final List<BookingObserver> observers = new ArrayList<>();
-
+    private final BookingIntervalIndex intervalIndex;
+    private final FreeSlotCalendar freeSlotCalendar;
+    private final BookingSlotService bookingSlotService;
+    private final BookingEventBus eventBus;
+    private final OutboxService outboxService;
+    private final BookingStatsService bookingStatsService;
+
+    // Accept only accrues the tutor's payable, the settlement run pays it out
+    @Value("${app.wallet.settlement.accrual:false}")
+    private boolean accruePayouts;
+
+    // Events go through the outbox; the relay publishes them to the observers once they are durable
     private void notifyObservers(Booking booking, BookingEvent.Type type, String initiatorUserId) {
-        BookingEvent event = new BookingEvent(booking, type, initiatorUserId);
-        for (BookingObserver observer : observers) {
-            observer.handleBookingEvent(event);
-        }
+        outboxService.append(OutboxEntry.forBooking(booking, type.name(), initiatorUserId));
+    }
+    // Keep the in-memory overlap index and the free-slot calendar in step with the booking
+    private void recordState(Booking booking) {
+        intervalIndex.record(booking);
+        freeSlotCalendar.record(booking);
     }
     public void addObserver(BookingObserver observer) {
-        observers.add(observer);
+        eventBus.register(observer);
     }
 
     @PostConstruct
@@ -60,39 +97,52 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     public BookingDTO createBooking(BookingRequest dto) {
         logger.info("Creating booking with payload: {}", dto);
-        // 1️⃣ Overlap check (same tutor)
-        List<Booking> existing = bookingRepository.findByTutorIdAndDate(dto.getTutorId(), dto.getDate());
-        boolean overlap = existing.stream()
-                .filter(b -> List.of("pending", "confirmed", "on_hold").contains(b.getStatus()))
-                .anyMatch(b -> b.getStart().compareTo(dto.getEnd()) < 0 && dto.getStart().compareTo(b.getEnd()) < 0);
-        if (overlap) {
+        bookingSlotService.requireAligned(dto.getStart(), dto.getEnd());
+        // 1️⃣ Overlap check (same tutor), served from the in-memory interval index
+        if (intervalIndex.hasOverlap(dto.getTutorId(), dto.getDate(), dto.getStart(), dto.getEnd())) {
             throw new RuntimeException("Selected slot is already booked.");
         }
 
         // 2️⃣ Check if student already booked with another tutor on same day
-        List<Booking> studentSameDay = bookingRepository.findByStudentIdAndDate(dto.getStudentId(), dto.getDate());
+        List<Booking> studentSameDay = bookingRepository.findByStudentIdAndStartAtRange(dto.getStudentId(),
+                BookingTimes.startOfDay(dto.getDate()), BookingTimes.endOfDay(dto.getDate()));
         boolean conflict = studentSameDay.stream()
-                .filter(b -> List.of("pending", "confirmed", "on_hold").contains(b.getStatus()))
+                .filter(b -> BookingIntervalIndex.ACTIVE_STATUSES.contains(b.getStatus()))
                 .anyMatch(b -> !b.getTutorId().equals(dto.getTutorId()));
         if (conflict) {
             throw new RuntimeException("You already have a booking with another tutor on this date.");
         }
 
         // 3️⃣ Validate amount
-        if (dto.getAmount() == null || dto.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+        Money amount = Money.ofNullable(dto.getAmount());
+        if (amount == null || !amount.isPositive()) {
             throw new RuntimeException("Invalid booking amount");
         }
 
-        // 4️⃣ Hold student credits
-        walletService.holdCredits(dto.getStudentId(), dto.getAmount(), "BOOKING-" + UUID.randomUUID());
-
-        // 5️⃣ Save booking
+        // 4️⃣ Reserve the slot with a single insert into booking_slots, a losing racer fails here
         Booking booking = bookingMapper.toEntity(dto);
+        BookingTimes.apply(booking);
+        booking.setId(new ObjectId().toHexString());
+        bookingSlotService.claim(booking.getId(), dto.getTutorId(), dto.getDate(), dto.getStart(), dto.getEnd());
+
+        // 5️⃣ Hold student credits
+        try {
+            walletService.holdCredits(dto.getStudentId(), amount, booking.getId(),
+                    CreditHold.expiryFor(booking.getEndAt()));
+        } catch (RuntimeException e) {
+            bookingSlotService.release(booking.getId());
+            throw e;
+        }
+
+        // 6️⃣ Save booking (id is pre-assigned, so auditing would treat it as an update)
+        booking.setCreatedAt(LocalDateTime.now());
         booking.setTutorName(dto.getTutorName());
         booking.setStudentName(dto.getStudentName());
-        booking.setStatus("pending");
-        booking.setAmount(dto.getAmount());
+        booking.setStatus(BookingStatus.pending.name());
+        booking.setAmount(amount);
         Booking saved = bookingRepository.save(booking);
+        recordState(saved);
+        bookingStatsService.recordCreated(List.of(saved));
 
         // notify
         notifyObservers(saved, BookingEvent.Type.booking_created, saved.getStudentId()); // student initiates booking creation
@@ -100,23 +150,101 @@ public class BookingServiceImpl implements BookingService {
         return bookingMapper.toDto(saved);
     }
 
+    @Override
+    @Transactional
+    public RecurringBookingResult createRecurringBookings(RecurringBookingRequest dto) {
+        logger.info("Creating recurring booking with payload: {}", dto);
+        bookingSlotService.requireAligned(dto.getStart(), dto.getEnd());
+        Money amount = Money.ofNullable(dto.getAmount());
+        if (amount == null || !amount.isPositive()) {
+            throw new RuntimeException("Invalid booking amount");
+        }
+        List<LocalDate> dates = BookingRecurrence.expand(LocalDate.parse(dto.getStartDate()),
+                dto.getUntil() != null ? LocalDate.parse(dto.getUntil()) : null, dto.getCount(),
+                dto.getIntervalWeeks() != null ? dto.getIntervalWeeks() : 1, dto.getDaysOfWeek());
+
+        // 1️⃣ One range query per side covers the whole series, every occurrence is checked in memory
+        Instant from = BookingTimes.startOfDay(dates.get(0));
+        Instant to = BookingTimes.startOfDay(dates.get(dates.size() - 1).plusDays(1));
+        List<Booking> tutorBookings = activeOnly(bookingRepository.findByTutorIdAndStartAtRange(dto.getTutorId(), from, to));
+        Set<LocalDate> otherTutorDays = activeOnly(bookingRepository.findByStudentIdAndStartAtRange(dto.getStudentId(), from, to))
+                .stream()
+                .filter(b -> !b.getTutorId().equals(dto.getTutorId()))
+                .map(b -> LocalDate.ofInstant(b.getStartAt(), BookingTimes.ZONE))
+                .collect(Collectors.toSet());
+
+        List<RecurringBookingResult.Conflict> conflicts = new ArrayList<>();
+        for (LocalDate date : dates) {
+            Instant startAt = BookingTimes.toInstant(date.toString(), dto.getStart());
+            Instant endAt = BookingTimes.toInstant(date.toString(), dto.getEnd());
+            if (tutorBookings.stream().anyMatch(b -> b.getStartAt().isBefore(endAt) && startAt.isBefore(b.getEndAt()))) {
+                conflicts.add(new RecurringBookingResult.Conflict(date.toString(), dto.getStart(), dto.getEnd(),
+                        "Selected slot is already booked."));
+            } else if (otherTutorDays.contains(date)) {
+                conflicts.add(new RecurringBookingResult.Conflict(date.toString(), dto.getStart(), dto.getEnd(),
+                        "You already have a booking with another tutor on this date."));
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            logger.warn("Recurring booking rejected, {} of {} occurrences conflict", conflicts.size(), dates.size());
+            return RecurringBookingResult.builder().bookings(List.of()).conflicts(conflicts).build();
+        }
+
+        // 2️⃣ Claim the slots of every occurrence with a single insert, a lost race fails the whole series
+        String seriesId = new ObjectId().toHexString();
+        List<Booking> bookings = dates.stream().map(date -> newOccurrence(dto, date, seriesId)).toList();
+        Map<String, Set<String>> slotKeys = new LinkedHashMap<>();
+        bookings.forEach(b -> slotKeys.put(b.getId(), slotKeysOf(b)));
+        bookingSlotService.claimAll(dto.getTutorId(), slotKeys);
+
+        // 3️⃣ One wallet update for the whole series, one hold per occurrence so each settles on its own
+        List<CreditHold> holds = bookings.stream()
+                .map(b -> CreditHold.of(b.getId(), amount, CreditHold.expiryFor(b.getEndAt())))
+                .toList();
+        try {
+            walletService.holdCredits(dto.getStudentId(), holds, "RECURRING-" + seriesId);
+        } catch (RuntimeException e) {
+            bookingSlotService.releaseAll(slotKeys.keySet());
+            throw e;
+        }
+
+        // 4️⃣ Insert all occurrences at once
+        List<Booking> saved;
+        try {
+            saved = bookingRepository.insert(bookings);
+        } catch (RuntimeException e) {
+            // An insert can fail part way, drop whichever occurrences made it in before refunding the series
+            bookingRepository.deleteAllById(slotKeys.keySet());
+            bookingSlotService.releaseAll(slotKeys.keySet());
+            walletService.refundHolds(dto.getStudentId(), slotKeys.keySet(), "RECURRING-" + seriesId);
+            throw e;
+        }
+        saved.forEach(this::recordState);
+        bookingStatsService.recordCreated(saved);
+        saved.forEach(b -> notifyObservers(b, BookingEvent.Type.booking_created, b.getStudentId()));
+
+        return RecurringBookingResult.builder()
+                .seriesId(seriesId)
+                .bookings(saved.stream().map(bookingMapper::toDto).toList())
+                .conflicts(List.of())
+                .build();
+    }
+
 
 
     @Override
     public RecentBookingResponse getRecentPastBookings(String tutorId) {
         logger.info("Get Recenting booking with tutor: {}", tutorId);
-        String todayStr = LocalDate.now().format(formatter);
-        String status = "confirmed";
-        long totalCompleted = bookingRepository
-                .countByTutorIdAndStatusAndDateBefore(tutorId, status, todayStr);
+        Instant today = BookingTimes.startOfDay(BookingTimes.today());
 
-        List<Booking> recentPastSessions = bookingRepository
-                .findTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc(
-                        tutorId, status, todayStr);
+        // Latest 5 from the (tutorId, status, startAt) index, the overall count is a booking_stats read
+        List<Booking> recentPastSessions = bookingRepository.findTop(
+                Criteria.where("tutorId").is(tutorId).and("status").in(COMPLETED_STATUSES).and("startAt").lt(today),
+                Sort.by(Sort.Direction.DESC, "startAt"), WIDGET_SIZE);
 
         RecentBookingResponse response = new RecentBookingResponse();
         response.setRecentSessions(recentPastSessions.stream().map(bookingMapper::toDto).toList());
-        response.setTotalCount(totalCompleted);
+        response.setTotalCount(bookingStatsService.get(tutorId).getCompleted());
 
         return response;
     }
@@ -124,20 +252,16 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public RecentBookingResponse getUpcomingBookings(String tutorId) {
         logger.info("Getting upcoming 5 bookings for a tutor : {}", tutorId);
-        String todayStr = LocalDate.now().format(formatter);
-        List<String> statuses = List.of("confirmed", "pending","on_hold");
+        Instant today = BookingTimes.startOfDay(BookingTimes.today());
 
-        List<Booking> upcomingSessions = bookingRepository
-                .findByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc(
-                        tutorId, statuses, todayStr);
+        // Next 5 sessions, the overall count is a booking_stats read
+        List<Booking> upcomingSessions = bookingRepository.findTop(
+                Criteria.where("tutorId").is(tutorId).and("status").in(BookingIntervalIndex.ACTIVE_STATUSES).and("startAt").gte(today),
+                Sort.by(Sort.Direction.ASC, "startAt"), WIDGET_SIZE);
 
-        // limit to 5 upcoming sessions
-        List<Booking> next5Sessions = upcomingSessions.stream()
-                .limit(5)
-                .toList();
         RecentBookingResponse response = new RecentBookingResponse();
-        response.setRecentSessions(next5Sessions.stream().map(bookingMapper::toDto).toList());
-        response.setTotalCount(upcomingSessions.size());
+        response.setRecentSessions(upcomingSessions.stream().map(bookingMapper::toDto).toList());
+        response.setTotalCount(bookingStatsService.get(tutorId).getUpcoming());
         return response;
     }
 
@@ -146,7 +270,8 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public List<BookingDTO> getBookingsForTutor(String tutorId, String date) {
         logger.info("Fetching bookings for a tutor : {}", tutorId);
-        return bookingRepository.findByTutorIdAndDate(tutorId, date)
+        return bookingRepository.findByTutorIdAndStartAtRange(tutorId,
+                        BookingTimes.startOfDay(date), BookingTimes.endOfDay(date))
                 .stream().map(bookingMapper::toDto)
                 .collect(Collectors.toList());
     }
@@ -155,81 +280,92 @@ public class BookingServiceImpl implements BookingService {
     public List<BookingDTO> getBookingsForTutorBetweenDates(String tutorId, String startDate, String endDate) {
         logger.info("Fetching bookings for tutorId={} between {} and {}", tutorId, startDate, endDate);
 
-        List<Booking> bookings = bookingRepository.findBookingsByTutorIdAndDateRange(tutorId, startDate, endDate);
+        List<Booking> bookings = bookingRepository.findByTutorIdAndStartAtRange(tutorId,
+                BookingTimes.startOfDay(startDate), BookingTimes.endOfDay(endDate));
 
         logger.info("Found {} bookings", bookings.size());
-        for (Booking b : bookings) {
-            logger.info("Booking: id={}, date={}, status={}", b.getId(), b.getDate(), b.getStatus());
-        }
 
         return bookings.stream()
                 .map(bookingMapper::toDto)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public BookingPage getBookingsForTutorBetweenDatesPage(String tutorId, String startDate, String endDate,
+                                                           String cursor, Integer limit) {
+        Instant from = BookingTimes.startOfDay(startDate);
+        BookingCursor after = cursor != null ? BookingCursor.decode(cursor) : BookingCursor.before(from);
+        int size = pageSize(limit);
+
+        List<Booking> bookings = bookingRepository.findByTutorIdAndStartAtRangeAfter(tutorId, from,
+                BookingTimes.endOfDay(endDate), after.startAt(), after.id(), keysetPage(size));
+        return toPage(bookings, size, bookingMapper::toDto);
+    }
+
 
     @Override
     public List<BookingDTO> getBookingsForStudent(String studentId) {
         logger.info("Get booking with payload student: {}", studentId);
-        List<Booking> bookings = bookingRepository.findByStudentId(studentId);
-
-        // Sort by date ascending, then start time ascending
-        bookings.sort(Comparator
-                .comparing(Booking::getDate)                 // assuming getDate() returns java.time.LocalDate or java.util.Date
-                .thenComparing(Booking::getStart)           // assuming getStart() returns java.time.LocalTime or String "HH:mm"
-        );
+        // Sorted by lesson start in Mongo through the (studentId, startAt) index
+        List<Booking> bookings = bookingRepository.findByStudentIdOrderByStartAtAsc(studentId);
 
         // Get all unique userIds
         Set<String> userIds = bookings.stream()
                 .flatMap(b -> Stream.of(b.getStudentId(), b.getTutorId()))
                 .collect(Collectors.toSet());
 
-        Map<String, User> usersMap = userRepository.findAllById(userIds)
-                .stream()
-                .collect(Collectors.toMap(User::getId, Function.identity()));
+        Map<String, UserDisplay> usersMap = userDisplayCache.getAll(userIds);
 
-        return bookings.stream().map(booking -> {
-            BookingDTO dto = bookingMapper.toDto(booking);
+        return bookings.stream().map(booking -> withNames(bookingMapper.toDto(booking), booking, usersMap))
+                .collect(Collectors.toList());
+    }
 
-            User student = usersMap.get(booking.getStudentId());
-            User tutor = usersMap.get(booking.getTutorId());
+    @Override
+    public BookingPage getBookingsForStudentPage(String studentId, String cursor, Integer limit) {
+        BookingCursor after = cursor != null ? BookingCursor.decode(cursor) : BookingCursor.before(Instant.EPOCH);
+        int size = pageSize(limit);
 
-            dto.setStudentName(student.getFirstname() + " " + student.getLastname());
-            dto.setTutorName(tutor.getFirstname() + " " + tutor.getLastname());
+        List<Booking> bookings = bookingRepository.findByStudentIdAfter(studentId, after.startAt(), after.id(),
+                keysetPage(size));
 
-            return dto;
-        }).collect(Collectors.toList());
+        // Names are resolved for the page only, not for the student's whole history
+        Set<String> userIds = bookings.stream()
+                .limit(size)
+                .flatMap(b -> Stream.of(b.getStudentId(), b.getTutorId()))
+                .collect(Collectors.toSet());
+        Map<String, UserDisplay> usersMap = userDisplayCache.getAll(userIds);
+
+        return toPage(bookings, size, booking -> withNames(bookingMapper.toDto(booking), booking, usersMap));
     }
 
 
     @Override
     @Transactional
     public BookingDTO acceptBooking(String bookingId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        // Only allow acceptance of pending bookings
-        if (!"pending".equals(booking.getStatus())) {
-            throw new RuntimeException("Only pending bookings can be accepted.");
-        }
-
-        booking.setStatus("confirmed");
-        Booking savedBooking = bookingRepository.save(booking);
-
-        // ✅ Release funds from student to tutor
-        if (booking.getAmount() != null && booking.getAmount().compareTo(BigDecimal.ZERO) > 0) {
-            walletService.releaseToTutor(
-                    booking.getStudentId(),
-                    booking.getTutorId(),
-                    booking.getAmount(),
-                    booking.getId()
-            );
+        // Only allow acceptance of pending bookings, checked by the update itself
+        Booking booking = transition(bookingId, EnumSet.of(BookingStatus.pending), BookingStatus.confirmed,
+                "Only pending bookings can be accepted.").booking();
+        recordState(booking);
+
+        // ✅ Release funds from student to tutor, or accrue them for the next settlement
+        if (booking.getAmount() != null && booking.getAmount().isPositive()) {
+            if (accruePayouts) {
+                walletService.accrueToTutor(booking.getStudentId(), booking.getTutorId(), booking.getAmount(),
+                        booking.getId());
+            } else {
+                walletService.releaseToTutor(
+                        booking.getStudentId(),
+                        booking.getTutorId(),
+                        booking.getAmount(),
+                        booking.getId()
+                );
+            }
         }
 
         // Notify
         notifyObservers(booking, BookingEvent.Type.booking_accepted, booking.getTutorId()); // tutor initiates accept booking
 
-        return bookingMapper.toDto(savedBooking);
+        return bookingMapper.toDto(booking);
     }
 
 
@@ -238,22 +374,20 @@ public class BookingServiceImpl implements BookingService {
     @Override
     @Transactional
     public BookingDTO cancelBooking(String bookingId, String currentUserId) {
-        Booking booking = bookingRepository.findById(bookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
+        // Only allow cancel if not already cancelled or completed
+        BookingTransition cancelled = transition(bookingId, BookingStatus.sourcesOf(BookingStatus.cancelled),
+                BookingStatus.cancelled, null);
+        Booking booking = cancelled.booking();
 
-        // Only allow cancel if not already confirmed or cancelled
-        if (List.of("cancelled", "completed").contains(booking.getStatus())) {
-            throw new RuntimeException("Booking is already " + booking.getStatus());
-        }
+        // Determine if refund is needed from the state the booking was cancelled in; an on_hold
+        // reschedule carries no credits of its own, they stay held for the original booking
+        boolean refundable = cancelled.previous() == BookingStatus.pending;
 
-        // Determine if refund is needed
-        boolean refundable = "pending".equals(booking.getStatus()) || "on_hold".equals(booking.getStatus());
-
-        booking.setStatus("cancelled");
-        Booking savedBooking = bookingRepository.save(booking);
+        recordState(booking);
+        bookingSlotService.release(booking.getId());
 
         // ✅ Refund student if booking not yet accepted
-        if (refundable && booking.getAmount() != null && booking.getAmount().compareTo(BigDecimal.ZERO) > 0) {
+        if (refundable && booking.getAmount() != null && booking.getAmount().isPositive()) {
             walletService.refundStudent(
                     booking.getStudentId(),
                     booking.getAmount(),
@@ -262,9 +396,9 @@ public class BookingServiceImpl implements BookingService {
         }
 
         // ✅ Notify the other user
-        notifyObservers(savedBooking, BookingEvent.Type.booking_cancelled, currentUserId);
+        notifyObservers(booking, BookingEvent.Type.booking_cancelled, currentUserId);
 
-        return bookingMapper.toDto(savedBooking);
+        return bookingMapper.toDto(booking);
     }
 
 
@@ -289,39 +423,51 @@ public class BookingServiceImpl implements BookingService {
                 });
         logger.info("Current booking fetched: {}", currentBooking);
 
-        // 2. Ensure booking is confirmed
-        if (!"confirmed".equals(currentBooking.getStatus())) {
+        // 2. Ensure booking is confirmed (checked again atomically when it is moved in step 5)
+        if (!BookingStatus.confirmed.name().equals(currentBooking.getStatus())) {
             logger.warn("Booking status is not confirmed: {}", currentBooking.getStatus());
             throw new RuntimeException("Only confirmed bookings can be rescheduled.");
         }
 
         // 3. Check for overlap on new slot
-        List<Booking> overlapping = bookingRepository.findByTutorIdAndDate(newSlotRequest.getTutorId(), newSlotRequest.getDate());
-        logger.info("Found {} bookings on the same date for tutorId={}", overlapping.size(), newSlotRequest.getTutorId());
-
-        boolean conflict = overlapping.stream()
-                .filter(b -> "pending".equals(b.getStatus()) || "confirmed".equals(b.getStatus()) || "on_hold".equals(b.getStatus()))
-                .anyMatch(b -> b.getStart().compareTo(newSlotRequest.getEnd()) < 0 &&
-                        newSlotRequest.getStart().compareTo(b.getEnd()) < 0);
+        bookingSlotService.requireAligned(newSlotRequest.getStart(), newSlotRequest.getEnd());
+        boolean conflict = intervalIndex.hasOverlap(newSlotRequest.getTutorId(), newSlotRequest.getDate(),
+                newSlotRequest.getStart(), newSlotRequest.getEnd());
 
         if (conflict) {
             logger.warn("Conflict detected for new slot: start={}, end={}", newSlotRequest.getStart(), newSlotRequest.getEnd());
             throw new RuntimeException("Selected slot is already booked.");
         }
 
-        // 4. Update current booking status to RESCHEDULE_REQUESTED
-        currentBooking.setStatus("reschedule_requested");
-        bookingRepository.save(currentBooking);
+        // 4. Reserve the new slot; quanta shared with the current booking stay with it until the tutor decides
+        Booking newBooking = bookingMapper.toEntity(newSlotRequest);
+        BookingTimes.apply(newBooking);
+        newBooking.setId(new ObjectId().toHexString());
+        Set<String> newSlotKeys = slotKeysOf(newBooking);
+        newSlotKeys.removeAll(slotKeysOf(currentBooking));
+        bookingSlotService.claim(newBooking.getId(), newBooking.getTutorId(), newBooking.getDate(), newSlotKeys);
+
+        // 5. Move current booking to RESCHEDULE_REQUESTED, giving the new slots back if it changed meanwhile
+        try {
+            currentBooking = transition(bookingId, EnumSet.of(BookingStatus.confirmed),
+                    BookingStatus.reschedule_requested, "Only confirmed bookings can be rescheduled.").booking();
+        } catch (RuntimeException e) {
+            bookingSlotService.release(newBooking.getId());
+            throw e;
+        }
+        recordState(currentBooking);
         logger.info("Updated current booking to reschedule_requested: {}", currentBooking.getId());
 
-        // 5. Create a new booking in ON_HOLD for the requested slot
-        Booking newBooking = bookingMapper.toEntity(newSlotRequest);
-        newBooking.setStatus("on_hold");
+        // 6. Create a new booking in ON_HOLD for the requested slot
+        newBooking.setCreatedAt(LocalDateTime.now());
+        newBooking.setStatus(BookingStatus.on_hold.name());
         newBooking.setOriginalBookingId(currentBooking.getId());
         Booking savedNewBooking = bookingRepository.save(newBooking);
+        recordState(savedNewBooking);
+        bookingStatsService.recordCreated(List.of(savedNewBooking));
         logger.info("Created new on_hold booking: {}", savedNewBooking.getId());
 
-        // 6. Notify tutor
+        // 7. Notify tutor
         notifyObservers(savedNewBooking, BookingEvent.Type.reschedule_requested, savedNewBooking.getStudentId()); // student requests reschedule
         logger.info("Notification sent to tutorId={}", currentBooking.getTutorId());
 
@@ -332,24 +478,35 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     @Override
     public BookingDTO approveReschedule(String newBookingId) {
-        // 1. Fetch new booking
-        Booking newBooking = bookingRepository.findById(newBookingId)
-                .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        // 2. Fetch current booking
-        Booking currentBooking = bookingRepository.findById(newBooking.getOriginalBookingId())
-                .orElseThrow(() -> new RuntimeException("Original booking not found"));
-
-        // 3. Update current booking → CANCELLED
-        currentBooking.setStatus("cancelled");
-        bookingRepository.save(currentBooking);
-
-        // 4. Update new booking → CONFIRMED
-        newBooking.setStatus("confirmed");
-        Booking savedNewBooking = bookingRepository.save(newBooking);
+        // 1. Update new booking ON_HOLD → CONFIRMED, the returned booking carries the original's id
+        Booking savedNewBooking = transition(newBookingId, EnumSet.of(BookingStatus.on_hold), BookingStatus.confirmed,
+                "Only on_hold bookings can be approved.").booking();
+        recordState(savedNewBooking);
+        String originalBookingId = savedNewBooking.getOriginalBookingId();
+
+        // 2. Update current booking RESCHEDULE_REQUESTED → CANCELLED
+        BookingTransition original = tryTransition(originalBookingId,
+                EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.cancelled);
+        if (!original.isApplied()) {
+            // The original moved on meanwhile (e.g. it was cancelled), so the new booking has nothing to replace
+            logger.warn("Original booking {} not cancelled on reschedule approval: {} {}", originalBookingId,
+                    original.outcome(), original.previous());
+            BookingTransition undone = tryTransition(savedNewBooking.getId(), EnumSet.of(BookingStatus.confirmed),
+                    BookingStatus.cancelled);
+            if (undone.isApplied()) {
+                recordState(undone.booking());
+            }
+            bookingSlotService.release(savedNewBooking.getId());
+            if (original.outcome() == BookingTransition.Outcome.NOT_FOUND) {
+                throw new RuntimeException("Original booking not found");
+            }
+            throw new RuntimeException("Original booking is already " + original.previous());
+        }
+        recordState(original.booking());
+        bookingSlotService.transfer(originalBookingId, savedNewBooking.getId(), slotKeysOf(savedNewBooking));
 
         // 5. Notify
-        notifyObservers(savedNewBooking, BookingEvent.Type.reschedule_requested, savedNewBooking.getTutorId()); // tutor initiates accept reschedule
+        notifyObservers(savedNewBooking, BookingEvent.Type.reschedule_approved, savedNewBooking.getTutorId()); // tutor approves the reschedule
 
         return bookingMapper.toDto(savedNewBooking);
     }
@@ -357,56 +514,76 @@ public class BookingServiceImpl implements BookingService {
     @Transactional
     @Override
     public BookingDTO rejectReschedule(String newBookingId) {
-        // 1. Fetch new (on_hold) booking
-        Booking newBooking = bookingRepository.findById(newBookingId)
-            .orElseThrow(() -> new RuntimeException("Booking not found"));
-
-        if (!"on_hold".equals(newBooking.getStatus())) {
-            throw new RuntimeException("Only on_hold bookings can be rejected.");
+        // 1. Cancel the new on_hold booking, the returned booking carries the original's id
+        Booking newBooking = transition(newBookingId, EnumSet.of(BookingStatus.on_hold), BookingStatus.cancelled,
+            "Only on_hold bookings can be rejected.").booking();
+        recordState(newBooking);
+        bookingSlotService.release(newBooking.getId());
+
+        // 2. Restore original booking status to confirmed
+        BookingTransition restored = tryTransition(newBooking.getOriginalBookingId(),
+            EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.confirmed);
+        if (restored.outcome() == BookingTransition.Outcome.NOT_FOUND) {
+            throw new RuntimeException("Original booking not found");
+        }
+        if (!restored.isApplied()) {
+            throw new RuntimeException("Original booking is already " + restored.previous());
+        }
+        Booking originalBooking = restored.booking();
+        recordState(originalBooking);
+
+        // 3. Notify student and tutor with a single batched write
+        try {
+            notificationService.createNotifications(List.of(
+                NotificationService.notification(
+                    newBooking.getStudentId(),
+                    "reschedule_rejected",
+                    newBooking.getId(),
+                    "Your reschedule request of " + newBooking.getDate() + " for " + newBooking.getLessonType() +
+                        " from " + newBooking.getTutorName() + " was rejected. Your original booking remains confirmed."
+                ),
+                NotificationService.notification(
+                    newBooking.getTutorId(),
+                    "reschedule_rejected",
+                    newBooking.getId(),
+                    "You have rejected the reschedule request " + newBooking.getDate() + " " + newBooking.getLessonType() +
+                        " for " + newBooking.getStudentName() + ". The original booking has been restored."
+                )
+            ));
+        } catch (RuntimeException e) {
+            // Both bookings are in their final state already; a lost notification must not fail the rejection
+            logger.error("Failed to notify reschedule rejection of booking {}", e, newBooking.getId());
         }
-
-        // 2. Fetch the original booking
-        Booking originalBooking = bookingRepository.findById(newBooking.getOriginalBookingId())
-            .orElseThrow(() -> new RuntimeException("Original booking not found"));
-
-        // 3. Restore original booking status to confirmed
-        originalBooking.setStatus("confirmed");
-        bookingRepository.save(originalBooking);
-
-        // 4. Cancel the new on_hold booking
-        newBooking.setStatus("cancelled");
-        bookingRepository.save(newBooking);
-
-        // 5. Notify student and tutor
-        notificationService.createNotification(
-            newBooking.getStudentId(),
-            "reschedule_rejected",
-            newBooking.getId(),
-            "Your reschedule request of " + newBooking.getDate() + " for " + newBooking.getLessonType() +
-                " from " + newBooking.getTutorName() + " was rejected. Your original booking remains confirmed."
-        );
-
-        notificationService.createNotification(
-            newBooking.getTutorId(),
-            "reschedule_rejected",
-            newBooking.getId(),
-            "You have rejected the reschedule request " + newBooking.getDate() + " " + newBooking.getLessonType() +
-                " for " + newBooking.getStudentName() + ". The original booking has been restored."
-        );
 
         return bookingMapper.toDto(originalBooking);
     }
 
     @Override
     public RecentBookingResponse getPastSessionsForStudent(String studentId) {
-        String todayStr = LocalDate.now().format(formatter);
-        List<String> completedStatuses = List.of("completed", "confirmed");
+        // Every past session, newest first; callers after a bounded response page it instead
+        BookingCursor until = BookingCursor.until(BookingTimes.startOfDay(BookingTimes.today()));
+        List<Booking> pastSessions = bookingRepository.findByStudentIdAndStatusBefore(studentId, COMPLETED_STATUSES,
+                until.startAt(), until.id(), Sort.by(Sort.Direction.DESC, "startAt", "id"));
+        return pastSessionsResponse(studentId, pastSessions, null);
+    }
 
-        // 1 Fetch all past sessions before today
-        List<Booking> pastSessions = bookingRepository
-                .findByStudentIdAndStatusInAndDateBeforeOrderByDateDesc(studentId, completedStatuses, todayStr);
+    @Override
+    public RecentBookingResponse getPastSessionsForStudentPage(String studentId, String cursor, Integer limit) {
+        BookingCursor until = cursor != null ? BookingCursor.decode(cursor)
+                : BookingCursor.until(BookingTimes.startOfDay(BookingTimes.today()));
+        int size = pageSize(limit);
+
+        // Newest first from the (studentId, startAt, _id) index, one extra row tells whether more follow
+        List<Booking> bookings = bookingRepository.findByStudentIdAndStatusBefore(studentId, COMPLETED_STATUSES,
+                until.startAt(), until.id(), PageRequest.of(0, size + 1, Sort.by(Sort.Direction.DESC, "startAt", "id")));
+        boolean hasMore = bookings.size() > size;
+        List<Booking> page = hasMore ? bookings.subList(0, size) : bookings;
+        return pastSessionsResponse(studentId, page, hasMore ? BookingCursor.after(page.get(size - 1)).encode() : null);
+    }
 
-        long totalCount = pastSessions.size();
+    private RecentBookingResponse pastSessionsResponse(String studentId, List<Booking> pastSessions, String nextCursor) {
+        // 1 The overall count is a booking_stats read
+        long totalCount = bookingStatsService.get(studentId).getCompleted();
 
         // 2 Collect all tutor IDs
         Set<String> tutorIds = pastSessions.stream()
@@ -414,18 +591,16 @@ public class BookingServiceImpl implements BookingService {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toSet());
 
-        // 3 Fetch tutor user info
-        Map<String, User> tutorMap = userRepository.findAllById(tutorIds)
-                .stream()
-                .collect(Collectors.toMap(User::getId, Function.identity()));
+        // 3 Fetch tutor display names, only cache misses hit the users collection
+        Map<String, UserDisplay> tutorMap = userDisplayCache.getAll(tutorIds);
 
         // 4 Map bookings to DTOs with tutor name
         List<BookingDTO> dtoList = pastSessions.stream().map(b -> {
             BookingDTO dto = bookingMapper.toDto(b);
 
-            User tutor = tutorMap.get(b.getTutorId());
+            UserDisplay tutor = tutorMap.get(b.getTutorId());
             if (tutor != null) {
-                dto.setTutorName(tutor.getFirstname() + " " + tutor.getLastname());
+                dto.setTutorName(tutor.name());
             } else {
                 dto.setTutorName("Unknown Tutor");
             }
@@ -437,18 +612,107 @@ public class BookingServiceImpl implements BookingService {
         RecentBookingResponse response = new RecentBookingResponse();
         response.setRecentSessions(dtoList);
         response.setTotalCount(totalCount);
+        response.setNextCursor(nextCursor);
 
         return response;
     }
 
     @Override
     public BookingDTO deleteBooking(String bookingId) {
-        Booking booking = bookingRepository.findById(bookingId).orElseThrow(() -> new RuntimeException("Booking not found"));
-        booking.setStatus("cancelled");
-        booking.setUpdatedAt(LocalDateTime.now());
-        bookingRepository.save(booking);
+        // Admin removal cancels from any state that may still be cancelled, without refund or notification
+        Booking booking = transition(bookingId, BookingStatus.sourcesOf(BookingStatus.cancelled),
+                BookingStatus.cancelled, null).booking();
+        recordState(booking);
+        bookingSlotService.release(booking.getId());
         return bookingMapper.toDto(booking);
     }
 
+    /**
+     * Apply a declared status transition in one round trip. A missing booking or one that is not in
+     * any of the {@code from} states fails with a RuntimeException, by default "Booking is already ...".
+     */
+    private BookingTransition transition(String bookingId, Set<BookingStatus> from, BookingStatus to,
+                                         String conflictMessage) {
+        BookingTransition result = tryTransition(bookingId, from, to);
+        if (result.outcome() == BookingTransition.Outcome.NOT_FOUND) {
+            throw new RuntimeException("Booking not found");
+        }
+        if (result.outcome() == BookingTransition.Outcome.CONFLICT) {
+            logger.warn("Booking {} is {}, cannot move to {}", bookingId, result.previous(), to);
+            throw new RuntimeException(conflictMessage != null ? conflictMessage : "Booking is already " + result.previous());
+        }
+        return result;
+    }
+
+    /** Apply a declared status transition and move the booking_stats counters along when it succeeds. */
+    private BookingTransition tryTransition(String bookingId, Set<BookingStatus> from, BookingStatus to) {
+        BookingTransition result = bookingRepository.transition(bookingId, from, to);
+        if (result.isApplied()) {
+            bookingStatsService.recordTransition(result.booking(), result.previous());
+        }
+        return result;
+    }
+
+    private static BookingDTO withNames(BookingDTO dto, Booking booking, Map<String, UserDisplay> users) {
+        UserDisplay student = users.get(booking.getStudentId());
+        UserDisplay tutor = users.get(booking.getTutorId());
+        if (student != null) dto.setStudentName(student.name());
+        if (tutor != null) dto.setTutorName(tutor.name());
+        return dto;
+    }
+
+    private static int pageSize(Integer limit) {
+        if (limit == null) return DEFAULT_PAGE_SIZE;
+        return Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+    }
+
+    // One extra row tells whether another page exists without a count query
+    private static Pageable keysetPage(int size) {
+        return PageRequest.of(0, size + 1, Sort.by("startAt", "id"));
+    }
+
+    private static BookingPage toPage(List<Booking> bookings, int size, Function<Booking, BookingDTO> toDto) {
+        boolean hasMore = bookings.size() > size;
+        List<Booking> page = hasMore ? bookings.subList(0, size) : bookings;
+        return BookingPage.builder()
+                .items(page.stream().map(toDto).toList())
+                .nextCursor(hasMore ? BookingCursor.after(page.get(size - 1)).encode() : null)
+                .build();
+    }
+
+    private static List<Booking> activeOnly(List<Booking> bookings) {
+        return bookings.stream()
+                .filter(b -> BookingIntervalIndex.ACTIVE_STATUSES.contains(b.getStatus()))
+                .filter(b -> b.getStartAt() != null && b.getEndAt() != null)
+                .toList();
+    }
+
+    private static Booking newOccurrence(RecurringBookingRequest dto, LocalDate date, String seriesId) {
+        Booking booking = Booking.builder()
+                .id(new ObjectId().toHexString())
+                .tutorId(dto.getTutorId())
+                .studentId(dto.getStudentId())
+                .tutorName(dto.getTutorName())
+                .studentName(dto.getStudentName())
+                .lessonType(dto.getLessonType())
+                .date(date.toString())
+                .start(dto.getStart())
+                .end(dto.getEnd())
+                .amount(Money.of(dto.getAmount()))
+                .status(BookingStatus.pending.name())
+                .seriesId(seriesId)
+                .createdAt(LocalDateTime.now())
+                .build();
+        BookingTimes.apply(booking);
+        return booking;
+    }
+
+    private Set<String> slotKeysOf(Booking b) {
+        if (b.getTutorId() == null || b.getDate() == null || b.getStart() == null || b.getEnd() == null) {
+            return new HashSet<>();
+        }
+        return bookingSlotService.slotKeys(b.getTutorId(), b.getDate(), b.getStart(), b.getEnd());
+    }
+
 
 }
@@ -0,0 +1,140 @@
+package com.csy.springbootauthbe.booking.service;
+
+import com.csy.springbootauthbe.booking.entity.BookingSlot;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reserves tutor time through the booking_slots collection. A booking claims one
+ * document per slot quantum it covers; the claim is a single batch insert and the
+ * unique _id makes the losing side of a race fail immediately, without locks. New
+ * bookings must start and end on the quantum grid, so two bookings that only touch
+ * never claim the same quantum.
+ */
+@Service
+public class BookingSlotService {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingSlotService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int quantumMinutes;
+
+    public BookingSlotService(MongoTemplate mongoTemplate,
+                              @Value("${booking.slot.quantum-minutes:15}") int quantumMinutes) {
+        this.mongoTemplate = mongoTemplate;
+        this.quantumMinutes = quantumMinutes;
+    }
+
+    /**
+     * Refuse a start or end off the slot grid. A claim covers whole quanta, so an off-grid edge
+     * would take the quantum an adjacent booking needs.
+     */
+    public void requireAligned(String start, String end) {
+        if (toMinutes(start) % quantumMinutes != 0 || toMinutes(end) % quantumMinutes != 0) {
+            throw new RuntimeException("Bookings must start and end on a " + quantumMinutes + "-minute boundary.");
+        }
+    }
+
+    /**
+     * Slot keys covering [start, end) on the given date, start quantized down to the slot size.
+     * Only bookings made before times were aligned have edges inside a quantum.
+     */
+    public Set<String> slotKeys(String tutorId, String date, String start, String end) {
+        int from = toMinutes(start) / quantumMinutes * quantumMinutes;
+        int to = toMinutes(end);
+        Set<String> keys = new LinkedHashSet<>();
+        for (int m = from; m < to; m += quantumMinutes) {
+            keys.add(tutorId + "|" + date + "|" + LocalTime.ofSecondOfDay(m * 60L));
+        }
+        return keys;
+    }
+
+    /** Claim every slot between start and end for the booking. */
+    public void claim(String bookingId, String tutorId, String date, String start, String end) {
+        claim(bookingId, tutorId, date, slotKeys(tutorId, date, start, end));
+    }
+
+    /**
+     * Claim the given slot keys for the booking with one insert. If any slot is already
+     * held the partial claim is rolled back and the call fails fast.
+     */
+    public void claim(String bookingId, String tutorId, String date, Collection<String> keys) {
+        if (keys.isEmpty()) return;
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingSlot> slots = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            slots.add(new BookingSlot(key, tutorId, date, key.substring(key.lastIndexOf('|') + 1), bookingId, now));
+        }
+        try {
+            mongoTemplate.insert(slots, BookingSlot.class);
+        } catch (DuplicateKeyException e) {
+            release(bookingId);
+            logger.warn("Slot claim lost for bookingId={} tutorId={} date={}", bookingId, tutorId, date);
+            throw new RuntimeException("Selected slot is already booked.");
+        }
+    }
+
+    /**
+     * Claim the slots of several bookings of one tutor with a single insert, all or nothing.
+     * The date of every slot is taken from its key.
+     */
+    public void claimAll(String tutorId, Map<String, ? extends Collection<String>> keysByBooking) {
+        LocalDateTime now = LocalDateTime.now();
+        List<BookingSlot> slots = new ArrayList<>();
+        keysByBooking.forEach((bookingId, keys) -> {
+            for (String key : keys) {
+                String[] parts = key.split("\\|");
+                slots.add(new BookingSlot(key, tutorId, parts[1], parts[2], bookingId, now));
+            }
+        });
+        if (slots.isEmpty()) return;
+        try {
+            mongoTemplate.insert(slots, BookingSlot.class);
+        } catch (DuplicateKeyException e) {
+            releaseAll(keysByBooking.keySet());
+            logger.warn("Slot claim lost for {} bookings of tutorId={}", keysByBooking.size(), tutorId);
+            throw new RuntimeException("Selected slot is already booked.");
+        }
+    }
+
+    /** Hand the given slots over from one booking to another and free whatever else the first one held. */
+    public void transfer(String fromBookingId, String toBookingId, Collection<String> keys) {
+        if (!keys.isEmpty()) {
+            mongoTemplate.updateMulti(
+                    Query.query(Criteria.where("_id").in(keys).and("bookingId").is(fromBookingId)),
+                    new Update().set("bookingId", toBookingId),
+                    BookingSlot.class);
+        }
+        release(fromBookingId);
+    }
+
+    /** Free all slots held by the booking. */
+    public void release(String bookingId) {
+        mongoTemplate.remove(Query.query(Criteria.where("bookingId").is(bookingId)), BookingSlot.class);
+    }
+
+    /** Free all slots held by any of the bookings. */
+    public void releaseAll(Collection<String> bookingIds) {
+        if (bookingIds.isEmpty()) return;
+        mongoTemplate.remove(Query.query(Criteria.where("bookingId").in(bookingIds)), BookingSlot.class);
+    }
+
+    private static int toMinutes(String hhmm) {
+        return LocalTime.parse(hhmm).toSecondOfDay() / 60;
+    }
+}
@@ -0,0 +1,34 @@
+package com.csy.springbootauthbe.booking.stats;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Booking counters of one user, keyed by the userId of the tutor or student. Kept current with
+ * $inc by {@link BookingStatsService} and recomputed from the bookings by its reconciliation pass.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "booking_stats")
+public class BookingStats {
+
+    @Id
+    private String userId;
+    private long upcoming;   // pending, confirmed or on_hold, starting today or later
+    private long completed;  // confirmed or completed, started before today
+    private long cancelled;
+    private Money earned; // amount of confirmed and completed bookings, $inc'd on earned.minor
+
+    private Instant updatedAt;
+    private Instant reconciledAt;
+
+    public static BookingStats empty(String userId) {
+        return BookingStats.builder().userId(userId).earned(Money.ZERO).build();
+    }
+}
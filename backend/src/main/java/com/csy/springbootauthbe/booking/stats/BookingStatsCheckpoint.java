@@ -0,0 +1,26 @@
+package com.csy.springbootauthbe.booking.stats;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Progress of the booking_stats reconciliation, keyed by pass name. {@code reconciledAt} is when
+ * the last finished pass started; the next pass only recounts users whose bookings changed, or
+ * moved past midnight, from then on. Without a checkpoint every user is recounted.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "booking_stats_checkpoints")
+public class BookingStatsCheckpoint {
+
+    @Id
+    private String name;
+    private Instant reconciledAt;
+    private long users;
+    private Instant updatedAt;
+}
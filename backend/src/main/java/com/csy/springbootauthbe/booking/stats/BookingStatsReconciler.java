@@ -0,0 +1,42 @@
+package com.csy.springbootauthbe.booking.stats;
+
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the booking_stats reconciliation pass at startup and then every
+ * {@code booking.stats.reconcile-interval-minutes}, so lessons that passed midnight move
+ * from upcoming to completed and any $inc drift is repaired. Only the instance holding the
+ * job's lease reconciles.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingStatsReconciler {
+
+    static final String JOB = "booking-stats-reconcile";
+    private static final Duration LEASE = Duration.ofMinutes(10);
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingStatsReconciler.class);
+
+    private final BookingStatsService statsService;
+    private final JobLeaseService leases;
+
+    @Scheduled(fixedDelayString = "${booking.stats.reconcile-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void reconcile() {
+        if (!leases.acquire(JOB, LEASE)) return;
+        try {
+            statsService.reconcileChanges(() -> leases.renew(JOB, LEASE));
+        } catch (RuntimeException e) {
+            logger.error("Booking stats reconciliation failed: {}", e, e.getMessage());
+        } finally {
+            leases.release(JOB);
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.csy.springbootauthbe.booking.stats;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import com.csy.springbootauthbe.booking.repository.BookingTransition;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Maintains the booking_stats counters. Every booking contributes to the counters of its tutor
+ * and its student according to {@link #contribution(Booking, BookingStatus, Instant)}; lifecycle
+ * changes apply the difference between the old and the new contribution with one $inc per user.
+ * Lessons moving from upcoming to completed as days pass, and any drift, are repaired by
+ * {@link #reconcileChanges(BooleanSupplier)}, which recomputes the counters of the users whose
+ * bookings changed since its last pass from the bookings collection. Earnings are kept in minor
+ * units like every other amount.
+ */
+@Service
+public class BookingStatsService {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingStatsService.class);
+
+    private static final List<String> EARNING_STATUSES =
+            List.of(BookingStatus.confirmed.name(), BookingStatus.completed.name());
+    /** Statuses whose contribution changes when the lesson day passes. */
+    private static final List<String> DAY_DEPENDENT_STATUSES = Stream.concat(
+            BookingStatus.ACTIVE.stream().map(Enum::name), EARNING_STATUSES.stream()).distinct().toList();
+    static final String CHECKPOINT = "reconcile";
+    /** Users recounted per aggregation of an incremental pass. */
+    private static final int RECOUNT_BATCH = 500;
+    /** Reach back a little before the last pass, in case app clocks differ. */
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final MongoTemplate mongoTemplate;
+
+    public BookingStatsService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Counters of the user, all zero when nothing was recorded yet. */
+    public BookingStats get(String userId) {
+        BookingStats stats = mongoTemplate.findById(userId, BookingStats.class);
+        return stats != null ? stats : BookingStats.empty(userId);
+    }
+
+    public void recordCreated(Collection<Booking> bookings) {
+        Instant today = today();
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        for (Booking booking : bookings) {
+            add(deltas, booking, contribution(booking, BookingStatus.of(booking.getStatus()), today));
+        }
+        apply(deltas);
+    }
+
+    /** Apply a status change of the booking, {@code previous} being the status it left. */
+    public void recordTransition(Booking booking, BookingStatus previous) {
+        recordTransitions(List.of(BookingTransition.applied(booking, previous)));
+    }
+
+    /** Apply a batch of applied transitions with a single bulk write. */
+    public void recordTransitions(Collection<BookingTransition> transitions) {
+        Instant today = today();
+        Map<String, Delta> deltas = new LinkedHashMap<>();
+        for (BookingTransition transition : transitions) {
+            Booking booking = transition.booking();
+            Delta delta = contribution(booking, BookingStatus.of(booking.getStatus()), today)
+                    .minus(contribution(booking, transition.previous(), today));
+            add(deltas, booking, delta);
+        }
+        apply(deltas);
+    }
+
+    /** What a booking in the given status adds to the counters of its tutor and student. */
+    static Delta contribution(Booking booking, BookingStatus status, Instant today) {
+        if (status == null) return Delta.ZERO;
+        boolean past = booking.getStartAt() != null && booking.getStartAt().isBefore(today);
+        long upcoming = BookingStatus.ACTIVE.contains(status) && !past ? 1 : 0;
+        long completed = EARNING_STATUSES.contains(status.name()) && past ? 1 : 0;
+        long cancelled = status == BookingStatus.cancelled ? 1 : 0;
+        long earned = EARNING_STATUSES.contains(status.name()) && booking.getAmount() != null
+                ? booking.getAmount().minor() : 0;
+        return new Delta(upcoming, completed, cancelled, earned);
+    }
+
+    /**
+     * Recount the users whose bookings were written, or whose lessons' day passed, since the
+     * checkpointed pass, {@value #RECOUNT_BATCH} users per aggregation, calling {@code renewLease}
+     * after each batch. The first pass, without a checkpoint, recounts everyone. The checkpoint
+     * only advances when the pass finishes. Returns the number of users written.
+     */
+    public int reconcileChanges(BooleanSupplier renewLease) {
+        Instant started = Instant.now();
+        BookingStatsCheckpoint checkpoint = mongoTemplate.findById(CHECKPOINT, BookingStatsCheckpoint.class);
+        int written = checkpoint == null || checkpoint.getReconciledAt() == null
+                ? reconcile()
+                : reconcileChangedSince(checkpoint.getReconciledAt().minus(CLOCK_SKEW), renewLease);
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(CHECKPOINT)),
+                new Update().set("reconciledAt", started)
+                        .inc("users", written)
+                        .set("updatedAt", Instant.now()),
+                BookingStatsCheckpoint.class);
+        return written;
+    }
+
+    /**
+     * Recompute every user's counters from the bookings with one aggregation per side and
+     * overwrite them in bulk. An $inc landing between the read and the write can be lost; the
+     * next pass corrects it. Returns the number of users written.
+     */
+    public int reconcile() {
+        int written = recount(side -> Criteria.where(side).ne(null), today());
+        logger.info("Reconciled booking stats for {} users", written);
+        return written;
+    }
+
+    private int reconcileChangedSince(Instant since, BooleanSupplier renewLease) {
+        Instant today = today();
+        Criteria changed = new Criteria().orOperator(
+                Criteria.where("updatedAt").gte(LocalDateTime.ofInstant(since, ZoneId.systemDefault())),
+                // lessons that went from upcoming to completed at a midnight in between
+                Criteria.where("status").in(DAY_DEPENDENT_STATUSES)
+                        .and("startAt").gte(BookingTimes.startOfDay(LocalDate.ofInstant(since, BookingTimes.ZONE))).lt(today));
+        Set<String> users = new LinkedHashSet<>();
+        for (String side : List.of("tutorId", "studentId")) {
+            users.addAll(mongoTemplate.findDistinct(Query.query(changed), side, Booking.class, String.class));
+        }
+        users.remove(null);
+
+        List<String> pending = new ArrayList<>(users);
+        int written = 0;
+        for (int from = 0; from < pending.size(); from += RECOUNT_BATCH) {
+            List<String> batch = pending.subList(from, Math.min(from + RECOUNT_BATCH, pending.size()));
+            written += recount(side -> Criteria.where(side).in(batch), today);
+            if (!renewLease.getAsBoolean()) {
+                throw new RuntimeException("Booking stats reconciliation lost its lease, left for the next run");
+            }
+        }
+        logger.info("Reconciled booking stats for {} users changed since {}", written, since);
+        return written;
+    }
+
+    /** Recount the users matched by {@code match} on each side and overwrite their counters in bulk. */
+    private int recount(Function<String, Criteria> match, Instant today) {
+        Map<String, Delta> totals = new HashMap<>();
+        for (String side : List.of("tutorId", "studentId")) {
+            Aggregation aggregation = Aggregation.newAggregation(
+                    Aggregation.match(match.apply(side)),
+                    context -> new Document("$group", countersBy("$" + side, today)));
+            for (Document row : mongoTemplate.aggregate(aggregation, Booking.class, Document.class)) {
+                Delta counted = new Delta(number(row, "upcoming"), number(row, "completed"), number(row, "cancelled"),
+                        number(row, "earned"));
+                totals.merge(row.getString("_id"), counted, Delta::plus);
+            }
+        }
+        if (totals.isEmpty()) return 0;
+
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BookingStats.class);
+        totals.forEach((userId, counted) -> bulk.upsert(Query.query(Criteria.where("_id").is(userId)),
+                new Update()
+                        .set("upcoming", counted.upcoming())
+                        .set("completed", counted.completed())
+                        .set("cancelled", counted.cancelled())
+                        .set("earned", Money.ofMinor(counted.earned()))
+                        .set("updatedAt", now)
+                        .set("reconciledAt", now)));
+        bulk.execute();
+        return totals.size();
+    }
+
+    private static Document countersBy(String key, Instant today) {
+        Document active = new Document("$in", List.of("$status",
+                BookingStatus.ACTIVE.stream().map(Enum::name).toList()));
+        Document earning = new Document("$in", List.of("$status", EARNING_STATUSES));
+        Document past = new Document("$lt", List.of("$startAt", Date.from(today)));
+        Document notPast = new Document("$gte", List.of("$startAt", Date.from(today)));
+        return new Document("_id", key)
+                .append("upcoming", sumIf(new Document("$and", List.of(active, notPast))))
+                .append("completed", sumIf(new Document("$and", List.of(earning, past))))
+                .append("cancelled", sumIf(new Document("$eq", List.of("$status", BookingStatus.cancelled.name()))))
+                .append("earned", new Document("$sum", new Document("$cond", List.of(earning,
+                        new Document("$ifNull", List.of("$amount.minor", 0L)),
+                        0L))));
+    }
+
+    private static Document sumIf(Document condition) {
+        return new Document("$sum", new Document("$cond", List.of(condition, 1, 0)));
+    }
+
+    private static long number(Document row, String field) {
+        Object value = row.get(field);
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+
+    private static void add(Map<String, Delta> deltas, Booking booking, Delta delta) {
+        if (delta.isZero()) return;
+        if (booking.getTutorId() != null) deltas.merge(booking.getTutorId(), delta, Delta::plus);
+        if (booking.getStudentId() != null) deltas.merge(booking.getStudentId(), delta, Delta::plus);
+    }
+
+    private void apply(Map<String, Delta> deltas) {
+        deltas.values().removeIf(Delta::isZero);
+        if (deltas.isEmpty()) return;
+        Instant now = Instant.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BookingStats.class);
+        deltas.forEach((userId, delta) -> bulk.upsert(Query.query(Criteria.where("_id").is(userId)),
+                new Update()
+                        .inc("upcoming", delta.upcoming())
+                        .inc("completed", delta.completed())
+                        .inc("cancelled", delta.cancelled())
+                        .inc("earned.minor", delta.earned())
+                        .setOnInsert("earned.currency", Money.DEFAULT_CURRENCY)
+                        .set("updatedAt", now)));
+        try {
+            bulk.execute();
+        } catch (RuntimeException e) {
+            // The booking write already went through; the next reconcile pass picks up the difference
+            logger.error("Failed to update booking stats for {} users", e, deltas.size());
+        }
+    }
+
+    private static Instant today() {
+        return BookingTimes.startOfDay(BookingTimes.today());
+    }
+
+    /** Counter changes, {@code earned} in minor units. */
+    record Delta(long upcoming, long completed, long cancelled, long earned) {
+        static final Delta ZERO = new Delta(0, 0, 0, 0);
+
+        Delta plus(Delta other) {
+            return new Delta(upcoming + other.upcoming, completed + other.completed,
+                    cancelled + other.cancelled, Money.add(earned, other.earned));
+        }
+
+        Delta minus(Delta other) {
+            return new Delta(upcoming - other.upcoming, completed - other.completed,
+                    cancelled - other.cancelled, Money.subtract(earned, other.earned));
+        }
+
+        boolean isZero() {
+            return upcoming == 0 && completed == 0 && cancelled == 0 && earned == 0;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.csy.springbootauthbe.booking.sweep;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Progress of one {@link BookingSweeper} pass, keyed by pass name. {@code sweptThrough} is the
+ * last local day ("yyyy-MM-dd") whose bookings were fully processed; a restarted sweeper
+ * continues from there instead of rescanning the whole collection.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "booking_sweep_checkpoints")
+public class BookingSweepCheckpoint {
+
+    @Id
+    private String name;
+    private String sweptThrough;
+    private long processed;
+    private Instant updatedAt;
+}
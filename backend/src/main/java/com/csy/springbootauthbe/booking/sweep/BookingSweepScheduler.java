@@ -0,0 +1,41 @@
+package com.csy.springbootauthbe.booking.sweep;
+
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link BookingSweeper} at startup and then every
+ * {@code booking.sweep.interval-minutes}. Only the instance holding the job's lease sweeps, so
+ * no two instances refund the same expired booking.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class BookingSweepScheduler {
+
+    static final String JOB = "booking-sweep";
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingSweepScheduler.class);
+
+    private final BookingSweeper sweeper;
+    private final JobLeaseService leases;
+
+    @Scheduled(fixedDelayString = "${booking.sweep.interval-minutes:15}", timeUnit = TimeUnit.MINUTES)
+    public void sweep() {
+        if (!leases.acquire(JOB, LEASE)) return;
+        try {
+            sweeper.sweep(() -> leases.renew(JOB, LEASE));
+        } catch (RuntimeException e) {
+            logger.error("Booking sweep failed: {}", e, e.getMessage());
+        } finally {
+            leases.release(JOB);
+        }
+    }
+}
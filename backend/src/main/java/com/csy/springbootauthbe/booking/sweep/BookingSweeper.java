@@ -0,0 +1,284 @@
+package com.csy.springbootauthbe.booking.sweep;
+
+import com.csy.springbootauthbe.booking.cache.BookingIntervalIndex;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import com.csy.springbootauthbe.booking.repository.BookingTransition;
+import com.csy.springbootauthbe.booking.service.BookingSlotService;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.wallet.service.WalletService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Moves bookings whose lesson time has passed out of their open states:
+ * <ul>
+ *   <li>confirmed lessons that have ended become completed;</li>
+ *   <li>pending bookings that were never accepted are cancelled and the held credits refunded;</li>
+ *   <li>on_hold reschedule requests that were never answered are cancelled and the original
+ *       booking is restored to confirmed, the same outcome as a rejection.</li>
+ * </ul>
+ * Each pass walks local days from its checkpoint up to today, reads at most
+ * {@code booking.sweep.batch-size} bookings at a time and moves a batch with one unordered bulk
+ * write whose updates are conditional on the status that was read, so a booking changed by a
+ * user in the meantime is left alone. The checkpoint advances after every finished day, and a
+ * run that can no longer renew its lease stops there.
+ */
+@Component
+public class BookingSweeper {
+
+    static final String COMPLETE_PASS = "complete-past";
+    static final String EXPIRE_PASS = "expire-stale";
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(BookingSweeper.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final WalletService walletService;
+    private final BookingSlotService bookingSlotService;
+    private final BookingStatsService bookingStatsService;
+    private final BookingIntervalIndex intervalIndex;
+    private final FreeSlotCalendar freeSlotCalendar;
+    private final int batchSize;
+    private final int lookbackDays;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder refunded = new LongAdder();
+    private volatile SweepResult lastRun;
+
+    public BookingSweeper(MongoTemplate mongoTemplate,
+                          WalletService walletService,
+                          BookingSlotService bookingSlotService,
+                          BookingStatsService bookingStatsService,
+                          BookingIntervalIndex intervalIndex,
+                          FreeSlotCalendar freeSlotCalendar,
+                          @Value("${booking.sweep.batch-size:500}") int batchSize,
+                          @Value("${booking.sweep.lookback-days:7}") int lookbackDays) {
+        this.mongoTemplate = mongoTemplate;
+        this.walletService = walletService;
+        this.bookingSlotService = bookingSlotService;
+        this.bookingStatsService = bookingStatsService;
+        this.intervalIndex = intervalIndex;
+        this.freeSlotCalendar = freeSlotCalendar;
+        this.batchSize = batchSize;
+        this.lookbackDays = lookbackDays;
+    }
+
+    /** Run both passes once and return what they did. */
+    public SweepResult sweep() {
+        return sweep(() -> true);
+    }
+
+    /**
+     * Run both passes once, calling {@code renewLease} after every finished day; when it fails the
+     * run throws and the next one carries on from the checkpoint.
+     */
+    public SweepResult sweep(BooleanSupplier renewLease) {
+        Instant now = Instant.now();
+        long started = System.nanoTime();
+
+        long completedNow = runPass(COMPLETE_PASS, EnumSet.of(BookingStatus.confirmed), now,
+                this::completeBatch, renewLease);
+        long expiredNow = runPass(EXPIRE_PASS, EnumSet.of(BookingStatus.pending, BookingStatus.on_hold), now,
+                this::expireBatch, renewLease);
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        SweepResult result = new SweepResult(now, completedNow, expiredNow, elapsedMillis,
+                (completedNow + expiredNow) * 1000.0 / elapsedMillis);
+        runs.increment();
+        lastRun = result;
+        logger.info("Booking sweep completed={} expired={} in {} ms", completedNow, expiredNow, elapsedMillis);
+        return result;
+    }
+
+    public SweepStats stats() {
+        return new SweepStats(runs.sum(), batches.sum(), completed.sum(), expired.sum(), refunded.sum(), lastRun);
+    }
+
+    /** Outcome of one {@link #sweep()}, throughput in bookings per second. */
+    public record SweepResult(Instant ranAt, long completed, long expired, long elapsedMillis, double perSecond) {
+    }
+
+    /** Totals since startup plus the most recent run. */
+    public record SweepStats(long runs, long batches, long completed, long expired, long refunded, SweepResult lastRun) {
+    }
+
+    // ----------------------------------------------------------------------
+    // Day partitions and checkpoints
+    // ----------------------------------------------------------------------
+
+    private long runPass(String pass, Set<BookingStatus> from, Instant now, ToIntFunction<List<Booking>> handler,
+                         BooleanSupplier renewLease) {
+        LocalDate today = LocalDate.ofInstant(now, BookingTimes.ZONE);
+        LocalDate day = firstDay(pass, from, now, today);
+        if (day == null) return 0;
+
+        long moved = 0;
+        for (; !day.isAfter(today); day = day.plusDays(1)) {
+            Instant dayStart = BookingTimes.startOfDay(day);
+            Instant dayEnd = BookingTimes.startOfDay(day.plusDays(1));
+            Criteria window = Criteria.where("status").in(from.stream().map(Enum::name).toList())
+                    .and("startAt").gte(dayStart).lt(dayEnd.isBefore(now) ? dayEnd : now);
+            if (from.contains(BookingStatus.confirmed)) {
+                // A lesson is only complete once it has ended
+                window = window.orOperator(Criteria.where("endAt").lt(now), Criteria.where("endAt").is(null));
+            }
+
+            long movedToday = 0;
+            while (true) {
+                List<Booking> batch = mongoTemplate.find(Query.query(window)
+                        .with(Sort.by(Sort.Direction.ASC, "startAt")).limit(batchSize), Booking.class);
+                if (batch.isEmpty()) break;
+                int applied = handler.applyAsInt(batch);
+                batches.increment();
+                movedToday += applied;
+                // A short batch was the last one; a batch in which nothing moved would only repeat itself
+                if (batch.size() < batchSize || applied == 0) break;
+            }
+            moved += movedToday;
+            saveCheckpoint(pass, day, movedToday);
+            if (!renewLease.getAsBoolean()) {
+                throw new RuntimeException("Booking sweep lost its lease after " + day + ", left for the next run");
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Where a pass starts: its checkpoint day, or {@code booking.sweep.lookback-days} before today
+     * when that is earlier so late writes are picked up, or the oldest matching booking on the
+     * very first run.
+     */
+    private LocalDate firstDay(String pass, Set<BookingStatus> from, Instant now, LocalDate today) {
+        LocalDate lookback = today.minusDays(lookbackDays);
+        BookingSweepCheckpoint checkpoint = mongoTemplate.findById(pass, BookingSweepCheckpoint.class);
+        if (checkpoint != null && checkpoint.getSweptThrough() != null) {
+            LocalDate swept = LocalDate.parse(checkpoint.getSweptThrough());
+            return swept.isBefore(lookback) ? swept : lookback;
+        }
+
+        Query oldest = Query.query(Criteria.where("status").in(from.stream().map(Enum::name).toList())
+                .and("startAt").lt(now)).with(Sort.by(Sort.Direction.ASC, "startAt")).limit(1);
+        oldest.fields().include("startAt");
+        Booking first = mongoTemplate.findOne(oldest, Booking.class);
+        if (first == null || first.getStartAt() == null) return null;
+        return LocalDate.ofInstant(first.getStartAt(), BookingTimes.ZONE);
+    }
+
+    private void saveCheckpoint(String pass, LocalDate day, long processed) {
+        mongoTemplate.upsert(Query.query(Criteria.where("_id").is(pass)),
+                new Update().set("sweptThrough", day.toString())
+                        .inc("processed", processed)
+                        .set("updatedAt", Instant.now()),
+                BookingSweepCheckpoint.class);
+    }
+
+    // ----------------------------------------------------------------------
+    // Batches
+    // ----------------------------------------------------------------------
+
+    private int completeBatch(List<Booking> batch) {
+        List<BookingTransition> moved = moveAll(batch, BookingStatus.completed);
+        completed.add(moved.size());
+        return moved.size();
+    }
+
+    private int expireBatch(List<Booking> batch) {
+        List<BookingTransition> moved = moveAll(batch, BookingStatus.cancelled);
+        if (moved.isEmpty()) return 0;
+
+        bookingSlotService.releaseAll(moved.stream().map(t -> t.booking().getId()).toList());
+
+        List<String> originalIds = new ArrayList<>();
+        for (BookingTransition transition : moved) {
+            Booking booking = transition.booking();
+            if (transition.previous() == BookingStatus.pending) {
+                // Only pending bookings still hold the student's credits; an on_hold booking was paid through its original
+                if (booking.getAmount() != null && booking.getAmount().isPositive()) {
+                    walletService.refundStudent(booking.getStudentId(), booking.getAmount(), booking.getId());
+                    refunded.increment();
+                }
+            } else if (booking.getOriginalBookingId() != null) {
+                originalIds.add(booking.getOriginalBookingId());
+            }
+        }
+
+        if (!originalIds.isEmpty()) {
+            List<Booking> originals = mongoTemplate.find(Query.query(Criteria.where("id").in(originalIds)
+                    .and("status").is(BookingStatus.reschedule_requested.name())), Booking.class);
+            moveAll(originals, BookingStatus.confirmed);
+        }
+
+        expired.add(moved.size());
+        return moved.size();
+    }
+
+    /**
+     * Move every booking from the status it was read with to {@code to} in one bulk write and
+     * return the transitions that were applied. When some updates matched nothing, the batch is
+     * re-read and only the bookings carrying this write's update time are reported, so a booking
+     * that a user moved to the same status in the meantime is not taken for the sweeper's.
+     */
+    private List<BookingTransition> moveAll(List<Booking> candidates, BookingStatus to) {
+        List<Booking> movable = candidates.stream()
+                .filter(b -> {
+                    BookingStatus current = BookingStatus.of(b.getStatus());
+                    return current != null && current.canTransitionTo(to);
+                })
+                .toList();
+        if (movable.isEmpty()) return List.of();
+
+        // Millisecond precision so the value compares equal after a round trip through Mongo
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class);
+        for (Booking booking : movable) {
+            bulk.updateOne(Query.query(Criteria.where("id").is(booking.getId()).and("status").is(booking.getStatus())),
+                    new Update().set("status", to.name()).set("updatedAt", now));
+        }
+        int modified = bulk.execute().getModifiedCount();
+
+        List<Booking> applied = movable;
+        if (modified < movable.size()) {
+            Query check = Query.query(Criteria.where("id").in(movable.stream().map(Booking::getId).toList())
+                    .and("status").is(to.name()).and("updatedAt").is(now));
+            check.fields().include("id");
+            Set<String> ids = mongoTemplate.find(check, Booking.class).stream()
+                    .map(Booking::getId)
+                    .collect(Collectors.toSet());
+            applied = movable.stream().filter(b -> ids.contains(b.getId())).toList();
+        }
+
+        List<BookingTransition> transitions = new ArrayList<>(applied.size());
+        for (Booking booking : applied) {
+            BookingStatus previous = BookingStatus.of(booking.getStatus());
+            booking.setStatus(to.name());
+            booking.setUpdatedAt(now);
+            intervalIndex.record(booking);
+            freeSlotCalendar.record(booking);
+            transitions.add(BookingTransition.applied(booking, previous));
+        }
+        bookingStatsService.recordTransitions(transitions);
+        return transitions;
+    }
+}
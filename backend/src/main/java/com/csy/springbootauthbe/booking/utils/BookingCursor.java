@@ -0,0 +1,48 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import org.bson.types.ObjectId;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Keyset position in a (startAt, _id) ordered booking listing. Clients only ever see
+ * the opaque token form; the next page starts strictly after the encoded booking.
+ */
+public record BookingCursor(Instant startAt, ObjectId id) {
+
+    private static final ObjectId MIN_ID = new ObjectId("000000000000000000000000");
+    private static final ObjectId MAX_ID = new ObjectId("ffffffffffffffffffffffff");
+
+    /** Position before every booking starting at or after the given instant. */
+    public static BookingCursor before(Instant from) {
+        return new BookingCursor(from.minusMillis(1), MIN_ID);
+    }
+
+    /** Position before every booking starting before the given instant, in a newest-first listing. */
+    public static BookingCursor until(Instant to) {
+        return new BookingCursor(to.minusMillis(1), MAX_ID);
+    }
+
+    public static BookingCursor after(Booking booking) {
+        return new BookingCursor(booking.getStartAt(), new ObjectId(booking.getId()));
+    }
+
+    public String encode() {
+        String raw = startAt.toEpochMilli() + ":" + id.toHexString();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BookingCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int sep = raw.indexOf(':');
+            return new BookingCursor(Instant.ofEpochMilli(Long.parseLong(raw.substring(0, sep))),
+                    new ObjectId(raw.substring(sep + 1)));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+}
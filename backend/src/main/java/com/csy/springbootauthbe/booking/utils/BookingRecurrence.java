@@ -0,0 +1,62 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Expands a weekly recurrence rule into the lesson dates it covers.
+ */
+public final class BookingRecurrence {
+
+    /** Upper bound on a single series, about a year of weekly lessons. */
+    public static final int MAX_OCCURRENCES = 52;
+
+    private BookingRecurrence() {
+    }
+
+    /**
+     * Dates on the given weekdays, every {@code intervalWeeks} weeks, starting at {@code startDate}
+     * and stopping after {@code until} (inclusive) or {@code count} occurrences, whichever comes first.
+     * A rule that yields no date at all is rejected.
+     */
+    public static List<LocalDate> expand(LocalDate startDate, LocalDate until, Integer count,
+                                         int intervalWeeks, Collection<DayOfWeek> daysOfWeek) {
+        if (until == null && count == null) {
+            throw new RuntimeException("Recurrence needs an end date or a count");
+        }
+        if (until != null && until.isBefore(startDate)) {
+            throw new RuntimeException("Recurrence ends before it starts");
+        }
+        if ((count != null && count <= 0) || intervalWeeks <= 0) {
+            throw new RuntimeException("Invalid recurrence rule");
+        }
+        TreeSet<DayOfWeek> days = daysOfWeek == null || daysOfWeek.isEmpty()
+                ? new TreeSet<>(List.of(startDate.getDayOfWeek()))
+                : new TreeSet<>(daysOfWeek);
+
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate week = startDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        while (true) {
+            for (DayOfWeek day : days) {
+                LocalDate date = week.plusDays(day.getValue() - 1L);
+                if (date.isBefore(startDate)) continue;
+                if ((until != null && date.isAfter(until)) || (count != null && dates.size() == count)) {
+                    if (dates.isEmpty()) {
+                        throw new RuntimeException("Recurrence has no lesson between its start and end date");
+                    }
+                    return dates;
+                }
+                if (dates.size() == MAX_OCCURRENCES) {
+                    throw new RuntimeException("A recurring booking can cover at most " + MAX_OCCURRENCES + " lessons");
+                }
+                dates.add(date);
+            }
+            week = week.plusWeeks(intervalWeeks);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+/**
+ * Converts the local "yyyy-MM-dd" / "HH:mm" booking strings used on the wire
+ * into the UTC instants that bookings are stored, indexed and queried by.
+ */
+public final class BookingTimes {
+
+    /** All lesson times are entered in Singapore local time. */
+    public static final ZoneId ZONE = ZoneId.of("Asia/Singapore");
+
+    private BookingTimes() {
+    }
+
+    public static Instant toInstant(String date, String time) {
+        return LocalDate.parse(date).atTime(LocalTime.parse(time)).atZone(ZONE).toInstant();
+    }
+
+    /** Start of the given local day, inclusive lower bound of a day range. */
+    public static Instant startOfDay(String date) {
+        return startOfDay(LocalDate.parse(date));
+    }
+
+    public static Instant startOfDay(LocalDate date) {
+        return date.atStartOfDay(ZONE).toInstant();
+    }
+
+    /** Start of the following local day, exclusive upper bound of a day range. */
+    public static Instant endOfDay(String date) {
+        return startOfDay(LocalDate.parse(date).plusDays(1));
+    }
+
+    public static LocalDate today() {
+        return LocalDate.now(ZONE);
+    }
+
+    /** Fill startAt/endAt from the booking's date, start and end strings when they are present. */
+    public static void apply(Booking booking) {
+        if (booking.getDate() == null) return;
+        if (booking.getStart() != null) booking.setStartAt(toInstant(booking.getDate(), booking.getStart()));
+        if (booking.getEnd() != null) booking.setEndAt(toInstant(booking.getDate(), booking.getEnd()));
+    }
+}
@@ -0,0 +1,32 @@
+package com.csy.springbootauthbe.common.idempotency;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One Idempotency-Key seen by an endpoint. The _id is "scope:user:key", so the unique _id index
+ * lets exactly one request claim a key; the stored response is replayed to its retries until
+ * the TTL index removes the record at {@code expiresAt}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "idempotency_keys")
+public class IdempotencyRecord {
+
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    private String id;
+    private String requestHash; // HMAC of the request body, a reused key must carry the same request
+    private String state;       // IN_PROGRESS, COMPLETED
+    private int status;
+    private String body;        // response body as JSON
+    private Instant createdAt;
+    private Instant expiresAt;
+}
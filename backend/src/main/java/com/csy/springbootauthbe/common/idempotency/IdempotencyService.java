@@ -0,0 +1,188 @@
+package com.csy.springbootauthbe.common.idempotency;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Makes a write endpoint safe to retry with an {@code Idempotency-Key} header. The first request
+ * with a key claims it by inserting an IN_PROGRESS record, runs, and stores its 2xx response;
+ * retries with the same key and body get that response back without running again. A key reused
+ * for a different body is refused with 422, a retry racing the original gets 409, and a failed
+ * or non-2xx run releases the key so the client can try again. Requests without a key run as before.
+ * <p>
+ * Keys are scoped per endpoint and per authenticated user, so one user's key never matches another's
+ * request. Bodies are fingerprinted with an HMAC under a server-side key rather than a plain hash,
+ * since some of them (a withdrawal's PIN) carry secrets that must not be guessable from the record.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(IdempotencyService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lockTimeout;
+    private final SecretKeySpec fingerprintKey;
+
+    public IdempotencyService(MongoTemplate mongoTemplate,
+                              ObjectMapper objectMapper,
+                              @Value("${app.idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${app.idempotency.lock-timeout-seconds:60}") long lockTimeoutSeconds,
+                              @Value("${app.idempotency.fingerprint-key:${jwt.secret.key}}") String fingerprintKey) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lockTimeout = Duration.ofSeconds(lockTimeoutSeconds);
+        this.fingerprintKey = new SecretKeySpec(fingerprintKey.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    public <T> ResponseEntity<T> execute(String scope, String key, Object request, Class<T> type,
+                                         Supplier<ResponseEntity<T>> action) {
+        return executeAsync(scope, key, request, type, () -> CompletableFuture.completedFuture(action.get())).join();
+    }
+
+    public <T> CompletableFuture<ResponseEntity<T>> executeAsync(String scope, String key, Object request, Class<T> type,
+                                                                 Supplier<CompletableFuture<ResponseEntity<T>>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+        String id = scope + ":" + currentUser() + ":" + key;
+        String requestHash = hash(request);
+
+        ResponseEntity<T> earlier = claim(id, requestHash, type);
+        if (earlier != null) {
+            return CompletableFuture.completedFuture(earlier);
+        }
+
+        CompletableFuture<ResponseEntity<T>> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(id);
+            throw e;
+        }
+        return result.whenComplete((response, error) -> {
+            if (error == null && response != null && response.getStatusCode().is2xxSuccessful()) {
+                complete(id, response);
+            } else {
+                release(id);
+            }
+        });
+    }
+
+    /** Claim the key, or return what the caller should get instead of running the request. */
+    private <T> ResponseEntity<T> claim(String id, String requestHash, Class<T> type) {
+        Instant now = Instant.now();
+        try {
+            mongoTemplate.insert(IdempotencyRecord.builder()
+                    .id(id)
+                    .requestHash(requestHash)
+                    .state(IdempotencyRecord.IN_PROGRESS)
+                    .createdAt(now)
+                    .expiresAt(now.plus(ttl))
+                    .build());
+            return null;
+        } catch (DuplicateKeyException e) {
+            // Someone holds the key already, fall through to what they left behind
+        }
+
+        IdempotencyRecord existing = mongoTemplate.findById(id, IdempotencyRecord.class);
+        if (existing == null) {
+            // Expired or released between the insert and the read
+            return claim(id, requestHash, type);
+        }
+        if (!requestHash.equals(existing.getRequestHash())) {
+            logger.warn("Idempotency key {} reused with a different request", id);
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        if (IdempotencyRecord.COMPLETED.equals(existing.getState())) {
+            return replay(existing, type);
+        }
+        if (existing.getCreatedAt() != null && existing.getCreatedAt().isBefore(now.minus(lockTimeout))) {
+            // The original request died mid-way; take the key over unless another retry beat us to it
+            IdempotencyRecord taken = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(id)
+                            .and("state").is(IdempotencyRecord.IN_PROGRESS)
+                            .and("createdAt").is(existing.getCreatedAt())),
+                    new Update().set("createdAt", now).set("expiresAt", now.plus(ttl)),
+                    IdempotencyRecord.class);
+            if (taken != null) return null;
+        }
+        return ResponseEntity.status(HttpStatus.CONFLICT).header("Retry-After", "1").build();
+    }
+
+    private <T> ResponseEntity<T> replay(IdempotencyRecord record, Class<T> type) {
+        try {
+            T body = record.getBody() != null ? objectMapper.readValue(record.getBody(), type) : null;
+            return ResponseEntity.status(record.getStatus()).header(REPLAYED_HEADER, "true").body(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored response for idempotency key is unreadable", e);
+        }
+    }
+
+    private void complete(String id, ResponseEntity<?> response) {
+        try {
+            String body = response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null;
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                    new Update().set("state", IdempotencyRecord.COMPLETED)
+                            .set("status", response.getStatusCode().value())
+                            .set("body", body),
+                    IdempotencyRecord.class);
+        } catch (JsonProcessingException | RuntimeException e) {
+            // The write went through but has no stored response: retries get 409 until the lock timeout, then run again
+            logger.error("Could not store response for idempotency key {}", e, id);
+        }
+    }
+
+    private void release(String id) {
+        try {
+            mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)
+                    .and("state").is(IdempotencyRecord.IN_PROGRESS)), IdempotencyRecord.class);
+        } catch (RuntimeException e) {
+            logger.error("Could not release idempotency key {}", e, id);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(request);
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(fingerprintKey);
+            return HexFormat.of().formatHex(mac.doFinal(json));
+        } catch (JsonProcessingException | GeneralSecurityException e) {
+            throw new RuntimeException("Could not fingerprint request for idempotency", e);
+        }
+    }
+
+    /** The authenticated user the key belongs to, read on the request thread. */
+    private static String currentUser() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null && auth.isAuthenticated() ? auth.getName() : "anonymous";
+    }
+}
@@ -0,0 +1,152 @@
+package com.csy.springbootauthbe.common.index;
+
+import org.bson.Document;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Single declaration point for every Mongo index the application relies on.
+ * Each entry lists the repository or template queries it serves, so a new finder
+ * without a matching entry stands out in review and in the startup report.
+ */
+@Component
+public class IndexCatalog {
+
+    private final List<IndexSpec> specs = List.of(
+            // bookings; the start indexes end in _id so keyset pages over (startAt, _id) need no sort
+            IndexSpec.of("bookings", "tutor_start_idx",
+                    new Document("tutorId", 1).append("startAt", 1).append("_id", 1),
+                    "BookingRepository.findByTutorIdAndStartAtRange",
+                    "BookingRepository.findByTutorIdAndStartAtRangeAfter",
+                    "BookingIntervalIndex.load",
+                    "FreeSlotCalendar.load",
+                    "BookingStatsService.reconcile"),
+            IndexSpec.of("bookings", "tutor_status_start_idx",
+                    new Document("tutorId", 1).append("status", 1).append("startAt", -1),
+                    "BookingServiceImpl.getRecentPastBookings",
+                    "BookingServiceImpl.getUpcomingBookings"),
+            IndexSpec.of("bookings", "status_start_idx", new Document("status", 1).append("startAt", 1),
+                    "BookingSweeper.runPass",
+                    "BookingSweeper.firstDay",
+                    "BookingStatsService.reconcileChangedSince"),
+            IndexSpec.of("bookings", "updated_idx", new Document("updated_at", 1),
+                    "BookingStatsService.reconcileChangedSince"),
+            IndexSpec.of("bookings", "student_start_idx",
+                    new Document("studentId", 1).append("startAt", 1).append("_id", 1),
+                    "BookingRepository.findByStudentIdAndStartAtRange",
+                    "BookingRepository.findByStudentIdOrderByStartAtAsc",
+                    "BookingRepository.findByStudentIdAfter",
+                    "BookingRepository.findByStudentIdAndStatusBefore",
+                    "BookingStatsService.reconcile"),
+            IndexSpec.of("booking_slots", "booking_idx", new Document("bookingId", 1),
+                    "BookingSlotService.release",
+                    "BookingSlotService.releaseAll",
+                    "BookingSlotService.transfer"),
+
+            // wallets
+            IndexSpec.of("wallets", "student_unique_idx", new Document("studentId", 1),
+                    "WalletRepository.findByStudentId",
+                    "WalletService.getWallet",
+                    "WalletService.credit",
+                    "WalletService.debit",
+                    "CompanyWallet.load",
+                    "WalletReconciler.reconcileWallets").asUnique(),
+            IndexSpec.of("credit_holds", "status_expires_idx", new Document("status", 1).append("expiresAt", 1),
+                    "WalletService.reclaimExpiredHolds"),
+            IndexSpec.of("credit_holds", "status_refunded_idx", new Document("status", 1).append("refundedAt", 1),
+                    "WalletService.resumeReclaims"),
+            IndexSpec.of("credit_holds", "created_idx", new Document("createdAt", 1),
+                    "WalletService.holdDocumentsSince"),
+            IndexSpec.of("credit_holds", "student_status_idx", new Document("studentId", 1).append("status", 1),
+                    "WalletService.getActiveHolds"),
+            IndexSpec.of("credit_holds", "settlement_idx", new Document("settlementId", 1),
+                    "WalletService.reclaimExpiredHolds",
+                    "WalletService.paySettlement")
+                    .partial(new Document("settlementId", new Document("$exists", true))),
+            IndexSpec.of("credit_holds", "status_accrued_idx", new Document("status", 1).append("accruedAt", 1),
+                    "WalletService.settleAccruedPayouts")
+                    .partial(new Document("accruedAt", new Document("$exists", true))),
+            IndexSpec.of("credit_holds", "settlement_tutor_idx",
+                    new Document("settlementId", 1).append("tutorId", 1).append("_id", 1),
+                    "WalletService.settleAccruedPayouts")
+                    .partial(new Document("settlementId", new Document("$exists", true))),
+            IndexSpec.of("settlement_runs", "status_claimed_idx", new Document("status", 1).append("claimedAt", 1),
+                    "WalletService.settleAccruedPayouts"),
+            IndexSpec.of("settlement_statements", "tutor_period_idx",
+                    new Document("tutorId", 1).append("periodEnd", -1),
+                    "WalletService.getSettlementStatements"),
+            IndexSpec.of("wallet_transactions", "student_created_idx",
+                    new Document("studentId", 1).append("createdAt", -1),
+                    "WalletTransactionRepository.findByStudentIdOrderByCreatedAtDesc"),
+            IndexSpec.of("wallet_transactions", "type_created_idx", new Document("type", 1).append("createdAt", 1),
+                    "TransactionRollupService.backfill"),
+            // Covered scans for reconciliation, the sums never read a transaction document
+            IndexSpec.of("wallet_transactions", "student_type_amount_idx",
+                    new Document("studentId", 1).append("type", 1).append("amount.minor", 1),
+                    "WalletReconciler.reconcileWallets",
+                    "WalletReconciler.recheckBalance",
+                    "WalletReconciler.reconcileCompany"),
+            IndexSpec.of("wallet_transactions", "type_ref_amount_idx",
+                    new Document("type", 1).append("refId", 1).append("amount.minor", 1),
+                    "WalletReconciler.reconcileBookings",
+                    "WalletReconciler.recheckPayout",
+                    "WalletService.refundStudent"),
+            IndexSpec.of("transaction_rollups", "type_year_month_idx",
+                    new Document("type", 1).append("year", 1).append("month", 1),
+                    "TransactionRollupService.monthlyTotals"),
+            IndexSpec.of("transaction_rollups", "first_live_idx", new Document("firstLiveAt", 1),
+                    "TransactionRollupService.startRun")
+                    .partial(new Document("firstLiveAt", new Document("$exists", true))),
+
+            // ledger
+            IndexSpec.of("journal_entries", "account_created_idx",
+                    new Document("lines.account", 1).append("createdAt", 1),
+                    "LedgerService.sumSince",
+                    "LedgerService.entries"),
+            IndexSpec.of("journal_entries", "created_idx", new Document("createdAt", 1),
+                    "LedgerService.snapshot"),
+            IndexSpec.of("ledger_snapshots", "account_asof_idx", new Document("account", 1).append("asOf", -1),
+                    "LedgerService.latestSnapshot",
+                    "LedgerService.balancesAsOf"),
+            IndexSpec.of("ledger_snapshot_runs", "cutoff_idx", new Document("cutoff", -1),
+                    "LedgerService.latestRun"),
+
+            // outbox; delivered entries expire a week after the relay marked them DONE
+            IndexSpec.of("outbox", "status_available_idx", new Document("status", 1).append("availableAt", 1),
+                    "OutboxRelay.relayBatch"),
+            IndexSpec.of("outbox", "processed_ttl_idx", new Document("processedAt", 1),
+                    "OutboxRelay.markDone")
+                    .expireAfter(Duration.ofDays(7))
+                    .partial(new Document("status", "DONE")),
+
+            // idempotency keys, looked up by _id; the TTL index drops them once expiresAt passes
+            IndexSpec.of("idempotency_keys", "expires_ttl_idx", new Document("expiresAt", 1),
+                    "IdempotencyService.expiry")
+                    .expireAfter(Duration.ZERO),
+
+            // notifications
+            IndexSpec.of("notifications", "user_created_idx", new Document("userId", 1).append("createdAt", -1),
+                    "NotificationRepository.findByUserIdOrderByCreatedAtDesc"),
+
+            // users and role profiles
+            IndexSpec.of("users", "email", new Document("email", 1),
+                    "UserRepository.findByEmailAndStatusNot",
+                    "UserRepository.existsByEmailAndStatusNot").asUnique(),
+            IndexSpec.of("users", "role_idx", new Document("role", 1),
+                    "UserRepository.findAllByRole"),
+            IndexSpec.of("tutors", "user_idx", new Document("userId", 1),
+                    "TutorRepository.findByUserId",
+                    "TutorRepository.findByUserIdIn"),
+            IndexSpec.of("students", "user_idx", new Document("userId", 1),
+                    "StudentRepository.findByUserId",
+                    "StudentRepository.findByUserIdIn"),
+            IndexSpec.of("admins", "user_idx", new Document("userId", 1),
+                    "AdminRepository.findByUserId")
+    );
+
+    public List<IndexSpec> getSpecs() {
+        return specs;
+    }
+}
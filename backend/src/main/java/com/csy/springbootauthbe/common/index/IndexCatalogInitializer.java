@@ -0,0 +1,112 @@
+package com.csy.springbootauthbe.common.index;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.mongodb.MongoException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Creates every index declared in {@link IndexCatalog} at startup, then verifies they
+ * exist and logs which index serves which query. An index whose keys or options were changed
+ * in the catalog is dropped and rebuilt under its name. If anything is missing the
+ * application reports itself as not ready instead of serving collection scans.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class IndexCatalogInitializer implements ApplicationRunner {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(IndexCatalogInitializer.class);
+    /** IndexOptionsConflict and IndexKeySpecsConflict: an index of that name exists with another definition. */
+    private static final Set<Integer> CONFLICT_CODES = Set.of(85, 86);
+
+    private final IndexCatalog catalog;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private volatile List<IndexSpec> missing = List.of();
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (IndexSpec spec : catalog.getSpecs()) {
+            try {
+                ensure(spec);
+            } catch (RuntimeException e) {
+                logger.error("Could not create index {}.{}: {}", spec.collection(), spec.name(), e.getMessage());
+            }
+        }
+        missing = verify();
+        report();
+    }
+
+    /** Keep refusing traffic for as long as declared indexes are missing. */
+    @EventListener
+    public void onReadinessChange(AvailabilityChangeEvent<ReadinessState> event) {
+        if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC && !missing.isEmpty()) {
+            AvailabilityChangeEvent.publish(eventPublisher, this, ReadinessState.REFUSING_TRAFFIC);
+        }
+    }
+
+    private void ensure(IndexSpec spec) {
+        try {
+            mongoTemplate.indexOps(spec.collection()).ensureIndex(spec.toIndex());
+        } catch (RuntimeException e) {
+            if (!isConflict(e)) throw e;
+            logger.info("Rebuilding index {}.{} with its catalog definition", spec.collection(), spec.name());
+            mongoTemplate.indexOps(spec.collection()).dropIndex(spec.name());
+            mongoTemplate.indexOps(spec.collection()).ensureIndex(spec.toIndex());
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof MongoException mongo && CONFLICT_CODES.contains(mongo.getCode())) return true;
+        }
+        return false;
+    }
+
+    public boolean isComplete() {
+        return missing.isEmpty();
+    }
+
+    private List<IndexSpec> verify() {
+        List<IndexSpec> absent = new ArrayList<>();
+        for (IndexSpec spec : catalog.getSpecs()) {
+            Set<String> existing = mongoTemplate.indexOps(spec.collection()).getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .collect(Collectors.toSet());
+            if (!existing.contains(spec.name())) {
+                absent.add(spec);
+            }
+        }
+        return absent;
+    }
+
+    private void report() {
+        for (IndexSpec spec : catalog.getSpecs()) {
+            String state = missing.contains(spec) ? "MISSING" : "ok";
+            for (String method : spec.servedBy()) {
+                logger.info("[index] {} -> {}.{} ({})", method, spec.collection(), spec.name(), state);
+            }
+        }
+        if (missing.isEmpty()) {
+            logger.info("[index] all {} catalog indexes present", catalog.getSpecs().size());
+        } else {
+            logger.error("[index] {} catalog indexes missing, readiness will be refused", missing.size());
+        }
+    }
+}
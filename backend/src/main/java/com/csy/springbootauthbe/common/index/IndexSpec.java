@@ -0,0 +1,47 @@
+package com.csy.springbootauthbe.common.index;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.index.CompoundIndexDefinition;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * One declared index: where it lives, its key pattern and options, and the
+ * repository/query methods it exists to serve.
+ */
+public record IndexSpec(String collection,
+                        String name,
+                        Document keys,
+                        boolean unique,
+                        Document partialFilter,
+                        Duration expireAfter,
+                        List<String> servedBy) {
+
+    public static IndexSpec of(String collection, String name, Document keys, String... servedBy) {
+        return new IndexSpec(collection, name, keys, false, null, null, List.of(servedBy));
+    }
+
+    public IndexSpec asUnique() {
+        return new IndexSpec(collection, name, keys, true, partialFilter, expireAfter, servedBy);
+    }
+
+    public IndexSpec partial(Document filter) {
+        return new IndexSpec(collection, name, keys, unique, filter, expireAfter, servedBy);
+    }
+
+    /** TTL index: documents go once the indexed date is older than {@code ttl}, zero expires at the date itself. */
+    public IndexSpec expireAfter(Duration ttl) {
+        return new IndexSpec(collection, name, keys, unique, partialFilter, ttl, servedBy);
+    }
+
+    public Index toIndex() {
+        Index index = new CompoundIndexDefinition(keys).named(name);
+        if (unique) index.unique();
+        if (partialFilter != null) index.partial(PartialIndexFilter.of(partialFilter));
+        if (expireAfter != null) index.expire(expireAfter);
+        return index;
+    }
+}
@@ -0,0 +1,24 @@
+package com.csy.springbootauthbe.common.lease;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * The lease on one cluster-wide background job, keyed by the job's name. Whoever is {@code owner}
+ * while {@code leaseUntil} lies ahead is the only instance running the job.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "job_leases")
+public class JobLease {
+
+    @Id
+    private String job;
+    private String owner;       // instance id of the holder
+    private Instant leaseUntil; // free for any instance to take from then on
+}
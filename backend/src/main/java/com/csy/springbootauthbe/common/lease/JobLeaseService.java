@@ -0,0 +1,64 @@
+package com.csy.springbootauthbe.common.lease;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Lets one run at a time of a job that must not run concurrently, on this instance or any other,
+ * such as a settlement run. A job runs only while it holds the job's {@link JobLease}: the lease
+ * is taken with one conditional upsert, renewed between batches of a long run and released at
+ * the end. A holder that dies simply lets its lease run out.
+ */
+@Service
+public class JobLeaseService {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(JobLeaseService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final String owner = UUID.randomUUID().toString();
+
+    public JobLeaseService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Take the job's lease for {@code ttl}; false while a run here or elsewhere holds it. */
+    public boolean acquire(String job, Duration ttl) {
+        Instant now = Instant.now();
+        try {
+            // Matches a lease that ran out; a live one makes the upsert collide with its _id
+            JobLease lease = mongoTemplate.findAndModify(
+                    Query.query(Criteria.where("_id").is(job).and("leaseUntil").lte(now)),
+                    new Update().set("owner", owner).set("leaseUntil", now.plus(ttl)),
+                    FindAndModifyOptions.options().upsert(true).returnNew(true),
+                    JobLease.class);
+            return lease != null;
+        } catch (DuplicateKeyException e) {
+            logger.debug("Job {} is already running", job);
+            return false;
+        }
+    }
+
+    /** Extend the lease this instance holds by {@code ttl} from now; false if it was lost meanwhile. */
+    public boolean renew(String job, Duration ttl) {
+        return mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job).and("owner").is(owner)),
+                new Update().set("leaseUntil", Instant.now().plus(ttl)),
+                JobLease.class).getModifiedCount() > 0;
+    }
+
+    /** Give the lease up, so the next run does not have to wait for it to run out. */
+    public void release(String job) {
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(job).and("owner").is(owner)),
+                new Update().set("leaseUntil", Instant.now()),
+                JobLease.class);
+    }
+}
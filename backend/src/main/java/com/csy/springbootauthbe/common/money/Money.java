@@ -0,0 +1,109 @@
+package com.csy.springbootauthbe.common.money;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * An amount of money as a whole number of minor units (cents for SGD) in one currency. Stored in
+ * Mongo as {@code {minor: NumberLong, currency: "SGD"}} so amounts sum, sort and compare natively,
+ * and written to JSON as a plain decimal number so API payloads keep their shape.
+ * <p>
+ * The static {@code long} helpers do the arithmetic on minor units directly; the wallet works on
+ * those and only creates a {@code Money} where an entity field needs one.
+ */
+public record Money(long minor, String currency) implements Comparable<Money> {
+
+    public static final String DEFAULT_CURRENCY = "SGD";
+    public static final Money ZERO = new Money(0, DEFAULT_CURRENCY);
+
+    public Money {
+        if (currency == null) currency = DEFAULT_CURRENCY;
+    }
+
+    public static Money ofMinor(long minor) {
+        return new Money(minor, DEFAULT_CURRENCY);
+    }
+
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public static Money of(BigDecimal amount) {
+        return of(amount, DEFAULT_CURRENCY);
+    }
+
+    /** The exact amount in minor units; more decimals than the currency has are refused. */
+    public static Money of(BigDecimal amount, String currency) {
+        try {
+            return new Money(amount.movePointRight(digits(currency)).longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new RuntimeException("Amount " + amount + " is not a whole number of " + currency + " minor units");
+        }
+    }
+
+    /** Like {@link #of(BigDecimal)}, for nullable fields. */
+    public static Money ofNullable(BigDecimal amount) {
+        return amount != null ? of(amount) : null;
+    }
+
+    @JsonValue
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, digits(currency));
+    }
+
+    public Money plus(Money other) {
+        return new Money(add(minor, sameCurrency(other).minor), currency);
+    }
+
+    public Money minus(Money other) {
+        return new Money(subtract(minor, sameCurrency(other).minor), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minor), currency);
+    }
+
+    public boolean isPositive() {
+        return minor > 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minor, sameCurrency(other).minor);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+
+    // ----------------------------------------------------------------------
+    // Arithmetic on minor units
+    // ----------------------------------------------------------------------
+
+    public static long add(long a, long b) {
+        return Math.addExact(a, b);
+    }
+
+    public static long subtract(long a, long b) {
+        return Math.subtractExact(a, b);
+    }
+
+    /** {@code basisPoints}/10000 of an amount, rounded half up to the nearest minor unit. */
+    public static long share(long minor, long basisPoints) {
+        long scaled = Math.multiplyExact(minor, basisPoints);
+        return scaled >= 0 ? (scaled + 5_000) / 10_000 : -((-scaled + 5_000) / 10_000);
+    }
+
+    /** Fraction digits of the currency, 2 for SGD. */
+    public static int digits(String currency) {
+        return DEFAULT_CURRENCY.equals(currency) ? 2 : Currency.getInstance(currency).getDefaultFractionDigits();
+    }
+
+    private Money sameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new RuntimeException("Cannot combine " + currency + " with " + other.currency);
+        }
+        return other;
+    }
+}
@@ -0,0 +1,64 @@
+package com.csy.springbootauthbe.common.money;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+import org.springframework.data.convert.WritingConverter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+
+/**
+ * Mongo mapping of {@link Money}. Amounts are written as {@code {minor, currency}}; amounts
+ * still stored the old way, as a decimal string or Decimal128, are read as well, so documents
+ * the {@link MoneyMigration} has not reached yet (or outbox snapshots taken before it) load.
+ */
+public final class MoneyConverters {
+
+    private MoneyConverters() {
+    }
+
+    public static List<Converter<?, ?>> all() {
+        return List.of(new MoneyToDocument(), new DocumentToMoney(), new StringToMoney(), new Decimal128ToMoney());
+    }
+
+    /** Old amounts could carry more decimals than the currency, e.g. a 5% commission of 19.99. */
+    private static Money legacy(BigDecimal amount) {
+        return Money.of(amount.setScale(Money.digits(Money.DEFAULT_CURRENCY), RoundingMode.HALF_EVEN));
+    }
+
+    @WritingConverter
+    static class MoneyToDocument implements Converter<Money, Document> {
+        @Override
+        public Document convert(Money source) {
+            return new Document("minor", source.minor()).append("currency", source.currency());
+        }
+    }
+
+    @ReadingConverter
+    static class DocumentToMoney implements Converter<Document, Money> {
+        @Override
+        public Money convert(Document source) {
+            Object minor = source.get("minor");
+            return new Money(minor instanceof Number n ? n.longValue() : 0, source.getString("currency"));
+        }
+    }
+
+    @ReadingConverter
+    static class StringToMoney implements Converter<String, Money> {
+        @Override
+        public Money convert(String source) {
+            return legacy(new BigDecimal(source));
+        }
+    }
+
+    @ReadingConverter
+    static class Decimal128ToMoney implements Converter<Decimal128, Money> {
+        @Override
+        public Money convert(Decimal128 source) {
+            return legacy(source.bigDecimalValue());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.csy.springbootauthbe.common.money;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Rewrites amounts stored as decimal strings, Decimal128 or plain numbers into the
+ * {@code {minor, currency}} form of {@link Money}, and the Decimal128 rollup totals into minor
+ * units. Each field is converted in place with one pipeline update that only matches documents
+ * still in an old format, so the runner is a no-op once everything has been converted. Runs
+ * before the index catalog initializer.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class MoneyMigration implements ApplicationRunner {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(MoneyMigration.class);
+    private static final List<String> OLD_TYPES = List.of("string", "decimal", "double", "int", "long");
+    private static final Object WALLET_CURRENCY = new Document("$ifNull", List.of("$currency", Money.DEFAULT_CURRENCY));
+
+    /** A Money field and the currency its old amounts are in. */
+    private record MoneyField(String collection, String field, Object currency) {
+    }
+
+    private static final List<MoneyField> MONEY_FIELDS = List.of(
+            new MoneyField("wallets", "balance", WALLET_CURRENCY),
+            new MoneyField("wallets", "held", WALLET_CURRENCY),
+            new MoneyField("wallet_transactions", "amount", Money.DEFAULT_CURRENCY),
+            new MoneyField("bookings", "amount", Money.DEFAULT_CURRENCY),
+            new MoneyField("credit_holds", "amount", Money.DEFAULT_CURRENCY),
+            new MoneyField("transaction_highs", "amount", Money.DEFAULT_CURRENCY));
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        for (MoneyField money : MONEY_FIELDS) {
+            convert(money.collection(), money.field(), OLD_TYPES,
+                    new Document("minor", minor(money.field())).append("currency", money.currency()));
+        }
+        // Rollup totals are plain minor unit counters; int and long ones are converted already
+        for (String field : List.of("total", "backfillTotal")) {
+            convert("transaction_rollups", field, List.of("string", "decimal", "double"), minor(field));
+        }
+    }
+
+    private void convert(String collection, String field, List<String> oldTypes, Object value) {
+        long converted = mongoTemplate.getCollection(collection).updateMany(
+                new Document(field, new Document("$type", oldTypes)),
+                List.of(new Document("$set", new Document(field, value)))).getModifiedCount();
+        if (converted > 0) {
+            logger.info("Converted {}.{} to minor units on {} documents", collection, field, converted);
+        }
+    }
+
+    /** The old amount times 100, rounded half to even, as a long. */
+    private static Document minor(String field) {
+        Document decimal = new Document("$toDecimal", "$" + field);
+        Document cents = new Document("$multiply", List.of(decimal, (int) Math.pow(10, Money.digits(Money.DEFAULT_CURRENCY))));
+        return new Document("$toLong", new Document("$round", List.of(cents, 0)));
+    }
+}
@@ -0,0 +1,67 @@
+package com.csy.springbootauthbe.common.outbox;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A state change waiting to be delivered to its in-process consumers. Entries are
+ * written right after the Booking or WalletTransaction they describe and carry a
+ * snapshot of it, so the relay never has to read the aggregate back.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Document(collection = "outbox")
+public class OutboxEntry {
+
+    public static final String BOOKING = "BOOKING";
+    public static final String WALLET_TRANSACTION = "WALLET_TRANSACTION";
+
+    public static final String PENDING = "PENDING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String aggregateType; // BOOKING, WALLET_TRANSACTION
+    private String aggregateId;
+    private String eventType;
+    private String initiatorUserId;
+
+    private Booking booking;
+    private WalletTransaction transaction;
+
+    private String status; // PENDING, DONE, FAILED
+    private int attempts;
+    private String lastError;
+    private Instant createdAt;
+    private Instant availableAt; // not picked up by the relay before this time
+    private String owner; // relay pass that last claimed the entry
+    private Instant leaseUntil; // other relays skip the entry until then
+    private Instant processedAt;
+
+    public static OutboxEntry forBooking(Booking booking, String eventType, String initiatorUserId) {
+        return OutboxEntry.builder()
+                .aggregateType(BOOKING)
+                .aggregateId(booking.getId())
+                .eventType(eventType)
+                .initiatorUserId(initiatorUserId)
+                .booking(booking)
+                .build();
+    }
+
+    public static OutboxEntry forTransaction(WalletTransaction transaction) {
+        return OutboxEntry.builder()
+                .aggregateType(WALLET_TRANSACTION)
+                .aggregateId(transaction.getId())
+                .eventType(transaction.getType())
+                .transaction(transaction)
+                .build();
+    }
+}
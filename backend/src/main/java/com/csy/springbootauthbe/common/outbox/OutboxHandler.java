@@ -0,0 +1,14 @@
+package com.csy.springbootauthbe.common.outbox;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Consumer of one aggregate type in the outbox. The returned future completes once
+ * every side effect of the entry is done; the relay only marks the entry delivered then.
+ */
+public interface OutboxHandler {
+
+    String aggregateType();
+
+    CompletableFuture<Void> handle(OutboxEntry entry);
+}
@@ -0,0 +1,175 @@
+package com.csy.springbootauthbe.common.outbox;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers outbox entries to their {@link OutboxHandler}s at least once.
+ * <p>
+ * Every {@code outbox.relay.poll-ms} the relay claims due pending entries in (availableAt, _id)
+ * order in batches: one update stamps them with the pass as {@code owner} and a
+ * {@code leaseUntil}, so relays on other instances skip them while the lease runs. It hands the
+ * whole batch to the handlers, waits for their side effects and then marks the delivered entries
+ * DONE with one update. Failed entries are retried with backoff and parked as FAILED after
+ * {@code outbox.relay.max-attempts}. Pending entries are the resume point: after a crash an
+ * entry is claimed again once its lease has run out. DONE entries are dropped by a TTL index.
+ */
+@Component
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class OutboxRelay {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(OutboxRelay.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, OutboxHandler> handlers;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long deliveryTimeoutMs;
+    private final long leaseMs;
+
+    public OutboxRelay(MongoTemplate mongoTemplate,
+                       List<OutboxHandler> handlers,
+                       @Value("${outbox.relay.batch-size:200}") int batchSize,
+                       @Value("${outbox.relay.max-attempts:10}") int maxAttempts,
+                       @Value("${outbox.relay.delivery-timeout-ms:30000}") long deliveryTimeoutMs,
+                       @Value("${outbox.relay.lease-ms:60000}") long leaseMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.handlers = handlers.stream().collect(Collectors.toMap(OutboxHandler::aggregateType, Function.identity()));
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.deliveryTimeoutMs = deliveryTimeoutMs;
+        this.leaseMs = leaseMs;
+    }
+
+    /** Deliver batch after batch until the outbox has no full batch due. */
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-ms:500}")
+    public void relay() {
+        try {
+            while (relayBatch() == batchSize) {
+                // a full batch, there may be more
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Outbox relay pass failed: {}", e, e.getMessage());
+        }
+    }
+
+    /** Deliver one batch of due entries, returns how many were claimed. */
+    int relayBatch() throws InterruptedException {
+        Instant now = Instant.now();
+        String owner = UUID.randomUUID().toString();
+        List<OutboxEntry> batch = claim(owner, now);
+        if (batch.isEmpty()) return 0;
+
+        Map<OutboxEntry, CompletableFuture<Void>> inFlight = new LinkedHashMap<>();
+        List<String> done = new ArrayList<>();
+        for (OutboxEntry entry : batch) {
+            OutboxHandler handler = handlers.get(entry.getAggregateType());
+            if (handler == null) {
+                // Nothing consumes this aggregate type yet, the entry stays as a record of the change
+                done.add(entry.getId());
+                continue;
+            }
+            try {
+                inFlight.put(entry, handler.handle(entry));
+            } catch (RuntimeException e) {
+                inFlight.put(entry, CompletableFuture.failedFuture(e));
+            }
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deliveryTimeoutMs);
+        Map<OutboxEntry, String> failed = new LinkedHashMap<>();
+        for (Map.Entry<OutboxEntry, CompletableFuture<Void>> e : inFlight.entrySet()) {
+            try {
+                e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                done.add(e.getKey().getId());
+            } catch (ExecutionException ex) {
+                failed.put(e.getKey(), String.valueOf(ex.getCause().getMessage()));
+            } catch (TimeoutException ex) {
+                failed.put(e.getKey(), "Delivery timed out");
+            }
+        }
+
+        markDone(done, owner, now);
+        markFailed(failed, owner, now);
+        if (!failed.isEmpty()) {
+            logger.warn("Outbox batch of {}: delivered={}, failed={}", batch.size(), done.size(), failed.size());
+        }
+        return batch.size();
+    }
+
+    /**
+     * Lease up to a batch of due entries to {@code owner}, in due order. An entry another relay
+     * claims in between no longer matches the update and is left out.
+     */
+    private List<OutboxEntry> claim(String owner, Instant now) {
+        Criteria due = Criteria.where("status").is(OutboxEntry.PENDING).and("availableAt").lte(now)
+                .and("leaseUntil").not().gt(now);
+        Query candidates = Query.query(due).with(Sort.by("availableAt", "_id")).limit(batchSize);
+        candidates.fields().include("_id");
+        List<String> ids = mongoTemplate.find(candidates, OutboxEntry.class).stream().map(OutboxEntry::getId).toList();
+        if (ids.isEmpty()) return List.of();
+
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).andOperator(due)),
+                new Update().set("owner", owner).set("leaseUntil", now.plusMillis(leaseMs)),
+                OutboxEntry.class);
+        Map<String, OutboxEntry> claimed = mongoTemplate.find(
+                        Query.query(Criteria.where("_id").in(ids).and("owner").is(owner)), OutboxEntry.class)
+                .stream().collect(Collectors.toMap(OutboxEntry::getId, Function.identity()));
+        return ids.stream().map(claimed::get).filter(Objects::nonNull).toList();
+    }
+
+    private void markDone(List<String> ids, String owner, Instant now) {
+        if (ids.isEmpty()) return;
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(ids).and("owner").is(owner)),
+                new Update().set("status", OutboxEntry.DONE).set("processedAt", now).unset("leaseUntil"),
+                OutboxEntry.class);
+    }
+
+    private void markFailed(Map<OutboxEntry, String> failed, String owner, Instant now) {
+        if (failed.isEmpty()) return;
+        BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OutboxEntry.class);
+        failed.forEach((entry, error) -> {
+            int attempts = entry.getAttempts() + 1;
+            Update update = new Update().set("attempts", attempts).set("lastError", error).unset("leaseUntil");
+            if (attempts >= maxAttempts) {
+                update.set("status", OutboxEntry.FAILED).set("processedAt", now);
+                logger.error("Outbox entry {} for {} {} parked after {} attempts: {}", entry.getId(),
+                        entry.getAggregateType(), entry.getAggregateId(), attempts, error);
+            } else {
+                update.set("availableAt", now.plusMillis(backoffMs(attempts)));
+            }
+            ops.updateOne(Query.query(Criteria.where("_id").is(entry.getId()).and("owner").is(owner)), update);
+        });
+        ops.execute();
+    }
+
+    // 1s, 2s, 4s ... capped at 5 minutes
+    static long backoffMs(int attempts) {
+        return Math.min(1000L << Math.min(attempts - 1, 20), TimeUnit.MINUTES.toMillis(5));
+    }
+}
@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.common.outbox;
+
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+/**
+ * Appends entries to the outbox collection, where {@link OutboxRelay} picks them up on its
+ * next pass.
+ */
+@Service
+public class OutboxService {
+
+    private final MongoTemplate mongoTemplate;
+
+    public OutboxService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    public OutboxEntry append(OutboxEntry entry) {
+        Instant now = Instant.now();
+        entry.setStatus(OutboxEntry.PENDING);
+        entry.setCreatedAt(now);
+        entry.setAvailableAt(now);
+        return mongoTemplate.insert(entry);
+    }
+
+}
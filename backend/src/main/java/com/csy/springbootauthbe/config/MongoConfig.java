@@ -1,11 +1,19 @@
 package com.csy.springbootauthbe.config;
 
+import com.csy.springbootauthbe.common.money.MoneyConverters;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
 
 @Configuration
 @ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
 @EnableMongoAuditing
 public class MongoConfig {
+
+    @Bean
+    public MongoCustomConversions mongoCustomConversions() {
+        return new MongoCustomConversions(MoneyConverters.all());
+    }
 }
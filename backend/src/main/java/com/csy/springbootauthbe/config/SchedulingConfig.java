@@ -0,0 +1,23 @@
+package com.csy.springbootauthbe.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.task.ThreadPoolTaskSchedulerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the {@code @Scheduled} background jobs. The pool has more than Boot's single thread so a
+ * long job such as a reconciliation run does not hold up the outbox relay.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+
+    @Bean
+    public ThreadPoolTaskSchedulerCustomizer schedulerPoolSize(@Value("${app.scheduling.pool-size:4}") int poolSize) {
+        return scheduler -> scheduler.setPoolSize(poolSize);
+    }
+}
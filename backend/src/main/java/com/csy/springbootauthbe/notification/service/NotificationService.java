@@ -79,6 +79,35 @@ public class NotificationService {
         }
     }
 
+    /**
+     * Persist every notification produced by one event with a single insertMany, then push
+     * them over SSE grouped by recipient. Persistence errors propagate, so an event delivered
+     * through the outbox is retried instead of silently losing its notifications.
+     */
+    public List<NotificationDTO> createNotifications(List<Notification> notifications) {
+        if (notifications == null || notifications.isEmpty()) return Collections.emptyList();
+
+        List<NotificationDTO> dtos = repo.insert(notifications).stream()
+                .map(mapper::toDto)
+                .toList();
+
+        Map<String, List<NotificationDTO>> byUser = dtos.stream()
+                .filter(dto -> dto != null && dto.getUserId() != null)
+                .collect(Collectors.groupingBy(NotificationDTO::getUserId, LinkedHashMap::new, Collectors.toList()));
+        byUser.forEach(this::sendNotifications);
+        return dtos;
+    }
+
+    /** Build an unsaved notification, for use with {@link #createNotifications(List)} */
+    public static Notification notification(String userId, String type, String bookingId, String message) {
+        Notification n = new Notification();
+        n.setUserId(userId);
+        n.setType(type);
+        n.setBookingId(bookingId);
+        n.setMessage(message);
+        return n;
+    }
+
     /** Mark a notification as read */
     public void markAsRead(String notificationId) {
         Notification n = repo.findById(notificationId).orElseThrow(() -> new RuntimeException("Notification not found"));
@@ -88,11 +117,18 @@ public class NotificationService {
 
     /** Internal: push notification to SSE emitters */
     private void sendNotification(String userId, NotificationDTO dto) {
+        sendNotifications(userId, List.of(dto));
+    }
+
+    /** Internal: push a user's notifications to each of their SSE emitters in one pass */
+    private void sendNotifications(String userId, List<NotificationDTO> dtos) {
         if (!emitters.containsKey(userId)) return;
 
         for (SseEmitter emitter : emitters.get(userId)) {
             try {
-                emitter.send(dto);
+                for (NotificationDTO dto : dtos) {
+                    emitter.send(dto);
+                }
             } catch (IOException e) {
                 emitter.completeWithError(e);
                 emitters.get(userId).remove(emitter);
@@ -12,6 +12,7 @@ import com.csy.springbootauthbe.student.repository.StudentRepository;
 import com.csy.springbootauthbe.student.utils.TutorSearchRequest;
 import com.csy.springbootauthbe.tutor.entity.QualificationFile;
 import com.csy.springbootauthbe.tutor.entity.Review;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import lombok.RequiredArgsConstructor;
 import org.bson.Document;
 import org.springframework.data.mongodb.core.MongoTemplate;
@@ -32,6 +33,7 @@ public class StudentServiceImpl implements StudentService {
     private final MongoTemplate mongoTemplate;
     private final SequenceGeneratorService sequenceGenerator;
     private final AwsService awsService;
+    private final UserDisplayCache userDisplayCache;
     private static final SanitizedLogger logger = SanitizedLogger.getLogger(StudentServiceImpl.class);
 
     private static final String DEFAULT_PROFILE_URL =
@@ -195,6 +197,7 @@ public class StudentServiceImpl implements StudentService {
         student.setProfileImageUrl(fileUrl);
 
         Student saved = studentRepository.save(student);
+        userDisplayCache.invalidate(student.getUserId());
         return studentMapper.toDTO(saved);
     }
 
@@ -1,5 +1,8 @@
 package com.csy.springbootauthbe.tutor.controller;
 
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
+import com.csy.springbootauthbe.booking.dto.FreeSlotDTO;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
 import com.csy.springbootauthbe.student.dto.StudentDTO;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.tutor.entity.Availability;
@@ -18,6 +21,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
 import java.util.*;
 
 
@@ -28,6 +32,7 @@ import java.util.*;
 public class TutorController {
 
     private final TutorService tutorService;
+    private final FreeSlotCalendar freeSlotCalendar;
 
     @GetMapping("/{userId}")
     public ResponseEntity<TutorDTO> getTutorByUserId(@PathVariable String userId) {
@@ -98,6 +103,16 @@ public class TutorController {
         return ResponseEntity.ok(tutorService.getTutorReviewsByUserId(userId));
     }
 
+    /**Open slots from the materialized calendar, a week from today unless from/to (yyyy-MM-dd) are given*/
+    @GetMapping("/{userId}/free-slots")
+    public ResponseEntity<List<FreeSlotDTO>> getFreeSlots(@PathVariable String userId,
+                                                          @RequestParam(required = false) String from,
+                                                          @RequestParam(required = false) String to) {
+        LocalDate fromDate = from != null ? LocalDate.parse(from) : BookingTimes.today();
+        LocalDate toDate = to != null ? LocalDate.parse(to) : fromDate.plusDays(6);
+        return ResponseEntity.ok(freeSlotCalendar.freeSlots(userId, fromDate, toDate));
+    }
+
 
 
 
@@ -12,6 +12,7 @@ import com.csy.springbootauthbe.tutor.mapper.TutorMapper;
 import com.csy.springbootauthbe.tutor.repository.TutorRepository;
 import com.csy.springbootauthbe.tutor.utils.TutorRequest;
 import com.csy.springbootauthbe.tutor.utils.TutorResponse;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.User;
 import com.csy.springbootauthbe.user.repository.UserRepository;
@@ -35,6 +36,7 @@ public class TutorServiceImpl implements TutorService {
     private final UserRepository userRepository;
     private final TutorMapper tutorMapper;
     private final AwsService awsService;
+    private final UserDisplayCache userDisplayCache;
     private static final SanitizedLogger logger = SanitizedLogger.getLogger(TutorServiceImpl.class);
     
     private static final String DEFAULT_PROFILE_URL =
@@ -200,6 +202,7 @@ public class TutorServiceImpl implements TutorService {
         tutor.setProfileImageUrl(fileUrl);
 
         Tutor saved = tutorRepository.save(tutor);
+        userDisplayCache.invalidate(tutor.getUserId());
         return tutorMapper.toDTO(saved);
     }
 
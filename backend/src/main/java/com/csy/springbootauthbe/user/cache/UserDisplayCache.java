@@ -0,0 +1,137 @@
+package com.csy.springbootauthbe.user.cache;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.student.repository.StudentRepository;
+import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import com.csy.springbootauthbe.user.entity.Role;
+import com.csy.springbootauthbe.user.entity.User;
+import com.csy.springbootauthbe.user.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded userId -> display name / avatar cache used to enrich bookings and other listings.
+ * Entries expire after {@code user.display-cache.ttl-seconds} and the least recently used one
+ * is evicted past {@code user.display-cache.max-size}. Services that write a user's name,
+ * status or profile picture call {@link #invalidate(String)}.
+ */
+@Component
+public class UserDisplayCache {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(UserDisplayCache.class);
+
+    private final UserRepository userRepository;
+    private final StudentRepository studentRepository;
+    private final TutorRepository tutorRepository;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserDisplayCache(UserRepository userRepository,
+                            StudentRepository studentRepository,
+                            TutorRepository tutorRepository,
+                            @Value("${user.display-cache.max-size:10000}") int maxSize,
+                            @Value("${user.display-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.studentRepository = studentRepository;
+        this.tutorRepository = tutorRepository;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= maxSize) return false;
+                evictions.increment();
+                return true;
+            }
+        });
+    }
+
+    public record UserDisplay(String userId, String name, String avatarUrl) {
+    }
+
+    public record Stats(long hits, long misses, long evictions, int size) {
+    }
+
+    public Optional<UserDisplay> get(String userId) {
+        return Optional.ofNullable(getAll(Collections.singleton(userId)).get(userId));
+    }
+
+    /** Display data for every known id; all misses are loaded together with one users query. */
+    public Map<String, UserDisplay> getAll(Collection<String> userIds) {
+        Map<String, UserDisplay> result = new HashMap<>();
+        Set<String> missing = new HashSet<>();
+        long now = System.currentTimeMillis();
+        for (String id : userIds) {
+            if (id == null) continue;
+            Entry entry = entries.get(id);
+            if (entry != null && now - entry.loadedAt < ttlMillis) {
+                hits.increment();
+                result.put(id, entry.display);
+            } else {
+                misses.increment();
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (UserDisplay display : load(missing)) {
+                entries.put(display.userId(), new Entry(display, now));
+                result.put(display.userId(), display);
+            }
+        }
+        return result;
+    }
+
+    public void invalidate(String userId) {
+        if (userId != null) entries.remove(userId);
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), entries.size());
+    }
+
+    private List<UserDisplay> load(Set<String> userIds) {
+        List<User> users = new ArrayList<>();
+        userRepository.findAllById(userIds).forEach(users::add);
+
+        // Avatars live on the role profiles; only the roles present in this batch are queried
+        Set<String> studentIds = idsWithRole(users, Role.STUDENT);
+        Set<String> tutorIds = idsWithRole(users, Role.TUTOR);
+        Map<String, String> avatars = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            studentRepository.findByUserIdIn(studentIds).stream()
+                    .filter(s -> s.getProfileImageUrl() != null)
+                    .forEach(s -> avatars.put(s.getUserId(), s.getProfileImageUrl()));
+        }
+        if (!tutorIds.isEmpty()) {
+            tutorRepository.findByUserIdIn(tutorIds).stream()
+                    .filter(t -> t.getProfileImageUrl() != null)
+                    .forEach(t -> avatars.put(t.getUserId(), t.getProfileImageUrl()));
+        }
+
+        logger.debug("Loaded display data for {} of {} users", users.size(), userIds.size());
+        return users.stream()
+                .map(u -> new UserDisplay(u.getId(), u.getFirstname() + " " + u.getLastname(), avatars.get(u.getId())))
+                .toList();
+    }
+
+    private static Set<String> idsWithRole(List<User> users, Role role) {
+        return users.stream()
+                .filter(u -> u.getRole() == role)
+                .map(User::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private record Entry(UserDisplay display, long loadedAt) {
+    }
+}
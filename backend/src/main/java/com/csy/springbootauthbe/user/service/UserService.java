@@ -1,5 +1,6 @@
 package com.csy.springbootauthbe.user.service;
 
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.entity.User;
@@ -22,6 +23,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final UserDisplayCache userDisplayCache;
 
     public UserResponse getCurrentAdmin() {
         // Get the authenticated user's email from the JWT token
@@ -95,6 +97,7 @@ public class UserService {
         }
 
         userRepository.save(user);
+        userDisplayCache.invalidate(userId);
         return createUserResponse(user);
     }
 
@@ -103,6 +106,7 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
         userRepository.delete(user);
+        userDisplayCache.invalidate(userId);
     }
 
     private UserResponse createUserResponse(User user) {
@@ -0,0 +1,42 @@
+package com.csy.springbootauthbe.wallet.config;
+
+import com.csy.springbootauthbe.common.money.MoneyMigration;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops the old non-unique studentId index so the unique one from the index catalog can take its
+ * place. Runs before the catalog initializer and is a no-op once the index is gone. Balances
+ * stored as strings are converted by the {@link MoneyMigration}.
+ */
+@Component
+@RequiredArgsConstructor
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class WalletBalanceMigration implements ApplicationRunner {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(WalletBalanceMigration.class);
+    private static final String LEGACY_INDEX = "student_idx";
+
+    private final MongoTemplate mongoTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        boolean legacyIndex = mongoTemplate.indexOps(Wallet.class).getIndexInfo().stream()
+                .map(IndexInfo::getName)
+                .anyMatch(LEGACY_INDEX::equals);
+        if (legacyIndex) {
+            mongoTemplate.indexOps(Wallet.class).dropIndex(LEGACY_INDEX);
+            logger.info("Dropped index wallets.{} in favour of the unique studentId index", LEGACY_INDEX);
+        }
+    }
+}
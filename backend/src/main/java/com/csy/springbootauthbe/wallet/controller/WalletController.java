@@ -1,7 +1,12 @@
 package com.csy.springbootauthbe.wallet.controller;
 
+import com.csy.springbootauthbe.common.idempotency.IdempotencyService;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.SettlementStatement;
 import com.csy.springbootauthbe.wallet.entity.Wallet;
 import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import com.csy.springbootauthbe.wallet.ledger.JournalEntry;
 import com.csy.springbootauthbe.wallet.service.WalletService;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
@@ -11,6 +16,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -21,6 +27,7 @@ import java.util.UUID;
 public class WalletController {
 
     private final WalletService walletService;
+    private final IdempotencyService idempotencyService;
 
     @Value("${EC2_HOST}")
     private String frontendBaseUrl;
@@ -31,22 +38,28 @@ public class WalletController {
         return ResponseEntity.ok(walletService.getWallet(studentId));
     }
 
-    // Manually top-up credits (used by success redirect)
+    // Manually top-up credits (used by success redirect), a retried Idempotency-Key gets the first response back
     @PostMapping("/topup")
-    public ResponseEntity<WalletTransaction> topUp(@RequestBody Map<String, Object> req) {
-        String studentId = (String) req.get("studentId");
-        BigDecimal amount = new BigDecimal(req.get("amount").toString());
-        String refId = UUID.randomUUID().toString();
-        return ResponseEntity.ok(walletService.addCredits(studentId, amount, refId));
+    public ResponseEntity<WalletTransaction> topUp(@RequestBody Map<String, Object> req,
+                                                   @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("wallet-topup", idempotencyKey, req, WalletTransaction.class, () -> {
+            String studentId = (String) req.get("studentId");
+            Money amount = Money.of(new BigDecimal(req.get("amount").toString()));
+            String refId = idempotencyKey != null ? idempotencyKey : UUID.randomUUID().toString();
+            return ResponseEntity.ok(walletService.addCredits(studentId, amount, refId));
+        });
     }
 
     // Deduct credits for bookings
     @PostMapping("/deduct")
-    public ResponseEntity<Wallet> deduct(@RequestBody Map<String, Object> req) {
-        String studentId = (String) req.get("studentId");
-        BigDecimal amount = new BigDecimal(req.get("amount").toString());
-        String bookingId = (String) req.get("bookingId");
-        return ResponseEntity.ok(walletService.deductCredits(studentId, amount, bookingId));
+    public ResponseEntity<Wallet> deduct(@RequestBody Map<String, Object> req,
+                                         @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("wallet-deduct", idempotencyKey, req, Wallet.class, () -> {
+            String studentId = (String) req.get("studentId");
+            Money amount = Money.of(new BigDecimal(req.get("amount").toString()));
+            String bookingId = (String) req.get("bookingId");
+            return ResponseEntity.ok(walletService.deductCredits(studentId, amount, bookingId));
+        });
     }
 
     // View all wallet transactions
@@ -55,12 +68,45 @@ public class WalletController {
         return ResponseEntity.ok(walletService.getTransactions(studentId));
     }
 
+    // Credit holds of a student still waiting to be released or refunded
+    @GetMapping("/holds/{studentId}")
+    public ResponseEntity<List<CreditHold>> getActiveHolds(@PathVariable String studentId) {
+        return ResponseEntity.ok(walletService.getActiveHolds(studentId));
+    }
+
+    // Settlement statements of a tutor, latest first
+    @GetMapping("/statements/{tutorId}")
+    public ResponseEntity<List<SettlementStatement>> getSettlementStatements(@PathVariable String tutorId) {
+        return ResponseEntity.ok(walletService.getSettlementStatements(tutorId));
+    }
+
+    // Ledger balance of a wallet or system account, optionally as of an ISO instant
+    @GetMapping("/ledger/{account}")
+    public ResponseEntity<Map<String, Object>> getLedgerBalance(@PathVariable String account,
+                                                                @RequestParam(required = false) String at) {
+        // Without an instant the running balance is read rather than summed from the journal
+        Instant asOf = at != null ? Instant.parse(at) : null;
+        return ResponseEntity.ok(Map.of(
+                "account", account,
+                "balance", walletService.getLedgerBalance(account, asOf),
+                "at", (asOf != null ? asOf : Instant.now()).toString()));
+    }
+
+    // Journal entries of an account in (from, to] for audits
+    @GetMapping("/ledger/{account}/entries")
+    public ResponseEntity<List<JournalEntry>> getLedgerEntries(@PathVariable String account,
+                                                               @RequestParam(required = false) String from,
+                                                               @RequestParam(required = false) String to) {
+        return ResponseEntity.ok(walletService.getLedgerEntries(account,
+                from != null ? Instant.parse(from) : null,
+                to != null ? Instant.parse(to) : null));
+    }
+
     //  Create Stripe Checkout session (NO webhook needed)
     @PostMapping("/create-checkout-session")
     public ResponseEntity<Map<String, Object>> createCheckoutSession(@RequestBody Map<String, Object> req) throws Exception {
         String studentId = (String) req.get("studentId");
-        BigDecimal amount = new BigDecimal(req.get("amount").toString());
-        long amountInCents = amount.multiply(BigDecimal.valueOf(100)).longValue();
+        Money amount = Money.of(new BigDecimal(req.get("amount").toString()));
 
         SessionCreateParams params = SessionCreateParams.builder()
                 .setMode(SessionCreateParams.Mode.PAYMENT)
@@ -72,7 +118,7 @@ public class WalletController {
                                 .setPriceData(
                                         SessionCreateParams.LineItem.PriceData.builder()
                                                 .setCurrency("sgd")
-                                                .setUnitAmount(amountInCents)
+                                                .setUnitAmount(amount.minor())
                                                 .setProductData(
                                                         SessionCreateParams.LineItem.PriceData.ProductData.builder()
                                                                 .setName("TutorLink Credits (" + amount + " credits)")
@@ -106,16 +152,19 @@ public class WalletController {
     }
 
     @PostMapping("/withdraw")
-    public ResponseEntity<?> withdraw(@RequestBody Map<String, Object> req) {
-        String studentId = (String) req.get("studentId");
-        String pin = (String) req.get("pin");
-
-        if (!walletService.verifyWalletPin(studentId, pin)) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Invalid wallet PIN"));
-        }
-
-        Map<String, Object> result = walletService.simulateWithdrawal(studentId);
-        return ResponseEntity.ok(result);
+    public ResponseEntity<?> withdraw(@RequestBody Map<String, Object> req,
+                                      @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        return idempotencyService.execute("wallet-withdraw", idempotencyKey, req, Object.class, () -> {
+            String studentId = (String) req.get("studentId");
+            String pin = (String) req.get("pin");
+
+            if (!walletService.verifyWalletPin(studentId, pin)) {
+                return ResponseEntity.badRequest().body(Map.of("error", "Invalid wallet PIN"));
+            }
+
+            Map<String, Object> result = walletService.simulateWithdrawal(studentId);
+            return ResponseEntity.ok(result);
+        });
     }
 
 }
@@ -1,13 +0,0 @@
-package com.csy.springbootauthbe.wallet.dto;
-
-import lombok.Getter;
-import lombok.Setter;
-
-@Setter
-@Getter
-public class MonthlyEarningDTO {
-    private Integer _id;
-    private Double total;
-
-}
-
@@ -0,0 +1,60 @@
+package com.csy.springbootauthbe.wallet.entity;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Credits set aside from a student's wallet for one booking, keyed by the booking id. The hold is
+ * settled exactly once: RELEASED to the tutor when the booking is accepted, REFUNDED when it is
+ * cancelled, or EXPIRED by the hold sweeper when nobody settled it by {@code expiresAt}. The sweeper
+ * claims expired holds first and pays them back after, stamping {@code refundedAt}; an EXPIRED hold
+ * without it was claimed by a sweep that stopped before paying, and the next sweep pays it.
+ * <p>
+ * In accrual mode an accepted booking's hold turns ACCRUED instead, with {@code tutorId} set: it
+ * is then the tutor's payable, no longer refundable or expirable. The next settlement run claims
+ * it by setting its {@code settlementId} and RELEASES it once the tutor has been paid and the
+ * amount has come off the student's {@code held}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "credit_holds")
+public class CreditHold {
+
+    public static final String ACTIVE = "ACTIVE";
+    public static final String RELEASED = "RELEASED";
+    public static final String REFUNDED = "REFUNDED";
+    public static final String EXPIRED = "EXPIRED";
+    public static final String ACCRUED = "ACCRUED";
+
+    /** How long after the lesson an unsettled hold is given back to the student. */
+    public static final Duration GRACE = Duration.ofDays(1);
+
+    @Id
+    private String bookingId;
+    private String studentId;
+    private Money amount;
+    private String status;
+    private Instant createdAt;
+    private Instant expiresAt;
+    private Instant settledAt;
+    private String settlementId; // set when claimed in bulk by the sweeper or a settlement run
+    private String tutorId;      // payee of an accrued hold
+    private Instant accruedAt;
+    private Instant refundedAt;  // when the sweeper paid an EXPIRED hold back; unset until then
+
+    public static CreditHold of(String bookingId, Money amount, Instant expiresAt) {
+        return CreditHold.builder().bookingId(bookingId).amount(amount).expiresAt(expiresAt).build();
+    }
+
+    /** Expiry for the hold of a lesson ending at {@code lessonEnd}. */
+    public static Instant expiryFor(Instant lessonEnd) {
+        return (lessonEnd != null ? lessonEnd : Instant.now()).plus(GRACE);
+    }
+}
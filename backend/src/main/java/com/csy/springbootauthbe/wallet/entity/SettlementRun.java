@@ -0,0 +1,32 @@
+package com.csy.springbootauthbe.wallet.entity;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * One settlement run, keyed by its settlementId. It is written CLAIMED before the run claims any
+ * payable and turns PAID once every tutor, student and the company account has been settled; a
+ * run still CLAIMED was interrupted and is finished by the next one, with the same cutoff.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "settlement_runs")
+public class SettlementRun {
+
+    public static final String CLAIMED = "CLAIMED";
+    public static final String PAID = "PAID";
+
+    @Id
+    private String id;
+    private String status;
+    private Instant cutoff;
+    private Instant claimedAt;
+    private Instant commissionPaidAt; // set once the company wallet was credited
+    private Instant paidAt;
+    private int statements;
+}
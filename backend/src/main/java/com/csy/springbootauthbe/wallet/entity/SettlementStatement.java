@@ -0,0 +1,48 @@
+package com.csy.springbootauthbe.wallet.entity;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * What one settlement run paid one tutor: every booking whose payable accrued in the period, its
+ * commission, and the single amount credited to the tutor's wallet for all of them. The statement
+ * is inserted before the credit and marked {@code paidAt} right after it, so a resumed run credits
+ * only the statements still unpaid.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "settlement_statements")
+public class SettlementStatement {
+
+    @Id
+    private String id; // settlementId:tutorId
+    private String settlementId;
+    private String tutorId;
+    private Instant periodStart; // first payable accrued
+    private Instant periodEnd;   // the run's cutoff, exclusive
+    private int bookings;
+    private Money gross;
+    private Money commission;
+    private Money net;
+    private List<Line> lines;
+    private Instant createdAt;
+    private Instant paidAt; // when the net was credited to the tutor's wallet
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Line {
+        private String bookingId;
+        private String studentId;
+        private Money amount;
+        private Money commission;
+        private Instant accruedAt;
+    }
+}
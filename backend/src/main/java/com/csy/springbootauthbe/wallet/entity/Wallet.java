@@ -1,13 +1,14 @@
 package com.csy.springbootauthbe.wallet.entity;
 
+import com.csy.springbootauthbe.common.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -19,10 +20,16 @@ public class Wallet {
     @Id
     private String id;
     private String studentId;
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO; // available to spend
+    private Money held = Money.ZERO;    // set aside by active credit holds
     private String currency = "SGD";
     private String walletPin;
     private Boolean pinSet = false;
     private LocalDateTime updatedAt;
+
+    @Transient
+    public Money getAvailable() {
+        return balance;
+    }
 }
 
@@ -1,5 +1,6 @@
 package com.csy.springbootauthbe.wallet.entity;
 
+import com.csy.springbootauthbe.common.money.Money;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -7,7 +8,6 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Data
@@ -20,7 +20,7 @@ public class WalletTransaction {
     private String id;
     private String studentId;
     private String type; // PURCHASE, BOOKING_DEDUCT, REFUND, BONUS
-    private BigDecimal amount;
+    private Money amount;
     private String description;
     private String refId; // bookingId / paymentId
     private LocalDateTime createdAt = LocalDateTime.now();
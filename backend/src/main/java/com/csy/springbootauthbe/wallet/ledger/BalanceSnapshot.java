@@ -0,0 +1,30 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Balance of one ledger account as of {@code asOf}, i.e. the sum of every journal line of the
+ * account created at or before that instant. The balance at any later time is this value plus
+ * the lines created since.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "ledger_snapshots")
+public class BalanceSnapshot {
+
+    @Id
+    private String id;          // account@asOfMillis
+    private String account;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal balance;
+    private Instant asOf;
+}
@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * One money movement in the ledger. Its lines always sum to zero, so whatever one account
+ * gains another loses. Entries are only ever inserted, never updated or deleted; a mistake
+ * is corrected by posting a reversing entry.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "journal_entries")
+public class JournalEntry {
+
+    @Id
+    private String id;
+    private String type;        // same vocabulary as WalletTransaction.type
+    private String refId;       // booking id, top-up reference, ...
+    private String description;
+    private List<JournalLine> lines;
+    private Instant createdAt;
+}
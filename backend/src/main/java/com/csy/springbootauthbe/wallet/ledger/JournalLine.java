@@ -0,0 +1,29 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.mongodb.core.mapping.Field;
+import org.springframework.data.mongodb.core.mapping.FieldType;
+
+import java.math.BigDecimal;
+
+/** One side of a journal entry: a positive amount credits the account, a negative one debits it. */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalLine {
+
+    private String account;
+    @Field(targetType = FieldType.DECIMAL128)
+    private BigDecimal amount;
+
+    public static JournalLine of(String account, BigDecimal amount) {
+        return new JournalLine(account, amount);
+    }
+
+    public static JournalLine of(String account, Money amount) {
+        return new JournalLine(account, amount.toBigDecimal());
+    }
+}
@@ -0,0 +1,202 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Double-entry ledger of every wallet movement. Each movement is one {@link JournalEntry} whose
+ * lines balance, appended with a single insert. Accounts are wallet owner ids plus the system
+ * accounts below. An account's balance at any instant is its latest {@link BalanceSnapshot} at or
+ * before that instant plus the journal lines created since, so neither current nor historical
+ * balances scan the whole journal. {@link #snapshot()} is run periodically to keep that delta small.
+ */
+@Service
+public class LedgerService {
+
+    /** Money entering the platform through Stripe top-ups. */
+    public static final String TOP_UP = "system:top-up";
+    /** Credits held for bookings until they are released to the tutor or refunded. */
+    public static final String ESCROW = "system:escrow";
+    /** Direct booking charges. */
+    public static final String CHARGES = "system:charges";
+    /** Money leaving the platform through withdrawals. */
+    public static final String WITHDRAWALS = "system:withdrawals";
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(LedgerService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Duration settle;
+
+    public LedgerService(MongoTemplate mongoTemplate,
+                         @Value("${app.ledger.settle-seconds:300}") long settleSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.settle = Duration.ofSeconds(settleSeconds);
+    }
+
+    /** Append one balanced journal entry. */
+    public JournalEntry post(String type, String refId, String description, JournalLine... lines) {
+        return mongoTemplate.insert(entry(null, type, refId, description, lines));
+    }
+
+    /**
+     * Append one balanced journal entry under {@code entryId}, unless an entry with that id is
+     * already there, so a step that is redone posts it only once. Returns whether it was posted.
+     */
+    public boolean postOnce(String entryId, String type, String refId, String description, JournalLine... lines) {
+        try {
+            mongoTemplate.insert(entry(entryId, type, refId, description, lines));
+            return true;
+        } catch (DuplicateKeyException e) {
+            logger.debug("Journal entry {} is already posted", entryId);
+            return false;
+        }
+    }
+
+    private static JournalEntry entry(String id, String type, String refId, String description, JournalLine... lines) {
+        if (lines.length < 2) {
+            throw new RuntimeException("Journal entry needs at least two lines");
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (JournalLine line : lines) {
+            total = total.add(line.getAmount());
+        }
+        if (total.signum() != 0) {
+            throw new RuntimeException("Journal entry does not balance: " + total);
+        }
+        return JournalEntry.builder()
+                .id(id)
+                .type(type)
+                .refId(refId)
+                .description(description)
+                .lines(List.of(lines))
+                .createdAt(Instant.now())
+                .build();
+    }
+
+    public BigDecimal balanceOf(String account) {
+        return balanceAt(account, Instant.now());
+    }
+
+    public BigDecimal balanceAt(String account, Instant at) {
+        BalanceSnapshot snapshot = latestSnapshot(account, at);
+        BigDecimal base = snapshot != null ? snapshot.getBalance() : BigDecimal.ZERO;
+        return base.add(sumSince(account, snapshot != null ? snapshot.getAsOf() : null, at));
+    }
+
+    /** Entries touching the account in (from, to], oldest first, for audits. */
+    public List<JournalEntry> entries(String account, Instant from, Instant to) {
+        return mongoTemplate.find(Query.query(window(account, from, to))
+                .with(Sort.by("createdAt")), JournalEntry.class);
+    }
+
+    /**
+     * Snapshot every account that has lines since the previous run. The cutoff trails the clock
+     * by the settle window so entries stamped just before it but still in flight are not missed.
+     */
+    public LedgerSnapshotRun snapshot() {
+        Instant cutoff = Instant.now().minus(settle);
+        LedgerSnapshotRun previous = latestRun();
+        Instant from = previous != null ? previous.getCutoff() : null;
+        if (from != null && !cutoff.isAfter(from)) {
+            return previous;
+        }
+
+        List<Document> deltas = mongoTemplate.aggregate(newAggregation(
+                match(window(null, from, cutoff)),
+                unwind("lines"),
+                group("lines.account").sum("lines.amount").as("delta").count().as("lines")
+        ), JournalEntry.class, Document.class).getMappedResults();
+
+        Map<String, BigDecimal> opening = from != null
+                ? balancesAsOf(deltas.stream().map(d -> d.getString("_id")).toList(), from)
+                : Map.of();
+        List<BalanceSnapshot> snapshots = new ArrayList<>();
+        long lines = 0;
+        for (Document delta : deltas) {
+            String account = delta.getString("_id");
+            snapshots.add(BalanceSnapshot.builder()
+                    .id(account + "@" + cutoff.toEpochMilli())
+                    .account(account)
+                    .balance(opening.getOrDefault(account, BigDecimal.ZERO).add(decimal(delta.get("delta"))))
+                    .asOf(cutoff)
+                    .build());
+            lines += ((Number) delta.get("lines")).longValue();
+        }
+        if (!snapshots.isEmpty()) {
+            mongoTemplate.insertAll(snapshots);
+        }
+
+        // Recorded last: a run that fails half way is simply redone from the same starting point
+        LedgerSnapshotRun run = mongoTemplate.insert(LedgerSnapshotRun.builder()
+                .cutoff(cutoff)
+                .accounts(snapshots.size())
+                .lines(lines)
+                .createdAt(Instant.now())
+                .build());
+        logger.info("Ledger snapshot as of {}: {} accounts, {} lines", cutoff, snapshots.size(), lines);
+        return run;
+    }
+
+    private BalanceSnapshot latestSnapshot(String account, Instant at) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("account").is(account).and("asOf").lte(at))
+                .with(Sort.by(Sort.Direction.DESC, "asOf")), BalanceSnapshot.class);
+    }
+
+    private LedgerSnapshotRun latestRun() {
+        return mongoTemplate.findOne(new Query().with(Sort.by(Sort.Direction.DESC, "cutoff")), LedgerSnapshotRun.class);
+    }
+
+    private BigDecimal sumSince(String account, Instant from, Instant to) {
+        Document total = mongoTemplate.aggregate(newAggregation(
+                match(window(account, from, to)),
+                unwind("lines"),
+                match(Criteria.where("lines.account").is(account)),
+                group().sum("lines.amount").as("total")
+        ), JournalEntry.class, Document.class).getUniqueMappedResult();
+        return total != null ? decimal(total.get("total")) : BigDecimal.ZERO;
+    }
+
+    /** Each account's latest snapshot balance at or before {@code asOf}, in one round trip. */
+    private Map<String, BigDecimal> balancesAsOf(List<String> accounts, Instant asOf) {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        if (accounts.isEmpty()) return balances;
+        List<Document> rows = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("account").in(accounts).and("asOf").lte(asOf)),
+                sort(Sort.by(Sort.Direction.DESC, "asOf")),
+                group("account").first("balance").as("balance")
+        ), BalanceSnapshot.class, Document.class).getMappedResults();
+        for (Document row : rows) {
+            balances.put(row.getString("_id"), decimal(row.get("balance")));
+        }
+        return balances;
+    }
+
+    /** Entries created in (from, to], touching the account unless it is null. */
+    private static Criteria window(String account, Instant from, Instant to) {
+        Criteria createdAt = account != null
+                ? Criteria.where("lines.account").is(account).and("createdAt")
+                : Criteria.where("createdAt");
+        return from != null ? createdAt.gt(from).lte(to) : createdAt.lte(to);
+    }
+
+    private static BigDecimal decimal(Object value) {
+        if (value instanceof Decimal128 d) return d.bigDecimalValue();
+        return value instanceof Number n ? new BigDecimal(n.toString()) : BigDecimal.ZERO;
+    }
+}
@@ -0,0 +1,26 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * A completed snapshot run. Every account with journal lines created after the previous run's
+ * cutoff and at or before {@code cutoff} got a {@link BalanceSnapshot} as of {@code cutoff}.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "ledger_snapshot_runs")
+public class LedgerSnapshotRun {
+
+    @Id
+    private String id;
+    private Instant cutoff;
+    private long accounts;
+    private long lines;
+    private Instant createdAt;
+}
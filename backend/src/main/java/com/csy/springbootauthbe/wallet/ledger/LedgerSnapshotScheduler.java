@@ -0,0 +1,32 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes a ledger snapshot at startup and then every
+ * {@code app.ledger.snapshot-interval-minutes}.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class LedgerSnapshotScheduler {
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(LedgerSnapshotScheduler.class);
+
+    private final LedgerService ledgerService;
+
+    @Scheduled(fixedDelayString = "${app.ledger.snapshot-interval-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void snapshot() {
+        try {
+            ledgerService.snapshot();
+        } catch (RuntimeException e) {
+            logger.error("Ledger snapshot failed: {}", e, e.getMessage());
+        }
+    }
+}
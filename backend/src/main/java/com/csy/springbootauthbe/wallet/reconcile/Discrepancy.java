@@ -0,0 +1,44 @@
+package com.csy.springbootauthbe.wallet.reconcile;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One thing that does not add up. {@code subject} is the wallet owner for balance findings and
+ * the booking id for payout findings; {@code expected} is what the transactions or the booking
+ * say, {@code actual} what was found.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Discrepancy {
+
+    public enum Kind {
+        /** Wallet balance differs from the sum of its transactions. */
+        BALANCE_MISMATCH,
+        /** Transactions sum to a non-zero amount for an owner without a wallet. */
+        MISSING_WALLET,
+        /** The company shards together differ from the commission transactions. */
+        COMPANY_BALANCE_MISMATCH,
+        /** A confirmed or completed booking has neither a tutor payment nor a commission. */
+        MISSING_PAYOUT,
+        /** Only one half of the tutor payment and commission pair exists. */
+        INCOMPLETE_PAYOUT,
+        /** A booking was paid out more than once. */
+        DUPLICATE_PAYOUT,
+        /** Tutor payment plus commission, or the accrued payable, differs from the booking amount. */
+        PAYOUT_MISMATCH,
+        /** Payout transactions reference a booking that does not exist. */
+        ORPHAN_PAYOUT
+    }
+
+    private Kind kind;
+    private String subject;
+    private Money expected;
+    private Money actual;
+    private String detail;
+}
@@ -0,0 +1,43 @@
+package com.csy.springbootauthbe.wallet.reconcile;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One reconciliation pass and its report. Saved as {@code RUNNING} when it starts and again when
+ * it ends. {@code discrepancies} keeps the first {@code app.wallet.reconcile.max-reported}
+ * findings, {@code discrepancyCount} and {@code byKind} count all of them.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "reconciliation_runs")
+public class ReconciliationRun {
+
+    public static final String RUNNING = "RUNNING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String id;
+    private String trigger; // "schedule" or "admin:<userId>"
+    private String status;
+    private Instant startedAt;
+    private Instant completedAt;
+    private int partitions;
+    private long wallets;
+    private long transactions;
+    private long bookings;
+    private long discrepancyCount;
+    private Map<String, Long> byKind;
+    private List<Discrepancy> discrepancies;
+    private long elapsedMillis;
+    private double perSecond; // documents read per second
+    private String error;
+}
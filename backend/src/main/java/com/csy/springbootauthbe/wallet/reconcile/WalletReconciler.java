@@ -0,0 +1,557 @@
+package com.csy.springbootauthbe.wallet.reconcile;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import com.csy.springbootauthbe.wallet.service.CompanyWallet;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOperation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Checks that every wallet balance equals the sum of its {@code wallet_transactions} and that
+ * every paid booking has exactly one {@code BOOKING_PAYMENT_TUTOR} and one
+ * {@code BOOKING_COMMISSION} adding up to its amount, or, when it was accepted in accrual mode,
+ * an accrued hold of its amount that a settlement run pays out instead.
+ * <p>
+ * Wallets are split into {@code app.wallet.reconcile.partitions} owner id ranges and bookings into
+ * as many booking id ranges, with boundaries taken from a {@code $sample}. Each range is one task
+ * on a fork-join pool of {@code app.wallet.reconcile.parallelism} threads: it opens cursors
+ * sorted on the same key, the documents and the per-key transaction sums from a covered index
+ * scan, and merge-joins them, so nothing is held in memory beyond the current key. A finding is
+ * re-read on its own before it is reported, so a wallet or booking caught between its update and
+ * its transaction is not reported.
+ * <p>
+ * {@code BOOKING_CONFIRMED} transactions only record the end of a hold whose deduction is already
+ * counted and are left out of the sums. Commission is recorded against {@link CompanyWallet#ID}
+ * but credited to its shards, so the company accounts are checked once, as a whole.
+ * <p>
+ * One run at a time across all instances: a run holds the {@value #JOB} lease, renewed as its
+ * partitions finish.
+ */
+@Service
+public class WalletReconciler {
+
+    static final String JOB = "wallet-reconciliation";
+    static final String CONFIRMED = "BOOKING_CONFIRMED";
+    static final String TUTOR_PAYMENT = "BOOKING_PAYMENT_TUTOR";
+    static final String COMMISSION = "BOOKING_COMMISSION";
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(WalletReconciler.class);
+    private static final Duration LEASE = Duration.ofMinutes(10);
+    private static final int SAMPLES_PER_PARTITION = 32;
+    private static final Comparator<String> KEY_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+    // States a booking has once it was accepted and its credits released
+    private static final Set<String> PAID_STATUSES = Set.of(BookingStatus.confirmed.name(),
+            BookingStatus.reschedule_requested.name(), BookingStatus.completed.name());
+
+    private final MongoTemplate mongoTemplate;
+    private final CompanyWallet companyWallet;
+    private final JobLeaseService leases;
+    private final int partitions;
+    private final int parallelism;
+    private final int batchSize;
+    private final int maxReported;
+
+    // The run in progress on this instance, for progress()
+    private volatile Tally current;
+
+    public WalletReconciler(MongoTemplate mongoTemplate,
+                            CompanyWallet companyWallet,
+                            JobLeaseService leases,
+                            @Value("${app.wallet.reconcile.partitions:64}") int partitions,
+                            @Value("${app.wallet.reconcile.parallelism:4}") int parallelism,
+                            @Value("${app.wallet.reconcile.batch-size:2000}") int batchSize,
+                            @Value("${app.wallet.reconcile.max-reported:1000}") int maxReported) {
+        this.mongoTemplate = mongoTemplate;
+        this.companyWallet = companyWallet;
+        this.leases = leases;
+        this.partitions = Math.max(1, partitions);
+        this.parallelism = Math.max(1, parallelism);
+        this.batchSize = batchSize;
+        this.maxReported = maxReported;
+    }
+
+    /**
+     * Run a full reconciliation on the calling thread and return its report, or null when a run
+     * is in progress already.
+     */
+    public ReconciliationRun reconcile(String trigger) {
+        Tally tally = begin(trigger);
+        return tally != null ? execute(tally) : null;
+    }
+
+    /** Start a full reconciliation in the background and return the run as it was started. */
+    public ReconciliationRun start(String trigger) {
+        Tally tally = begin(trigger);
+        if (tally == null) {
+            throw new RuntimeException("A wallet reconciliation is already running");
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                execute(tally);
+            } catch (RuntimeException e) {
+                // already recorded on the run
+            }
+        }, "wallet-reconciler");
+        worker.setDaemon(true);
+        worker.start();
+        return tally.run;
+    }
+
+    public Progress progress() {
+        Tally tally = current;
+        ReconciliationRun lastRun = mongoTemplate.findOne(new Query()
+                .with(Sort.by(Sort.Direction.DESC, "startedAt")).limit(1), ReconciliationRun.class);
+        if (tally == null) {
+            return new Progress(false, null, 0, 0, 0, 0, 0, 0, 0, 0, lastRun);
+        }
+        long elapsedMillis = tally.elapsedMillis();
+        return new Progress(true, tally.run.getId(), tally.partitions, tally.partitionsDone.intValue(),
+                tally.wallets.sum(), tally.transactions.sum(), tally.bookings.sum(), tally.discrepancies.sum(),
+                elapsedMillis, tally.documents() * 1000.0 / elapsedMillis, lastRun);
+    }
+
+    /**
+     * The run in progress on this instance, if any, as partitions finished out of all and documents read so far,
+     * throughput in documents per second; {@code lastRun} is the most recently started run.
+     */
+    public record Progress(boolean running, String runId, int partitions, int partitionsDone,
+                           long wallets, long transactions, long bookings, long discrepancies,
+                           long elapsedMillis, double perSecond, ReconciliationRun lastRun) {
+    }
+
+    // ----------------------------------------------------------------------
+    // Run lifecycle
+    // ----------------------------------------------------------------------
+
+    private Tally begin(String trigger) {
+        if (!leases.acquire(JOB, LEASE)) {
+            return null;
+        }
+        ReconciliationRun run = ReconciliationRun.builder()
+                .trigger(trigger)
+                .status(ReconciliationRun.RUNNING)
+                .startedAt(Instant.now())
+                .build();
+        try {
+            mongoTemplate.insert(run);
+        } catch (RuntimeException e) {
+            leases.release(JOB);
+            throw e;
+        }
+        Tally tally = new Tally(run);
+        current = tally;
+        return tally;
+    }
+
+    private ReconciliationRun execute(Tally tally) {
+        ReconciliationRun run = tally.run;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<KeyRange> walletRanges = ranges("wallets", "studentId");
+            List<KeyRange> bookingRanges = ranges("bookings", "_id");
+            tally.partitions = walletRanges.size() + bookingRanges.size() + 1;
+
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            tasks.add(pool.submit(() -> tally.done(() -> reconcileCompany(tally))));
+            for (KeyRange range : walletRanges) {
+                tasks.add(pool.submit(() -> tally.done(() -> reconcileWallets(range, tally))));
+            }
+            for (KeyRange range : bookingRanges) {
+                tasks.add(pool.submit(() -> tally.done(() -> reconcileBookings(range, tally))));
+            }
+            tasks.forEach(ForkJoinTask::join);
+            run.setStatus(ReconciliationRun.COMPLETED);
+        } catch (RuntimeException e) {
+            logger.error("Wallet reconciliation {} failed: {}", e, run.getId(), e.getMessage());
+            run.setStatus(ReconciliationRun.FAILED);
+            run.setError(e.getMessage());
+            throw e;
+        } finally {
+            pool.shutdownNow();
+            finish(tally);
+            current = null;
+            leases.release(JOB);
+        }
+        logger.info("Wallet reconciliation {} read {} wallets, {} transactions and {} bookings in {} ms, {} discrepancies",
+                run.getId(), run.getWallets(), run.getTransactions(), run.getBookings(), run.getElapsedMillis(),
+                run.getDiscrepancyCount());
+        return run;
+    }
+
+    private void finish(Tally tally) {
+        ReconciliationRun run = tally.run;
+        long elapsedMillis = tally.elapsedMillis();
+        Map<String, Long> byKind = new TreeMap<>();
+        tally.byKind.forEach((kind, count) -> byKind.put(kind.name(), count.sum()));
+        run.setCompletedAt(Instant.now());
+        run.setPartitions(tally.partitions);
+        run.setWallets(tally.wallets.sum());
+        run.setTransactions(tally.transactions.sum());
+        run.setBookings(tally.bookings.sum());
+        run.setDiscrepancyCount(tally.discrepancies.sum());
+        run.setByKind(byKind);
+        run.setDiscrepancies(new ArrayList<>(tally.reported));
+        run.setElapsedMillis(elapsedMillis);
+        run.setPerSecond(tally.documents() * 1000.0 / elapsedMillis);
+        mongoTemplate.save(run);
+    }
+
+    /** Counters of the run in progress, shared by its partitions. */
+    private final class Tally {
+        final ReconciliationRun run;
+        final long started = System.nanoTime();
+        final LongAdder wallets = new LongAdder();
+        final LongAdder transactions = new LongAdder();
+        final LongAdder bookings = new LongAdder();
+        final LongAdder discrepancies = new LongAdder();
+        final LongAdder partitionsDone = new LongAdder();
+        final Map<Discrepancy.Kind, LongAdder> byKind = new ConcurrentHashMap<>();
+        final Queue<Discrepancy> reported = new ConcurrentLinkedQueue<>();
+        final AtomicInteger reportedCount = new AtomicInteger();
+        volatile int partitions;
+
+        Tally(ReconciliationRun run) {
+            this.run = run;
+        }
+
+        void report(Discrepancy discrepancy) {
+            if (discrepancy == null) return;
+            discrepancies.increment();
+            byKind.computeIfAbsent(discrepancy.getKind(), k -> new LongAdder()).increment();
+            if (reportedCount.incrementAndGet() <= maxReported) reported.add(discrepancy);
+        }
+
+        void done(Runnable partition) {
+            partition.run();
+            partitionsDone.increment();
+            if (!leases.renew(JOB, LEASE)) {
+                throw new RuntimeException("Wallet reconciliation lost its lease");
+            }
+        }
+
+        long documents() {
+            return wallets.sum() + transactions.sum() + bookings.sum();
+        }
+
+        long elapsedMillis() {
+            return Math.max(1, (System.nanoTime() - started) / 1_000_000);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Partitions
+    // ----------------------------------------------------------------------
+
+    /** Half-open key range {@code [from, to)}, a null bound is open. */
+    record KeyRange(Object from, Object to) {
+
+        Criteria on(String field) {
+            if (from == null && to == null) return new Criteria();
+            Criteria criteria = Criteria.where(field);
+            if (from != null) criteria = criteria.gte(from);
+            if (to != null) criteria = criteria.lt(to);
+            return criteria;
+        }
+
+        /** The same range over booking ids as stored in {@code refId}. */
+        KeyRange asHex() {
+            return new KeyRange(hex(from), hex(to));
+        }
+
+        private static Object hex(Object bound) {
+            return bound instanceof ObjectId id ? id.toHexString() : bound;
+        }
+    }
+
+    /** Ranges of about the same size covering every value of {@code field}. */
+    List<KeyRange> ranges(String collection, String field) {
+        List<Object> keys = new ArrayList<>();
+        if (partitions > 1) {
+            for (Document row : mongoTemplate.aggregate(newAggregation(
+                    sample((long) partitions * SAMPLES_PER_PARTITION),
+                    project(field),
+                    sort(Sort.Direction.ASC, field)
+            ), collection, Document.class)) {
+                Object key = row.get(field);
+                if (key != null && (keys.isEmpty() || !key.equals(keys.get(keys.size() - 1)))) keys.add(key);
+            }
+        }
+
+        List<KeyRange> ranges = new ArrayList<>();
+        Object from = null;
+        for (int i = 1; i < partitions && !keys.isEmpty(); i++) {
+            Object boundary = keys.get(i * keys.size() / partitions);
+            if (boundary.equals(from)) continue;
+            ranges.add(new KeyRange(from, boundary));
+            from = boundary;
+        }
+        ranges.add(new KeyRange(from, null));
+        return ranges;
+    }
+
+    private AggregationOptions cursorOptions() {
+        return AggregationOptions.builder().allowDiskUse(true).cursorBatchSize(batchSize).build();
+    }
+
+    private static <T> T next(Iterator<T> cursor) {
+        return cursor.hasNext() ? cursor.next() : null;
+    }
+
+    private static long number(Document row, String field) {
+        return row != null && row.get(field) instanceof Number n ? n.longValue() : 0;
+    }
+
+    // ----------------------------------------------------------------------
+    // Wallet balances
+    // ----------------------------------------------------------------------
+
+    private void reconcileWallets(KeyRange range, Tally tally) {
+        Set<String> company = new HashSet<>(companyWallet.accounts());
+        Query wallets = Query.query(range.on("studentId"))
+                .with(Sort.by(Sort.Direction.ASC, "studentId"))
+                .cursorBatchSize(batchSize);
+        wallets.fields().include("studentId").include("balance");
+        Aggregation sums = newAggregation(
+                match(range.on("studentId").and("type").ne(CONFIRMED)),
+                sort(Sort.Direction.ASC, "studentId"),
+                group("studentId").sum("amount.minor").as("total").count().as("count"),
+                sort(Sort.Direction.ASC, "_id")
+        ).withOptions(cursorOptions());
+
+        try (Stream<Wallet> walletStream = mongoTemplate.stream(wallets, Wallet.class);
+             Stream<Document> sumStream = mongoTemplate.aggregateStream(sums, "wallet_transactions", Document.class)) {
+            Iterator<Wallet> walletCursor = walletStream.iterator();
+            Iterator<Document> sumCursor = sumStream.iterator();
+            Wallet wallet = next(walletCursor);
+            Document sum = next(sumCursor);
+            while (wallet != null || sum != null) {
+                String sumOwner = sum != null ? Objects.toString(sum.get("_id"), null) : null;
+                int order = wallet == null ? 1
+                        : sum == null ? -1
+                        : KEY_ORDER.compare(wallet.getStudentId(), sumOwner);
+                String owner = order <= 0 ? wallet.getStudentId() : sumOwner;
+                Long balance = order <= 0 ? minor(wallet.getBalance()) : null;
+                long total = order >= 0 ? number(sum, "total") : 0;
+
+                if (order <= 0) {
+                    tally.wallets.increment();
+                    wallet = next(walletCursor);
+                }
+                if (order >= 0) {
+                    tally.transactions.add(number(sum, "count"));
+                    sum = next(sumCursor);
+                }
+                if (owner == null || company.contains(owner)) continue;
+                if (balanceDiscrepancy(owner, balance, total) != null) {
+                    tally.report(recheckBalance(owner));
+                }
+            }
+        }
+    }
+
+    private static Long minor(Money money) {
+        return money != null ? money.minor() : 0L;
+    }
+
+    /** Null when the figures agree; {@code balance} is null when there is no wallet. */
+    private static Discrepancy balanceDiscrepancy(String owner, Long balance, long total) {
+        if (balance == null) {
+            if (total == 0) return null;
+            return new Discrepancy(Discrepancy.Kind.MISSING_WALLET, owner, Money.ofMinor(total), null,
+                    "Transactions without a wallet");
+        }
+        if (balance == total) return null;
+        return new Discrepancy(Discrepancy.Kind.BALANCE_MISMATCH, owner, Money.ofMinor(total), Money.ofMinor(balance),
+                "Balance differs from its transactions by " + Money.ofMinor(Money.subtract(balance, total)));
+    }
+
+    private Discrepancy recheckBalance(String owner) {
+        Wallet wallet = mongoTemplate.findOne(Query.query(Criteria.where("studentId").is(owner)), Wallet.class);
+        Document sum = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("studentId").is(owner).and("type").ne(CONFIRMED)),
+                group("studentId").sum("amount.minor").as("total")
+        ), "wallet_transactions", Document.class).getUniqueMappedResult();
+        return balanceDiscrepancy(owner, wallet != null ? minor(wallet.getBalance()) : null, number(sum, "total"));
+    }
+
+    private void reconcileCompany(Tally tally) {
+        Document balance = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("studentId").in(companyWallet.accounts())),
+                group().sum("balance.minor").as("total")
+        ), "wallets", Document.class).getUniqueMappedResult();
+        Document commission = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("studentId").is(CompanyWallet.ID).and("type").ne(CONFIRMED)),
+                group().sum("amount.minor").as("total")
+        ), "wallet_transactions", Document.class).getUniqueMappedResult();
+
+        long held = number(balance, "total");
+        long recorded = number(commission, "total");
+        if (held != recorded) {
+            tally.report(new Discrepancy(Discrepancy.Kind.COMPANY_BALANCE_MISMATCH, CompanyWallet.ID,
+                    Money.ofMinor(recorded), Money.ofMinor(held),
+                    "Company shards differ from commission transactions by "
+                            + Money.ofMinor(Money.subtract(held, recorded))));
+        }
+    }
+
+    // ----------------------------------------------------------------------
+    // Booking payouts
+    // ----------------------------------------------------------------------
+
+    /** The payout transactions of one booking. */
+    record Payout(String bookingId, long tutorCount, long tutorTotal, long commissionCount, long commissionTotal) {
+
+        static Payout of(Document row) {
+            return row == null ? null : new Payout(Objects.toString(row.get("_id"), null),
+                    number(row, "tutorCount"), number(row, "tutorTotal"),
+                    number(row, "commissionCount"), number(row, "commissionTotal"));
+        }
+
+        long total() {
+            return Money.add(tutorTotal, commissionTotal);
+        }
+    }
+
+    private void reconcileBookings(KeyRange range, Tally tally) {
+        Query bookings = Query.query(range.on("_id"))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(batchSize);
+        bookings.fields().include("status").include("amount").include("originalBookingId");
+        Query accruals = Query.query(range.on("_id").and("tutorId").exists(true))
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(batchSize);
+        accruals.fields().include("status").include("amount");
+
+        try (Stream<Booking> bookingStream = mongoTemplate.stream(bookings, Booking.class);
+             Stream<Document> payoutStream = mongoTemplate.aggregateStream(
+                     payouts(range.asHex().on("refId")).withOptions(cursorOptions()), "wallet_transactions", Document.class);
+             Stream<CreditHold> accrualStream = mongoTemplate.stream(accruals, CreditHold.class)) {
+            Iterator<Booking> bookingCursor = bookingStream.iterator();
+            Iterator<Document> payoutCursor = payoutStream.iterator();
+            Iterator<CreditHold> accrualCursor = accrualStream.iterator();
+            Booking booking = next(bookingCursor);
+            Payout payout = Payout.of(next(payoutCursor));
+            CreditHold accrual = next(accrualCursor);
+            while (booking != null || payout != null || accrual != null) {
+                List<String> keys = new ArrayList<>(3);
+                if (booking != null) keys.add(booking.getId());
+                if (payout != null) keys.add(payout.bookingId());
+                if (accrual != null) keys.add(accrual.getBookingId());
+                String bookingId = Collections.min(keys, KEY_ORDER);
+
+                Booking matched = booking != null && Objects.equals(booking.getId(), bookingId) ? booking : null;
+                Payout paid = payout != null && Objects.equals(payout.bookingId(), bookingId) ? payout : null;
+                CreditHold accrued = accrual != null && Objects.equals(accrual.getBookingId(), bookingId) ? accrual : null;
+                if (matched != null) {
+                    tally.bookings.increment();
+                    booking = next(bookingCursor);
+                }
+                if (paid != null) payout = Payout.of(next(payoutCursor));
+                if (accrued != null) accrual = next(accrualCursor);
+
+                if (bookingId != null && payoutDiscrepancy(bookingId, matched, paid, accrued) != null) {
+                    tally.report(recheckPayout(bookingId));
+                }
+            }
+        }
+    }
+
+    /** Per booking id, tutor payments and commissions counted and summed, in booking id order. */
+    private static Aggregation payouts(Criteria refIds) {
+        AggregationOperation bySide = context -> new Document("$group", new Document("_id", "$refId")
+                .append("tutorCount", sumIf(TUTOR_PAYMENT, 1))
+                .append("tutorTotal", sumIf(TUTOR_PAYMENT, "$amount.minor"))
+                .append("commissionCount", sumIf(COMMISSION, 1))
+                .append("commissionTotal", sumIf(COMMISSION, "$amount.minor")));
+        return newAggregation(
+                match(new Criteria().andOperator(Criteria.where("type").in(TUTOR_PAYMENT, COMMISSION), refIds)),
+                bySide,
+                sort(Sort.Direction.ASC, "_id"));
+    }
+
+    private static Document sumIf(String type, Object value) {
+        return new Document("$sum", new Document("$cond",
+                List.of(new Document("$eq", List.of("$type", type)), value, 0)));
+    }
+
+    /**
+     * Null when the booking and its payout agree; any of them may be null when missing, and
+     * {@code accrued} is the booking's hold when it was accrued for a settlement run instead.
+     */
+    private static Discrepancy payoutDiscrepancy(String bookingId, Booking booking, Payout payout, CreditHold accrued) {
+        long amount = booking != null ? minor(booking.getAmount()) : 0;
+        if (payout == null && accrued != null) {
+            if (booking == null || minor(accrued.getAmount()) == amount) return null;
+            return new Discrepancy(Discrepancy.Kind.PAYOUT_MISMATCH, bookingId, Money.ofMinor(amount),
+                    accrued.getAmount(), "Accrued payable differs from the booking amount");
+        }
+        if (payout == null) {
+            // A rescheduled booking was paid under the booking it replaced
+            boolean paid = booking != null && PAID_STATUSES.contains(booking.getStatus())
+                    && booking.getOriginalBookingId() == null && amount > 0;
+            if (!paid) return null;
+            return new Discrepancy(Discrepancy.Kind.MISSING_PAYOUT, bookingId, Money.ofMinor(amount), Money.ZERO,
+                    "Booking is " + booking.getStatus() + " but was never paid out");
+        }
+        String counts = payout.tutorCount() + " tutor payments, " + payout.commissionCount() + " commissions";
+        if (booking == null) {
+            return new Discrepancy(Discrepancy.Kind.ORPHAN_PAYOUT, bookingId, null, Money.ofMinor(payout.total()),
+                    counts + " for a booking that does not exist");
+        }
+        if (accrued != null) {
+            return new Discrepancy(Discrepancy.Kind.DUPLICATE_PAYOUT, bookingId, Money.ofMinor(amount),
+                    Money.ofMinor(Money.add(payout.total(), minor(accrued.getAmount()))),
+                    counts + " and a payable accrued for settlement");
+        }
+        if (payout.tutorCount() > 1 || payout.commissionCount() > 1) {
+            return new Discrepancy(Discrepancy.Kind.DUPLICATE_PAYOUT, bookingId, Money.ofMinor(amount),
+                    Money.ofMinor(payout.total()), counts);
+        }
+        if (payout.tutorCount() == 0 || payout.commissionCount() == 0) {
+            return new Discrepancy(Discrepancy.Kind.INCOMPLETE_PAYOUT, bookingId, Money.ofMinor(amount),
+                    Money.ofMinor(payout.total()), counts);
+        }
+        if (payout.total() != amount) {
+            return new Discrepancy(Discrepancy.Kind.PAYOUT_MISMATCH, bookingId, Money.ofMinor(amount),
+                    Money.ofMinor(payout.total()), "Tutor payment " + Money.ofMinor(payout.tutorTotal())
+                    + " plus commission " + Money.ofMinor(payout.commissionTotal()) + " differ from the booking amount");
+        }
+        return null;
+    }
+
+    private Discrepancy recheckPayout(String bookingId) {
+        Booking booking = mongoTemplate.findById(bookingId, Booking.class);
+        Payout payout = Payout.of(mongoTemplate.aggregate(payouts(Criteria.where("refId").is(bookingId)),
+                "wallet_transactions", Document.class).getUniqueMappedResult());
+        CreditHold accrued = mongoTemplate.findOne(Query.query(Criteria.where("_id").is(bookingId)
+                .and("tutorId").exists(true)), CreditHold.class);
+        return payoutDiscrepancy(bookingId, booking, payout, accrued);
+    }
+}
@@ -0,0 +1,38 @@
+package com.csy.springbootauthbe.wallet.reconcile;
+
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconciles wallets every {@code app.wallet.reconcile.interval-minutes}. The first run waits one
+ * interval, a full pass is too heavy to add to every startup. An instance whose turn comes while
+ * a run holds the reconciliation lease skips it.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class WalletReconciliationScheduler {
+
+    static final String TRIGGER = "schedule";
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(WalletReconciliationScheduler.class);
+
+    private final WalletReconciler reconciler;
+
+    @Scheduled(initialDelayString = "${app.wallet.reconcile.interval-minutes:1440}",
+            fixedDelayString = "${app.wallet.reconcile.interval-minutes:1440}", timeUnit = TimeUnit.MINUTES)
+    public void reconcile() {
+        try {
+            if (reconciler.reconcile(TRIGGER) == null) {
+                logger.info("Wallet reconciliation skipped, a run is already in progress");
+            }
+        } catch (RuntimeException e) {
+            logger.error("Wallet reconciliation failed: {}", e, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * The one-time backfill of the transaction rollups. Transactions created before {@code cutoff}
+ * are counted by the backfill, later ones as they are written. {@code completedAt} is set once
+ * every bucket has been written; until then the next startup redoes the run with the same cutoff.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "transaction_rollup_backfills")
+public class RollupBackfillRun {
+
+    @Id
+    private String id;
+    private Instant cutoff;
+    private long buckets;
+    private long transactions;
+    private Instant startedAt;
+    private Instant completedAt;
+}
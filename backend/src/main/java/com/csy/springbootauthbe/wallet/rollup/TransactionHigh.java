@@ -0,0 +1,24 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import com.csy.springbootauthbe.common.money.Money;
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/** The largest wallet transaction seen so far of one type, keyed by the type. */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "transaction_highs")
+public class TransactionHigh {
+
+    @Id
+    private String type;
+    private Money amount;
+    private String transactionId;
+    private String description;
+    private Instant createdAt;
+}
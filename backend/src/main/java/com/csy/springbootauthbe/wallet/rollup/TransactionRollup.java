@@ -0,0 +1,34 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Count and sum of the wallet transactions of one type on one UTC day, totals in minor units.
+ * {@code count}/{@code total} are incremented as transactions are written; {@code backfillCount}/
+ * {@code backfillTotal} hold the transactions written before that and are set by the backfill. The
+ * day's figures are the sum of both.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "transaction_rollups")
+public class TransactionRollup {
+
+    @Id
+    private String id;          // TYPE:yyyy-MM-dd, TYPE:undated for transactions without createdAt
+    private String type;
+    private Integer year;
+    private Integer month;
+    private Integer day;
+    private long count;
+    private long total;
+    private long backfillCount;
+    private long backfillTotal;
+    private Instant firstLiveAt; // earliest transaction counted as it was written
+    private Instant updatedAt;
+}
@@ -0,0 +1,41 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeds the transaction rollups from the transactions written before they existed, at startup and
+ * then every {@code app.wallet.rollup-backfill.retry-minutes} until a run completes; after that
+ * each run returns straight away. Only the instance holding the job's lease backfills.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class TransactionRollupBackfill {
+
+    static final String JOB = "transaction-rollup-backfill";
+    private static final Duration LEASE = Duration.ofMinutes(30);
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(TransactionRollupBackfill.class);
+
+    private final TransactionRollupService rollupService;
+    private final JobLeaseService leases;
+
+    @Scheduled(fixedDelayString = "${app.wallet.rollup-backfill.retry-minutes:60}", timeUnit = TimeUnit.MINUTES)
+    public void backfill() {
+        if (!leases.acquire(JOB, LEASE)) return;
+        try {
+            rollupService.backfill();
+        } catch (RuntimeException e) {
+            logger.error("Transaction rollup backfill failed, retried on the next run: {}", e, e.getMessage());
+        } finally {
+            leases.release(JOB);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.aggregation.DateOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * Pre-aggregated wallet transaction figures for the admin dashboard. Every transaction written
+ * is added to its (type, {@link BookingTimes#ZONE} day) {@link TransactionRollup} with one {@code $inc} and offered to
+ * the running {@link TransactionHigh} of its type, so the dashboard reads a handful of small
+ * documents instead of aggregating the whole transaction collection. Transactions written before
+ * the rollups existed are counted once by {@link #backfill()}.
+ */
+@Service
+public class TransactionRollupService {
+
+    static final String BACKFILL_ID = "wallet_transactions";
+    private static final String TRANSACTIONS = "wallet_transactions";
+    private static final String UNDATED = "undated";
+    private static final DateOperators.Timezone ZONE = DateOperators.Timezone.fromZone(BookingTimes.ZONE);
+
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(TransactionRollupService.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public TransactionRollupService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /** Sums of one type in one month, total in minor units; year and month are null for transactions without a date. */
+    public record MonthTotal(Integer year, Integer month, String type, long count, long total) {}
+
+    /** Count a transaction that has just been written. */
+    public void record(WalletTransaction txn) {
+        if (txn.getType() == null || txn.getAmount() == null) return;
+        // createdAt is JVM-local time, the way it is written to Mongo; the day is the platform's
+        Instant at = txn.getCreatedAt() != null
+                ? txn.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant()
+                : Instant.now();
+        LocalDate day = LocalDate.ofInstant(at, BookingTimes.ZONE);
+        mongoTemplate.upsert(byId(bucketId(txn.getType(), day)),
+                bucket(txn.getType(), day)
+                        .inc("count", 1)
+                        .inc("total", txn.getAmount().minor())
+                        .min("firstLiveAt", at),
+                TransactionRollup.class);
+        offerHigh(txn.getType(), txn.getAmount(), txn.getId(), txn.getDescription(), at);
+    }
+
+    /** Per month and type sums of the given types, oldest month first and undated ones last. */
+    public List<MonthTotal> monthlyTotals(Collection<String> types) {
+        List<Document> rows = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("type").in(types)),
+                group("year", "month", "type")
+                        .sum("count").as("count")
+                        .sum("backfillCount").as("backfillCount")
+                        .sum("total").as("total")
+                        .sum("backfillTotal").as("backfillTotal")
+        ), TransactionRollup.class, Document.class).getMappedResults();
+
+        List<MonthTotal> totals = new ArrayList<>();
+        for (Document row : rows) {
+            Document key = row.get("_id", Document.class);
+            totals.add(new MonthTotal(key.getInteger("year"), key.getInteger("month"), key.getString("type"),
+                    number(row.get("count")) + number(row.get("backfillCount")),
+                    Money.add(number(row.get("total")), number(row.get("backfillTotal")))));
+        }
+        totals.sort(Comparator.comparing(MonthTotal::year, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(MonthTotal::month, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(MonthTotal::type));
+        return totals;
+    }
+
+    /** The largest transaction of the given types, null if none has been recorded. */
+    public TransactionHigh highest(Collection<String> types) {
+        return mongoTemplate.findOne(Query.query(Criteria.where("_id").in(types))
+                .with(Sort.by(Sort.Direction.DESC, "amount.minor")), TransactionHigh.class);
+    }
+
+    /**
+     * Count the transactions written before live counting started into the backfill fields of
+     * their buckets. The cutoff is the earliest live-counted transaction, so the two never overlap,
+     * and the backfill fields are set rather than incremented, so an interrupted run can simply be
+     * redone. Does nothing once a run has completed.
+     */
+    public RollupBackfillRun backfill() {
+        RollupBackfillRun run = mongoTemplate.findById(BACKFILL_ID, RollupBackfillRun.class);
+        if (run != null && run.getCompletedAt() != null) {
+            return run;
+        }
+        if (run == null) {
+            run = startRun();
+        }
+
+        List<Document> rows = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("type").ne(null).orOperator(
+                        Criteria.where("createdAt").lt(run.getCutoff()),
+                        Criteria.where("createdAt").is(null))),
+                project("type", "description", "createdAt")
+                        .and("amount.minor").as("amount")
+                        .and(DateOperators.dateOf("createdAt").withTimezone(ZONE).year()).as("year")
+                        .and(DateOperators.dateOf("createdAt").withTimezone(ZONE).month()).as("month")
+                        .and(DateOperators.dateOf("createdAt").withTimezone(ZONE).dayOfMonth()).as("day"),
+                sort(Sort.Direction.DESC, "amount"),
+                group("type", "year", "month", "day")
+                        .count().as("count")
+                        .sum("amount").as("total")
+                        .first("amount").as("maxAmount")
+                        .first("_id").as("maxId")
+                        .first("description").as("maxDescription")
+                        .first("createdAt").as("maxCreatedAt")
+        ).withOptions(AggregationOptions.builder().allowDiskUse(true).build()), TRANSACTIONS, Document.class)
+                .getMappedResults();
+
+        Instant now = Instant.now();
+        Map<String, Document> largest = new HashMap<>();
+        long transactions = 0;
+        if (!rows.isEmpty()) {
+            BulkOperations ops = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, TransactionRollup.class);
+            for (Document row : rows) {
+                Document key = row.get("_id", Document.class);
+                String type = key.getString("type");
+                LocalDate day = key.get("year") != null
+                        ? LocalDate.of(key.getInteger("year"), key.getInteger("month"), key.getInteger("day"))
+                        : null;
+                long count = number(row.get("count"));
+                ops.upsert(byId(bucketId(type, day)), bucket(type, day)
+                        .set("backfillCount", count)
+                        .set("backfillTotal", number(row.get("total"))));
+                transactions += count;
+                if (row.get("maxAmount") != null) {
+                    largest.merge(type, row, (a, b) ->
+                            number(a.get("maxAmount")) >= number(b.get("maxAmount")) ? a : b);
+                }
+            }
+            ops.execute();
+        }
+        largest.forEach((type, row) -> offerHigh(type, Money.ofMinor(number(row.get("maxAmount"))),
+                String.valueOf(row.get("maxId")), row.getString("maxDescription"),
+                row.getDate("maxCreatedAt") != null ? row.getDate("maxCreatedAt").toInstant() : null));
+
+        run.setBuckets(rows.size());
+        run.setTransactions(transactions);
+        run.setCompletedAt(now);
+        mongoTemplate.save(run);
+        logger.info("Transaction rollup backfill before {}: {} transactions in {} buckets",
+                run.getCutoff(), transactions, rows.size());
+        return run;
+    }
+
+    private RollupBackfillRun startRun() {
+        TransactionRollup firstLive = mongoTemplate.findOne(Query.query(Criteria.where("firstLiveAt").exists(true))
+                .with(Sort.by("firstLiveAt")), TransactionRollup.class);
+        // Without any live-counted transaction yet, everything written so far belongs to the backfill
+        Instant cutoff = firstLive != null ? firstLive.getFirstLiveAt() : Instant.now();
+        try {
+            return mongoTemplate.insert(RollupBackfillRun.builder()
+                    .id(BACKFILL_ID)
+                    .cutoff(cutoff)
+                    .startedAt(Instant.now())
+                    .build());
+        } catch (DuplicateKeyException e) {
+            // Another instance started the run first, use its cutoff
+            return mongoTemplate.findById(BACKFILL_ID, RollupBackfillRun.class);
+        }
+    }
+
+    /** Replace the type's high if this amount is larger; the upsert collides with a larger or equal one. */
+    private void offerHigh(String type, Money amount, String transactionId, String description, Instant createdAt) {
+        try {
+            mongoTemplate.upsert(Query.query(Criteria.where("_id").is(type).and("amount.minor").lt(amount.minor())),
+                    new Update()
+                            .set("amount", amount)
+                            .set("transactionId", transactionId)
+                            .set("description", description)
+                            .set("createdAt", createdAt),
+                    TransactionHigh.class);
+        } catch (DuplicateKeyException e) {
+            // The recorded high is at least as large
+        }
+    }
+
+    private static Update bucket(String type, LocalDate day) {
+        return new Update()
+                .setOnInsert("type", type)
+                .setOnInsert("year", day != null ? day.getYear() : null)
+                .setOnInsert("month", day != null ? day.getMonthValue() : null)
+                .setOnInsert("day", day != null ? day.getDayOfMonth() : null)
+                .set("updatedAt", Instant.now());
+    }
+
+    static String bucketId(String type, LocalDate day) {
+        return type + ":" + (day != null ? day.toString() : UNDATED);
+    }
+
+    private static Query byId(String id) {
+        return Query.query(Criteria.where("_id").is(id));
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number n ? n.longValue() : 0;
+    }
+}
@@ -0,0 +1,88 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.*;
+
+/**
+ * The company commission account, split over {@code app.wallet.company-shards} wallet documents
+ * ({@code COMPANY_WALLET#0}, {@code COMPANY_WALLET#1}, ...) so that commission credits from
+ * parallel booking acceptances land on different documents instead of queueing on one. A booking
+ * always credits the shard picked by its id. The balance is the sum of all shards plus the
+ * original {@code COMPANY_WALLET} document, cached for a few seconds since only dashboards read it.
+ */
+@Component
+public class CompanyWallet {
+
+    public static final String ID = "COMPANY_WALLET";
+
+    private final MongoTemplate mongoTemplate;
+    private final int shards;
+    private final Duration staleness;
+    private final List<String> accounts;
+
+    private volatile CachedBalance cached;
+
+    public CompanyWallet(MongoTemplate mongoTemplate,
+                         @Value("${app.wallet.company-shards:16}") int shards,
+                         @Value("${app.wallet.company-balance-cache-seconds:5}") long cacheSeconds) {
+        this.mongoTemplate = mongoTemplate;
+        this.shards = Math.max(1, shards);
+        this.staleness = Duration.ofSeconds(cacheSeconds);
+        List<String> ids = new ArrayList<>();
+        ids.add(ID);
+        for (int i = 0; i < this.shards; i++) {
+            ids.add(ID + "#" + i);
+        }
+        this.accounts = List.copyOf(ids);
+    }
+
+    /** Wallet id of the shard that takes the commission of this booking. */
+    public String shardFor(String bookingId) {
+        int shard = bookingId != null ? Math.floorMod(bookingId.hashCode(), shards) : 0;
+        return ID + "#" + shard;
+    }
+
+    /** The original document and every shard. */
+    public List<String> accounts() {
+        return accounts;
+    }
+
+    /** Sum over all shards, at most {@code app.wallet.company-balance-cache-seconds} old. */
+    public Money balance() {
+        CachedBalance current = cached;
+        if (current != null && current.loadedAt() + staleness.toNanos() > System.nanoTime()) {
+            return current.balance();
+        }
+        synchronized (this) {
+            current = cached;
+            if (current == null || current.loadedAt() + staleness.toNanos() <= System.nanoTime()) {
+                current = new CachedBalance(load(), System.nanoTime());
+                cached = current;
+            }
+            return current.balance();
+        }
+    }
+
+    private Money load() {
+        Document total = mongoTemplate.aggregate(newAggregation(
+                match(Criteria.where("studentId").in(accounts)),
+                group().sum("balance.minor").as("total")
+        ), Wallet.class, Document.class).getUniqueMappedResult();
+        if (total == null) return Money.ZERO;
+        return total.get("total") instanceof Number n ? Money.ofMinor(n.longValue()) : Money.ZERO;
+    }
+
+    private record CachedBalance(Money balance, long loadedAt) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reclaims expired credit holds at startup and then every
+ * {@code app.wallet.hold-sweep.interval-minutes}, batch after batch until none are left. Only the
+ * instance holding the job's lease sweeps.
+ */
+@Component
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class CreditHoldSweeper {
+
+    static final String JOB = "credit-hold-sweep";
+    private static final Duration LEASE = Duration.ofMinutes(5);
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(CreditHoldSweeper.class);
+
+    private final WalletService walletService;
+    private final JobLeaseService leases;
+    private final int batchSize;
+
+    public CreditHoldSweeper(WalletService walletService, JobLeaseService leases,
+                             @Value("${app.wallet.hold-sweep.batch-size:500}") int batchSize) {
+        this.walletService = walletService;
+        this.leases = leases;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.hold-sweep.interval-minutes:15}", timeUnit = TimeUnit.MINUTES)
+    public void sweep() {
+        if (!leases.acquire(JOB, LEASE)) return;
+        try {
+            while (walletService.reclaimExpiredHolds(batchSize) == batchSize && leases.renew(JOB, LEASE)) {
+                // a full batch, there may be more
+            }
+        } catch (RuntimeException e) {
+            logger.error("Credit hold sweep failed: {}", e, e.getMessage());
+        } finally {
+            leases.release(JOB);
+        }
+    }
+}
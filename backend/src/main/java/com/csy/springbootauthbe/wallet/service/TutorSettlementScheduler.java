@@ -0,0 +1,52 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Settles accrued tutor payouts at startup and then every
+ * {@code app.wallet.settlement.interval-minutes}, each run covering everything accrued before
+ * the start of the current day. Runs whether or not accrual is switched on, so payables accrued
+ * before it was switched off are still paid. Only the instance holding the job's lease settles.
+ */
+@Component
+@ConditionalOnProperty(name = "app.mongo.enabled", havingValue = "true", matchIfMissing = true)
+public class TutorSettlementScheduler {
+
+    static final String JOB = "tutor-settlement";
+    private static final Duration LEASE = Duration.ofMinutes(10);
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(TutorSettlementScheduler.class);
+
+    private final WalletService walletService;
+    private final JobLeaseService leases;
+    private final int batchSize;
+
+    public TutorSettlementScheduler(WalletService walletService, JobLeaseService leases,
+                                    @Value("${app.wallet.settlement.batch-size:500}") int batchSize) {
+        this.walletService = walletService;
+        this.leases = leases;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${app.wallet.settlement.interval-minutes:1440}", timeUnit = TimeUnit.MINUTES)
+    public void settle() {
+        if (!leases.acquire(JOB, LEASE)) return;
+        try {
+            walletService.settleAccruedPayouts(BookingTimes.startOfDay(LocalDate.now(BookingTimes.ZONE)), batchSize,
+                    () -> leases.renew(JOB, LEASE));
+        } catch (RuntimeException e) {
+            logger.error("Tutor settlement failed: {}", e, e.getMessage());
+        } finally {
+            leases.release(JOB);
+        }
+    }
+}
@@ -1,40 +1,107 @@
 package com.csy.springbootauthbe.wallet.service;
 
 import com.csy.springbootauthbe.admin.dto.AdminDashboardDTO;
-import com.csy.springbootauthbe.wallet.dto.MonthlyEarningDTO;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxService;
+import com.csy.springbootauthbe.common.utils.SanitizedLogger;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.SettlementRun;
+import com.csy.springbootauthbe.wallet.entity.SettlementStatement;
 import com.csy.springbootauthbe.wallet.entity.Wallet;
 import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
-import com.csy.springbootauthbe.wallet.repository.WalletRepository;
+import com.csy.springbootauthbe.wallet.ledger.JournalEntry;
+import com.csy.springbootauthbe.wallet.ledger.JournalLine;
+import com.csy.springbootauthbe.wallet.ledger.LedgerService;
 import com.csy.springbootauthbe.wallet.repository.WalletTransactionRepository;
+import com.csy.springbootauthbe.wallet.rollup.TransactionHigh;
+import com.csy.springbootauthbe.wallet.rollup.TransactionRollupService;
 import lombok.RequiredArgsConstructor;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.Month;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.TreeMap;
 import java.util.UUID;
-
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Wallet balances are only ever changed with a single conditional findAndModify per wallet:
+ * credits {@code $inc} the balance in minor units (creating the wallet on first use), debits only
+ * match while {@code balance.minor >= amount}. Amounts are handled as {@code long} minor units
+ * in between, see {@link Money}. Parallel requests from the same user therefore can't
+ * overwrite each other's balance or spend the same credits twice. Each movement is also posted
+ * to the {@link LedgerService} as one balanced journal entry, the audit trail of every balance.
+ * Credits held for a booking move from {@code balance} to {@code held} and are tracked by a
+ * {@link CreditHold} that is settled exactly once, by its booking id. Every transaction written
+ * is counted into the {@link TransactionRollupService} rollups the admin dashboard reads.
+ * <p>
+ * An accepted booking is either released to the tutor right away or, in accrual mode, only turns
+ * its hold into a payable that {@link #settleAccruedPayouts} pays out with the tutor's others.
+ */
 @Service
 @RequiredArgsConstructor
 public class WalletService {
 
-    private final WalletRepository walletRepo;
+    private static final SanitizedLogger logger = SanitizedLogger.getLogger(WalletService.class);
+    public static final String SETTLEMENT_PAYMENT_TUTOR = "SETTLEMENT_PAYMENT_TUTOR";
+    public static final String SETTLEMENT_COMMISSION = "SETTLEMENT_COMMISSION";
+    private static final List<String> EARNING_TYPES = List.of("BOOKING_PAYMENT_TUTOR", "BOOKING_COMMISSION",
+            SETTLEMENT_PAYMENT_TUTOR, SETTLEMENT_COMMISSION);
+    private static final List<String> COMMISSION_TYPES = List.of("BOOKING_COMMISSION", SETTLEMENT_COMMISSION);
+    /** Commission on a released booking, 5% in basis points. */
+    private static final long COMMISSION_BASIS_POINTS = 500;
+
+    private final MongoTemplate mongoTemplate;
     private final WalletTransactionRepository txnRepo;
+    private final OutboxService outboxService;
+    private final LedgerService ledger;
+    private final CompanyWallet companyWallet;
+    private final TransactionRollupService rollups;
     private final BCryptPasswordEncoder encoder = new BCryptPasswordEncoder();
+    private volatile Instant holdDocumentsSince;
 
     // ----------------------------------------------------------------------
     // Core wallet retrieval
     // ----------------------------------------------------------------------
     public Wallet getWallet(String userId) {
-        return walletRepo.findByStudentId(userId)
-                .orElseGet(() -> walletRepo.save(
-                        new Wallet(null, userId, BigDecimal.ZERO, "SGD", null, false, LocalDateTime.now())
-                ));
+        Wallet wallet = upsert(userId, new Update()
+                .setOnInsert("balance", Money.ZERO)
+                .setOnInsert("held", Money.ZERO)
+                .setOnInsert("currency", Money.DEFAULT_CURRENCY)
+                .setOnInsert("pinSet", false)
+                .setOnInsert("updatedAt", LocalDateTime.now()));
+        if (CompanyWallet.ID.equals(userId)) {
+            // Commission is credited to the shards, show their total
+            wallet.setBalance(companyWallet.balance());
+        }
+        return wallet;
     }
 
     // ----------------------------------------------------------------------
@@ -43,11 +110,15 @@ public class WalletService {
 
     /** Set a new wallet PIN (hashed with BCrypt). */
     public void setWalletPin(String studentId, String rawPin) {
-        Wallet wallet = getWallet(studentId);
-        wallet.setWalletPin(encoder.encode(rawPin));
-        wallet.setPinSet(true);
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
+        mongoTemplate.upsert(byOwner(studentId),
+                new Update()
+                        .set("walletPin", encoder.encode(rawPin))
+                        .set("pinSet", true)
+                        .set("updatedAt", LocalDateTime.now())
+                        .setOnInsert("balance", Money.ZERO)
+                        .setOnInsert("held", Money.ZERO)
+                        .setOnInsert("currency", Money.DEFAULT_CURRENCY),
+                Wallet.class);
     }
 
     /** Verify wallet PIN against hashed value. */
@@ -63,108 +134,588 @@ public class WalletService {
 
     /** Add credits to wallet (Stripe top-up success). */
     @Transactional
-    public WalletTransaction addCredits(String userId, BigDecimal amount, String refId) {
-        Wallet wallet = getWallet(userId);
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
+    public WalletTransaction addCredits(String userId, Money amount, String refId) {
+        credit(userId, amount.minor());
+        ledger.post("PURCHASE", refId, "Top-up credits",
+                JournalLine.of(LedgerService.TOP_UP, amount.negate()),
+                JournalLine.of(userId, amount));
 
         WalletTransaction newTxn = new WalletTransaction(
             null, userId, "PURCHASE", amount,
             "Top-up credits", refId, LocalDateTime.now());
 
-        txnRepo.save(newTxn);
+        recordTransaction(newTxn);
         return newTxn;
     }
 
     /** Deduct credits for confirmed booking. */
     @Transactional
-    public Wallet deductCredits(String userId, BigDecimal amount, String bookingId) {
-        Wallet wallet = getWallet(userId);
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient credits");
-        }
+    public Wallet deductCredits(String userId, Money amount, String bookingId) {
+        Wallet wallet = debit(userId, amount.minor(), false, "Insufficient credits");
+        ledger.post("BOOKING_DEDUCT", bookingId, "Booking charge",
+                JournalLine.of(userId, amount.negate()),
+                JournalLine.of(LedgerService.CHARGES, amount));
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
-
-        txnRepo.save(new WalletTransaction(
+        recordTransaction(new WalletTransaction(
                 null, userId, "BOOKING_DEDUCT", amount.negate(),
                 "Booking charge", bookingId, LocalDateTime.now()
         ));
         return wallet;
     }
 
-    /** Temporarily hold credits when booking created. */
+    /** Hold credits for a booking until it is released to the tutor or refunded. */
     @Transactional
-    public Wallet holdCredits(String studentId, BigDecimal amount, String bookingId) {
-        Wallet wallet = getWallet(studentId);
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient credits to hold for booking");
+    public Wallet holdCredits(String studentId, Money amount, String bookingId, Instant expiresAt) {
+        return holdCredits(studentId, List.of(CreditHold.of(bookingId, amount, expiresAt)), bookingId);
+    }
+
+    /** Hold credits for several bookings with one wallet update and one hold document per booking. */
+    @Transactional
+    public Wallet holdCredits(String studentId, List<CreditHold> holds, String refId) {
+        long minor = 0;
+        for (CreditHold h : holds) minor = Money.add(minor, h.getAmount().minor());
+        Wallet wallet = debit(studentId, minor, true, "Insufficient credits to hold for booking");
+
+        // Millisecond precision so the marker compares equal after a round trip through Mongo
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        holds.forEach(h -> {
+            h.setStudentId(studentId);
+            h.setStatus(CreditHold.ACTIVE);
+            h.setCreatedAt(now);
+        });
+        try {
+            mongoTemplate.insertAll(holds);
+        } catch (RuntimeException e) {
+            // Drop whichever holds made it in and give the credits back
+            mongoTemplate.remove(Query.query(Criteria.where("_id").in(holds.stream().map(CreditHold::getBookingId).toList())
+                    .and("status").is(CreditHold.ACTIVE).and("createdAt").is(now)), CreditHold.class);
+            unhold(studentId, minor, true);
+            throw e;
         }
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
+        Money total = Money.ofMinor(minor);
+        ledger.post("BOOKING_HOLD", refId, "Hold for booking ID: " + refId,
+                JournalLine.of(studentId, total.negate()),
+                JournalLine.of(LedgerService.ESCROW, total));
 
-        txnRepo.save(new WalletTransaction(
-                null, studentId, "BOOKING_HOLD", amount.negate(),
-                "Hold for booking ID: " + bookingId, bookingId, LocalDateTime.now()
+        recordTransaction(new WalletTransaction(
+                null, studentId, "BOOKING_HOLD", total.negate(),
+                "Hold for booking ID: " + refId, refId, LocalDateTime.now()
         ));
         return wallet;
     }
 
+    /** Holds of the student that are neither released, refunded nor expired yet. */
+    public List<CreditHold> getActiveHolds(String studentId) {
+        return mongoTemplate.find(Query.query(Criteria.where("studentId").is(studentId)
+                .and("status").is(CreditHold.ACTIVE)).with(Sort.by("expiresAt")), CreditHold.class);
+    }
+
     /** Release funds to tutor (95%) and company wallet (5% commission). */
     @Transactional
-    public void releaseToTutor(String studentId, String tutorId, BigDecimal amount, String bookingId) {
-        BigDecimal commissionRate = new BigDecimal("0.05");
-        BigDecimal commission = amount.multiply(commissionRate);
-        BigDecimal tutorAmount = amount.subtract(commission);
+    public void releaseToTutor(String studentId, String tutorId, Money amount, String bookingId) {
+        // Settle the student's hold first, it must never pay out twice
+        CreditHold hold = settleHold(bookingId, CreditHold.RELEASED);
+        if (hold != null) {
+            unhold(hold.getStudentId(), hold.getAmount().minor(), false);
+        } else if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(bookingId)), CreditHold.class)) {
+            throw new RuntimeException("Credit hold for booking " + bookingId + " is already settled");
+        }
+
+        long commissionMinor = Money.share(amount.minor(), COMMISSION_BASIS_POINTS);
+        long tutorMinor = Money.subtract(amount.minor(), commissionMinor);
+        Money commission = Money.ofMinor(commissionMinor);
+        Money tutorAmount = Money.ofMinor(tutorMinor);
 
         // 1️⃣ Credit tutor 95%
-        Wallet tutorWallet = getWallet(tutorId);
-        tutorWallet.setBalance(tutorWallet.getBalance().add(tutorAmount));
-        tutorWallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(tutorWallet);
+        credit(tutorId, tutorMinor);
 
-        txnRepo.save(new WalletTransaction(
+        recordTransaction(new WalletTransaction(
                 null, tutorId, "BOOKING_PAYMENT_TUTOR", tutorAmount,
                 "Payment (95%) for booking ID: " + bookingId, bookingId, LocalDateTime.now()
         ));
 
-        // 2️⃣ Credit 5% to company wallet
-        Wallet companyWallet = getWallet("COMPANY_WALLET");
-        companyWallet.setBalance(companyWallet.getBalance().add(commission));
-        companyWallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(companyWallet);
+        // 2️⃣ Credit 5% to the company wallet shard of this booking
+        credit(companyWallet.shardFor(bookingId), commissionMinor);
 
-        txnRepo.save(new WalletTransaction(
-                null, "COMPANY_WALLET", "BOOKING_COMMISSION", commission,
+        // The whole split is one journal entry out of escrow
+        ledger.post("BOOKING_RELEASE", bookingId, "Release of booking ID: " + bookingId,
+                JournalLine.of(LedgerService.ESCROW, amount.negate()),
+                JournalLine.of(tutorId, tutorAmount),
+                JournalLine.of(CompanyWallet.ID, commission));
+
+        recordTransaction(new WalletTransaction(
+                null, CompanyWallet.ID, "BOOKING_COMMISSION", commission,
                 "5% commission from booking ID: " + bookingId, bookingId, LocalDateTime.now()
         ));
 
         // 3️⃣ Record final debit for student
-        txnRepo.save(new WalletTransaction(
+        recordTransaction(new WalletTransaction(
                 null, studentId, "BOOKING_CONFIRMED", amount.negate(),
                 "Booking confirmed - funds split to tutor and company", bookingId, LocalDateTime.now()
         ));
     }
 
+    /**
+     * Accrual mode of {@link #releaseToTutor}: the booking's active hold becomes the tutor's
+     * payable with one conditional update and nothing else is written until the next
+     * {@link #settleAccruedPayouts}. A booking without an active hold goes through
+     * {@link #releaseToTutor}, which also refuses a hold that was settled already.
+     */
+    @Transactional
+    public void accrueToTutor(String studentId, String tutorId, Money amount, String bookingId) {
+        long accrued = mongoTemplate.updateFirst(
+                Query.query(Criteria.where("_id").is(bookingId).and("status").is(CreditHold.ACTIVE)),
+                new Update().set("status", CreditHold.ACCRUED).set("tutorId", tutorId).set("accruedAt", Instant.now()),
+                CreditHold.class).getModifiedCount();
+        if (accrued == 0) {
+            releaseToTutor(studentId, tutorId, amount, bookingId);
+        }
+    }
+
     /** Refund credits to student (e.g. cancelled booking). */
     @Transactional
-    public void refundStudent(String studentId, BigDecimal amount, String bookingId) {
-        Wallet wallet = getWallet(studentId);
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
+    public void refundStudent(String studentId, Money amount, String bookingId) {
+        CreditHold hold = settleHold(bookingId, CreditHold.REFUNDED);
+        if (hold != null) {
+            amount = hold.getAmount();
+            unhold(hold.getStudentId(), amount.minor(), true);
+        } else if (mongoTemplate.exists(Query.query(Criteria.where("_id").is(bookingId)), CreditHold.class)) {
+            logger.warn("Credit hold for booking {} is already settled, not refunding again", bookingId);
+            return;
+        } else if (heldBeforeHoldDocuments(bookingId)) {
+            credit(studentId, amount.minor());
+        } else {
+            logger.warn("Booking {} has no credit hold, nothing to refund", bookingId);
+            return;
+        }
+        ledger.post("BOOKING_REFUND", bookingId, "Refund for cancelled booking ID: " + bookingId,
+                JournalLine.of(LedgerService.ESCROW, amount.negate()),
+                JournalLine.of(studentId, amount));
 
-        txnRepo.save(new WalletTransaction(
+        recordTransaction(new WalletTransaction(
                 null, studentId, "BOOKING_REFUND", amount,
                 "Refund for cancelled booking ID: " + bookingId, bookingId, LocalDateTime.now()
         ));
     }
 
+    /**
+     * Whether the booking's credits were taken before holds were tracked as documents and are not
+     * refunded yet. Those holds were recorded under a random reference rather than the booking, so
+     * the booking itself decides: it was created before the first hold document was written.
+     */
+    private boolean heldBeforeHoldDocuments(String bookingId) {
+        Booking booking = mongoTemplate.findById(bookingId, Booking.class);
+        if (booking == null) return false;
+        Instant cutover = holdDocumentsSince();
+        if (cutover != null && booking.getCreatedAt() != null
+                && !booking.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().isBefore(cutover)) {
+            return false;
+        }
+        return !mongoTemplate.exists(Query.query(Criteria.where("type").is("BOOKING_REFUND").and("refId").is(bookingId)),
+                WalletTransaction.class);
+    }
+
+    /** When the first credit hold document was written, null while there is none; fixed once known. */
+    private Instant holdDocumentsSince() {
+        if (holdDocumentsSince == null) {
+            CreditHold first = mongoTemplate.findOne(new Query().with(Sort.by("createdAt")).limit(1), CreditHold.class);
+            if (first != null) holdDocumentsSince = first.getCreatedAt();
+        }
+        return holdDocumentsSince;
+    }
+
+    /**
+     * Refund the active holds of a booking series together, the counterpart of
+     * {@link #holdCredits(String, List, String)}: one update settles the holds, then one wallet
+     * update, one journal entry and one transaction cover the whole series. Holds that are settled
+     * already are left alone.
+     */
+    @Transactional
+    public void refundHolds(String studentId, Collection<String> bookingIds, String refId) {
+        String settlementId = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(bookingIds).and("status").is(CreditHold.ACTIVE)),
+                new Update().set("status", CreditHold.REFUNDED).set("settledAt", Instant.now()).set("settlementId", settlementId),
+                CreditHold.class);
+        long minor = 0;
+        for (CreditHold h : mongoTemplate.find(Query.query(Criteria.where("settlementId").is(settlementId)), CreditHold.class)) {
+            minor = Money.add(minor, h.getAmount().minor());
+        }
+        if (minor == 0) return;
+        unhold(studentId, minor, true);
+
+        Money total = Money.ofMinor(minor);
+        ledger.post("BOOKING_REFUND", refId, "Refund for booking ID: " + refId,
+                JournalLine.of(LedgerService.ESCROW, total.negate()),
+                JournalLine.of(studentId, total));
+
+        recordTransaction(new WalletTransaction(
+                null, studentId, "BOOKING_REFUND", total,
+                "Refund for booking ID: " + refId, refId, LocalDateTime.now()
+        ));
+    }
+
+    /**
+     * Give back the credits of holds that passed their expiry without being released or refunded,
+     * at most {@code limit} of them: one update claims the holds, one bulk write returns the
+     * credits per student and one journal entry records it. Holds an earlier sweep claimed but
+     * did not get to pay are paid first. Returns how many holds were reclaimed.
+     */
+    public int reclaimExpiredHolds(int limit) {
+        int resumed = resumeReclaims(limit);
+        if (resumed >= limit) return resumed;
+
+        Instant now = Instant.now();
+        List<String> expired = mongoTemplate.find(Query.query(Criteria.where("status").is(CreditHold.ACTIVE)
+                        .and("expiresAt").lte(now)).limit(limit - resumed), CreditHold.class)
+                .stream().map(CreditHold::getBookingId).toList();
+        if (expired.isEmpty()) return resumed;
+
+        // Claim them; a hold settled by a user in the meantime no longer matches
+        String settlementId = UUID.randomUUID().toString();
+        mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(expired).and("status").is(CreditHold.ACTIVE)),
+                new Update().set("status", CreditHold.EXPIRED).set("settledAt", now).set("settlementId", settlementId),
+                CreditHold.class);
+        return resumed + refundReclaimed(settlementId);
+    }
+
+    /** Pay the holds of sweeps that stopped between claiming them and paying them back. */
+    private int resumeReclaims(int limit) {
+        List<CreditHold> unpaid = mongoTemplate.find(Query.query(Criteria.where("status").is(CreditHold.EXPIRED)
+                .and("refundedAt").exists(false)).limit(limit), CreditHold.class);
+        int resumed = 0;
+        for (String settlementId : unpaid.stream().map(CreditHold::getSettlementId).distinct().toList()) {
+            logger.warn("Resuming hold sweep {} that stopped before paying", settlementId);
+            resumed += refundReclaimed(settlementId);
+        }
+        return resumed;
+    }
+
+    /**
+     * Return the credits of the holds one sweep claimed. {@code refundedAt} is stamped right after
+     * the wallet write, so only a crash between those two writes can pay a hold twice, while a
+     * crash before it leaves the holds for the next sweep instead of losing the refund.
+     */
+    private int refundReclaimed(String settlementId) {
+        Query unpaid = Query.query(Criteria.where("settlementId").is(settlementId).and("refundedAt").exists(false));
+        List<CreditHold> claimed = mongoTemplate.find(unpaid, CreditHold.class);
+        if (claimed.isEmpty()) return 0;
+
+        Map<String, Long> perStudent = new LinkedHashMap<>();
+        claimed.forEach(h -> perStudent.merge(h.getStudentId(), h.getAmount().minor(), Money::add));
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Wallet.class);
+        perStudent.forEach((studentId, minor) -> bulk.updateOne(byOwner(studentId), new Update()
+                .inc("balance.minor", minor)
+                .inc("held.minor", -minor)
+                .set("updatedAt", LocalDateTime.now())));
+        bulk.execute();
+        mongoTemplate.updateMulti(unpaid, new Update().set("refundedAt", Instant.now()), CreditHold.class);
+
+        List<JournalLine> lines = new ArrayList<>();
+        lines.add(JournalLine.of(LedgerService.ESCROW,
+                Money.ofMinor(-perStudent.values().stream().reduce(0L, Money::add))));
+        perStudent.forEach((studentId, minor) -> lines.add(JournalLine.of(studentId, Money.ofMinor(minor))));
+        ledger.post("BOOKING_REFUND", settlementId, "Expired credit holds", lines.toArray(JournalLine[]::new));
+
+        for (CreditHold hold : claimed) {
+            recordTransaction(new WalletTransaction(
+                    null, hold.getStudentId(), "BOOKING_REFUND", hold.getAmount(),
+                    "Expired hold for booking ID: " + hold.getBookingId(), hold.getBookingId(), LocalDateTime.now()
+            ));
+        }
+        logger.info("Reclaimed {} expired credit holds for {} students", claimed.size(), perStudent.size());
+        return claimed.size();
+    }
+
+    /** {@link #settleAccruedPayouts(Instant, int, BooleanSupplier)} without a lease to keep. */
+    public int settleAccruedPayouts(Instant cutoff, int batchSize) {
+        return settleAccruedPayouts(cutoff, batchSize, () -> true);
+    }
+
+    /**
+     * Pay out every payable accrued before {@code cutoff}, after finishing any earlier run that was
+     * interrupted. A {@link SettlementRun} is written first, then one update claims the payables
+     * for it and a cursor reads them back in tutor order, one {@link SettlementStatement} per
+     * tutor. Every {@code batchSize} tutors the statements are inserted and the tutor wallets
+     * credited with one bulk write; each tutor also gets one transaction and one journal entry,
+     * both keyed by the statement. The holds then come off the students' {@code held} with one bulk
+     * update per batch of students, each batch turning its holds RELEASED, and the commission goes
+     * to the company wallet once, so the writes grow with tutors and students rather than
+     * bookings. Each step is marked done right after its money moved: statements {@code paidAt},
+     * holds RELEASED, the run's {@code commissionPaidAt}, then the run PAID, so a resumed run
+     * redoes only what was left undone.
+     * <p>
+     * {@code renewLease} is asked between batches; once it fails the run stops and is left for the
+     * next one to finish. Returns how many statements were written.
+     */
+    public int settleAccruedPayouts(Instant cutoff, int batchSize, BooleanSupplier renewLease) {
+        int statements = 0;
+        for (SettlementRun unfinished : mongoTemplate.find(Query.query(Criteria.where("status").is(SettlementRun.CLAIMED))
+                .with(Sort.by("claimedAt")), SettlementRun.class)) {
+            logger.warn("Resuming settlement {} that stopped before it was paid", unfinished.getId());
+            statements += paySettlement(unfinished, batchSize, renewLease, true);
+        }
+
+        SettlementRun run = mongoTemplate.insert(SettlementRun.builder()
+                .id(UUID.randomUUID().toString())
+                .status(SettlementRun.CLAIMED)
+                .cutoff(cutoff)
+                .claimedAt(Instant.now())
+                .build());
+        long claimed = mongoTemplate.updateMulti(Query.query(Criteria.where("status").is(CreditHold.ACCRUED)
+                        .and("accruedAt").lt(cutoff)
+                        .and("settlementId").exists(false)),
+                new Update().set("settlementId", run.getId()),
+                CreditHold.class).getModifiedCount();
+        if (claimed == 0) {
+            mongoTemplate.remove(run);
+            return statements;
+        }
+        return statements + paySettlement(run, batchSize, renewLease, false);
+    }
+
+    private int paySettlement(SettlementRun run, int batchSize, BooleanSupplier renewLease, boolean resuming) {
+        String settlementId = run.getId();
+        Instant now = Instant.now();
+        Query byTutor = Query.query(Criteria.where("settlementId").is(settlementId))
+                .with(Sort.by("tutorId", "_id"))
+                .cursorBatchSize(batchSize);
+        List<SettlementStatement> batch = new ArrayList<>();
+        long commission = 0;
+        long bookings = 0;
+        int statements = 0;
+        try (Stream<CreditHold> holds = mongoTemplate.stream(byTutor, CreditHold.class)) {
+            SettlementStatement statement = null;
+            for (Iterator<CreditHold> it = holds.iterator(); it.hasNext(); ) {
+                CreditHold hold = it.next();
+                if (statement == null || !statement.getTutorId().equals(hold.getTutorId())) {
+                    if (statement != null) batch.add(statement);
+                    if (batch.size() >= batchSize) {
+                        commission = Money.add(commission, payStatements(batch, settlementId, resuming));
+                        statements += batch.size();
+                        batch.clear();
+                        keepLease(renewLease, settlementId);
+                    }
+                    statement = SettlementStatement.builder()
+                            .id(settlementId + ":" + hold.getTutorId())
+                            .settlementId(settlementId)
+                            .tutorId(hold.getTutorId())
+                            .periodEnd(run.getCutoff())
+                            .lines(new ArrayList<>())
+                            .createdAt(now)
+                            .build();
+                }
+                statement.getLines().add(new SettlementStatement.Line(hold.getBookingId(), hold.getStudentId(),
+                        hold.getAmount(), Money.ofMinor(Money.share(hold.getAmount().minor(), COMMISSION_BASIS_POINTS)),
+                        hold.getAccruedAt()));
+                bookings++;
+            }
+            if (statement != null) batch.add(statement);
+        }
+        commission = Money.add(commission, payStatements(batch, settlementId, resuming));
+        statements += batch.size();
+
+        // The students' credits were spent when the holds were accrued, only held goes down; a
+        // hold is RELEASED with the batch of students that took it off held
+        Query unreleased = Query.query(Criteria.where("settlementId").is(settlementId).and("status").is(CreditHold.ACCRUED));
+        BulkOperations unhold = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Wallet.class);
+        List<String> queued = new ArrayList<>();
+        try (Stream<Document> students = mongoTemplate.aggregateStream(Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("settlementId").is(settlementId).and("status").is(CreditHold.ACCRUED)),
+                Aggregation.group("studentId").sum("amount.minor").as("total")
+        ), "credit_holds", Document.class)) {
+            for (Iterator<Document> it = students.iterator(); it.hasNext(); ) {
+                Document student = it.next();
+                unhold.updateOne(byOwner(student.getString("_id")), new Update()
+                        .inc("held.minor", -((Number) student.get("total")).longValue())
+                        .set("updatedAt", LocalDateTime.now()));
+                queued.add(student.getString("_id"));
+                if (queued.size() == batchSize) {
+                    releaseHolds(unhold, queued, unreleased);
+                    unhold = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Wallet.class);
+                    queued.clear();
+                    keepLease(renewLease, settlementId);
+                }
+            }
+        }
+        if (!queued.isEmpty()) releaseHolds(unhold, queued, unreleased);
+
+        if (commission > 0 && run.getCommissionPaidAt() == null) {
+            // The transaction first, so a run resumed after it credits the company and records nothing
+            String commissionId = settlementId + ":commission";
+            if (!(resuming && txnRepo.existsById(commissionId))) {
+                recordTransaction(new WalletTransaction(
+                        commissionId, CompanyWallet.ID, SETTLEMENT_COMMISSION, Money.ofMinor(commission),
+                        "5% commission from settlement " + settlementId, settlementId, LocalDateTime.now()
+                ));
+            }
+            credit(companyWallet.shardFor(settlementId), commission);
+            mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(settlementId)),
+                    new Update().set("commissionPaidAt", Instant.now()), SettlementRun.class);
+        }
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(settlementId)),
+                new Update().set("status", SettlementRun.PAID).set("paidAt", Instant.now()).set("statements", statements),
+                SettlementRun.class);
+        logger.info("Settlement {} paid {} accrued bookings to {} tutors", settlementId, bookings, statements);
+        return statements;
+    }
+
+    /** Take a batch of students' holds off held, then mark those holds RELEASED. */
+    private void releaseHolds(BulkOperations unhold, List<String> studentIds, Query unreleased) {
+        unhold.execute();
+        mongoTemplate.updateMulti(Query.of(unreleased).addCriteria(Criteria.where("studentId").in(studentIds)),
+                new Update().set("status", CreditHold.RELEASED).set("settledAt", Instant.now()),
+                CreditHold.class);
+    }
+
+    private static void keepLease(BooleanSupplier renewLease, String settlementId) {
+        if (!renewLease.getAsBoolean()) {
+            throw new RuntimeException("Settlement " + settlementId + " lost its lease, left for the next run");
+        }
+    }
+
+    /**
+     * Total up, insert and pay a batch of statements: one bulk wallet write for the batch, one
+     * transaction and one journal entry per tutor. When resuming, statements an earlier attempt
+     * already paid are not credited again. Returns the commission of the batch.
+     */
+    private long payStatements(List<SettlementStatement> statements, String settlementId, boolean resuming) {
+        if (statements.isEmpty()) return 0;
+        long commission = 0;
+        for (SettlementStatement statement : statements) {
+            long gross = 0;
+            long cut = 0;
+            Instant periodStart = null;
+            for (SettlementStatement.Line line : statement.getLines()) {
+                gross = Money.add(gross, line.getAmount().minor());
+                cut = Money.add(cut, line.getCommission().minor());
+                if (periodStart == null || (line.getAccruedAt() != null && line.getAccruedAt().isBefore(periodStart))) {
+                    periodStart = line.getAccruedAt();
+                }
+            }
+            statement.setBookings(statement.getLines().size());
+            statement.setGross(Money.ofMinor(gross));
+            statement.setCommission(Money.ofMinor(cut));
+            statement.setNet(Money.ofMinor(Money.subtract(gross, cut)));
+            statement.setPeriodStart(periodStart);
+            commission = Money.add(commission, cut);
+        }
+
+        Map<String, SettlementStatement> written = new HashMap<>();
+        if (resuming) {
+            mongoTemplate.find(Query.query(Criteria.where("_id").in(statements.stream().map(SettlementStatement::getId).toList())),
+                    SettlementStatement.class).forEach(s -> written.put(s.getId(), s));
+        }
+        List<SettlementStatement> fresh = statements.stream().filter(s -> !written.containsKey(s.getId())).toList();
+        if (!fresh.isEmpty()) mongoTemplate.insertAll(fresh);
+        List<SettlementStatement> unpaid = statements.stream()
+                .filter(s -> !written.containsKey(s.getId()) || written.get(s.getId()).getPaidAt() == null)
+                .toList();
+        if (!unpaid.isEmpty()) {
+            BulkOperations credits = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Wallet.class);
+            unpaid.forEach(s -> credits.upsert(byOwner(s.getTutorId()), creditUpdate(s.getNet().minor())));
+            credits.execute();
+            mongoTemplate.updateMulti(Query.query(Criteria.where("_id").in(unpaid.stream().map(SettlementStatement::getId).toList())),
+                    new Update().set("paidAt", Instant.now()),
+                    SettlementStatement.class);
+        }
+
+        for (SettlementStatement statement : statements) {
+            ledger.postOnce(statement.getId(), "SETTLEMENT", statement.getId(), "Settlement " + settlementId,
+                    JournalLine.of(LedgerService.ESCROW, statement.getGross().negate()),
+                    JournalLine.of(statement.getTutorId(), statement.getNet()),
+                    JournalLine.of(CompanyWallet.ID, statement.getCommission()));
+            if (resuming && txnRepo.existsById(statement.getId())) continue;
+            recordTransaction(new WalletTransaction(
+                    statement.getId(), statement.getTutorId(), SETTLEMENT_PAYMENT_TUTOR, statement.getNet(),
+                    "Payment (95%) for " + statement.getBookings() + " bookings, statement " + statement.getId(),
+                    statement.getId(), LocalDateTime.now()
+            ));
+        }
+        return commission;
+    }
+
+    /** Mark the booking's active hold settled, null if it has none or it was settled already. */
+    private CreditHold settleHold(String bookingId, String outcome) {
+        return mongoTemplate.findAndModify(
+                Query.query(Criteria.where("_id").is(bookingId).and("status").is(CreditHold.ACTIVE)),
+                new Update().set("status", outcome).set("settledAt", Instant.now()),
+                FindAndModifyOptions.options().returnNew(true),
+                CreditHold.class);
+    }
+
+    /** Take a settled hold's amount off {@code held}, back into the balance if it is refunded. */
+    private void unhold(String studentId, long minor, boolean refund) {
+        Update update = new Update()
+                .inc("held.minor", -minor)
+                .set("updatedAt", LocalDateTime.now());
+        if (refund) update.inc("balance.minor", minor);
+        mongoTemplate.updateFirst(byOwner(studentId), update, Wallet.class);
+    }
+
+    /** Increment the balance, creating the wallet if this is its first credit. */
+    private Wallet credit(String userId, long minor) {
+        return upsert(userId, creditUpdate(minor));
+    }
+
+    private static Update creditUpdate(long minor) {
+        // balance.currency rather than the whole balance, which would clash with the $inc
+        return new Update()
+                .inc("balance.minor", minor)
+                .set("updatedAt", LocalDateTime.now())
+                .setOnInsert("balance.currency", Money.DEFAULT_CURRENCY)
+                .setOnInsert("held", Money.ZERO)
+                .setOnInsert("currency", Money.DEFAULT_CURRENCY)
+                .setOnInsert("pinSet", false);
+    }
+
+    private Wallet upsert(String userId, Update update) {
+        FindAndModifyOptions options = FindAndModifyOptions.options().upsert(true).returnNew(true);
+        try {
+            return mongoTemplate.findAndModify(byOwner(userId), update, options, Wallet.class);
+        } catch (DuplicateKeyException e) {
+            // A parallel first request inserted the wallet; it exists now, so the retry matches it
+            return mongoTemplate.findAndModify(byOwner(userId), update, options, Wallet.class);
+        }
+    }
+
+    /**
+     * Decrement the balance only if it covers the amount, moving it to {@code held} when it is
+     * held for a booking; no match means insufficient funds.
+     */
+    private Wallet debit(String userId, long minor, boolean hold, String insufficientMessage) {
+        Update update = new Update()
+                .inc("balance.minor", -minor)
+                .set("updatedAt", LocalDateTime.now());
+        if (hold) update.inc("held.minor", minor);
+        Wallet wallet = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("studentId").is(userId)
+                        .and("balance.minor").gte(minor)),
+                update,
+                FindAndModifyOptions.options().returnNew(true),
+                Wallet.class);
+        if (wallet == null) {
+            throw new RuntimeException(insufficientMessage);
+        }
+        return wallet;
+    }
+
+    private static Query byOwner(String userId) {
+        return Query.query(Criteria.where("studentId").is(userId));
+    }
+
+    /** Save a transaction, append it to the outbox right behind it and count it in the rollups. */
+    private void recordTransaction(WalletTransaction txn) {
+        txnRepo.save(txn); // assigns the id on txn
+        outboxService.append(OutboxEntry.forTransaction(txn));
+        try {
+            rollups.record(txn);
+        } catch (RuntimeException e) {
+            // The money has moved already; a missed rollup only skews the dashboard
+            logger.error("Could not count transaction {} in the rollups", e, txn.getId());
+        }
+    }
+
     // ----------------------------------------------------------------------
     // Withdrawal (simulated)
     // ----------------------------------------------------------------------
@@ -172,28 +723,35 @@ public class WalletService {
     /** Simulate withdrawal of all funds (no real Stripe movement). */
     @Transactional
     public Map<String, Object> simulateWithdrawal(String studentId) {
-        Wallet wallet = getWallet(studentId);
-        BigDecimal balance = wallet.getBalance();
-
-        if (balance.compareTo(BigDecimal.ZERO) <= 0) {
-            return Map.of("message", "No funds available to withdraw", "balance", balance);
+        // Zero out wallet; the pre-image tells how much was taken
+        Wallet before = mongoTemplate.findAndModify(
+                Query.query(Criteria.where("studentId").is(studentId)
+                        .and("balance.minor").gt(0L)),
+                new Update()
+                        .set("balance.minor", 0L)
+                        .set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(false),
+                Wallet.class);
+
+        if (before == null) {
+            return Map.of("message", "No funds available to withdraw", "balance", getWallet(studentId).getBalance());
         }
+        Money balance = before.getBalance();
+        String refId = "MOCK-" + UUID.randomUUID();
+        ledger.post("WITHDRAWAL", refId, "Withdrawal of all funds",
+                JournalLine.of(studentId, balance.negate()),
+                JournalLine.of(LedgerService.WITHDRAWALS, balance));
 
         // Record withdrawal
-        txnRepo.save(new WalletTransaction(
+        recordTransaction(new WalletTransaction(
                 null, studentId, "WITHDRAWAL", balance.negate(),
-                "Withdrawal of all funds", "MOCK-" + UUID.randomUUID(), LocalDateTime.now()
+                "Withdrawal of all funds", refId, LocalDateTime.now()
         ));
 
-        // Zero out wallet
-        wallet.setBalance(BigDecimal.ZERO);
-        wallet.setUpdatedAt(LocalDateTime.now());
-        walletRepo.save(wallet);
-
         return Map.of(
                 "message", "Withdrawal successful",
                 "withdrawnAmount", balance,
-                "newBalance", wallet.getBalance()
+                "newBalance", Money.ZERO
         );
     }
 
@@ -204,26 +762,52 @@ public class WalletService {
         return txnRepo.findByStudentIdOrderByCreatedAtDesc(userId);
     }
 
-    public AdminDashboardDTO.TransactionMetrics getTransactionMetrics() {
-        Double totalEarnings = Optional.ofNullable(txnRepo.getTotalEarnings()).orElse(0.0);
-        Double commissionCollected = Optional.ofNullable(txnRepo.getTotalCommission()).orElse(0.0);
+    /** Settlement statements of a tutor, latest period first. */
+    public List<SettlementStatement> getSettlementStatements(String tutorId) {
+        return mongoTemplate.find(Query.query(Criteria.where("tutorId").is(tutorId))
+                .with(Sort.by(Sort.Direction.DESC, "periodEnd")), SettlementStatement.class);
+    }
+
+    // ----------------------------------------------------------------------
+    // Ledger
+    // ----------------------------------------------------------------------
 
-        WalletTransaction highestTxnEntity = txnRepo.getHighestTransaction();
-        AdminDashboardDTO.TransactionSummary highestTransaction = highestTxnEntity != null
+    /** Ledger balance of a wallet owner or system account, now or as of {@code at}. */
+    public BigDecimal getLedgerBalance(String account, Instant at) {
+        return at != null ? ledger.balanceAt(account, at) : ledger.balanceOf(account);
+    }
+
+    public List<JournalEntry> getLedgerEntries(String account, Instant from, Instant to) {
+        return ledger.entries(account, from, to != null ? to : Instant.now());
+    }
+
+    /** Dashboard figures, read from the transaction rollups rather than the transactions themselves. */
+    public AdminDashboardDTO.TransactionMetrics getTransactionMetrics() {
+        List<TransactionRollupService.MonthTotal> months = rollups.monthlyTotals(EARNING_TYPES);
+        long earnings = 0;
+        for (TransactionRollupService.MonthTotal m : months) earnings = Money.add(earnings, m.total());
+        Double totalEarnings = Money.ofMinor(earnings).toBigDecimal().doubleValue();
+        Double commissionCollected = companyWallet.balance().toBigDecimal().doubleValue();
+
+        TransactionHigh high = rollups.highest(EARNING_TYPES);
+        AdminDashboardDTO.TransactionSummary highestTransaction = high != null
                 ? AdminDashboardDTO.TransactionSummary.builder()
-                .description(highestTxnEntity.getDescription())
-                .amount(highestTxnEntity.getAmount().doubleValue())
+                .description(high.getDescription())
+                .amount(high.getAmount().toBigDecimal().doubleValue())
                 .build()
                 : null;
 
-        List<MonthlyEarningDTO> rawMonthly =
-                txnRepo.getMonthlyEarnings();
-
-        List<AdminDashboardDTO.MonthlyEarnings> monthlyEarnings = rawMonthly.stream()
-                .filter(m -> m.get_id() != null) // <--- skip null months
-                .map(m -> AdminDashboardDTO.MonthlyEarnings.builder()
-                        .month(Month.of(m.get_id()).name())
-                        .total(m.getTotal())
+        // One point per calendar month, so the same month of different years stays apart; booking
+        // and settlement commission of a month add up to one point
+        List<AdminDashboardDTO.MonthlyEarnings> monthlyEarnings = months.stream()
+                .filter(m -> COMMISSION_TYPES.contains(m.type()) && m.year() != null)
+                .collect(Collectors.toMap(m -> YearMonth.of(m.year(), m.month()),
+                        TransactionRollupService.MonthTotal::total, Money::add,
+                        TreeMap::new))
+                .entrySet().stream()
+                .map(e -> AdminDashboardDTO.MonthlyEarnings.builder()
+                        .month(e.getKey().getMonth().name() + " " + e.getKey().getYear())
+                        .total(Money.ofMinor(e.getValue()).toBigDecimal().doubleValue())
                         .build())
                 .toList();
 
@@ -0,0 +1,47 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxHandler;
+import com.csy.springbootauthbe.notification.service.NotificationService;
+import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static com.csy.springbootauthbe.notification.service.NotificationService.notification;
+
+/**
+ * Tells wallet owners about WALLET_TRANSACTION outbox entries that no booking event
+ * covers: top-ups, withdrawals and settlement payouts. Booking holds, payments and
+ * refunds are already announced by the booking notifications, so those are consumed
+ * without a notification.
+ */
+@Component
+@RequiredArgsConstructor
+public class WalletTransactionOutboxHandler implements OutboxHandler {
+
+    private final NotificationService notificationService;
+
+    @Override
+    public String aggregateType() {
+        return OutboxEntry.WALLET_TRANSACTION;
+    }
+
+    @Override
+    public CompletableFuture<Void> handle(OutboxEntry entry) {
+        WalletTransaction txn = entry.getTransaction();
+        String message = switch (entry.getEventType()) {
+            case "PURCHASE" -> "$" + txn.getAmount() + " has been added to your wallet.";
+            case "WITHDRAWAL" -> "$" + txn.getAmount().negate() + " has been withdrawn from your wallet.";
+            case WalletService.SETTLEMENT_PAYMENT_TUTOR -> "$" + txn.getAmount() + " for your completed sessions has been paid into your wallet.";
+            default -> null;
+        };
+        if (message != null) {
+            notificationService.createNotifications(List.of(
+                    notification(txn.getStudentId(), "wallet_" + entry.getEventType().toLowerCase(), null, message)));
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+}
@@ -8,6 +8,7 @@ import com.csy.springbootauthbe.student.dto.StudentDTO;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.utils.UserResponse;
+import com.csy.springbootauthbe.wallet.reconcile.ReconciliationRun;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -216,4 +217,13 @@ class AdminControllerTest {
         assertEquals(200, response.getStatusCode().value());
         assertEquals(bookingDTO, response.getBody());
     }
+
+    @Test
+    void testStartReconciliation() {
+        ReconciliationRun run = ReconciliationRun.builder().id("r1").status(ReconciliationRun.RUNNING).build();
+        when(adminService.startReconciliation("a1")).thenReturn(run);
+        ResponseEntity<ReconciliationRun> response = adminController.startReconciliation("a1");
+        assertEquals(202, response.getStatusCode().value());
+        assertEquals(run, response.getBody());
+    }
 }
@@ -6,6 +6,7 @@ import com.csy.springbootauthbe.admin.entity.Admin;
 import com.csy.springbootauthbe.admin.entity.Permissions;
 import com.csy.springbootauthbe.admin.mapper.AdminMapper;
 import com.csy.springbootauthbe.admin.repository.AdminRepository;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
 import com.csy.springbootauthbe.booking.service.BookingServiceImpl;
 import com.csy.springbootauthbe.student.dto.StudentDTO;
@@ -14,10 +15,13 @@ import com.csy.springbootauthbe.student.repository.StudentRepository;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.tutor.entity.Tutor;
 import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.entity.User;
 import com.csy.springbootauthbe.user.repository.UserRepository;
+import com.csy.springbootauthbe.wallet.reconcile.ReconciliationRun;
+import com.csy.springbootauthbe.wallet.reconcile.WalletReconciler;
 import com.csy.springbootauthbe.wallet.service.WalletService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -38,6 +42,9 @@ class AdminServiceImplTest {
     @Mock private TutorRepository tutorRepository;
     @Mock private WalletService walletService;
     @Mock private BookingServiceImpl bookingService;
+    @Mock private UserDisplayCache userDisplayCache;
+    @Mock private FreeSlotCalendar freeSlotCalendar;
+    @Mock private WalletReconciler walletReconciler;
 
     @InjectMocks private AdminServiceImpl service;
 
@@ -105,6 +112,7 @@ class AdminServiceImplTest {
         String id = service.suspendStudent("A1", "S1");
         assertEquals("S1", id);
         assertEquals(AccountStatus.SUSPENDED, s1.getStatus());
+        verify(userDisplayCache).invalidate("S1");
     }
 
     @Test
@@ -152,6 +160,7 @@ class AdminServiceImplTest {
 
         verify(userRepository).save(tutorUser);
         verify(tutorRepository).save(tutor);
+        verify(freeSlotCalendar).invalidateTutor("T1");
         assertNull(tutor.getRejectedReason());
     }
 
@@ -246,6 +255,25 @@ class AdminServiceImplTest {
         assertEquals("B1", result.getId());
     }
 
+    // --------------- Wallet Reconciliation ----------------
+    @Test
+    void testStartReconciliation_StartsRunForAdmin() {
+        mockAdminPermission(Permissions.SUPER_ADMIN);
+        ReconciliationRun run = ReconciliationRun.builder().id("R1").status(ReconciliationRun.RUNNING).build();
+        when(walletReconciler.start("admin:A1")).thenReturn(run);
+
+        assertEquals("R1", service.startReconciliation("A1").getId());
+    }
+
+    @Test
+    void testStartReconciliation_RequiresSuperAdmin() {
+        mockAdminPermission(Permissions.VIEW_ADMIN);
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> service.startReconciliation("A1"));
+        assertEquals("Unauthorized: missing SUPER_ADMIN permission", ex.getMessage());
+        verifyNoInteractions(walletReconciler);
+    }
+
     // --------------- Permission Checks ----------------
     @Test
     void testCheckAdminWithPermission_ThrowsIfMissingPermission() {
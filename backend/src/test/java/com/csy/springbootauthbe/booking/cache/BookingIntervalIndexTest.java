@@ -0,0 +1,74 @@
+package com.csy.springbootauthbe.booking.cache;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingIntervalIndexTest {
+
+    @Mock
+    private BookingRepository bookingRepository;
+
+    private BookingIntervalIndex index;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        index = new BookingIntervalIndex(bookingRepository, 100, 60);
+    }
+
+    private Booking booking(String id, String status, String start, String end) {
+        return Booking.builder().id(id).tutorId("T1").date("2025-11-02")
+                .status(status).start(start).end(end).build();
+    }
+
+    @Test
+    void testHasOverlap_loadsOnceThenServesFromMemory() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(eq("T1"), any(), any()))
+                .thenReturn(List.of(booking("B1", "confirmed", "10:00", "11:00"),
+                        booking("B2", "cancelled", "12:00", "13:00")));
+
+        assertTrue(index.hasOverlap("T1", "2025-11-02", "10:30", "11:30"));
+        assertFalse(index.hasOverlap("T1", "2025-11-02", "12:00", "13:00"));
+        verify(bookingRepository, times(1)).findByTutorIdAndStartAtRange(eq("T1"), any(), any());
+    }
+
+    @Test
+    void testRecord_tracksLifecycle() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(eq("T1"), any(), any())).thenReturn(List.of());
+        assertFalse(index.hasOverlap("T1", "2025-11-02", "10:00", "11:00"));
+
+        Booking b = booking("B1", "pending", "10:00", "11:00");
+        index.record(b);
+        assertTrue(index.hasOverlap("T1", "2025-11-02", "10:00", "11:00"));
+
+        b.setStatus("cancelled");
+        index.record(b);
+        assertFalse(index.hasOverlap("T1", "2025-11-02", "10:00", "11:00"));
+    }
+
+    @Test
+    void testInvalidate_fallsBackToMongo() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(eq("T1"), any(), any())).thenReturn(List.of());
+        index.hasOverlap("T1", "2025-11-02", "10:00", "11:00");
+
+        index.invalidate("T1", "2025-11-02");
+        index.hasOverlap("T1", "2025-11-02", "10:00", "11:00");
+
+        verify(bookingRepository, times(2)).findByTutorIdAndStartAtRange(eq("T1"), any(), any());
+    }
+
+    @Test
+    void testRecord_ignoresColdBucket() {
+        index.record(booking("B1", "pending", "10:00", "11:00"));
+        verifyNoInteractions(bookingRepository);
+    }
+}
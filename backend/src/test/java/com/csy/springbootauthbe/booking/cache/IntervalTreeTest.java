@@ -0,0 +1,66 @@
+package com.csy.springbootauthbe.booking.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+
+    @Test
+    void testOverlaps_halfOpenBoundaries() {
+        IntervalTree tree = new IntervalTree();
+        tree.put("B1", 600, 660); // 10:00 - 11:00
+
+        assertTrue(tree.overlaps(630, 690));
+        assertTrue(tree.overlaps(540, 601));
+        assertFalse(tree.overlaps(660, 720)); // back-to-back is allowed
+        assertFalse(tree.overlaps(540, 600));
+    }
+
+    @Test
+    void testRemove_freesInterval() {
+        IntervalTree tree = new IntervalTree();
+        tree.put("B1", 600, 660);
+        tree.put("B2", 720, 780);
+
+        assertTrue(tree.remove("B1"));
+        assertFalse(tree.remove("B1"));
+        assertFalse(tree.overlaps(600, 660));
+        assertTrue(tree.overlaps(750, 760));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void testPut_replacesExistingId() {
+        IntervalTree tree = new IntervalTree();
+        tree.put("B1", 600, 660);
+        tree.put("B1", 900, 960);
+
+        assertFalse(tree.overlaps(600, 660));
+        assertTrue(tree.overlaps(900, 930));
+        assertEquals(1, tree.size());
+    }
+
+    @Test
+    void testOverlaps_matchesLinearScan() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<int[]> intervals = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int start = random.nextInt(1380);
+            int end = start + 15 + random.nextInt(60);
+            tree.put("B" + i, start, end);
+            intervals.add(new int[]{start, end});
+        }
+        for (int i = 0; i < 500; i++) {
+            int start = random.nextInt(1400);
+            int end = start + 1 + random.nextInt(40);
+            boolean expected = intervals.stream().anyMatch(iv -> iv[0] < end && start < iv[1]);
+            assertEquals(expected, tree.overlaps(start, end));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.csy.springbootauthbe.booking.calendar;
+
+import com.csy.springbootauthbe.booking.dto.FreeSlotDTO;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.tutor.entity.Availability;
+import com.csy.springbootauthbe.tutor.entity.Tutor;
+import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class FreeSlotCalendarTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2030, 1, 7);
+
+    @Mock private TutorRepository tutorRepository;
+    @Mock private BookingRepository bookingRepository;
+
+    private FreeSlotCalendar calendar;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        calendar = new FreeSlotCalendar(tutorRepository, bookingRepository, 100, 300);
+
+        Tutor tutor = new Tutor();
+        tutor.setUserId("T1");
+        tutor.setAvailability(Map.of(
+                "Mon", new Availability(true, "09:00", "12:00"),
+                "Tue", new Availability(false, "09:00", "12:00")));
+        when(tutorRepository.findByUserId("T1")).thenReturn(Optional.of(tutor));
+    }
+
+    private static Booking booking(String id, String date, String start, String end, String status) {
+        return Booking.builder().id(id).tutorId("T1").date(date).start(start).end(end).status(status).build();
+    }
+
+    @Test
+    void testFreeSlots_availabilityMinusActiveBookings() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(eq("T1"), any(), any())).thenReturn(List.of(
+                booking("B1", "2030-01-07", "10:00", "11:00", "confirmed"),
+                booking("B2", "2030-01-07", "11:00", "11:30", "cancelled")));
+
+        List<FreeSlotDTO> slots = calendar.freeSlots("T1", MONDAY, MONDAY.plusDays(6));
+
+        assertEquals(List.of(new FreeSlotDTO("2030-01-07", "09:00", "10:00"),
+                new FreeSlotDTO("2030-01-07", "11:00", "12:00")), slots);
+    }
+
+    @Test
+    void testFreeSlots_readsServedFromMaterializedWeek() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+
+        calendar.freeSlots("T1", MONDAY, MONDAY.plusDays(6));
+        calendar.freeSlots("T1", MONDAY.plusDays(1), MONDAY.plusDays(3));
+
+        verify(bookingRepository, times(1)).findByTutorIdAndStartAtRange(any(), any(), any());
+        verify(tutorRepository, times(1)).findByUserId("T1");
+    }
+
+    @Test
+    void testRecord_updatesMaterializedWeekInPlace() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        calendar.freeSlots("T1", MONDAY, MONDAY);
+
+        Booking created = booking("B1", "2030-01-07", "09:00", "10:30", "pending");
+        calendar.record(created);
+        assertEquals(List.of(new FreeSlotDTO("2030-01-07", "10:30", "12:00")), calendar.freeSlots("T1", MONDAY, MONDAY));
+
+        created.setStatus("cancelled");
+        calendar.record(created);
+        assertEquals(List.of(new FreeSlotDTO("2030-01-07", "09:00", "12:00")), calendar.freeSlots("T1", MONDAY, MONDAY));
+        verify(bookingRepository, times(1)).findByTutorIdAndStartAtRange(any(), any(), any());
+    }
+
+    @Test
+    void testInvalidateTutor_rebuildsFromNewAvailability() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        calendar.freeSlots("T1", MONDAY, MONDAY);
+
+        calendar.invalidateTutor("T1");
+        calendar.freeSlots("T1", MONDAY, MONDAY);
+
+        verify(bookingRepository, times(2)).findByTutorIdAndStartAtRange(any(), any(), any());
+    }
+
+    @Test
+    void testFreeSlots_spansWeeksAndRejectsBadRanges() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+
+        List<FreeSlotDTO> slots = calendar.freeSlots("T1", MONDAY.plusDays(2), MONDAY.plusDays(9));
+
+        assertEquals(List.of(new FreeSlotDTO("2030-01-14", "09:00", "12:00")), slots);
+        assertEquals("Mon", FreeSlotCalendar.dayKey(DayOfWeek.MONDAY));
+        assertThrows(RuntimeException.class, () -> calendar.freeSlots("T1", MONDAY, MONDAY.minusDays(1)));
+        assertThrows(RuntimeException.class, () -> calendar.freeSlots("T1", MONDAY, MONDAY.plusDays(100)));
+    }
+}
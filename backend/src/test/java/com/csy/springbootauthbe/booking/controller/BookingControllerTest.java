@@ -1,11 +1,22 @@
 package com.csy.springbootauthbe.booking.controller;
 
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingPage;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.dto.RecentBookingResponse;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
+import com.csy.springbootauthbe.booking.intake.BookingIntake;
+import com.csy.springbootauthbe.booking.intake.BookingShardExecutor;
+import com.csy.springbootauthbe.booking.observer.BookingEventBus;
 import com.csy.springbootauthbe.booking.service.BookingService;
+import com.csy.springbootauthbe.booking.stats.BookingStats;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.sweep.BookingSweeper;
+import com.csy.springbootauthbe.common.idempotency.IdempotencyService;
 import com.csy.springbootauthbe.student.controller.StudentController;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +25,12 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -29,7 +44,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         org.springframework.boot.autoconfigure.security.servlet.SecurityFilterAutoConfiguration.class
     }
 )
-@ContextConfiguration(classes = BookingController.class)
+@ContextConfiguration(classes = {BookingController.class, BookingIntake.class, BookingShardExecutor.class})
 class BookingControllerTest {
 
     @Autowired
@@ -41,19 +56,75 @@ class BookingControllerTest {
     @MockBean
     private BookingService bookingService;
 
+    @MockBean
+    private BookingEventBus eventBus;
+
+    @MockBean
+    private BookingStatsService bookingStatsService;
+
+    @MockBean
+    private BookingSweeper bookingSweeper;
+
+    @MockBean
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        // Requests without a stored response run straight through
+        Mockito.when(idempotencyService.executeAsync(anyString(), any(), any(), any(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(4)).get());
+    }
+
     @Test
     void testCreateBooking() throws Exception {
         BookingDTO bookingDTO = new BookingDTO();
         Mockito.when(bookingService.createBooking(any(BookingRequest.class))).thenReturn(bookingDTO);
 
         BookingRequest request = new BookingRequest();
-        mockMvc.perform(post("/api/v1/bookings")
+        MvcResult pending = mockMvc.perform(post("/api/v1/bookings")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request))) // Use the injected ObjectMapper instance
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
             .andExpect(status().isOk())
             .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
 
+    @Test
+    void testCreateRecurringBookings_conflictsReturn409() throws Exception {
+        RecurringBookingResult result = RecurringBookingResult.builder()
+                .bookings(List.of())
+                .conflicts(List.of(new RecurringBookingResult.Conflict("2030-01-14", "10:00", "11:00", "Selected slot is already booked.")))
+                .build();
+        Mockito.when(bookingService.createRecurringBookings(any(RecurringBookingRequest.class))).thenReturn(result);
+
+        MvcResult pending = mockMvc.perform(post("/api/v1/bookings/recurring")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RecurringBookingRequest())))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isConflict())
+            .andExpect(jsonPath("$.conflicts[0].date").value("2030-01-14"));
+    }
+
+    @Test
+    void testCreateRecurringBookings() throws Exception {
+        RecurringBookingResult result = RecurringBookingResult.builder()
+                .seriesId("S-1").bookings(List.of(new BookingDTO())).conflicts(List.of()).build();
+        Mockito.when(bookingService.createRecurringBookings(any(RecurringBookingRequest.class))).thenReturn(result);
+
+        MvcResult pending = mockMvc.perform(post("/api/v1/bookings/recurring")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new RecurringBookingRequest())))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.seriesId").value("S-1"));
+    }
+
     @Test
     void testGetBookingsForTutor() throws Exception {
         Mockito.when(bookingService.getBookingsForTutor(anyString(), anyString()))
@@ -107,6 +178,33 @@ class BookingControllerTest {
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
 
+    @Test
+    void testGetBookingsForStudent_pagedReturnsNextCursorHeader() throws Exception {
+        BookingDTO dto = new BookingDTO();
+        dto.setId("B1");
+        Mockito.when(bookingService.getBookingsForStudentPage("studentId", null, 1))
+                .thenReturn(BookingPage.builder().items(List.of(dto)).nextCursor("abc").build());
+
+        mockMvc.perform(get("/api/v1/bookings/student/studentId").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "abc"))
+                .andExpect(jsonPath("$[0].id").value("B1"));
+        Mockito.verify(bookingService, Mockito.never()).getBookingsForStudent(anyString());
+    }
+
+    @Test
+    void testGetBookingsForTutorInRange_lastPageHasNoCursorHeader() throws Exception {
+        Mockito.when(bookingService.getBookingsForTutorBetweenDatesPage("tutorId", "2025-01-01", "2025-01-31", "abc", null))
+                .thenReturn(BookingPage.builder().items(Collections.emptyList()).build());
+
+        mockMvc.perform(get("/api/v1/bookings/tutor/range/tutorId")
+                        .param("startDate", "2025-01-01")
+                        .param("endDate", "2025-01-31")
+                        .param("cursor", "abc"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Next-Cursor"));
+    }
+
     @Test
     void testCancelBooking() throws Exception {
         BookingDTO bookingDTO = new BookingDTO();
@@ -144,9 +242,12 @@ class BookingControllerTest {
                 .thenReturn(bookingDTO);
 
         BookingRequest request = new BookingRequest();
-        mockMvc.perform(post("/api/v1/bookings/bookingId/reschedule")
+        MvcResult pending = mockMvc.perform(post("/api/v1/bookings/bookingId/reschedule")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(request)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
@@ -180,4 +281,79 @@ class BookingControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGetStudentPastSessions_pagedReturnsNextCursorHeader() throws Exception {
+        RecentBookingResponse page = new RecentBookingResponse();
+        page.setNextCursor("abc");
+        Mockito.when(bookingService.getPastSessionsForStudentPage("studentId", null, 10)).thenReturn(page);
+
+        mockMvc.perform(get("/api/v1/bookings/student/studentId/past").param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", "abc"))
+                .andExpect(jsonPath("$.nextCursor").value("abc"));
+    }
+
+    @Test
+    void testGetEventStats() throws Exception {
+        Mockito.when(eventBus.stats()).thenReturn(List.of(
+                new BookingEventBus.ObserverStats("BookingNotificationObserver", 3, 3, 0, 0, 0, 1)));
+
+        mockMvc.perform(get("/api/v1/bookings/events/stats"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$[0].observer").value("BookingNotificationObserver"))
+            .andExpect(jsonPath("$[0].submitted").value(3));
+    }
+
+    @Test
+    void testGetBookingStats() throws Exception {
+        BookingStats stats = BookingStats.empty("T1");
+        stats.setUpcoming(4);
+        stats.setCompleted(12);
+        Mockito.when(bookingStatsService.get("T1")).thenReturn(stats);
+
+        mockMvc.perform(get("/api/v1/bookings/stats/T1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.userId").value("T1"))
+            .andExpect(jsonPath("$.upcoming").value(4))
+            .andExpect(jsonPath("$.completed").value(12));
+    }
+
+    @Test
+    void testGetSweepStats() throws Exception {
+        Mockito.when(bookingSweeper.stats()).thenReturn(new BookingSweeper.SweepStats(2, 3, 40, 5, 4, null));
+
+        mockMvc.perform(get("/api/v1/bookings/sweep/stats"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.completed").value(40))
+            .andExpect(jsonPath("$.refunded").value(4));
+    }
+
+    @Test
+    void testGetIntakeStats_directModeHasNoShards() throws Exception {
+        mockMvc.perform(get("/api/v1/bookings/intake/stats"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$").isEmpty());
+    }
+
+    @Test
+    void testCreateBooking_replayedKeyDoesNotBookAgain() throws Exception {
+        BookingDTO stored = BookingDTO.builder().id("B1").build();
+        // doReturn, so stubbing does not run the pass-through answer from setUp
+        Mockito.doReturn(CompletableFuture.completedFuture(org.springframework.http.ResponseEntity.ok()
+                        .header(IdempotencyService.REPLAYED_HEADER, "true").body(stored)))
+                .when(idempotencyService).executeAsync(anyString(), Mockito.eq("K1"), any(), any(), any());
+
+        MvcResult pending = mockMvc.perform(post("/api/v1/bookings")
+                .header(IdempotencyService.HEADER, "K1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new BookingRequest())))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        mockMvc.perform(asyncDispatch(pending))
+            .andExpect(status().isOk())
+            .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+            .andExpect(jsonPath("$.id").value("B1"));
+        Mockito.verify(bookingService, Mockito.never()).createBooking(any());
+    }
+}
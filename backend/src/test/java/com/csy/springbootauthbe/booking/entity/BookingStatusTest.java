@@ -0,0 +1,32 @@
+package com.csy.springbootauthbe.booking.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingStatusTest {
+
+    @Test
+    void testTransitionTable() {
+        assertTrue(BookingStatus.pending.canTransitionTo(BookingStatus.confirmed));
+        assertTrue(BookingStatus.on_hold.canTransitionTo(BookingStatus.cancelled));
+        assertFalse(BookingStatus.confirmed.canTransitionTo(BookingStatus.pending));
+        assertTrue(BookingStatus.cancelled.next().isEmpty());
+        assertTrue(BookingStatus.completed.next().isEmpty());
+    }
+
+    @Test
+    void testSourcesOfCancelled() {
+        assertEquals(EnumSet.of(BookingStatus.pending, BookingStatus.confirmed, BookingStatus.on_hold,
+                BookingStatus.reschedule_requested), BookingStatus.sourcesOf(BookingStatus.cancelled));
+    }
+
+    @Test
+    void testOf() {
+        assertEquals(BookingStatus.on_hold, BookingStatus.of("on_hold"));
+        assertNull(BookingStatus.of("unknown"));
+        assertNull(BookingStatus.of(null));
+    }
+}
@@ -1,5 +1,6 @@
 package com.csy.springbootauthbe.booking.entity;
 
+import com.csy.springbootauthbe.common.money.Money;
 import org.junit.jupiter.api.Test;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -57,7 +58,7 @@ class BookingTest {
                 .studentId("student1")
                 .date("2023-10-01")
                 .status("confirmed")
-                .amount(BigDecimal.valueOf(100))
+                .amount(Money.of(BigDecimal.valueOf(100)))
                 .build();
 
         assertEquals("1", booking.getId());
@@ -65,6 +66,6 @@ class BookingTest {
         assertEquals("student1", booking.getStudentId());
         assertEquals("2023-10-01", booking.getDate());
         assertEquals("confirmed", booking.getStatus());
-        assertEquals(BigDecimal.valueOf(100), booking.getAmount());
+        assertEquals(Money.ofMinor(10000), booking.getAmount());
     }
 }
\ No newline at end of file
@@ -0,0 +1,138 @@
+package com.csy.springbootauthbe.booking.intake;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingShardExecutorTest {
+
+    private BookingShardExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        if (executor != null) executor.shutdown();
+    }
+
+    @Test
+    void testDirectMode_runsOnCallerThread() {
+        executor = new BookingShardExecutor("direct", 4, 10);
+        String caller = Thread.currentThread().getName();
+
+        CompletableFuture<String> result = executor.submit("T1", () -> Thread.currentThread().getName());
+
+        assertTrue(result.isDone());
+        assertEquals(caller, result.join());
+        assertTrue(executor.stats().isEmpty());
+    }
+
+    @Test
+    void testDirectMode_exceptionsStaySynchronous() {
+        executor = new BookingShardExecutor("direct", 4, 10);
+
+        assertThrows(RuntimeException.class, () -> executor.submit("T1", () -> {
+            throw new RuntimeException("Selected slot is already booked.");
+        }));
+    }
+
+    @Test
+    void testSharded_sameTutorAlwaysSameThreadInOrder() throws Exception {
+        executor = new BookingShardExecutor("sharded", 4, 100);
+        List<Integer> seen = Collections.synchronizedList(new ArrayList<>());
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int n = i;
+            futures.add(executor.submit("T1", () -> {
+                threads.add(Thread.currentThread().getName());
+                seen.add(n);
+                return n;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, threads.size());
+        assertTrue(threads.iterator().next().startsWith("booking-shard-"));
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i, seen.get(i));
+        }
+    }
+
+    @Test
+    void testSharded_failureCompletesFutureExceptionally() {
+        executor = new BookingShardExecutor("sharded", 2, 10);
+
+        CompletableFuture<Object> result = executor.submit("T1", () -> {
+            throw new RuntimeException("Selected slot is already booked.");
+        });
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertEquals("Selected slot is already booked.", ex.getCause().getMessage());
+    }
+
+    @Test
+    void testSharded_fullQueueRejectsInsteadOfBlocking() throws Exception {
+        executor = new BookingShardExecutor("sharded", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+
+        executor.submit("T1", () -> {
+            running.countDown();
+            await(release);
+            return null;
+        });
+        running.await(5, TimeUnit.SECONDS);
+        executor.submit("T1", () -> null); // fills the single queue slot
+
+        CompletableFuture<Object> rejected = executor.submit("T1", () -> null);
+        release.countDown();
+
+        assertTrue(rejected.isCompletedExceptionally());
+        assertEquals(1, executor.stats().get(0).rejected());
+    }
+
+    @Test
+    void testSharded_tutorsSpreadOverAllShards() {
+        executor = new BookingShardExecutor("sharded", 8, 10);
+        int[] perShard = new int[8];
+        for (int i = 0; i < 8000; i++) {
+            perShard[executor.shardOf("tutor-" + i)]++;
+        }
+        for (int count : perShard) {
+            // 1000 expected per shard, virtual nodes keep every shard within a reasonable band
+            assertTrue(count > 500 && count < 1500, "uneven shard load " + count);
+        }
+    }
+
+    @Test
+    void testShardOf_stableForSameKey() {
+        executor = new BookingShardExecutor("sharded", 8, 10);
+        BookingShardExecutor other = new BookingShardExecutor("sharded", 8, 10);
+        try {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(executor.shardOf("tutor-" + i), other.shardOf("tutor-" + i));
+            }
+        } finally {
+            other.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.csy.springbootauthbe.booking.mapper;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
 import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.money.Money;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -44,7 +45,7 @@ class BookingMapperImplTest {
         assertEquals("2025-11-03", entity.getDate());
         assertEquals("10:00", entity.getStart());
         assertEquals("11:00", entity.getEnd());
-        assertEquals(BigDecimal.valueOf(50.5), entity.getAmount());
+        assertEquals(Money.of(BigDecimal.valueOf(50.5)), entity.getAmount());
     }
 
     @Test
@@ -66,7 +67,7 @@ class BookingMapperImplTest {
             .start("14:00")
             .end("15:00")
             .status("CONFIRMED")
-            .amount(BigDecimal.valueOf(75.25))
+            .amount(Money.of(BigDecimal.valueOf(75.25)))
             .build();
 
         BookingDTO dto = mapper.toDto(booking);
@@ -111,6 +112,6 @@ class BookingMapperImplTest {
         assertEquals(entity.getTutorId(), dto.getTutorId());
         assertEquals(entity.getStudentId(), dto.getStudentId());
         assertEquals(entity.getLessonType(), dto.getLessonType());
-        assertEquals(entity.getAmount(), dto.getAmount());
+        assertEquals(entity.getAmount().toBigDecimal(), dto.getAmount());
     }
 }
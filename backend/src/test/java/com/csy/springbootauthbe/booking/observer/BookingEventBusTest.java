@@ -0,0 +1,139 @@
+package com.csy.springbootauthbe.booking.observer;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingEventBusTest {
+
+    private BookingEventBus bus;
+
+    @AfterEach
+    void tearDown() {
+        if (bus != null) bus.shutdown();
+    }
+
+    private BookingEvent event(String bookingId, BookingEvent.Type type) {
+        return new BookingEvent(Booking.builder().id(bookingId).build(), type, "S1");
+    }
+
+    @Test
+    void testPublish_preservesOrderPerBooking() throws InterruptedException {
+        bus = new BookingEventBus("async", 4, 1000, 200);
+        Map<String, List<BookingEvent.Type>> seen = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(40);
+        bus.register(e -> {
+            seen.computeIfAbsent(e.booking().getId(), k -> new CopyOnWriteArrayList<>()).add(e.type());
+            done.countDown();
+        });
+
+        for (int i = 0; i < 10; i++) {
+            String id = "B" + i;
+            bus.publish(event(id, BookingEvent.Type.booking_created));
+            bus.publish(event(id, BookingEvent.Type.booking_accepted));
+            bus.publish(event(id, BookingEvent.Type.reschedule_requested));
+            bus.publish(event(id, BookingEvent.Type.booking_cancelled));
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        List<BookingEvent.Type> expected = List.of(BookingEvent.Type.booking_created, BookingEvent.Type.booking_accepted,
+                BookingEvent.Type.reschedule_requested, BookingEvent.Type.booking_cancelled);
+        seen.values().forEach(types -> assertEquals(expected, types));
+    }
+
+    @Test
+    void testPublish_doesNotRunOnCallerThread() throws InterruptedException {
+        bus = new BookingEventBus("async", 1, 10, 200);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread caller = Thread.currentThread();
+        List<Thread> handlers = new CopyOnWriteArrayList<>();
+        bus.register(e -> {
+            handlers.add(Thread.currentThread());
+            done.countDown();
+        });
+
+        bus.publish(event("B1", BookingEvent.Type.booking_created));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotSame(caller, handlers.get(0));
+    }
+
+    @Test
+    void testFullQueue_runsInlineAndCountsBackpressure() throws InterruptedException {
+        bus = new BookingEventBus("async", 1, 1, 10);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        bus.register(e -> {
+            if ("block".equals(e.booking().getId())) {
+                started.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        bus.publish(event("block", BookingEvent.Type.booking_created)); // occupies the lane thread
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        bus.publish(event("B1", BookingEvent.Type.booking_created));    // fills the queue
+        bus.publish(event("B2", BookingEvent.Type.booking_created));    // no room, runs inline
+        release.countDown();
+
+        BookingEventBus.ObserverStats stats = bus.stats().get(0);
+        assertEquals(3, stats.submitted());
+        assertEquals(1, stats.inlined());
+        assertEquals(1, stats.maxQueued());
+    }
+
+    @Test
+    void testFailingObserver_isCountedAndDoesNotAffectOthers() {
+        bus = new BookingEventBus("sync", 1, 10, 10);
+        List<String> received = new CopyOnWriteArrayList<>();
+        bus.register(e -> {
+            throw new RuntimeException("boom");
+        });
+        bus.register(e -> received.add(e.booking().getId()));
+
+        bus.publish(event("B1", BookingEvent.Type.booking_created));
+
+        assertEquals(List.of("B1"), received);
+        assertEquals(1, bus.stats().get(0).failed());
+        assertEquals(1, bus.stats().get(1).completed());
+    }
+
+    @Test
+    void testPublish_futureCompletesAfterAllObservers() throws Exception {
+        bus = new BookingEventBus("async", 2, 10, 200);
+        List<String> received = new CopyOnWriteArrayList<>();
+        bus.register(e -> received.add("a"));
+        bus.register(e -> received.add("b"));
+
+        bus.publish(event("B1", BookingEvent.Type.booking_created)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, received.size());
+    }
+
+    @Test
+    void testPublish_futureFailsWhenAnObserverThrows() {
+        bus = new BookingEventBus("async", 1, 10, 200);
+        bus.register(e -> {
+            throw new RuntimeException("boom");
+        });
+
+        CompletableFuture<Void> result = bus.publish(event("B1", BookingEvent.Type.booking_created));
+
+        assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+    }
+}
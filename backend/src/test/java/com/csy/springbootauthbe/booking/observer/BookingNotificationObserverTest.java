@@ -0,0 +1,62 @@
+package com.csy.springbootauthbe.booking.observer;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.notification.entity.Notification;
+import com.csy.springbootauthbe.notification.service.NotificationService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingNotificationObserverTest {
+
+    @Mock private NotificationService notificationService;
+
+    private BookingNotificationObserver observer;
+    private Booking booking;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        observer = new BookingNotificationObserver(notificationService);
+        booking = Booking.builder().id("B1").tutorId("T1").studentId("S1")
+                .tutorName("Tutor").studentName("Student").lessonType("Math")
+                .amount(Money.of(new BigDecimal("50"))).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Notification> captureBatch() {
+        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationService, times(1)).createNotifications(captor.capture());
+        verify(notificationService, never()).createNotification(any(), any(), any(), any());
+        return captor.getValue();
+    }
+
+    @Test
+    void testBookingAccepted_writesAllNotificationsInOneBatch() {
+        observer.handleBookingEvent(new BookingEvent(booking, BookingEvent.Type.booking_accepted, "T1"));
+
+        List<Notification> batch = captureBatch();
+        assertEquals(List.of("booking_accepted", "credit_deducted", "credit_released"),
+                batch.stream().map(Notification::getType).toList());
+        assertEquals(List.of("S1", "S1", "T1"), batch.stream().map(Notification::getUserId).toList());
+    }
+
+    @Test
+    void testBookingCancelled_notifiesOtherPartyAndRefund() {
+        observer.handleBookingEvent(new BookingEvent(booking, BookingEvent.Type.booking_cancelled, "S1"));
+
+        List<Notification> batch = captureBatch();
+        assertEquals(2, batch.size());
+        assertEquals("T1", batch.get(0).getUserId());
+        assertEquals("credit_refunded", batch.get(1).getType());
+    }
+}
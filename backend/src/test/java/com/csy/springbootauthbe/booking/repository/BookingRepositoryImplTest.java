@@ -0,0 +1,112 @@
+package com.csy.springbootauthbe.booking.repository;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingRepositoryImplTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private MongoConverter converter;
+
+    private BookingRepositoryImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        repository = new BookingRepositoryImpl(mongoTemplate);
+    }
+
+    @Test
+    void testFindTop_limitsAndSortsOnePlainQuery() {
+        Booking b1 = Booking.builder().id("b1").build();
+        when(mongoTemplate.find(any(Query.class), eq(Booking.class))).thenReturn(List.of(b1));
+
+        List<Booking> result = repository.findTop(Criteria.where("tutorId").is("t1"),
+                Sort.by(Sort.Direction.DESC, "startAt"), 5);
+
+        assertEquals(List.of("b1"), result.stream().map(Booking::getId).toList());
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(1)).find(query.capture(), eq(Booking.class));
+        assertEquals(5, query.getValue().getLimit());
+        assertEquals(new Document("startAt", -1), query.getValue().getSortObject());
+        assertEquals("t1", query.getValue().getQueryObject().get("tutorId"));
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(Booking.class), eq(Document.class));
+    }
+
+    @Test
+    void testFindTop_neverReadsMoreThanTheCap() {
+        when(mongoTemplate.find(any(Query.class), eq(Booking.class))).thenReturn(List.of());
+
+        repository.findTop(Criteria.where("studentId").is("s1"), Sort.by("startAt"), 0);
+        repository.findTop(Criteria.where("studentId").is("s1"), Sort.by("startAt"), 10_000);
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(query.capture(), eq(Booking.class));
+        assertEquals(BookingRepositoryCustom.MAX_TOP_LIMIT, query.getAllValues().get(0).getLimit());
+        assertEquals(BookingRepositoryCustom.MAX_TOP_LIMIT, query.getAllValues().get(1).getLimit());
+    }
+
+    @Test
+    void testTransition_appliedSetsOnlyStatusAndReportsSource() {
+        Booking before = Booking.builder().id("b1").status("pending").tutorId("t1").build();
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Booking.class))).thenReturn(before);
+
+        BookingTransition result = repository.transition("b1", EnumSet.of(BookingStatus.pending), BookingStatus.confirmed);
+
+        assertTrue(result.isApplied());
+        assertEquals(BookingStatus.pending, result.previous());
+        assertEquals("confirmed", result.booking().getStatus());
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).findAndModify(query.capture(), update.capture(), eq(Booking.class));
+        assertEquals(List.of("pending"), query.getValue().getQueryObject().get("status", Document.class).get("$in"));
+        assertEquals(Set.of("status", "updatedAt"), update.getValue().getUpdateObject().get("$set", Document.class).keySet());
+        verify(mongoTemplate, never()).findOne(any(), any());
+    }
+
+    @Test
+    void testTransition_reportsConflictWithActualStatus() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Booking.class))).thenReturn(null);
+        when(mongoTemplate.findOne(any(Query.class), eq(Booking.class)))
+                .thenReturn(Booking.builder().id("b1").status("cancelled").build());
+
+        BookingTransition result = repository.transition("b1", EnumSet.of(BookingStatus.pending), BookingStatus.confirmed);
+
+        assertEquals(BookingTransition.Outcome.CONFLICT, result.outcome());
+        assertEquals(BookingStatus.cancelled, result.previous());
+        assertNull(result.booking());
+    }
+
+    @Test
+    void testTransition_notFoundAndUndeclaredMoves() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Booking.class))).thenReturn(null);
+        when(mongoTemplate.findOne(any(Query.class), eq(Booking.class))).thenReturn(null);
+
+        assertEquals(BookingTransition.Outcome.NOT_FOUND,
+                repository.transition("b1", EnumSet.of(BookingStatus.pending), BookingStatus.confirmed).outcome());
+        assertThrows(RuntimeException.class,
+                () -> repository.transition("b1", EnumSet.of(BookingStatus.cancelled), BookingStatus.confirmed));
+    }
+}
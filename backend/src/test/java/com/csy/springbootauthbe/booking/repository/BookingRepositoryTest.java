@@ -5,7 +5,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +22,9 @@ class BookingRepositoryTest {
 
     private Booking booking;
 
+    private final Instant dayStart = Instant.parse("2025-11-01T16:00:00Z");
+    private final Instant dayEnd = Instant.parse("2025-11-02T16:00:00Z");
+
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
@@ -27,102 +33,56 @@ class BookingRepositoryTest {
         booking.setTutorId("t1");
         booking.setStudentId("s1");
         booking.setDate("2025-11-02");
+        booking.setStartAt(Instant.parse("2025-11-02T02:00:00Z"));
         booking.setStatus("CONFIRMED");
     }
 
     @Test
-    void testFindByTutorIdAndDate() {
-        when(bookingRepository.findByTutorIdAndDate("t1", "2025-11-02"))
+    void testFindByTutorIdAndStartAtRange() {
+        when(bookingRepository.findByTutorIdAndStartAtRange("t1", dayStart, dayEnd))
             .thenReturn(List.of(booking));
 
-        var result = bookingRepository.findByTutorIdAndDate("t1", "2025-11-02");
+        var result = bookingRepository.findByTutorIdAndStartAtRange("t1", dayStart, dayEnd);
 
         assertEquals(1, result.size());
         assertEquals("t1", result.get(0).getTutorId());
-        verify(bookingRepository).findByTutorIdAndDate("t1", "2025-11-02");
+        verify(bookingRepository).findByTutorIdAndStartAtRange("t1", dayStart, dayEnd);
     }
 
     @Test
-    void testFindByStudentId() {
-        when(bookingRepository.findByStudentId("s1"))
+    void testFindByStudentIdOrderByStartAtAsc() {
+        when(bookingRepository.findByStudentIdOrderByStartAtAsc("s1"))
             .thenReturn(List.of(booking));
 
-        var result = bookingRepository.findByStudentId("s1");
+        var result = bookingRepository.findByStudentIdOrderByStartAtAsc("s1");
 
         assertEquals("s1", result.get(0).getStudentId());
-        verify(bookingRepository).findByStudentId("s1");
+        verify(bookingRepository).findByStudentIdOrderByStartAtAsc("s1");
     }
 
     @Test
-    void testFindBookingsByTutorIdAndDateRange() {
-        when(bookingRepository.findBookingsByTutorIdAndDateRange("t1", "2025-10-01", "2025-10-31"))
+    void testFindTop() {
+        Criteria filter = Criteria.where("tutorId").is("t1");
+        Sort sort = Sort.by(Sort.Direction.DESC, "startAt");
+        when(bookingRepository.findTop(filter, sort, 5))
             .thenReturn(List.of(booking));
 
-        var result = bookingRepository.findBookingsByTutorIdAndDateRange("t1", "2025-10-01", "2025-10-31");
+        var result = bookingRepository.findTop(filter, sort, 5);
 
         assertEquals(1, result.size());
-        assertEquals("t1", result.get(0).getTutorId());
-        verify(bookingRepository).findBookingsByTutorIdAndDateRange("t1", "2025-10-01", "2025-10-31");
-    }
-
-    @Test
-    void testCountByTutorIdAndStatusAndDateBefore() {
-        when(bookingRepository.countByTutorIdAndStatusAndDateBefore("t1", "CONFIRMED", "2025-11-01"))
-            .thenReturn(3L);
-
-        long count = bookingRepository.countByTutorIdAndStatusAndDateBefore("t1", "CONFIRMED", "2025-11-01");
-
-        assertEquals(3L, count);
-        verify(bookingRepository).countByTutorIdAndStatusAndDateBefore("t1", "CONFIRMED", "2025-11-01");
-    }
-
-    @Test
-    void testFindTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc() {
-        when(bookingRepository.findTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc("t1", "CONFIRMED", "2025-11-01"))
-            .thenReturn(List.of(booking));
-
-        var result = bookingRepository.findTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc("t1", "CONFIRMED", "2025-11-01");
-
-        assertFalse(result.isEmpty());
-        assertEquals("t1", result.get(0).getTutorId());
-        verify(bookingRepository).findTop5ByTutorIdAndStatusAndDateBeforeOrderByDateDesc("t1", "CONFIRMED", "2025-11-01");
-    }
-
-    @Test
-    void testFindByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc() {
-        List<String> statuses = List.of("CONFIRMED", "PENDING");
-        when(bookingRepository.findByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc("t1", statuses, "2025-11-01"))
-            .thenReturn(List.of(booking));
-
-        var result = bookingRepository.findByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc("t1", statuses, "2025-11-01");
-
-        assertEquals(1, result.size());
-        assertEquals("t1", result.get(0).getTutorId());
-        verify(bookingRepository).findByTutorIdAndStatusInAndDateGreaterThanEqualOrderByDateAsc("t1", statuses, "2025-11-01");
-    }
-
-    @Test
-    void testFindByStudentIdAndStatusInAndDateBeforeOrderByDateDesc() {
-        List<String> statuses = List.of("CANCELLED", "COMPLETED");
-        when(bookingRepository.findByStudentIdAndStatusInAndDateBeforeOrderByDateDesc("s1", statuses, "2025-10-31"))
-            .thenReturn(List.of(booking));
-
-        var result = bookingRepository.findByStudentIdAndStatusInAndDateBeforeOrderByDateDesc("s1", statuses, "2025-10-31");
-
-        assertEquals("s1", result.get(0).getStudentId());
-        verify(bookingRepository).findByStudentIdAndStatusInAndDateBeforeOrderByDateDesc("s1", statuses, "2025-10-31");
+        verify(bookingRepository).findTop(filter, sort, 5);
     }
 
     @Test
-    void testFindByStudentIdAndDate() {
-        when(bookingRepository.findByStudentIdAndDate("s1", "2025-11-02"))
+    void testFindByStudentIdAndStartAtRange() {
+        when(bookingRepository.findByStudentIdAndStartAtRange("s1", dayStart, dayEnd))
             .thenReturn(List.of(booking));
 
-        var result = bookingRepository.findByStudentIdAndDate("s1", "2025-11-02");
+        var result = bookingRepository.findByStudentIdAndStartAtRange("s1", dayStart, dayEnd);
 
         assertEquals(1, result.size());
         assertEquals("2025-11-02", result.get(0).getDate());
-        verify(bookingRepository).findByStudentIdAndDate("s1", "2025-11-02");
+        verify(bookingRepository).findByStudentIdAndStartAtRange("s1", dayStart, dayEnd);
     }
 
     @Test
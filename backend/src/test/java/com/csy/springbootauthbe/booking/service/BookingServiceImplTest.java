@@ -1,18 +1,40 @@
 package com.csy.springbootauthbe.booking.service;
 
+import com.csy.springbootauthbe.booking.cache.BookingIntervalIndex;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
 import com.csy.springbootauthbe.booking.dto.BookingDTO;
+import com.csy.springbootauthbe.booking.dto.BookingPage;
 import com.csy.springbootauthbe.booking.dto.BookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecentBookingResponse;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingRequest;
+import com.csy.springbootauthbe.booking.dto.RecurringBookingResult;
 import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
 import com.csy.springbootauthbe.booking.mapper.BookingMapper;
+import com.csy.springbootauthbe.booking.observer.BookingEvent;
+import com.csy.springbootauthbe.booking.observer.BookingEventBus;
 import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.booking.repository.BookingTransition;
+import com.csy.springbootauthbe.booking.stats.BookingStats;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.utils.BookingCursor;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxService;
 import com.csy.springbootauthbe.notification.service.NotificationService;
-import com.csy.springbootauthbe.user.repository.UserRepository;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
 import com.csy.springbootauthbe.wallet.service.WalletService;
+import org.bson.types.ObjectId;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -25,7 +47,13 @@ class BookingServiceImplTest {
     @Mock private BookingMapper bookingMapper;
     @Mock private NotificationService notificationService;
     @Mock private WalletService walletService;
-    @Mock private UserRepository userRepository;
+    @Mock private UserDisplayCache userDisplayCache;
+    @Mock private BookingIntervalIndex intervalIndex;
+    @Mock private FreeSlotCalendar freeSlotCalendar;
+    @Mock private BookingSlotService bookingSlotService;
+    @Mock private BookingEventBus eventBus;
+    @Mock private OutboxService outboxService;
+    @Mock private BookingStatsService bookingStatsService;
 
     @InjectMocks
     private BookingServiceImpl bookingService;
@@ -54,7 +82,7 @@ class BookingServiceImplTest {
             .tutorId("T1")
             .studentId("S1")
             .status("pending")
-            .amount(BigDecimal.valueOf(50))
+            .amount(Money.of(BigDecimal.valueOf(50)))
             .build();
 
         bookingDTO = BookingDTO.builder().id("B1").status("pending").build();
@@ -64,8 +92,10 @@ class BookingServiceImplTest {
 
     @Test
     void testCreateBooking_Success() {
-        when(bookingRepository.findByTutorIdAndDate(anyString(), anyString())).thenReturn(List.of());
-        when(bookingRepository.findByStudentIdAndDate(anyString(), anyString())).thenReturn(List.of());
+        booking.setDate(request.getDate());
+        booking.setStart("10:00");
+        booking.setEnd("11:00");
+        when(bookingRepository.findByStudentIdAndStartAtRange(anyString(), any(), any())).thenReturn(List.of());
         when(bookingMapper.toEntity(any())).thenReturn(booking);
         when(bookingRepository.save(any())).thenReturn(booking);
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
@@ -73,73 +103,251 @@ class BookingServiceImplTest {
         BookingDTO result = bookingService.createBooking(request);
 
         assertEquals("B1", result.getId());
-        verify(walletService).holdCredits(eq("S1"), any(), anyString());
+        // the hold is keyed by the booking and expires a day after the lesson
+        verify(walletService).holdCredits(eq("S1"), any(), eq(booking.getId()), eq(booking.getEndAt().plus(CreditHold.GRACE)));
         verify(bookingRepository).save(any(Booking.class));
+        verify(intervalIndex).record(booking);
+        verify(freeSlotCalendar).record(booking);
+        verify(bookingStatsService).recordCreated(List.of(booking));
+        verify(outboxService).append(argThat(e -> OutboxEntry.BOOKING.equals(e.getAggregateType())
+                && BookingEvent.Type.booking_created.name().equals(e.getEventType())));
+        verify(eventBus, never()).publish(any());
+        verify(bookingSlotService).claim(anyString(), eq("T1"), anyString(), eq("10:00"), eq("11:00"));
+    }
+
+    @Test
+    void testCreateBooking_SlotTakenFailsBeforeHold() {
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingMapper.toEntity(any())).thenReturn(booking);
+        doThrow(new RuntimeException("Selected slot is already booked."))
+            .when(bookingSlotService).claim(anyString(), anyString(), anyString(), anyString(), anyString());
+
+        assertThrows(RuntimeException.class, () -> bookingService.createBooking(request));
+        verify(walletService, never()).holdCredits(any(), any(), any(), any());
+        verify(bookingRepository, never()).save(any());
+    }
+
+    @Test
+    void testCreateBooking_HoldFailureReleasesSlot() {
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingMapper.toEntity(any())).thenReturn(booking);
+        when(walletService.holdCredits(any(), any(), any(), any())).thenThrow(new RuntimeException("Insufficient credits"));
+
+        assertThrows(RuntimeException.class, () -> bookingService.createBooking(request));
+        verify(bookingSlotService).release(booking.getId());
+        verify(bookingRepository, never()).save(any());
     }
 
     @Test
     void testCreateBooking_ThrowsOverlapError() {
-        Booking overlap = Booking.builder().status("confirmed").start("09:30").end("10:30").build();
-        when(bookingRepository.findByTutorIdAndDate(any(), any())).thenReturn(List.of(overlap));
+        when(intervalIndex.hasOverlap("T1", request.getDate(), "10:00", "11:00")).thenReturn(true);
 
         assertThrows(RuntimeException.class, () -> bookingService.createBooking(request));
+        verify(walletService, never()).holdCredits(any(), any(), any(), any());
     }
 
     @Test
     void testCreateBooking_InvalidAmount() {
         request.setAmount(BigDecimal.ZERO);
-        when(bookingRepository.findByTutorIdAndDate(any(), any())).thenReturn(List.of());
-        when(bookingRepository.findByStudentIdAndDate(any(), any())).thenReturn(List.of());
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
 
         assertThrows(RuntimeException.class, () -> bookingService.createBooking(request));
     }
 
+    // ---------------- RECURRING BOOKINGS ----------------
+
+    private RecurringBookingRequest recurringRequest() {
+        return RecurringBookingRequest.builder()
+            .tutorId("T1")
+            .studentId("S1")
+            .lessonType("Math")
+            .start("10:00")
+            .end("11:00")
+            .amount(BigDecimal.valueOf(50))
+            .startDate("2030-01-07")
+            .count(4)
+            .build();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCreateRecurringBookings_singleQueryHoldAndInsert() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingRepository.insert(anyList())).thenAnswer(inv -> inv.getArgument(0));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
+
+        RecurringBookingResult result = bookingService.createRecurringBookings(recurringRequest());
+
+        assertEquals(4, result.getBookings().size());
+        assertTrue(result.getConflicts().isEmpty());
+        verify(bookingRepository, times(1)).findByTutorIdAndStartAtRange(eq("T1"), any(), any());
+        verify(bookingSlotService, times(1)).claimAll(eq("T1"), argThat(m -> m.size() == 4));
+        verify(bookingStatsService, times(1)).recordCreated(argThat(c -> c.size() == 4));
+        ArgumentCaptor<List<CreditHold>> holds = ArgumentCaptor.forClass(List.class);
+        verify(walletService, times(1)).holdCredits(eq("S1"), holds.capture(), eq("RECURRING-" + result.getSeriesId()));
+        assertEquals(4, holds.getValue().size());
+        assertTrue(holds.getValue().stream().allMatch(h -> Money.ofMinor(5000).equals(h.getAmount())
+            && h.getExpiresAt() != null));
+
+        ArgumentCaptor<List<Booking>> inserted = ArgumentCaptor.forClass(List.class);
+        verify(bookingRepository, times(1)).insert(inserted.capture());
+        assertEquals(List.of("2030-01-07", "2030-01-14", "2030-01-21", "2030-01-28"),
+            inserted.getValue().stream().map(Booking::getDate).toList());
+        assertTrue(inserted.getValue().stream().allMatch(b -> result.getSeriesId().equals(b.getSeriesId())
+            && "pending".equals(b.getStatus()) && b.getStartAt() != null));
+        verify(outboxService, times(4)).append(any());
+    }
+
+    @Test
+    void testCreateRecurringBookings_conflictsReportedAndNothingWritten() {
+        Booking taken = Booking.builder().id("X").tutorId("T1").status("confirmed")
+            .startAt(Instant.parse("2030-01-14T02:30:00Z")).endAt(Instant.parse("2030-01-14T03:30:00Z")).build();
+        Booking otherTutor = Booking.builder().id("Y").tutorId("T2").status("pending")
+            .startAt(Instant.parse("2030-01-28T06:00:00Z")).endAt(Instant.parse("2030-01-28T07:00:00Z")).build();
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of(taken));
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of(otherTutor));
+
+        RecurringBookingResult result = bookingService.createRecurringBookings(recurringRequest());
+
+        assertTrue(result.getBookings().isEmpty());
+        assertEquals(List.of("2030-01-14", "2030-01-28"),
+            result.getConflicts().stream().map(RecurringBookingResult.Conflict::getDate).toList());
+        // Only the time grid was checked, nothing was claimed
+        verify(bookingSlotService).requireAligned("10:00", "11:00");
+        verifyNoMoreInteractions(bookingSlotService);
+        verifyNoInteractions(walletService);
+        verify(bookingRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testCreateRecurringBookings_holdFailureReleasesAllSlots() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(walletService.holdCredits(any(), anyList(), any())).thenThrow(new RuntimeException("Insufficient credits"));
+
+        assertThrows(RuntimeException.class, () -> bookingService.createRecurringBookings(recurringRequest()));
+        verify(bookingSlotService).releaseAll(argThat(ids -> ids.size() == 4));
+        verify(bookingRepository, never()).insert(anyList());
+    }
+
+    @Test
+    void testCreateRecurringBookings_insertFailureRefundsHold() {
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingRepository.findByStudentIdAndStartAtRange(any(), any(), any())).thenReturn(List.of());
+        when(bookingRepository.insert(anyList())).thenThrow(new RuntimeException("write failed"));
+
+        assertThrows(RuntimeException.class, () -> bookingService.createRecurringBookings(recurringRequest()));
+        verify(bookingRepository).deleteAllById(argThat(ids -> ((Collection<?>) ids).size() == 4));
+        verify(bookingSlotService).releaseAll(argThat(ids -> ids.size() == 4));
+        // the series is refunded as a whole, like it was held
+        verify(walletService, times(1)).refundHolds(eq("S1"), argThat(ids -> ids.size() == 4), startsWith("RECURRING-"));
+        verify(walletService, never()).refundStudent(any(), any(), any());
+        verify(outboxService, never()).append(any());
+    }
+
     // ---------------- ACCEPT BOOKING ----------------
 
     @Test
     void testAcceptBooking_Success() {
-        booking.setStatus("pending");
-        when(bookingRepository.findById("B1")).thenReturn(Optional.of(booking));
-        when(bookingRepository.save(any())).thenReturn(booking);
+        booking.setStatus("confirmed");
+        when(bookingRepository.transition("B1", EnumSet.of(BookingStatus.pending), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.pending));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.acceptBooking("B1");
 
         assertEquals("B1", result.getId());
         verify(walletService).releaseToTutor(eq("S1"), eq("T1"), any(), eq("B1"));
-        verify(bookingRepository).save(booking);
+        verify(bookingStatsService).recordTransition(booking, BookingStatus.pending);
+        verify(bookingRepository, never()).findById(any());
+        verify(bookingRepository, never()).save(any());
     }
 
     @Test
-    void testAcceptBooking_InvalidStatus() {
+    void testAcceptBooking_AccrualModeOnlyAccrues() {
+        ReflectionTestUtils.setField(bookingService, "accruePayouts", true);
         booking.setStatus("confirmed");
-        when(bookingRepository.findById("B1")).thenReturn(Optional.of(booking));
+        when(bookingRepository.transition("B1", EnumSet.of(BookingStatus.pending), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.pending));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
+
+        bookingService.acceptBooking("B1");
+
+        verify(walletService).accrueToTutor(eq("S1"), eq("T1"), any(), eq("B1"));
+        verify(walletService, never()).releaseToTutor(any(), any(), any(), any());
+    }
+
+    @Test
+    void testAcceptBooking_InvalidStatus() {
+        when(bookingRepository.transition(eq("B1"), any(), eq(BookingStatus.confirmed)))
+            .thenReturn(BookingTransition.conflict(BookingStatus.cancelled));
 
-        assertThrows(RuntimeException.class, () -> bookingService.acceptBooking("B1"));
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> bookingService.acceptBooking("B1"));
+        assertEquals("Only pending bookings can be accepted.", ex.getMessage());
+        verify(walletService, never()).releaseToTutor(any(), any(), any(), any());
+        verify(bookingStatsService, never()).recordTransition(any(), any());
+    }
+
+    @Test
+    void testAcceptBooking_NotFound() {
+        when(bookingRepository.transition(any(), any(), any())).thenReturn(BookingTransition.notFound());
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> bookingService.acceptBooking("B1"));
+        assertEquals("Booking not found", ex.getMessage());
     }
 
     // ---------------- CANCEL BOOKING ----------------
 
     @Test
     void testCancelBooking_RefundsStudent() {
-        booking.setStatus("pending");
-        when(bookingRepository.findById("B1")).thenReturn(Optional.of(booking));
-        when(bookingRepository.save(any())).thenReturn(booking);
+        booking.setStatus("cancelled");
+        when(bookingRepository.transition("B1", BookingStatus.sourcesOf(BookingStatus.cancelled), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.pending));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.cancelBooking("B1", "S1");
 
-        assertEquals("cancelled", booking.getStatus()); // updated internally
         verify(walletService).refundStudent(eq("S1"), any(), eq("B1"));
+        verify(bookingSlotService).release("B1");
+        verify(intervalIndex).record(booking);
         assertNotNull(result);
     }
 
     @Test
-    void testCancelBooking_AlreadyCancelled() {
+    void testCancelBooking_ConfirmedIsNotRefunded() {
         booking.setStatus("cancelled");
-        when(bookingRepository.findById("B1")).thenReturn(Optional.of(booking));
+        when(bookingRepository.transition(eq("B1"), any(), eq(BookingStatus.cancelled)))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.confirmed));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
-        assertThrows(RuntimeException.class, () -> bookingService.cancelBooking("B1", "S1"));
+        bookingService.cancelBooking("B1", "T1");
+
+        verify(walletService, never()).refundStudent(any(), any(), any());
+        verify(bookingSlotService).release("B1");
+    }
+
+    @Test
+    void testCancelBooking_OnHoldRescheduleIsNotRefunded() {
+        booking.setStatus("cancelled");
+        when(bookingRepository.transition(eq("B1"), any(), eq(BookingStatus.cancelled)))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.on_hold));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
+
+        bookingService.cancelBooking("B1", "S1");
+
+        verify(walletService, never()).refundStudent(any(), any(), any());
+        verify(bookingSlotService).release("B1");
+    }
+
+    @Test
+    void testCancelBooking_AlreadyCancelled() {
+        when(bookingRepository.transition(eq("B1"), any(), eq(BookingStatus.cancelled)))
+            .thenReturn(BookingTransition.conflict(BookingStatus.cancelled));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> bookingService.cancelBooking("B1", "S1"));
+        assertEquals("Booking is already cancelled", ex.getMessage());
+        verify(bookingSlotService, never()).release(any());
     }
 
     // ---------------- GET BOOKINGS ----------------
@@ -155,13 +363,137 @@ class BookingServiceImplTest {
 
     @Test
     void testGetBookingsForTutor() {
-        when(bookingRepository.findByTutorIdAndDate(any(), any())).thenReturn(List.of(booking));
+        when(bookingRepository.findByTutorIdAndStartAtRange(any(), any(), any())).thenReturn(List.of(booking));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         List<BookingDTO> result = bookingService.getBookingsForTutor("T1", "2025-11-02");
         assertEquals(1, result.size());
     }
 
+    @Test
+    void testGetBookingsForStudentPage_returnsCursorWhenMoreRowsExist() {
+        Instant t = Instant.parse("2025-11-03T02:00:00Z");
+        String id1 = new ObjectId().toHexString();
+        String id2 = new ObjectId().toHexString();
+        Booking b1 = Booking.builder().id(id1).studentId("S1").tutorId("T1").startAt(t).build();
+        Booking b2 = Booking.builder().id(id2).studentId("S1").tutorId("T1").startAt(t.plusSeconds(3600)).build();
+        when(bookingRepository.findByStudentIdAfter(eq("S1"), any(), any(), any())).thenReturn(List.of(b1, b2));
+        when(userDisplayCache.getAll(any())).thenReturn(Map.of("T1", new UserDisplayCache.UserDisplay("T1", "Tutor One", null)));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
+
+        BookingPage page = bookingService.getBookingsForStudentPage("S1", null, 1);
+
+        assertEquals(1, page.getItems().size());
+        assertEquals("Tutor One", page.getItems().get(0).getTutorName());
+        BookingCursor next = BookingCursor.decode(page.getNextCursor());
+        assertEquals(t, next.startAt());
+        assertEquals(id1, next.id().toHexString());
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingRepository).findByStudentIdAfter(eq("S1"), any(), any(), pageable.capture());
+        assertEquals(2, pageable.getValue().getPageSize()); // limit + 1 probe row
+    }
+
+    @Test
+    void testGetBookingsForTutorBetweenDatesPage_resumesFromCursorAndCapsLimit() {
+        Instant t = Instant.parse("2025-11-03T02:00:00Z");
+        ObjectId id = new ObjectId();
+        String cursor = new BookingCursor(t, id).encode();
+        when(bookingRepository.findByTutorIdAndStartAtRangeAfter(eq("T1"), any(), any(), any(), any(), any()))
+                .thenReturn(Collections.emptyList());
+
+        BookingPage page = bookingService.getBookingsForTutorBetweenDatesPage("T1", "2025-11-01", "2025-11-30", cursor, 10_000);
+
+        assertTrue(page.getItems().isEmpty());
+        assertNull(page.getNextCursor());
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingRepository).findByTutorIdAndStartAtRangeAfter(eq("T1"), any(), any(), eq(t), eq(id), pageable.capture());
+        assertEquals(101, pageable.getValue().getPageSize());
+    }
+
+    @Test
+    void testGetBookingsForStudentPage_invalidCursor() {
+        assertThrows(RuntimeException.class, () -> bookingService.getBookingsForStudentPage("S1", "%%%", 10));
+    }
+
+    @Test
+    void testGetUpcomingBookings_countComesFromStats() {
+        Booking b = Booking.builder().id("B1").build();
+        BookingStats stats = BookingStats.empty("T1");
+        stats.setUpcoming(250);
+        when(bookingRepository.findTop(any(), any(), eq(5))).thenReturn(List.of(b));
+        when(bookingStatsService.get("T1")).thenReturn(stats);
+        when(bookingMapper.toDto(b)).thenReturn(bookingDTO);
+
+        RecentBookingResponse response = bookingService.getUpcomingBookings("T1");
+
+        assertEquals(1, response.getRecentSessions().size());
+        assertEquals(250, response.getTotalCount());
+        verify(bookingRepository, times(1)).findTop(any(), eq(Sort.by(Sort.Direction.ASC, "startAt")), eq(5));
+    }
+
+    @Test
+    void testGetRecentPastBookings_countComesFromStats() {
+        BookingStats stats = BookingStats.empty("T1");
+        stats.setCompleted(7);
+        when(bookingRepository.findTop(any(), any(), eq(5))).thenReturn(List.of());
+        when(bookingStatsService.get("T1")).thenReturn(stats);
+
+        RecentBookingResponse response = bookingService.getRecentPastBookings("T1");
+
+        assertTrue(response.getRecentSessions().isEmpty());
+        assertEquals(7, response.getTotalCount());
+        verify(bookingRepository).findTop(any(), eq(Sort.by(Sort.Direction.DESC, "startAt")), eq(5));
+    }
+
+    @Test
+    void testGetPastSessionsForStudent_countsFromStatsAndReturnsTheWholeList() {
+        Booking past = Booking.builder().id("P1").tutorId("T1").studentId("S1").status("completed").build();
+        BookingStats stats = BookingStats.empty("S1");
+        stats.setCompleted(240);
+        when(bookingRepository.findByStudentIdAndStatusBefore(eq("S1"), anyCollection(), any(), any(), any(Sort.class)))
+            .thenReturn(List.of(past));
+        when(bookingStatsService.get("S1")).thenReturn(stats);
+        when(userDisplayCache.getAll(any())).thenReturn(Map.of("T1", new UserDisplayCache.UserDisplay("T1", "Tutor", null)));
+        when(bookingMapper.toDto(past)).thenReturn(new BookingDTO());
+
+        RecentBookingResponse response = bookingService.getPastSessionsForStudent("S1");
+
+        assertEquals(240, response.getTotalCount());
+        assertEquals("Tutor", response.getRecentSessions().get(0).getTutorName());
+        assertNull(response.getNextCursor());
+        verify(bookingRepository, never()).findTop(any(), any(), anyInt());
+    }
+
+    @Test
+    void testGetPastSessionsForStudentPage_pagesNewestFirstWithACursor() {
+        Instant start = Instant.parse("2030-01-05T02:00:00Z");
+        Booking first = Booking.builder().id("650000000000000000000002").tutorId("T1").studentId("S1")
+            .status("completed").startAt(start).build();
+        Booking second = Booking.builder().id("650000000000000000000001").tutorId("T1").studentId("S1")
+            .status("completed").startAt(start.minusSeconds(3600)).build();
+        when(bookingRepository.findByStudentIdAndStatusBefore(eq("S1"), anyCollection(), any(), any(), any(Pageable.class)))
+            .thenReturn(List.of(first, second));
+        when(bookingStatsService.get("S1")).thenReturn(BookingStats.empty("S1"));
+        when(userDisplayCache.getAll(any())).thenReturn(Map.of());
+        when(bookingMapper.toDto(any())).thenReturn(new BookingDTO());
+
+        RecentBookingResponse page = bookingService.getPastSessionsForStudentPage("S1", null, 1);
+
+        assertEquals(1, page.getRecentSessions().size());
+        BookingCursor next = BookingCursor.decode(page.getNextCursor());
+        assertEquals(start, next.startAt());
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(bookingRepository).findByStudentIdAndStatusBefore(eq("S1"), anyCollection(), any(), any(), pageable.capture());
+        assertEquals(2, pageable.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "startAt", "id"), pageable.getValue().getSort());
+
+        // The next page continues strictly before the last booking shown
+        bookingService.getPastSessionsForStudentPage("S1", page.getNextCursor(), 1);
+        verify(bookingRepository).findByStudentIdAndStatusBefore(eq("S1"), anyCollection(), eq(start),
+            eq(new ObjectId("650000000000000000000002")), any(Pageable.class));
+    }
+
     // ---------------- RESCHEDULE ----------------
 
     @Test
@@ -173,13 +505,32 @@ class BookingServiceImplTest {
         Booking current = Booking.builder().id("B1").status("confirmed").tutorId("T1").build();
 
         when(bookingRepository.findById("B1")).thenReturn(Optional.of(current));
-        when(bookingRepository.findByTutorIdAndDate(any(), any())).thenReturn(List.of());
+        when(bookingRepository.transition("B1", EnumSet.of(BookingStatus.confirmed), BookingStatus.reschedule_requested))
+            .thenReturn(BookingTransition.applied(current, BookingStatus.confirmed));
         when(bookingMapper.toEntity(any())).thenReturn(booking);
         when(bookingRepository.save(any())).thenReturn(booking);
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.requestReschedule("B1", newSlot);
         assertEquals("B1", result.getId());
+        verify(bookingRepository, times(1)).save(booking);
+    }
+
+    @Test
+    void testRequestReschedule_LostRaceReleasesNewSlots() {
+        BookingRequest newSlot = BookingRequest.builder()
+            .tutorId("T1").studentId("S1").start("12:00").end("13:00").date(LocalDate.now().toString())
+            .lessonType("Math").build();
+        Booking current = Booking.builder().id("B1").status("confirmed").tutorId("T1").build();
+
+        when(bookingRepository.findById("B1")).thenReturn(Optional.of(current));
+        when(bookingRepository.transition(eq("B1"), any(), eq(BookingStatus.reschedule_requested)))
+            .thenReturn(BookingTransition.conflict(BookingStatus.cancelled));
+        when(bookingMapper.toEntity(any())).thenReturn(booking);
+
+        assertThrows(RuntimeException.class, () -> bookingService.requestReschedule("B1", newSlot));
+        verify(bookingSlotService).release(booking.getId());
+        verify(bookingRepository, never()).save(any());
     }
 
     @Test
@@ -189,55 +540,110 @@ class BookingServiceImplTest {
             .lessonType("Math").build();
 
         Booking current = Booking.builder().id("B1").status("confirmed").build();
-        Booking overlap = Booking.builder().status("confirmed").start("08:30").end("09:30").build();
-
         when(bookingRepository.findById("B1")).thenReturn(Optional.of(current));
-        when(bookingRepository.findByTutorIdAndDate(any(), any())).thenReturn(List.of(overlap));
+        when(intervalIndex.hasOverlap(eq("T1"), any(), eq("09:00"), eq("10:00"))).thenReturn(true);
 
         assertThrows(RuntimeException.class, () -> bookingService.requestReschedule("B1", newSlot));
     }
 
     @Test
     void testApproveReschedule_Success() {
-        Booking newBooking = Booking.builder().id("NB").originalBookingId("OB").build();
-        Booking oldBooking = Booking.builder().id("OB").status("confirmed").build();
+        Booking newBooking = Booking.builder().id("NB").status("confirmed").originalBookingId("OB").build();
+        Booking oldBooking = Booking.builder().id("OB").status("cancelled").build();
 
-        when(bookingRepository.findById("NB")).thenReturn(Optional.of(newBooking));
-        when(bookingRepository.findById("OB")).thenReturn(Optional.of(oldBooking));
-        when(bookingRepository.save(any())).thenReturn(newBooking);
+        when(bookingRepository.transition("NB", EnumSet.of(BookingStatus.on_hold), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(newBooking, BookingStatus.on_hold));
+        when(bookingRepository.transition("OB", EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(oldBooking, BookingStatus.reschedule_requested));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.approveReschedule("NB");
         assertEquals("B1", result.getId());
+        verify(intervalIndex).record(oldBooking);
+        verify(bookingSlotService).transfer(eq("OB"), eq("NB"), any());
+        verify(bookingRepository, never()).findById(any());
+        verify(outboxService).append(argThat(e -> "NB".equals(e.getAggregateId())
+                && BookingEvent.Type.reschedule_approved.name().equals(e.getEventType())));
+    }
+
+    @Test
+    void testApproveReschedule_originalMovedOnCancelsTheNewBooking() {
+        Booking newBooking = Booking.builder().id("NB").status("confirmed").originalBookingId("OB").build();
+        Booking undone = Booking.builder().id("NB").status("cancelled").originalBookingId("OB").build();
+
+        when(bookingRepository.transition("NB", EnumSet.of(BookingStatus.on_hold), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(newBooking, BookingStatus.on_hold));
+        when(bookingRepository.transition("OB", EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.conflict(BookingStatus.cancelled));
+        when(bookingRepository.transition("NB", EnumSet.of(BookingStatus.confirmed), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(undone, BookingStatus.confirmed));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> bookingService.approveReschedule("NB"));
+        assertEquals("Original booking is already cancelled", ex.getMessage());
+        verify(intervalIndex).record(undone);
+        verify(bookingSlotService).release("NB");
+        verify(bookingSlotService, never()).transfer(any(), any(), any());
+        verify(outboxService, never()).append(any());
+    }
+
+    @Test
+    void testApproveReschedule_NotOnHold() {
+        when(bookingRepository.transition(eq("NB"), any(), eq(BookingStatus.confirmed)))
+            .thenReturn(BookingTransition.conflict(BookingStatus.cancelled));
+
+        assertThrows(RuntimeException.class, () -> bookingService.approveReschedule("NB"));
+        verify(bookingSlotService, never()).transfer(any(), any(), any());
     }
 
     @Test
     void testRejectReschedule_Success() {
         Booking newBooking = Booking.builder()
-            .id("NB").status("on_hold").originalBookingId("OB")
+            .id("NB").status("cancelled").originalBookingId("OB")
             .tutorId("T1").studentId("S1")
             .lessonType("Math").tutorName("Tutor").studentName("Student").date("2025-11-02").build();
 
         Booking original = Booking.builder().id("OB").status("confirmed").build();
 
-        when(bookingRepository.findById("NB")).thenReturn(Optional.of(newBooking));
-        when(bookingRepository.findById("OB")).thenReturn(Optional.of(original));
+        when(bookingRepository.transition("NB", EnumSet.of(BookingStatus.on_hold), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(newBooking, BookingStatus.on_hold));
+        when(bookingRepository.transition("OB", EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(original, BookingStatus.reschedule_requested));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.rejectReschedule("NB");
         assertNotNull(result);
-        verify(notificationService, atLeastOnce()).createNotification(any(), any(), any(), any());
+        verify(notificationService).createNotifications(argThat(list -> list.size() == 2
+                && list.get(0).getUserId().equals("S1") && list.get(1).getUserId().equals("T1")));
+    }
+
+    @Test
+    void testRejectReschedule_notificationFailureDoesNotFailTheRejection() {
+        Booking newBooking = Booking.builder()
+            .id("NB").status("cancelled").originalBookingId("OB").tutorId("T1").studentId("S1").build();
+        Booking original = Booking.builder().id("OB").status("confirmed").build();
+
+        when(bookingRepository.transition("NB", EnumSet.of(BookingStatus.on_hold), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(newBooking, BookingStatus.on_hold));
+        when(bookingRepository.transition("OB", EnumSet.of(BookingStatus.reschedule_requested), BookingStatus.confirmed))
+            .thenReturn(BookingTransition.applied(original, BookingStatus.reschedule_requested));
+        when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
+        doThrow(new RuntimeException("mongo down")).when(notificationService).createNotifications(any());
+
+        assertNotNull(bookingService.rejectReschedule("NB"));
+        verify(bookingSlotService).release("NB");
     }
 
     // ---------------- DELETE ----------------
 
     @Test
     void testDeleteBooking_Success() {
-        when(bookingRepository.findById("B1")).thenReturn(Optional.of(booking));
+        when(bookingRepository.transition("B1", BookingStatus.sourcesOf(BookingStatus.cancelled), BookingStatus.cancelled))
+            .thenReturn(BookingTransition.applied(booking, BookingStatus.confirmed));
         when(bookingMapper.toDto(any())).thenReturn(bookingDTO);
 
         BookingDTO result = bookingService.deleteBooking("B1");
         assertEquals("B1", result.getId());
-        verify(bookingRepository).save(any(Booking.class));
+        verify(bookingSlotService).release("B1");
+        verify(bookingRepository, never()).save(any());
     }
 }
@@ -0,0 +1,103 @@
+package com.csy.springbootauthbe.booking.service;
+
+import com.csy.springbootauthbe.booking.entity.BookingSlot;
+import com.csy.springbootauthbe.config.EmbeddedMongo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Slot claims racing on a real mongod, where the unique _id decides the winner. */
+class BookingSlotServiceMongoTest {
+
+    private MongoTemplate mongoTemplate;
+    private BookingSlotService slotService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = EmbeddedMongo.template("booking_slots_test");
+        slotService = new BookingSlotService(mongoTemplate, 15);
+    }
+
+    @Test
+    void testClaim_hundredsOfParallelRequestsOnOneSlot() throws InterruptedException {
+        int requests = 300;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(requests);
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger losers = new AtomicInteger();
+
+        for (int i = 0; i < requests; i++) {
+            String bookingId = "B" + i;
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    slotService.claim(bookingId, "T1", "2025-11-02", "10:00", "11:00");
+                    winners.incrementAndGet();
+                } catch (RuntimeException e) {
+                    losers.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        List<BookingSlot> slots = mongoTemplate.findAll(BookingSlot.class);
+        assertEquals(1, winners.get());
+        assertEquals(requests - 1, losers.get());
+        assertEquals(4, slots.size());
+        assertEquals(1, slots.stream().map(BookingSlot::getBookingId).distinct().count());
+    }
+
+    @Test
+    void testClaimAll_overlappingSeriesRaceForTheSameWeek() throws InterruptedException {
+        // Both series want 10:00 on the 10th; only one of them may get any of its slots
+        Map<String, Set<String>> first = Map.of(
+                "A1", slotService.slotKeys("T1", "2025-11-03", "10:00", "10:30"),
+                "A2", slotService.slotKeys("T1", "2025-11-10", "10:00", "10:30"));
+        Map<String, Set<String>> second = Map.of(
+                "C1", slotService.slotKeys("T1", "2025-11-10", "10:00", "10:30"),
+                "C2", slotService.slotKeys("T1", "2025-11-17", "10:00", "10:30"));
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger winners = new AtomicInteger();
+        for (Map<String, Set<String>> series : List.of(first, second)) {
+            pool.submit(() -> {
+                try {
+                    start.await();
+                    slotService.claimAll("T1", series);
+                    winners.incrementAndGet();
+                } catch (RuntimeException e) {
+                    // lost the race
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(1, winners.get());
+        List<BookingSlot> slots = mongoTemplate.find(new Query(), BookingSlot.class);
+        assertEquals(4, slots.size());
+        assertEquals(1, slots.stream().map(s -> s.getBookingId().charAt(0)).distinct().count());
+    }
+}
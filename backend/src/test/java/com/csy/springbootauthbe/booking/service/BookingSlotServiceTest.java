@@ -0,0 +1,120 @@
+package com.csy.springbootauthbe.booking.service;
+
+import com.csy.springbootauthbe.booking.entity.BookingSlot;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingSlotServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private BookingSlotService slotService;
+
+    /** Stands in for the booking_slots collection and its unique _id index. */
+    private final Map<String, BookingSlot> collection = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        slotService = new BookingSlotService(mongoTemplate, 15);
+
+        doAnswer(inv -> {
+            for (BookingSlot slot : (Collection<BookingSlot>) inv.getArgument(0)) {
+                if (collection.putIfAbsent(slot.getId(), slot) != null) {
+                    throw new DuplicateKeyException("E11000 duplicate key " + slot.getId());
+                }
+            }
+            return inv.getArgument(0);
+        }).when(mongoTemplate).insert(anyCollection(), eq(BookingSlot.class));
+
+        doAnswer(inv -> {
+            Object filter = ((Query) inv.getArgument(0)).getQueryObject().get("bookingId");
+            Collection<?> bookingIds = filter instanceof Document in ? (Collection<?>) in.get("$in") : List.of(filter);
+            collection.values().removeIf(s -> bookingIds.contains(s.getBookingId()));
+            return null;
+        }).when(mongoTemplate).remove(any(Query.class), eq(BookingSlot.class));
+    }
+
+    @Test
+    void testSlotKeys_quantizesStart() {
+        Set<String> keys = slotService.slotKeys("T1", "2025-11-02", "10:05", "11:00");
+        assertEquals(List.of("T1|2025-11-02|10:00", "T1|2025-11-02|10:15",
+                "T1|2025-11-02|10:30", "T1|2025-11-02|10:45"), List.copyOf(keys));
+    }
+
+    @Test
+    void testRequireAligned_refusesTimesOffTheSlotGrid() {
+        assertDoesNotThrow(() -> slotService.requireAligned("10:00", "10:45"));
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> slotService.requireAligned("10:00", "10:50"));
+        assertEquals("Bookings must start and end on a 15-minute boundary.", ex.getMessage());
+        assertThrows(RuntimeException.class, () -> slotService.requireAligned("10:50", "11:45"));
+    }
+
+    @Test
+    void testClaim_adjacentBookingsShareNoSlot() {
+        slotService.claim("B1", "T1", "2025-11-02", "10:00", "10:45");
+
+        assertDoesNotThrow(() -> slotService.claim("B2", "T1", "2025-11-02", "10:45", "11:30"));
+    }
+
+    @Test
+    void testClaim_conflictRollsBackPartialClaim() {
+        slotService.claim("B1", "T1", "2025-11-02", "10:30", "11:00");
+
+        assertThrows(RuntimeException.class,
+                () -> slotService.claim("B2", "T1", "2025-11-02", "10:00", "11:00"));
+        assertTrue(collection.values().stream().allMatch(s -> s.getBookingId().equals("B1")));
+        assertEquals(2, collection.size());
+    }
+
+    @Test
+    void testClaimAll_takesEverySeriesSlotInOneInsert() {
+        Map<String, Set<String>> keys = Map.of(
+                "B1", slotService.slotKeys("T1", "2025-11-03", "10:00", "10:30"),
+                "B2", slotService.slotKeys("T1", "2025-11-10", "10:00", "10:30"));
+
+        slotService.claimAll("T1", keys);
+
+        verify(mongoTemplate, times(1)).insert(anyCollection(), eq(BookingSlot.class));
+        assertEquals(4, collection.size());
+        assertEquals("2025-11-10", collection.get("T1|2025-11-10|10:15").getDate());
+        assertEquals("10:15", collection.get("T1|2025-11-10|10:15").getSlotStart());
+    }
+
+    @Test
+    void testClaimAll_conflictRollsBackTheWholeSeries() {
+        slotService.claim("X", "T1", "2025-11-10", "10:15", "10:30");
+        Map<String, Set<String>> keys = Map.of(
+                "B1", slotService.slotKeys("T1", "2025-11-03", "10:00", "10:30"),
+                "B2", slotService.slotKeys("T1", "2025-11-10", "10:00", "10:30"));
+
+        assertThrows(RuntimeException.class, () -> slotService.claimAll("T1", keys));
+        assertEquals(1, collection.size());
+        assertEquals("X", collection.get("T1|2025-11-10|10:15").getBookingId());
+    }
+
+    @Test
+    void testRelease_freesSlotsForNextClaim() {
+        slotService.claim("B1", "T1", "2025-11-02", "10:00", "11:00");
+        slotService.release("B1");
+
+        assertDoesNotThrow(() -> slotService.claim("B2", "T1", "2025-11-02", "10:00", "11:00"));
+    }
+}
@@ -0,0 +1,198 @@
+package com.csy.springbootauthbe.booking.stats;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.entity.BookingStatus;
+import com.csy.springbootauthbe.common.money.Money;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingStatsServiceTest {
+
+    private static final Instant TODAY = Instant.parse("2030-01-10T00:00:00Z");
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private BulkOperations bulk;
+
+    private BookingStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, BookingStats.class)).thenReturn(bulk);
+        service = new BookingStatsService(mongoTemplate);
+    }
+
+    private static Booking booking(String status, Instant startAt) {
+        return Booking.builder().id("B1").tutorId("T1").studentId("S1").status(status)
+                .startAt(startAt).amount(Money.of(new BigDecimal("50.00"))).build();
+    }
+
+    @Test
+    void testContribution_dependsOnStatusAndDay() {
+        Instant future = TODAY.plus(2, ChronoUnit.DAYS);
+        Instant past = TODAY.minus(2, ChronoUnit.DAYS);
+
+        assertEquals(new BookingStatsService.Delta(1, 0, 0, 0),
+                BookingStatsService.contribution(booking("pending", future), BookingStatus.pending, TODAY));
+        assertEquals(new BookingStatsService.Delta(1, 0, 0, 5000),
+                BookingStatsService.contribution(booking("confirmed", future), BookingStatus.confirmed, TODAY));
+        assertEquals(new BookingStatsService.Delta(0, 1, 0, 5000),
+                BookingStatsService.contribution(booking("completed", past), BookingStatus.completed, TODAY));
+        assertEquals(new BookingStatsService.Delta(0, 0, 1, 0),
+                BookingStatsService.contribution(booking("cancelled", future), BookingStatus.cancelled, TODAY));
+        assertTrue(BookingStatsService.contribution(booking("reschedule_requested", future),
+                BookingStatus.reschedule_requested, TODAY).isZero());
+    }
+
+    @Test
+    void testGet_missingDocumentIsAllZero() {
+        when(mongoTemplate.findById("T1", BookingStats.class)).thenReturn(null);
+
+        BookingStats stats = service.get("T1");
+
+        assertEquals("T1", stats.getUserId());
+        assertEquals(0, stats.getUpcoming());
+        assertEquals(Money.ZERO, stats.getEarned());
+    }
+
+    @Test
+    void testRecordCreated_oneIncPerUserInOneBulk() {
+        Instant future = Instant.now().plus(30, ChronoUnit.DAYS);
+
+        service.recordCreated(List.of(booking("pending", future), booking("pending", future)));
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).upsert(any(Query.class), update.capture());
+        verify(bulk, times(1)).execute();
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(2L, inc.get("upcoming"));
+        assertEquals(0L, inc.get("cancelled"));
+    }
+
+    @Test
+    void testRecordTransition_movesUpcomingToCancelled() {
+        Booking cancelled = booking("cancelled", Instant.now().plus(30, ChronoUnit.DAYS));
+
+        service.recordTransition(cancelled, BookingStatus.confirmed);
+
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).upsert(any(Query.class), update.capture());
+        Document inc = update.getValue().getUpdateObject().get("$inc", Document.class);
+        assertEquals(-1L, inc.get("upcoming"));
+        assertEquals(1L, inc.get("cancelled"));
+        assertEquals(-5000L, inc.get("earned.minor"));
+    }
+
+    @Test
+    void testRecordTransition_noChangeWritesNothing() {
+        Booking onHold = booking("on_hold", Instant.now().plus(30, ChronoUnit.DAYS));
+
+        service.recordTransition(onHold, BookingStatus.pending);
+
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(BookingStats.class));
+    }
+
+    @Test
+    void testRecordCreated_writeFailureDoesNotPropagate() {
+        when(bulk.execute()).thenThrow(new RuntimeException("mongo down"));
+
+        assertDoesNotThrow(() -> service.recordCreated(List.of(booking("pending", Instant.now().plus(1, ChronoUnit.DAYS)))));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReconcile_mergesBothSidesAndOverwrites() {
+        AggregationResults<Document> tutors = mock(AggregationResults.class);
+        AggregationResults<Document> students = mock(AggregationResults.class);
+        when(tutors.iterator()).thenReturn(List.of(new Document("_id", "T1").append("upcoming", 3)
+                .append("completed", 5).append("cancelled", 1).append("earned", 40000L)).iterator());
+        when(students.iterator()).thenReturn(List.of(new Document("_id", "S1").append("upcoming", 1)
+                .append("completed", 0).append("cancelled", 0).append("earned", 0L)).iterator());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Booking.class), eq(Document.class)))
+                .thenReturn(tutors, students);
+
+        int written = service.reconcile();
+
+        assertEquals(2, written);
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(Booking.class), eq(Document.class));
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(2)).upsert(query.capture(), update.capture());
+        verify(bulk).execute();
+        int t1 = query.getAllValues().get(0).getQueryObject().get("_id").equals("T1") ? 0 : 1;
+        Document set = update.getAllValues().get(t1).getUpdateObject().get("$set", Document.class);
+        assertEquals(3L, set.get("upcoming"));
+        assertEquals(5L, set.get("completed"));
+        assertEquals(Money.ofMinor(40000), set.get("earned"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void aggregatesTo(Document... rows) {
+        AggregationResults<Document> results = mock(AggregationResults.class);
+        when(results.iterator()).thenAnswer(inv -> List.of(rows).iterator());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Booking.class), eq(Document.class))).thenReturn(results);
+    }
+
+    @Test
+    void testReconcileChanges_firstPassRecountsEveryoneAndCheckpoints() {
+        aggregatesTo(new Document("_id", "T1").append("upcoming", 1));
+
+        service.reconcileChanges(() -> true);
+
+        verify(mongoTemplate, never()).findDistinct(any(Query.class), anyString(), eq(Booking.class), eq(String.class));
+        ArgumentCaptor<Update> checkpoint = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(any(Query.class), checkpoint.capture(), eq(BookingStatsCheckpoint.class));
+        assertNotNull(checkpoint.getValue().getUpdateObject().get("$set", Document.class).get("reconciledAt"));
+    }
+
+    @Test
+    void testReconcileChanges_recountsOnlyUsersWithChangedBookings() {
+        when(mongoTemplate.findById(BookingStatsService.CHECKPOINT, BookingStatsCheckpoint.class)).thenReturn(
+                BookingStatsCheckpoint.builder().name(BookingStatsService.CHECKPOINT)
+                        .reconciledAt(Instant.now().minus(1, ChronoUnit.HOURS)).build());
+        when(mongoTemplate.findDistinct(any(Query.class), eq("tutorId"), eq(Booking.class), eq(String.class)))
+                .thenReturn(List.of("T1"));
+        when(mongoTemplate.findDistinct(any(Query.class), eq("studentId"), eq(Booking.class), eq(String.class)))
+                .thenReturn(List.of("S1"));
+        aggregatesTo(new Document("_id", "T1").append("upcoming", 1));
+
+        service.reconcileChanges(() -> true);
+
+        ArgumentCaptor<Aggregation> aggregation = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate, times(2)).aggregate(aggregation.capture(), eq(Booking.class), eq(Document.class));
+        Document match = aggregation.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        assertEquals(List.of("T1", "S1"), match.get("studentId", Document.class).get("$in"));
+    }
+
+    @Test
+    void testReconcileChanges_lostLeaseKeepsTheCheckpoint() {
+        when(mongoTemplate.findById(BookingStatsService.CHECKPOINT, BookingStatsCheckpoint.class)).thenReturn(
+                BookingStatsCheckpoint.builder().name(BookingStatsService.CHECKPOINT)
+                        .reconciledAt(Instant.now().minus(1, ChronoUnit.HOURS)).build());
+        when(mongoTemplate.findDistinct(any(Query.class), eq("tutorId"), eq(Booking.class), eq(String.class)))
+                .thenReturn(List.of("T1"));
+        aggregatesTo(new Document("_id", "T1").append("upcoming", 1));
+
+        assertThrows(RuntimeException.class, () -> service.reconcileChanges(() -> false));
+
+        verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(BookingStatsCheckpoint.class));
+    }
+}
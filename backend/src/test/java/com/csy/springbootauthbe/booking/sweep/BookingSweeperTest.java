@@ -0,0 +1,239 @@
+package com.csy.springbootauthbe.booking.sweep;
+
+import com.csy.springbootauthbe.booking.cache.BookingIntervalIndex;
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.booking.repository.BookingTransition;
+import com.csy.springbootauthbe.booking.service.BookingSlotService;
+import com.csy.springbootauthbe.booking.stats.BookingStatsService;
+import com.csy.springbootauthbe.booking.utils.BookingTimes;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.service.WalletService;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BookingSweeperTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private WalletService walletService;
+    @Mock private BookingSlotService bookingSlotService;
+    @Mock private BookingStatsService bookingStatsService;
+    @Mock private BookingIntervalIndex intervalIndex;
+    @Mock private FreeSlotCalendar freeSlotCalendar;
+
+    private BookingSweeper sweeper;
+
+    /** Stands in for the bookings collection. */
+    private final Map<String, Booking> collection = new LinkedHashMap<>();
+    private final List<Object[]> pendingUpdates = new ArrayList<>();
+    private final List<String> checkpoints = new ArrayList<>();
+    private int bulkWrites;
+    /** Called before a bulk write is applied, lets a test change a booking under the sweeper. */
+    private Runnable beforeBulk = () -> { };
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        sweeper = new BookingSweeper(mongoTemplate, walletService, bookingSlotService, bookingStatsService,
+                intervalIndex, freeSlotCalendar, 2, 7);
+
+        when(mongoTemplate.find(any(Query.class), eq(Booking.class))).thenAnswer(inv -> {
+            Query query = inv.getArgument(0);
+            List<Booking> found = collection.values().stream()
+                    .filter(matches(query.getQueryObject()))
+                    .sorted(Comparator.comparing(Booking::getStartAt))
+                    .map(BookingSweeperTest::copy)
+                    .toList();
+            return query.getLimit() > 0 ? found.stream().limit(query.getLimit()).toList() : found;
+        });
+        when(mongoTemplate.findOne(any(Query.class), eq(Booking.class))).thenAnswer(inv -> collection.values().stream()
+                .filter(matches(((Query) inv.getArgument(0)).getQueryObject()))
+                .min(Comparator.comparing(Booking::getStartAt))
+                .map(BookingSweeperTest::copy)
+                .orElse(null));
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(BookingSweepCheckpoint.class))).thenAnswer(inv -> {
+            checkpoints.add(((Update) inv.getArgument(1)).getUpdateObject().get("$set", Document.class).getString("sweptThrough"));
+            return null;
+        });
+
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Booking.class)).thenReturn(bulk);
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(inv -> {
+            pendingUpdates.add(new Object[]{inv.getArgument(0), inv.getArgument(1)});
+            return bulk;
+        });
+        when(bulk.execute()).thenAnswer(inv -> {
+            beforeBulk.run();
+            bulkWrites++;
+            int modified = 0;
+            for (Object[] op : pendingUpdates) {
+                Document filter = ((Query) op[0]).getQueryObject();
+                Document set = ((Update) op[1]).getUpdateObject().get("$set", Document.class);
+                Booking stored = collection.get(filter.getString("id"));
+                if (stored != null && stored.getStatus().equals(filter.getString("status"))) {
+                    stored.setStatus(set.getString("status"));
+                    stored.setUpdatedAt((LocalDateTime) set.get("updatedAt"));
+                    modified++;
+                }
+            }
+            pendingUpdates.clear();
+            BulkWriteResult result = mock(BulkWriteResult.class);
+            when(result.getModifiedCount()).thenReturn(modified);
+            return result;
+        });
+    }
+
+    /** Enough of the Mongo filter language for the sweeper's queries. */
+    private static Predicate<Booking> matches(Document filter) {
+        return b -> {
+            for (Map.Entry<String, Object> e : filter.entrySet()) {
+                Object value = switch (e.getKey()) {
+                    case "id" -> b.getId();
+                    case "status" -> b.getStatus();
+                    case "startAt" -> b.getStartAt();
+                    case "updatedAt" -> b.getUpdatedAt();
+                    default -> null;
+                };
+                if (e.getKey().startsWith("$")) continue; // every test lesson has already ended
+                if (e.getValue() instanceof Document op) {
+                    if (op.containsKey("$in") && !((Collection<?>) op.get("$in")).contains(value)) return false;
+                    if (op.containsKey("$gte") && ((Instant) value).isBefore((Instant) op.get("$gte"))) return false;
+                    if (op.containsKey("$lt") && !((Instant) value).isBefore((Instant) op.get("$lt"))) return false;
+                } else if (!Objects.equals(e.getValue(), value)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static Booking copy(Booking b) {
+        return Booking.builder().id(b.getId()).tutorId(b.getTutorId()).studentId(b.getStudentId())
+                .status(b.getStatus()).startAt(b.getStartAt()).endAt(b.getEndAt()).amount(b.getAmount())
+                .originalBookingId(b.getOriginalBookingId()).updatedAt(b.getUpdatedAt()).build();
+    }
+
+    private void store(String id, String status, Instant startAt) {
+        collection.put(id, Booking.builder().id(id).tutorId("T1").studentId("S1").status(status)
+                .startAt(startAt).endAt(startAt.plus(1, ChronoUnit.HOURS)).amount(Money.of(new BigDecimal("40.00"))).build());
+    }
+
+    private static Instant daysAgo(int days) {
+        return Instant.now().minus(days, ChronoUnit.DAYS);
+    }
+
+    @Test
+    void testSweep_completesPastConfirmedInBulkBatches() {
+        store("B1", "confirmed", daysAgo(2));
+        store("B2", "confirmed", daysAgo(2).plus(2, ChronoUnit.HOURS));
+        store("B3", "confirmed", daysAgo(2).plus(4, ChronoUnit.HOURS));
+        store("F1", "confirmed", Instant.now().plus(3, ChronoUnit.DAYS));
+
+        BookingSweeper.SweepResult result = sweeper.sweep();
+
+        assertEquals(3, result.completed());
+        assertEquals("completed", collection.get("B3").getStatus());
+        assertEquals("confirmed", collection.get("F1").getStatus());
+        // Batch size 2: two bulk writes for three bookings, never one save per booking
+        assertEquals(2, bulkWrites);
+        verify(mongoTemplate, never()).save(any(Booking.class));
+        verify(walletService, never()).refundStudent(any(), any(), any());
+        verify(bookingStatsService, times(2)).recordTransitions(anyCollection());
+    }
+
+    @Test
+    void testSweep_expiresStalePendingWithRefund() {
+        store("P1", "pending", daysAgo(1));
+        store("P2", "pending", Instant.now().plus(1, ChronoUnit.DAYS));
+
+        BookingSweeper.SweepResult result = sweeper.sweep();
+
+        assertEquals(1, result.expired());
+        assertEquals("cancelled", collection.get("P1").getStatus());
+        assertEquals("pending", collection.get("P2").getStatus());
+        verify(walletService).refundStudent("S1", Money.ofMinor(4000), "P1");
+        verify(bookingSlotService).releaseAll(List.of("P1"));
+        assertEquals(1, sweeper.stats().refunded());
+    }
+
+    @Test
+    void testSweep_expiredRescheduleRestoresOriginalWithoutRefund() {
+        store("O1", "reschedule_requested", daysAgo(3));
+        store("N1", "on_hold", daysAgo(1));
+        collection.get("N1").setOriginalBookingId("O1");
+
+        sweeper.sweep();
+
+        assertEquals("cancelled", collection.get("N1").getStatus());
+        assertEquals("confirmed", collection.get("O1").getStatus());
+        verify(walletService, never()).refundStudent(any(), any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSweep_bookingMovedByUserIsNotRefundedTwice() {
+        store("P1", "pending", daysAgo(1));
+        store("P2", "pending", daysAgo(1).plus(2, ChronoUnit.HOURS));
+        // The tutor cancels P2 between the sweeper's read and its bulk write
+        beforeBulk = () -> {
+            Booking p2 = collection.get("P2");
+            if ("pending".equals(p2.getStatus())) {
+                p2.setStatus("cancelled");
+                p2.setUpdatedAt(LocalDateTime.now().minusSeconds(1));
+            }
+        };
+
+        BookingSweeper.SweepResult result = sweeper.sweep();
+
+        assertEquals(1, result.expired());
+        verify(walletService, times(1)).refundStudent(any(), any(), any());
+        verify(walletService).refundStudent("S1", Money.ofMinor(4000), "P1");
+        verify(bookingStatsService).recordTransitions(argThat(c -> ((Collection<BookingTransition>) c).size() == 1));
+    }
+
+    @Test
+    void testSweep_resumesFromCheckpointAndRecordsEveryDay() {
+        String swept = BookingTimes.today().minusDays(1).toString();
+        when(mongoTemplate.findById(BookingSweeper.COMPLETE_PASS, BookingSweepCheckpoint.class))
+                .thenReturn(BookingSweepCheckpoint.builder().name(BookingSweeper.COMPLETE_PASS).sweptThrough(swept).build());
+
+        sweeper.sweep();
+
+        // With a checkpoint the oldest-booking probe is skipped for that pass; lookback covers 7 days plus today
+        assertEquals(8, checkpoints.size());
+        assertEquals(BookingTimes.today().toString(), checkpoints.get(checkpoints.size() - 1));
+        verify(mongoTemplate, times(1)).findOne(any(Query.class), eq(Booking.class));
+    }
+
+    @Test
+    void testSweep_lostLeaseStopsAfterTheCheckpointedDay() {
+        store("B1", "confirmed", daysAgo(2));
+        store("B2", "confirmed", daysAgo(1));
+
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> sweeper.sweep(() -> false));
+
+        assertTrue(ex.getMessage().contains("lost its lease"));
+        // The first day is done and checkpointed, the rest waits for the next run
+        assertEquals(1, checkpoints.size());
+        assertEquals("completed", collection.get("B1").getStatus());
+        assertEquals("confirmed", collection.get("B2").getStatus());
+    }
+}
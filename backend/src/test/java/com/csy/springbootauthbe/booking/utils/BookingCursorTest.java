@@ -0,0 +1,41 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingCursorTest {
+
+    @Test
+    void testEncodeDecode_roundTrip() {
+        ObjectId id = new ObjectId();
+        Booking booking = Booking.builder().id(id.toHexString()).startAt(Instant.parse("2025-11-03T02:00:00Z")).build();
+
+        BookingCursor cursor = BookingCursor.decode(BookingCursor.after(booking).encode());
+
+        assertEquals(booking.getStartAt(), cursor.startAt());
+        assertEquals(id, cursor.id());
+    }
+
+    @Test
+    void testEncode_isOpaqueAndUrlSafe() {
+        String token = new BookingCursor(Instant.parse("2025-11-03T02:00:00Z"), new ObjectId()).encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void testBefore_sortsAheadOfBookingsAtThatInstant() {
+        Instant from = Instant.parse("2025-11-03T00:00:00Z");
+        assertTrue(BookingCursor.before(from).startAt().isBefore(from));
+    }
+
+    @Test
+    void testDecode_rejectsGarbage() {
+        assertThrows(RuntimeException.class, () -> BookingCursor.decode("not-a-cursor"));
+        assertThrows(RuntimeException.class, () -> BookingCursor.decode("%%%"));
+    }
+}
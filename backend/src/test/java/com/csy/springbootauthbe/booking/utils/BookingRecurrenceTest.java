@@ -0,0 +1,55 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingRecurrenceTest {
+
+    private static final LocalDate MONDAY = LocalDate.of(2025, 11, 3);
+
+    @Test
+    void testExpand_weeklyUntilInclusive() {
+        List<LocalDate> dates = BookingRecurrence.expand(MONDAY, LocalDate.of(2025, 11, 17), null, 1, null);
+
+        assertEquals(List.of(MONDAY, MONDAY.plusWeeks(1), MONDAY.plusWeeks(2)), dates);
+    }
+
+    @Test
+    void testExpand_severalDaysByCountSkipsDaysBeforeStart() {
+        LocalDate wednesday = MONDAY.plusDays(2);
+        List<LocalDate> dates = BookingRecurrence.expand(wednesday, null, 3, 1,
+                List.of(DayOfWeek.FRIDAY, DayOfWeek.MONDAY));
+
+        assertEquals(List.of(MONDAY.plusDays(4), MONDAY.plusWeeks(1), MONDAY.plusWeeks(1).plusDays(4)), dates);
+    }
+
+    @Test
+    void testExpand_everyOtherWeek() {
+        List<LocalDate> dates = BookingRecurrence.expand(MONDAY, null, 3, 2, List.of(DayOfWeek.MONDAY));
+
+        assertEquals(List.of(MONDAY, MONDAY.plusWeeks(2), MONDAY.plusWeeks(4)), dates);
+    }
+
+    @Test
+    void testExpand_rejectsARuleWithoutAnyLesson() {
+        // Monday to Tuesday, but only on Fridays
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> BookingRecurrence.expand(
+                MONDAY, MONDAY.plusDays(1), null, 1, List.of(DayOfWeek.FRIDAY)));
+        assertEquals("Recurrence has no lesson between its start and end date", ex.getMessage());
+    }
+
+    @Test
+    void testExpand_rejectsOpenEndedAndOversizedRules() {
+        assertThrows(RuntimeException.class, () -> BookingRecurrence.expand(MONDAY, null, null, 1, null));
+        assertThrows(RuntimeException.class, () -> BookingRecurrence.expand(MONDAY, MONDAY.minusDays(1), null, 1, null));
+        assertThrows(RuntimeException.class, () -> BookingRecurrence.expand(MONDAY, null, 3, 0, null));
+        assertThrows(RuntimeException.class, () -> BookingRecurrence.expand(MONDAY, MONDAY.plusYears(2), null, 1, null));
+        assertEquals(BookingRecurrence.MAX_OCCURRENCES,
+                BookingRecurrence.expand(MONDAY, null, BookingRecurrence.MAX_OCCURRENCES, 1, null).size());
+    }
+}
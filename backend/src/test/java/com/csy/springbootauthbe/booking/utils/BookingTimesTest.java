@@ -0,0 +1,38 @@
+package com.csy.springbootauthbe.booking.utils;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingTimesTest {
+
+    @Test
+    void testToInstant_convertsSingaporeLocalTimeToUtc() {
+        assertEquals(Instant.parse("2025-11-03T02:00:00Z"), BookingTimes.toInstant("2025-11-03", "10:00"));
+    }
+
+    @Test
+    void testDayBounds_coverWholeLocalDay() {
+        assertEquals(Instant.parse("2025-11-02T16:00:00Z"), BookingTimes.startOfDay("2025-11-03"));
+        assertEquals(Instant.parse("2025-11-03T16:00:00Z"), BookingTimes.endOfDay("2025-11-03"));
+    }
+
+    @Test
+    void testApply_fillsStartAndEnd() {
+        Booking booking = Booking.builder().date("2025-11-03").start("10:00").end("11:30").build();
+        BookingTimes.apply(booking);
+
+        assertEquals(Instant.parse("2025-11-03T02:00:00Z"), booking.getStartAt());
+        assertEquals(Instant.parse("2025-11-03T03:30:00Z"), booking.getEndAt());
+    }
+
+    @Test
+    void testApply_skipsBookingsWithoutDate() {
+        Booking booking = Booking.builder().start("10:00").build();
+        BookingTimes.apply(booking);
+        assertNull(booking.getStartAt());
+    }
+}
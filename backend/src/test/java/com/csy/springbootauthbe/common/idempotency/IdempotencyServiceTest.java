@@ -0,0 +1,200 @@
+package com.csy.springbootauthbe.common.idempotency;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    private static final String FINGERPRINT_KEY = "test-fingerprint-key";
+
+    @Mock private MongoTemplate mongoTemplate;
+
+    private IdempotencyService service;
+
+    /** Stands in for the idempotency_keys collection and its unique _id. */
+    private final Map<String, IdempotencyRecord> collection = new ConcurrentHashMap<>();
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        signIn("alice@example.com");
+        service = new IdempotencyService(mongoTemplate, new ObjectMapper().findAndRegisterModules(), 24, 60, FINGERPRINT_KEY);
+
+        when(mongoTemplate.insert(any(IdempotencyRecord.class))).thenAnswer(inv -> {
+            IdempotencyRecord record = inv.getArgument(0);
+            if (collection.putIfAbsent(record.getId(), record) != null) {
+                throw new DuplicateKeyException("E11000 duplicate key " + record.getId());
+            }
+            return record;
+        });
+        when(mongoTemplate.findById(anyString(), eq(IdempotencyRecord.class)))
+                .thenAnswer(inv -> collection.get((String) inv.getArgument(0)));
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(IdempotencyRecord.class))).thenAnswer(inv -> {
+            String id = ((Query) inv.getArgument(0)).getQueryObject().getString("_id");
+            var set = ((Update) inv.getArgument(1)).getUpdateObject().get("$set", org.bson.Document.class);
+            IdempotencyRecord record = collection.get(id);
+            record.setState(set.getString("state"));
+            record.setStatus(set.getInteger("status"));
+            record.setBody(set.getString("body"));
+            return null;
+        });
+        when(mongoTemplate.remove(any(Query.class), eq(IdempotencyRecord.class))).thenAnswer(inv -> {
+            var filter = ((Query) inv.getArgument(0)).getQueryObject();
+            collection.computeIfPresent(filter.getString("_id"),
+                    (id, r) -> filter.getString("state").equals(r.getState()) ? null : r);
+            return null;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static void signIn(String user) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(user, null, "ROLE_STUDENT"));
+    }
+
+    private ResponseEntity<Map> topUp(String key, Map<String, Object> request) {
+        return service.execute("wallet-topup", key, request, Map.class, () -> {
+            runs.incrementAndGet();
+            return ResponseEntity.ok(Map.of("refId", "TX-" + runs.get()));
+        });
+    }
+
+    @Test
+    void testNoKey_runsEveryTime() {
+        topUp(null, Map.of("amount", 20));
+        topUp(null, Map.of("amount", 20));
+
+        assertEquals(2, runs.get());
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    @Test
+    void testRetry_replaysStoredResponseWithoutRunning() {
+        ResponseEntity<Map> first = topUp("K1", Map.of("amount", 20));
+        ResponseEntity<Map> retry = topUp("K1", Map.of("amount", 20));
+
+        assertEquals(1, runs.get());
+        assertEquals(first.getBody(), retry.getBody());
+        assertEquals("true", retry.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(IdempotencyRecord.COMPLETED, collection.get("wallet-topup:alice@example.com:K1").getState());
+        assertTrue(collection.get("wallet-topup:alice@example.com:K1").getExpiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void testKeyReusedForDifferentRequest_is422() {
+        topUp("K1", Map.of("amount", 20));
+
+        ResponseEntity<Map> other = topUp("K1", Map.of("amount", 500));
+
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, other.getStatusCode());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void testRetryWhileInProgress_is409() {
+        collection.put("wallet-topup:alice@example.com:K1", IdempotencyRecord.builder().id("wallet-topup:alice@example.com:K1")
+                .requestHash(hashOf(Map.of("amount", 20))).state(IdempotencyRecord.IN_PROGRESS)
+                .createdAt(Instant.now()).build());
+
+        ResponseEntity<Map> retry = topUp("K1", Map.of("amount", 20));
+
+        assertEquals(HttpStatus.CONFLICT, retry.getStatusCode());
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void testFailure_releasesKeySoRetryRuns() {
+        assertThrows(RuntimeException.class, () -> service.execute("wallet-deduct", "K2", Map.of("amount", 5), Map.class,
+                () -> { throw new RuntimeException("Insufficient credits"); }));
+
+        assertFalse(collection.containsKey("wallet-deduct:alice@example.com:K2"));
+    }
+
+    @Test
+    void testNon2xx_isNotStored() {
+        ResponseEntity<Object> bad = service.execute("wallet-withdraw", "K3", Map.of("pin", "0000"), Object.class,
+                () -> ResponseEntity.badRequest().body(Map.of("error", "Invalid wallet PIN")));
+
+        assertEquals(HttpStatus.BAD_REQUEST, bad.getStatusCode());
+        assertFalse(collection.containsKey("wallet-withdraw:alice@example.com:K3"));
+    }
+
+    @Test
+    void testSameKeyFromAnotherUser_runsOnItsOwn() {
+        topUp("K1", Map.of("amount", 20));
+        signIn("bob@example.com");
+
+        ResponseEntity<Map> other = topUp("K1", Map.of("amount", 500));
+
+        assertEquals(HttpStatus.OK, other.getStatusCode());
+        assertEquals(2, runs.get());
+        assertTrue(collection.containsKey("wallet-topup:bob@example.com:K1"));
+    }
+
+    @Test
+    void testFingerprint_isKeyedSoSecretsCannotBeGuessed() throws Exception {
+        Map<String, Object> withdrawal = Map.of("pin", "1234");
+        service.execute("wallet-withdraw", "K5", withdrawal, Object.class, () -> ResponseEntity.ok("done"));
+
+        String stored = collection.get("wallet-withdraw:alice@example.com:K5").getRequestHash();
+        String plain = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(new ObjectMapper().writeValueAsString(withdrawal).getBytes(StandardCharsets.UTF_8)));
+        assertNotEquals(plain, stored);
+        assertEquals(hashOf(withdrawal), stored);
+    }
+
+    @Test
+    void testAsync_storesResponseOnceFutureCompletes() {
+        CompletableFuture<ResponseEntity<String>> pending = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<String>> result = service.executeAsync("booking-create", "K4", Map.of("tutorId", "T1"),
+                String.class, () -> pending);
+
+        assertEquals(IdempotencyRecord.IN_PROGRESS, collection.get("booking-create:alice@example.com:K4").getState());
+        pending.complete(ResponseEntity.ok("B1"));
+
+        assertEquals("B1", result.join().getBody());
+        assertEquals(IdempotencyRecord.COMPLETED, collection.get("booking-create:alice@example.com:K4").getState());
+    }
+
+    private static String hashOf(Object request) {
+        // Same fingerprint the service computes, taken from a throwaway run
+        Map<String, IdempotencyRecord> scratch = new ConcurrentHashMap<>();
+        MongoTemplate template = mock(MongoTemplate.class);
+        when(template.insert(any(IdempotencyRecord.class))).thenAnswer(inv -> {
+            IdempotencyRecord r = inv.getArgument(0);
+            scratch.put(r.getId(), r);
+            return r;
+        });
+        new IdempotencyService(template, new ObjectMapper(), 24, 60, FINGERPRINT_KEY)
+                .execute("x", "k", request, Object.class, () -> ResponseEntity.status(500).build());
+        return scratch.get("x:alice@example.com:k").getRequestHash();
+    }
+}
@@ -0,0 +1,101 @@
+package com.csy.springbootauthbe.common.index;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class IndexCatalogInitializerTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private IndexOperations indexOps;
+    @Mock private ApplicationEventPublisher eventPublisher;
+
+    private final IndexCatalog catalog = new IndexCatalog();
+    private IndexCatalogInitializer initializer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOps);
+        initializer = new IndexCatalogInitializer(catalog, mongoTemplate, eventPublisher);
+    }
+
+    private List<IndexInfo> infos(String... names) {
+        return Arrays.stream(names).map(n -> {
+            IndexInfo info = mock(IndexInfo.class);
+            when(info.getName()).thenReturn(n);
+            return info;
+        }).toList();
+    }
+
+    @Test
+    void testRun_ensuresEveryDeclaredIndex() {
+        String[] all = catalog.getSpecs().stream().map(IndexSpec::name).distinct().toArray(String[]::new);
+        List<IndexInfo> existing = infos(all);
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        initializer.run(null);
+
+        verify(indexOps, times(catalog.getSpecs().size())).ensureIndex(any());
+        assertTrue(initializer.isComplete());
+    }
+
+    @Test
+    void testMissingIndex_refusesReadiness() {
+        List<IndexInfo> existing = infos("_id_");
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+
+        initializer.run(null);
+        initializer.onReadinessChange(new AvailabilityChangeEvent<>(this, ReadinessState.ACCEPTING_TRAFFIC));
+
+        assertFalse(initializer.isComplete());
+        verify(eventPublisher).publishEvent(any(AvailabilityChangeEvent.class));
+    }
+
+    @Test
+    void testCreateFailure_doesNotAbortOtherIndexes() {
+        doThrow(new RuntimeException("boom")).doReturn("ok").when(indexOps).ensureIndex(any());
+        when(indexOps.getIndexInfo()).thenReturn(List.of());
+
+        initializer.run(null);
+
+        verify(indexOps, times(catalog.getSpecs().size())).ensureIndex(any());
+        assertFalse(initializer.isComplete());
+    }
+
+    @Test
+    void testChangedDefinition_isDroppedAndRebuilt() {
+        String[] all = catalog.getSpecs().stream().map(IndexSpec::name).distinct().toArray(String[]::new);
+        List<IndexInfo> existing = infos(all);
+        when(indexOps.getIndexInfo()).thenReturn(existing);
+        MongoCommandException conflict = new MongoCommandException(new BsonDocument("code", new BsonInt32(86))
+                .append("errmsg", new BsonString("An existing index has the same name as the requested index")),
+                new ServerAddress());
+        doThrow(new DataIntegrityViolationException("conflict", conflict)).doReturn("ok").when(indexOps).ensureIndex(any());
+
+        initializer.run(null);
+
+        verify(indexOps).dropIndex(catalog.getSpecs().get(0).name());
+        verify(indexOps, times(catalog.getSpecs().size() + 1)).ensureIndex(any());
+        assertTrue(initializer.isComplete());
+    }
+}
@@ -0,0 +1,63 @@
+package com.csy.springbootauthbe.common.index;
+
+import com.csy.springbootauthbe.admin.repository.AdminRepository;
+import com.csy.springbootauthbe.booking.repository.BookingRepository;
+import com.csy.springbootauthbe.notification.repository.NotificationRepository;
+import com.csy.springbootauthbe.student.repository.StudentRepository;
+import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import com.csy.springbootauthbe.user.repository.UserRepository;
+import com.csy.springbootauthbe.wallet.repository.WalletRepository;
+import com.csy.springbootauthbe.wallet.repository.WalletTransactionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexCatalogTest {
+
+    private final IndexCatalog catalog = new IndexCatalog();
+
+    @Test
+    void testEveryRepositoryQueryIsServedByAnIndex() {
+        Set<String> served = catalog.getSpecs().stream()
+                .flatMap(spec -> spec.servedBy().stream())
+                .collect(Collectors.toSet());
+
+        List<Class<?>> repositories = List.of(BookingRepository.class, WalletRepository.class,
+                WalletTransactionRepository.class, NotificationRepository.class, TutorRepository.class,
+                UserRepository.class, StudentRepository.class, AdminRepository.class);
+
+        Set<String> uncovered = new HashSet<>();
+        for (Class<?> repository : repositories) {
+            for (Method method : repository.getDeclaredMethods()) {
+                String name = repository.getSimpleName() + "." + method.getName();
+                if (!served.contains(name)) uncovered.add(name);
+            }
+        }
+        assertTrue(uncovered.isEmpty(), "Queries without a catalog index: " + uncovered);
+    }
+
+    @Test
+    void testIndexNamesAreUniquePerCollection() {
+        Set<String> names = new HashSet<>();
+        for (IndexSpec spec : catalog.getSpecs()) {
+            assertTrue(names.add(spec.collection() + "." + spec.name()), "Duplicate index " + spec.name());
+        }
+    }
+
+    @Test
+    void testToIndex_carriesOptions() {
+        IndexSpec email = catalog.getSpecs().stream()
+                .filter(s -> s.collection().equals("users") && s.name().equals("email"))
+                .findFirst().orElseThrow();
+
+        var options = email.toIndex().getIndexOptions();
+        assertEquals("email", options.getString("name"));
+        assertTrue(options.getBoolean("unique"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.csy.springbootauthbe.common.lease;
+
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JobLeaseServiceTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+
+    private JobLeaseService leases;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        leases = new JobLeaseService(mongoTemplate);
+    }
+
+    @Test
+    void testAcquire_upsertsALeaseThatRanOut() {
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(JobLease.class)))
+                .thenReturn(new JobLease("job", "me", Instant.now()));
+
+        assertTrue(leases.acquire("job", Duration.ofMinutes(5)));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<FindAndModifyOptions> options = ArgumentCaptor.forClass(FindAndModifyOptions.class);
+        verify(mongoTemplate).findAndModify(query.capture(), any(Update.class), options.capture(), eq(JobLease.class));
+        assertEquals("job", query.getValue().getQueryObject().get("_id"));
+        assertTrue(query.getValue().getQueryObject().get("leaseUntil", Document.class).containsKey("$lte"));
+        assertTrue(options.getValue().isUpsert());
+    }
+
+    @Test
+    void testAcquire_alreadyHeld() {
+        // The filter misses the live lease of another run, so the upsert collides with its _id
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(JobLease.class)))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key job"));
+
+        assertFalse(leases.acquire("job", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void testRenew_lostLease() {
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(JobLease.class)))
+                .thenReturn(UpdateResult.acknowledged(0, 0L, null));
+
+        assertFalse(leases.renew("job", Duration.ofMinutes(5)));
+    }
+
+    @Test
+    void testRelease_onlyTouchesOurOwnLease() {
+        leases.release("job");
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).updateFirst(query.capture(), any(Update.class), eq(JobLease.class));
+        assertEquals("job", query.getValue().getQueryObject().get("_id"));
+        assertNotNull(query.getValue().getQueryObject().get("owner"));
+    }
+}
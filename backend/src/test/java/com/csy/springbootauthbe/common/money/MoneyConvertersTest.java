@@ -0,0 +1,38 @@
+package com.csy.springbootauthbe.common.money;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyConvertersTest {
+
+    @Test
+    void testWriteAndReadBack() {
+        Document stored = new MoneyConverters.MoneyToDocument().convert(Money.ofMinor(1999));
+
+        assertEquals(new Document("minor", 1999L).append("currency", "SGD"), stored);
+        assertEquals(Money.ofMinor(1999), new MoneyConverters.DocumentToMoney().convert(stored));
+    }
+
+    @Test
+    void testRead_intMinorAndMissingCurrency() {
+        assertEquals(Money.ofMinor(500), new MoneyConverters.DocumentToMoney().convert(new Document("minor", 500)));
+    }
+
+    @Test
+    void testRead_legacyStringAndDecimal128() {
+        assertEquals(Money.ofMinor(2000), new MoneyConverters.StringToMoney().convert("20"));
+        assertEquals(Money.ofMinor(4250), new MoneyConverters.Decimal128ToMoney().convert(new Decimal128(new BigDecimal("42.50"))));
+    }
+
+    @Test
+    void testRead_legacyCommissionWithMoreDecimalsIsRounded() {
+        // 5% of 19.99 used to be stored as 0.9995
+        assertEquals(Money.ofMinor(100), new MoneyConverters.Decimal128ToMoney().convert(new Decimal128(new BigDecimal("0.9995"))));
+        assertEquals(Money.ofMinor(2), new MoneyConverters.StringToMoney().convert("0.025"));
+    }
+}
@@ -0,0 +1,80 @@
+package com.csy.springbootauthbe.common.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void testOf_exactAmounts() {
+        assertEquals(new Money(1999, "SGD"), Money.of(new BigDecimal("19.99")));
+        assertEquals(Money.ofMinor(2000), Money.of(new BigDecimal("20")));
+        assertEquals(Money.ofMinor(2000), Money.of(new BigDecimal("20.000")));
+        assertEquals(Money.ofMinor(-550), Money.of(new BigDecimal("-5.5")));
+        assertEquals(new Money(500, "JPY"), Money.of(new BigDecimal("500"), "JPY"));
+    }
+
+    @Test
+    void testOf_subCentAmountIsRefused() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> Money.of(new BigDecimal("0.999")));
+        assertEquals("Amount 0.999 is not a whole number of SGD minor units", ex.getMessage());
+    }
+
+    @Test
+    void testToBigDecimalAndToString() {
+        assertEquals(new BigDecimal("19.99"), Money.ofMinor(1999).toBigDecimal());
+        assertEquals("20.00", Money.ofMinor(2000).toString());
+        assertEquals("-0.05", Money.ofMinor(-5).toString());
+        assertNull(Money.ofNullable(null));
+    }
+
+    @Test
+    void testArithmetic() {
+        assertEquals(Money.ofMinor(3000), Money.ofMinor(1999).plus(Money.ofMinor(1001)));
+        assertEquals(Money.ofMinor(-1), Money.ofMinor(1999).minus(Money.ofMinor(2000)));
+        assertEquals(Money.ofMinor(-1999), Money.ofMinor(1999).negate());
+        assertTrue(Money.ofMinor(1).isPositive());
+        assertFalse(Money.ZERO.isPositive());
+        assertTrue(Money.ofMinor(1).compareTo(Money.ZERO) > 0);
+    }
+
+    @Test
+    void testArithmetic_differentCurrenciesAreRefused() {
+        assertThrows(RuntimeException.class, () -> Money.ofMinor(100).plus(new Money(100, "USD")));
+        assertThrows(RuntimeException.class, () -> Money.ofMinor(100).compareTo(new Money(100, "USD")));
+    }
+
+    @Test
+    void testArithmetic_overflowIsRefused() {
+        assertThrows(ArithmeticException.class, () -> Money.add(Long.MAX_VALUE, 1));
+        assertThrows(ArithmeticException.class, () -> Money.subtract(Long.MIN_VALUE, 1));
+    }
+
+    @Test
+    void testShare_roundsHalfUp() {
+        assertEquals(500, Money.share(10000, 500));  // 5% of 100.00
+        assertEquals(100, Money.share(1999, 500));   // 0.9995 -> 1.00
+        assertEquals(99, Money.share(1989, 500));    // 0.9945 -> 0.99
+        assertEquals(-100, Money.share(-1999, 500));
+        assertEquals(0, Money.share(0, 500));
+    }
+
+    @Test
+    void testDigits() {
+        assertEquals(2, Money.digits("SGD"));
+        assertEquals(0, Money.digits("JPY"));
+    }
+
+    @Test
+    void testJson_keepsThePlainDecimalShape() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertEquals("{\"amount\":19.99}", mapper.writeValueAsString(Map.of("amount", Money.ofMinor(1999))));
+        assertEquals(Money.ofMinor(2050), mapper.readValue("20.5", Money.class));
+    }
+}
@@ -0,0 +1,137 @@
+package com.csy.springbootauthbe.common.outbox;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboxRelayTest {
+
+    @Mock private MongoTemplate mongoTemplate;
+    @Mock private OutboxHandler bookingHandler;
+    @Mock private BulkOperations bulkOps;
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        when(bookingHandler.aggregateType()).thenReturn(OutboxEntry.BOOKING);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(OutboxEntry.class))).thenReturn(bulkOps);
+        relay = new OutboxRelay(mongoTemplate, List.of(bookingHandler), 100, 3, 1000, 60_000);
+    }
+
+    private OutboxEntry bookingEntry(String id, int attempts) {
+        OutboxEntry entry = OutboxEntry.forBooking(Booking.builder().id("B-" + id).build(), "booking_created", "S1");
+        entry.setId(id);
+        entry.setAttempts(attempts);
+        return entry;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> ids(Query query) {
+        return (List<String>) ((Document) query.getQueryObject().get("_id")).get("$in");
+    }
+
+    @Test
+    void testRelayBatch_marksDeliveredEntriesDoneInOneUpdate() throws InterruptedException {
+        OutboxEntry e1 = bookingEntry("o1", 0);
+        OutboxEntry e2 = bookingEntry("o2", 0);
+        OutboxEntry e3 = OutboxEntry.builder().id("o3").aggregateType("UNKNOWN").aggregateId("x").build();
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEntry.class))).thenReturn(List.of(e1, e2, e3));
+        when(bookingHandler.handle(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(3, relay.relayBatch());
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), updates.capture(), eq(OutboxEntry.class));
+
+        // first the claim, then one update closing out the batch, both for this pass only
+        Document claim = (Document) updates.getAllValues().get(0).getUpdateObject().get("$set");
+        String owner = (String) claim.get("owner");
+        assertNotNull(owner);
+        assertNotNull(claim.get("leaseUntil"));
+        Query done = queries.getAllValues().get(1);
+        assertEquals(owner, done.getQueryObject().get("owner"));
+        assertEquals(List.of("o3", "o1", "o2"), ids(done)); // unhandled aggregate types are closed out right away
+        assertEquals(OutboxEntry.DONE,
+                ((Document) updates.getAllValues().get(1).getUpdateObject().get("$set")).get("status"));
+        verify(bookingHandler, times(2)).handle(any());
+        verify(bulkOps, never()).execute();
+    }
+
+    @Test
+    void testRelayBatch_skipsEntriesClaimedByAnotherRelay() throws InterruptedException {
+        OutboxEntry e1 = bookingEntry("o1", 0);
+        OutboxEntry e2 = bookingEntry("o2", 0);
+        // the candidates, then only what this pass managed to claim
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEntry.class)))
+                .thenReturn(List.of(e1, e2))
+                .thenReturn(List.of(e2));
+        when(bookingHandler.handle(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        assertEquals(1, relay.relayBatch());
+
+        ArgumentCaptor<OutboxEntry> delivered = ArgumentCaptor.forClass(OutboxEntry.class);
+        verify(bookingHandler).handle(delivered.capture());
+        assertEquals("o2", delivered.getValue().getId());
+
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).updateMulti(queries.capture(), any(Update.class), eq(OutboxEntry.class));
+        assertEquals(List.of("o2"), ids(queries.getAllValues().get(1)));
+    }
+
+    @Test
+    void testRelayBatch_failedEntriesAreRetriedThenParked() throws InterruptedException {
+        OutboxEntry retry = bookingEntry("o1", 0);
+        OutboxEntry last = bookingEntry("o2", 2);
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEntry.class))).thenReturn(List.of(retry, last));
+        when(bookingHandler.handle(any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("boom")));
+
+        relay.relayBatch();
+
+        ArgumentCaptor<Update> updates = ArgumentCaptor.forClass(Update.class);
+        verify(bulkOps, times(2)).updateOne(any(Query.class), updates.capture());
+        verify(bulkOps).execute();
+        verify(mongoTemplate, times(1)).updateMulti(any(Query.class), any(Update.class), eq(OutboxEntry.class)); // the claim
+
+        Document first = (Document) updates.getAllValues().get(0).getUpdateObject().get("$set");
+        assertEquals(1, first.get("attempts"));
+        assertNotNull(first.get("availableAt"));
+        assertNull(first.get("status"));
+
+        Document second = (Document) updates.getAllValues().get(1).getUpdateObject().get("$set");
+        assertEquals(3, second.get("attempts"));
+        assertEquals(OutboxEntry.FAILED, second.get("status"));
+        assertEquals("boom", second.get("lastError"));
+    }
+
+    @Test
+    void testRelayBatch_emptyOutbox() throws InterruptedException {
+        when(mongoTemplate.find(any(Query.class), eq(OutboxEntry.class))).thenReturn(List.of());
+        assertEquals(0, relay.relayBatch());
+        verify(bookingHandler, never()).handle(any());
+        verify(mongoTemplate, never()).updateMulti(any(Query.class), any(Update.class), eq(OutboxEntry.class));
+    }
+
+    @Test
+    void testBackoff_isExponentialAndCapped() {
+        assertEquals(1000, OutboxRelay.backoffMs(1));
+        assertEquals(4000, OutboxRelay.backoffMs(3));
+        assertEquals(300_000, OutboxRelay.backoffMs(30));
+    }
+}
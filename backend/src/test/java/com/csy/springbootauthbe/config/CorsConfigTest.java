@@ -22,6 +22,7 @@ class CorsConfigTest {
                 "http://localhost:5173")).thenReturn(registration);
         when(registration.allowedMethods("GET", "POST", "PUT", "DELETE")).thenReturn(registration);
         when(registration.allowedHeaders("*")).thenReturn(registration);
+        when(registration.exposedHeaders("X-Next-Cursor")).thenReturn(registration);
         when(registration.allowCredentials(true)).thenReturn(registration);
 
         config.addCorsMappings(registry);
@@ -33,6 +34,7 @@ class CorsConfigTest {
                 "http://localhost:5173");
         verify(registration).allowedMethods("GET", "POST", "PUT", "DELETE");
         verify(registration).allowedHeaders("*");
+        verify(registration).exposedHeaders("X-Next-Cursor");
         verify(registration).allowCredentials(true);
         verifyNoMoreInteractions(registry, registration);
     }
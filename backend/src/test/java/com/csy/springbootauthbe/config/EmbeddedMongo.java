@@ -0,0 +1,68 @@
+package com.csy.springbootauthbe.config;
+
+import com.csy.springbootauthbe.common.money.MoneyConverters;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.flapdoodle.embed.mongo.distribution.Version;
+import de.flapdoodle.embed.mongo.transitions.Mongod;
+import de.flapdoodle.embed.mongo.transitions.RunningMongodProcess;
+import de.flapdoodle.reverse.TransitionWalker;
+import org.junit.jupiter.api.Assumptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.SimpleMongoClientDatabaseFactory;
+import org.springframework.data.mongodb.core.convert.DefaultDbRefResolver;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.MongoCustomConversions;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+/**
+ * One embedded mongod per test JVM, started on first use, for tests that need the real server's
+ * unique indexes and atomic updates rather than a mocked {@link MongoTemplate}. The template is
+ * mapped like {@link MongoConfig}. Tests using it are skipped when mongod can't be started, e.g.
+ * when its binary can't be downloaded.
+ */
+public final class EmbeddedMongo {
+
+    private static TransitionWalker.ReachedState<RunningMongodProcess> mongod;
+    private static MongoClient client;
+    private static MappingMongoConverter converter;
+    private static RuntimeException startFailure;
+
+    private EmbeddedMongo() {
+    }
+
+    /** A template on an empty database of its own, skipping the calling test without a mongod. */
+    public static MongoTemplate template(String database) {
+        start();
+        MongoTemplate template = new MongoTemplate(new SimpleMongoClientDatabaseFactory(client, database), converter);
+        template.getDb().drop();
+        return template;
+    }
+
+    private static synchronized void start() {
+        if (client == null && startFailure == null) {
+            try {
+                mongod = Mongod.instance().start(Version.Main.V6_0);
+                Runtime.getRuntime().addShutdownHook(new Thread(mongod::close));
+                client = MongoClients.create("mongodb://" + mongod.current().getServerAddress());
+                converter = converter(client);
+            } catch (RuntimeException e) {
+                startFailure = e;
+            }
+        }
+        Assumptions.assumeTrue(startFailure == null,
+                () -> "Embedded MongoDB unavailable: " + startFailure.getMessage().lines().findFirst().orElse(""));
+    }
+
+    private static MappingMongoConverter converter(MongoClient client) {
+        MongoCustomConversions conversions = new MongoCustomConversions(MoneyConverters.all());
+        MongoMappingContext context = new MongoMappingContext();
+        context.setSimpleTypeHolder(conversions.getSimpleTypeHolder());
+        context.afterPropertiesSet();
+        MappingMongoConverter converter = new MappingMongoConverter(
+                new DefaultDbRefResolver(new SimpleMongoClientDatabaseFactory(client, "test")), context);
+        converter.setCustomConversions(conversions);
+        converter.afterPropertiesSet();
+        return converter;
+    }
+}
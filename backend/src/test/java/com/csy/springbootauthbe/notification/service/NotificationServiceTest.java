@@ -101,6 +101,54 @@ class NotificationServiceTest {
         assertNull(dto);
     }
 
+    // ---------------- createNotifications ----------------
+    @Test
+    void testCreateNotifications_SingleInsertAndGroupedPush() throws IOException {
+        List<Notification> batch = List.of(
+                NotificationService.notification("u1", "booking_accepted", "b1", "m1"),
+                NotificationService.notification("u1", "credit_deducted", "b1", "m2"),
+                NotificationService.notification("u2", "credit_released", "b1", "m3"));
+        when(repo.insert(batch)).thenReturn(batch);
+        when(mapper.toDto(any())).thenAnswer(i -> {
+            Notification n = i.getArgument(0);
+            return NotificationDTO.builder().userId(n.getUserId()).type(n.getType()).build();
+        });
+        SseEmitter u1 = mock(SseEmitter.class);
+        SseEmitter u2 = mock(SseEmitter.class);
+        service.registerEmitter("u1", u1);
+        service.registerEmitter("u2", u2);
+
+        List<NotificationDTO> result = service.createNotifications(batch);
+
+        assertEquals(3, result.size());
+        verify(repo, times(1)).insert(batch);
+        verify(repo, never()).save(any());
+        verify(u1, times(2)).send(any(Object.class));
+        verify(u2, times(1)).send(any(Object.class));
+    }
+
+    @Test
+    void testCreateNotifications_EmptyBatchSkipsRepository() {
+        assertTrue(service.createNotifications(List.of()).isEmpty());
+        verifyNoInteractions(repo);
+    }
+
+    @Test
+    void testCreateNotifications_InsertFailurePropagates() {
+        List<Notification> batch = List.of(NotificationService.notification("u1", "t", "b1", "m"));
+        when(repo.insert(batch)).thenThrow(new RuntimeException("DB error"));
+        assertThrows(RuntimeException.class, () -> service.createNotifications(batch));
+    }
+
+    @Test
+    void testNotificationFactory_KeepsDefaults() {
+        Notification n = NotificationService.notification("u1", "type", "b1", "msg");
+        assertEquals("u1", n.getUserId());
+        assertFalse(n.isRead());
+        assertNotNull(n.getCreatedAt());
+        assertNull(n.getId());
+    }
+
     // ---------------- markAsRead ----------------
     @Test
     void testMarkAsRead_Success() {
@@ -7,6 +7,7 @@ import com.csy.springbootauthbe.student.dto.StudentDTO;
 import com.csy.springbootauthbe.student.entity.Student;
 import com.csy.springbootauthbe.student.mapper.StudentMapper;
 import com.csy.springbootauthbe.student.repository.StudentRepository;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -32,6 +33,8 @@ class StudentServiceImplTest {
     MongoTemplate mongoTemplate;
     @Mock
     AwsService awsService;
+    @Mock
+    UserDisplayCache userDisplayCache;
     @Mock org.springframework.web.multipart.MultipartFile file;
 
     @InjectMocks StudentServiceImpl service;
@@ -216,6 +219,7 @@ class StudentServiceImplTest {
         verify(awsService).deleteProfilePic("oldKey");
         verify(awsService).uploadProfilePic(any(MultipartFile.class), eq("profilePicture"));
         verify(repo).save(any(Student.class));
+        verify(userDisplayCache).invalidate("S1");
     }
 
 
@@ -1,5 +1,7 @@
 package com.csy.springbootauthbe.tutor.controller;
 
+import com.csy.springbootauthbe.booking.calendar.FreeSlotCalendar;
+import com.csy.springbootauthbe.booking.dto.FreeSlotDTO;
 import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.tutor.service.TutorService;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.Optional;
 
 import static org.mockito.Mockito.verify;
@@ -45,6 +48,9 @@ class TutorControllerTest {
     @MockBean
     private TutorService tutorService;
 
+    @MockBean
+    private FreeSlotCalendar freeSlotCalendar;
+
     @MockBean
     private com.csy.springbootauthbe.config.JWTAuthenticationFilter jwtAuthenticationFilter;
 
@@ -66,6 +72,18 @@ class TutorControllerTest {
                 .andExpect(content().contentType("application/json"));
     }
 
+    @Test
+    void getFreeSlots_returnsCalendarSlotsForRange() throws Exception {
+        when(freeSlotCalendar.freeSlots("U1", LocalDate.of(2030, 1, 7), LocalDate.of(2030, 1, 13)))
+                .thenReturn(List.of(new FreeSlotDTO("2030-01-07", "09:00", "10:00")));
+
+        mockMvc.perform(get("/api/v1/tutors/{userId}/free-slots", "U1")
+                        .param("from", "2030-01-07")
+                        .param("to", "2030-01-13"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].start").value("09:00"));
+    }
+
     @Test
     void getTutorByUserId_notFound_returns404() throws Exception {
         when(tutorService.getTutorByUserId("U404")).thenReturn(Optional.empty());
@@ -4,6 +4,7 @@ import com.csy.springbootauthbe.tutor.dto.TutorDTO;
 import com.csy.springbootauthbe.tutor.entity.Tutor;
 import com.csy.springbootauthbe.tutor.mapper.TutorMapper;
 import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.User;
 import com.csy.springbootauthbe.user.repository.UserRepository;
@@ -43,6 +44,8 @@ class TutorServiceImplTest {
     @Mock TutorMapper tutorMapper;
     @Mock
     AwsService awsService;
+    @Mock
+    UserDisplayCache userDisplayCache;
 
     @InjectMocks TutorServiceImpl tutorService;
 
@@ -0,0 +1,122 @@
+package com.csy.springbootauthbe.user.cache;
+
+import com.csy.springbootauthbe.student.entity.Student;
+import com.csy.springbootauthbe.student.repository.StudentRepository;
+import com.csy.springbootauthbe.tutor.entity.Tutor;
+import com.csy.springbootauthbe.tutor.repository.TutorRepository;
+import com.csy.springbootauthbe.user.entity.AccountStatus;
+import com.csy.springbootauthbe.user.entity.Role;
+import com.csy.springbootauthbe.user.entity.User;
+import com.csy.springbootauthbe.user.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDisplayCacheTest {
+
+    @Mock private UserRepository userRepository;
+    @Mock private StudentRepository studentRepository;
+    @Mock private TutorRepository tutorRepository;
+
+    private UserDisplayCache cache;
+
+    private final User student = new User("S1", "Stu", "Dent", "s@x.com", "pw", AccountStatus.ACTIVE, Role.STUDENT);
+    private final User tutor = new User("T1", "Tu", "Tor", "t@x.com", "pw", AccountStatus.ACTIVE, Role.TUTOR);
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new UserDisplayCache(userRepository, studentRepository, tutorRepository, 2, 300);
+        Student s = new Student();
+        s.setUserId("S1");
+        s.setProfileImageUrl("https://img/s1.jpg");
+        Tutor t = new Tutor();
+        t.setUserId("T1");
+        t.setProfileImageUrl("https://img/t1.jpg");
+        when(studentRepository.findByUserIdIn(any())).thenReturn(List.of(s));
+        when(tutorRepository.findByUserIdIn(any())).thenReturn(List.of(t));
+    }
+
+    @Test
+    void testGetAll_loadsMissesOnceThenServesHits() {
+        when(userRepository.findAllById(any())).thenReturn(List.of(student, tutor));
+
+        Map<String, UserDisplayCache.UserDisplay> first = cache.getAll(List.of("S1", "T1"));
+        Map<String, UserDisplayCache.UserDisplay> second = cache.getAll(List.of("S1", "T1"));
+
+        assertEquals("Stu Dent", first.get("S1").name());
+        assertEquals("https://img/t1.jpg", first.get("T1").avatarUrl());
+        assertEquals(first, second);
+        verify(userRepository, times(1)).findAllById(any());
+
+        UserDisplayCache.Stats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGetAll_queriesOnlyTheMisses() {
+        when(userRepository.findAllById(any())).thenReturn(List.of(student), List.of(tutor));
+        cache.getAll(List.of("S1"));
+
+        cache.getAll(List.of("S1", "T1"));
+
+        ArgumentCaptor<Iterable<String>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(userRepository, times(2)).findAllById(ids.capture());
+        assertEquals(Set.of("T1"), toSet(ids.getAllValues().get(1)));
+    }
+
+    @Test
+    void testInvalidate_forcesReload() {
+        when(userRepository.findAllById(any())).thenReturn(List.of(student));
+        cache.get("S1");
+
+        cache.invalidate("S1");
+        cache.get("S1");
+
+        verify(userRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void testExpiredEntriesAreReloaded() {
+        cache = new UserDisplayCache(userRepository, studentRepository, tutorRepository, 10, 0);
+        when(userRepository.findAllById(any())).thenReturn(List.of(student));
+
+        cache.get("S1");
+        cache.get("S1");
+
+        verify(userRepository, times(2)).findAllById(any());
+    }
+
+    @Test
+    void testSizeBoundEvictsLeastRecentlyUsed() {
+        User admin = new User("A1", "Ad", "Min", "a@x.com", "pw", AccountStatus.ACTIVE, Role.ADMIN);
+        when(userRepository.findAllById(any())).thenReturn(List.of(student, tutor, admin));
+
+        cache.getAll(List.of("S1", "T1", "A1"));
+
+        assertEquals(2, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+    }
+
+    @Test
+    void testUnknownUserIsAbsent() {
+        when(userRepository.findAllById(any())).thenReturn(List.of());
+        assertTrue(cache.get("nope").isEmpty());
+        verifyNoInteractions(studentRepository, tutorRepository);
+    }
+
+    private static Set<String> toSet(Iterable<String> ids) {
+        Set<String> set = new HashSet<>();
+        ids.forEach(set::add);
+        return set;
+    }
+}
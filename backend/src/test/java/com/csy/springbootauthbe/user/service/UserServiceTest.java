@@ -1,5 +1,6 @@
 package com.csy.springbootauthbe.user.service;
 
+import com.csy.springbootauthbe.user.cache.UserDisplayCache;
 import com.csy.springbootauthbe.user.entity.AccountStatus;
 import com.csy.springbootauthbe.user.entity.Role;
 import com.csy.springbootauthbe.user.entity.User;
@@ -33,6 +34,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private UserDisplayCache userDisplayCache;
+
     @Mock
     private Authentication authentication;
 
@@ -133,6 +137,7 @@ class UserServiceTest {
         assertEquals("encodedPass", adminUser.getPassword());
         assertEquals("Admin User", response.getName());
         verify(userRepository).save(adminUser);
+        verify(userDisplayCache).invalidate("1");
     }
 
     /* Success Case for deleteUser */
@@ -143,6 +148,7 @@ class UserServiceTest {
         userService.deleteUser("1");
 
         verify(userRepository).delete(adminUser);
+        verify(userDisplayCache).invalidate("1");
     }
 
     /** Helper method to mock SecurityContext with a given email */
@@ -1,7 +1,12 @@
 package com.csy.springbootauthbe.wallet.controller;
 
+import com.csy.springbootauthbe.common.idempotency.IdempotencyService;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
 import com.csy.springbootauthbe.wallet.entity.Wallet;
 import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import com.csy.springbootauthbe.wallet.ledger.JournalEntry;
+import com.csy.springbootauthbe.wallet.ledger.JournalLine;
 import com.csy.springbootauthbe.wallet.service.WalletService;
 import com.stripe.model.checkout.Session;
 import com.stripe.param.checkout.SessionCreateParams;
@@ -17,8 +22,10 @@ import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
@@ -41,6 +48,9 @@ class WalletControllerTest {
     @MockBean
     private WalletService walletService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     // Mock JWT dependencies (same pattern as TutorControllerTest)
     @MockBean
     private com.csy.springbootauthbe.config.JWTAuthenticationFilter jwtAuthenticationFilter;
@@ -55,8 +65,11 @@ class WalletControllerTest {
 
     @BeforeEach
     void setup() {
-        sampleWallet = new Wallet("id1", "stu1", new BigDecimal("100.00"), "SGD",
+        sampleWallet = new Wallet("id1", "stu1", Money.ofMinor(10000), Money.ZERO, "SGD",
                 "hashed", true, null);
+        // Requests without a stored response run straight through
+        when(idempotencyService.execute(anyString(), any(), any(), any(), any()))
+                .thenAnswer(inv -> ((Supplier<?>) inv.getArgument(4)).get());
     }
 
     // ----------------------------------------------------------------------
@@ -79,7 +92,7 @@ class WalletControllerTest {
     // ----------------------------------------------------------------------
     @Test
     void testDeduct_success() throws Exception {
-        when(walletService.deductCredits(anyString(), any(BigDecimal.class), anyString()))
+        when(walletService.deductCredits(anyString(), eq(Money.ofMinor(2500)), anyString()))
                 .thenReturn(sampleWallet);
 
         String body = """
@@ -99,7 +112,7 @@ class WalletControllerTest {
     @Test
     void testGetTransactions_success() throws Exception {
         WalletTransaction txn = new WalletTransaction("id1", "stu1", "TYPE",
-                new BigDecimal("10.00"), "desc", "ref", null);
+                Money.ofMinor(1000), "desc", "ref", null);
         when(walletService.getTransactions("stu1")).thenReturn(List.of(txn));
 
         mockMvc.perform(get("/api/v1/wallet/transactions/stu1"))
@@ -107,6 +120,62 @@ class WalletControllerTest {
                 .andExpect(jsonPath("$[0].studentId").value("stu1"));
     }
 
+    // ----------------------------------------------------------------------
+    // GET /holds/{studentId}
+    // ----------------------------------------------------------------------
+    @Test
+    void testGetActiveHolds_success() throws Exception {
+        CreditHold hold = CreditHold.of("BKG1", Money.ofMinor(3000), Instant.parse("2026-01-02T00:00:00Z"));
+        hold.setStatus(CreditHold.ACTIVE);
+        when(walletService.getActiveHolds("stu1")).thenReturn(List.of(hold));
+
+        mockMvc.perform(get("/api/v1/wallet/holds/stu1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].bookingId").value("BKG1"))
+                .andExpect(jsonPath("$[0].amount").value(30.00))
+                .andExpect(jsonPath("$[0].status").value("ACTIVE"));
+    }
+
+    // ----------------------------------------------------------------------
+    // GET /ledger/{account}
+    // ----------------------------------------------------------------------
+    @Test
+    void testGetLedgerBalance_asOf() throws Exception {
+        when(walletService.getLedgerBalance("stu1", Instant.parse("2026-01-01T00:00:00Z")))
+                .thenReturn(new BigDecimal("40.00"));
+
+        mockMvc.perform(get("/api/v1/wallet/ledger/stu1").param("at", "2026-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.account").value("stu1"))
+                .andExpect(jsonPath("$.balance").value(40.00))
+                .andExpect(jsonPath("$.at").value("2026-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void testGetLedgerBalance_currentReadsTheRunningBalance() throws Exception {
+        when(walletService.getLedgerBalance("stu1", null)).thenReturn(new BigDecimal("55.00"));
+
+        mockMvc.perform(get("/api/v1/wallet/ledger/stu1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(55.00))
+                .andExpect(jsonPath("$.at").exists());
+    }
+
+    @Test
+    void testGetLedgerEntries_success() throws Exception {
+        JournalEntry entry = JournalEntry.builder().type("PURCHASE").refId("R1")
+                .lines(List.of(JournalLine.of("system:top-up", new BigDecimal("-20.00")),
+                        JournalLine.of("stu1", new BigDecimal("20.00"))))
+                .build();
+        when(walletService.getLedgerEntries("stu1", Instant.parse("2026-01-01T00:00:00Z"), null))
+                .thenReturn(List.of(entry));
+
+        mockMvc.perform(get("/api/v1/wallet/ledger/stu1/entries").param("from", "2026-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].type").value("PURCHASE"))
+                .andExpect(jsonPath("$[0].lines[1].account").value("stu1"));
+    }
+
     // ----------------------------------------------------------------------
     // POST /set-pin
     // ----------------------------------------------------------------------
@@ -215,5 +284,20 @@ class WalletControllerTest {
         }
     }
 
+    // ----------------------------------------------------------------------
+    // POST /topup
+    // ----------------------------------------------------------------------
+    @Test
+    void testTopUp_idempotencyKeyBecomesRefId() throws Exception {
+        WalletTransaction txn = new WalletTransaction("t1", "stu1", "PURCHASE", Money.ofMinor(2000),
+                "Top-up credits", "K1", null);
+        when(walletService.addCredits(eq("stu1"), eq(Money.ofMinor(2000)), eq("K1"))).thenReturn(txn);
 
+        mockMvc.perform(post("/api/v1/wallet/topup")
+                        .header(IdempotencyService.HEADER, "K1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"studentId\":\"stu1\",\"amount\":20}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.refId").value("K1"));
+    }
 }
@@ -0,0 +1,209 @@
+package com.csy.springbootauthbe.wallet.ledger;
+
+import org.bson.Document;
+import org.bson.types.Decimal128;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LedgerServiceTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    private LedgerService ledger;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        ledger = new LedgerService(mongoTemplate, 300);
+        when(mongoTemplate.insert(any(JournalEntry.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(mongoTemplate.insert(any(LedgerSnapshotRun.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class)))
+                .thenReturn(results());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BalanceSnapshot.class), eq(Document.class)))
+                .thenReturn(results());
+    }
+
+    private static AggregationResults<Document> results(Document... rows) {
+        return new AggregationResults<>(List.of(rows), new Document());
+    }
+
+    private static Document firstStage(Aggregation aggregation) {
+        return aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+    }
+
+    // ----------------------------------------------------------------------
+    // post()
+    // ----------------------------------------------------------------------
+    @Test
+    void testPost_insertsOneBalancedEntry() {
+        JournalEntry entry = ledger.post("BOOKING_RELEASE", "B1", "Release",
+                JournalLine.of(LedgerService.ESCROW, new BigDecimal("-100.00")),
+                JournalLine.of("tutor1", new BigDecimal("95.00")),
+                JournalLine.of("COMPANY_WALLET", new BigDecimal("5.00")));
+
+        assertEquals(3, entry.getLines().size());
+        assertNotNull(entry.getCreatedAt());
+        verify(mongoTemplate, times(1)).insert(any(JournalEntry.class));
+    }
+
+    @Test
+    void testPost_unbalancedEntryIsRefused() {
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> ledger.post("PURCHASE", "R1", "Top-up",
+                JournalLine.of(LedgerService.TOP_UP, new BigDecimal("-20.00")),
+                JournalLine.of("user1", new BigDecimal("25.00"))));
+
+        assertTrue(ex.getMessage().contains("does not balance"));
+        verify(mongoTemplate, never()).insert(any(JournalEntry.class));
+    }
+
+    @Test
+    void testPost_singleLineIsRefused() {
+        assertThrows(RuntimeException.class, () -> ledger.post("PURCHASE", "R1", "Top-up",
+                JournalLine.of("user1", BigDecimal.ZERO)));
+        verify(mongoTemplate, never()).insert(any(JournalEntry.class));
+    }
+
+    @Test
+    void testPostOnce_keyedEntryIsPostedOnlyOnce() {
+        when(mongoTemplate.insert(any(JournalEntry.class)))
+                .thenAnswer(inv -> inv.getArgument(0))
+                .thenThrow(new DuplicateKeyException("E11000 duplicate key S1:tutor1"));
+
+        assertTrue(ledger.postOnce("S1:tutor1", "SETTLEMENT", "S1:tutor1", "Settlement S1",
+                JournalLine.of(LedgerService.ESCROW, new BigDecimal("-10.00")),
+                JournalLine.of("tutor1", new BigDecimal("10.00"))));
+        assertFalse(ledger.postOnce("S1:tutor1", "SETTLEMENT", "S1:tutor1", "Settlement S1",
+                JournalLine.of(LedgerService.ESCROW, new BigDecimal("-10.00")),
+                JournalLine.of("tutor1", new BigDecimal("10.00"))));
+
+        ArgumentCaptor<JournalEntry> entry = ArgumentCaptor.forClass(JournalEntry.class);
+        verify(mongoTemplate, times(2)).insert(entry.capture());
+        assertEquals("S1:tutor1", entry.getValue().getId());
+    }
+
+    // ----------------------------------------------------------------------
+    // balanceAt()
+    // ----------------------------------------------------------------------
+    @Test
+    void testBalanceAt_snapshotPlusLinesSinceIt() {
+        Instant asOf = Instant.parse("2026-01-01T00:00:00Z");
+        when(mongoTemplate.findOne(any(Query.class), eq(BalanceSnapshot.class))).thenReturn(BalanceSnapshot.builder()
+                .account("user1").balance(new BigDecimal("40.00")).asOf(asOf).build());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class)))
+                .thenReturn(results(new Document("total", new Decimal128(new BigDecimal("2.50")))));
+
+        BigDecimal balance = ledger.balanceAt("user1", Instant.parse("2026-01-02T00:00:00Z"));
+
+        assertEquals(new BigDecimal("42.50"), balance);
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(JournalEntry.class), eq(Document.class));
+        Document createdAt = firstStage(captor.getValue()).get("createdAt", Document.class);
+        assertEquals(asOf, createdAt.get("$gt"));
+    }
+
+    @Test
+    void testBalanceAt_withoutSnapshotSumsWholeHistory() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class)))
+                .thenReturn(results(new Document("total", new Decimal128(new BigDecimal("7.00")))));
+
+        assertEquals(new BigDecimal("7.00"), ledger.balanceOf("user1"));
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(JournalEntry.class), eq(Document.class));
+        assertFalse(firstStage(captor.getValue()).get("createdAt", Document.class).containsKey("$gt"));
+    }
+
+    @Test
+    void testBalanceAt_noActivityIsZero() {
+        assertEquals(BigDecimal.ZERO, ledger.balanceOf("nobody"));
+    }
+
+    // ----------------------------------------------------------------------
+    // snapshot()
+    // ----------------------------------------------------------------------
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_firstRunSnapshotsEveryAccount() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class)))
+                .thenReturn(results(
+                        new Document("_id", "user1").append("delta", new Decimal128(new BigDecimal("80.00"))).append("lines", 3),
+                        new Document("_id", LedgerService.TOP_UP).append("delta", new Decimal128(new BigDecimal("-80.00"))).append("lines", 2)));
+
+        LedgerSnapshotRun run = ledger.snapshot();
+
+        ArgumentCaptor<Collection<BalanceSnapshot>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insertAll(captor.capture());
+        List<BalanceSnapshot> snapshots = new ArrayList<>(captor.getValue());
+        assertEquals(2, snapshots.size());
+        assertEquals(new BigDecimal("80.00"), snapshots.get(0).getBalance());
+        assertEquals(new BigDecimal("-80.00"), snapshots.get(1).getBalance());
+        assertEquals(run.getCutoff(), snapshots.get(0).getAsOf());
+        assertTrue(run.getCutoff().isBefore(Instant.now().minus(Duration.ofSeconds(299))));
+        assertEquals(2, run.getAccounts());
+        assertEquals(5, run.getLines());
+        // no previous run, so no opening balances to look up
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(BalanceSnapshot.class), eq(Document.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSnapshot_addsDeltaToOpeningBalance() {
+        Instant previousCutoff = Instant.now().minus(Duration.ofHours(2));
+        when(mongoTemplate.findOne(any(Query.class), eq(LedgerSnapshotRun.class)))
+                .thenReturn(LedgerSnapshotRun.builder().cutoff(previousCutoff).build());
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class)))
+                .thenReturn(results(new Document("_id", "user1")
+                        .append("delta", new Decimal128(new BigDecimal("-15.00"))).append("lines", 1)));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(BalanceSnapshot.class), eq(Document.class)))
+                .thenReturn(results(new Document("_id", "user1")
+                        .append("balance", new Decimal128(new BigDecimal("100.00")))));
+
+        ledger.snapshot();
+
+        ArgumentCaptor<Collection<BalanceSnapshot>> captor = ArgumentCaptor.forClass(Collection.class);
+        verify(mongoTemplate).insertAll(captor.capture());
+        BalanceSnapshot snapshot = captor.getValue().iterator().next();
+        assertEquals(new BigDecimal("85.00"), snapshot.getBalance());
+
+        ArgumentCaptor<Aggregation> window = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(window.capture(), eq(JournalEntry.class), eq(Document.class));
+        Document createdAt = firstStage(window.getValue()).get("createdAt", Document.class);
+        assertEquals(previousCutoff, createdAt.get("$gt"));
+    }
+
+    @Test
+    void testSnapshot_noNewLinesStillRecordsRun() {
+        LedgerSnapshotRun run = ledger.snapshot();
+
+        verify(mongoTemplate, never()).insertAll(any());
+        assertEquals(0, run.getAccounts());
+        verify(mongoTemplate).insert(any(LedgerSnapshotRun.class));
+    }
+
+    @Test
+    void testSnapshot_skipsWhenPreviousRunIsNotOlderThanCutoff() {
+        LedgerSnapshotRun previous = LedgerSnapshotRun.builder().cutoff(Instant.now()).build();
+        when(mongoTemplate.findOne(any(Query.class), eq(LedgerSnapshotRun.class))).thenReturn(previous);
+
+        assertSame(previous, ledger.snapshot());
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), eq(JournalEntry.class), eq(Document.class));
+    }
+}
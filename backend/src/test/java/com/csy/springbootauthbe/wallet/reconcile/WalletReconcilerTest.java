@@ -0,0 +1,328 @@
+package com.csy.springbootauthbe.wallet.reconcile;
+
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.lease.JobLeaseService;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import com.csy.springbootauthbe.wallet.service.CompanyWallet;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WalletReconcilerTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private CompanyWallet companyWallet;
+    @Mock
+    private JobLeaseService leases;
+
+    private WalletReconciler reconciler;
+
+    // Fake collections: wallets by owner, transaction sums by owner, bookings and payout rows by id
+    private final Map<String, Wallet> wallets = new TreeMap<>();
+    private final Map<String, Long> sums = new TreeMap<>();
+    private final Map<String, Booking> bookings = new TreeMap<>();
+    private final Map<String, Document> payouts = new TreeMap<>();
+    private final Map<String, CreditHold> accruals = new TreeMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        reconciler = new WalletReconciler(mongoTemplate, companyWallet, leases, 1, 2, 100, 10);
+        when(companyWallet.accounts()).thenReturn(List.of(CompanyWallet.ID, CompanyWallet.ID + "#0"));
+        when(leases.acquire(eq(WalletReconciler.JOB), any(Duration.class))).thenReturn(true);
+        when(leases.renew(eq(WalletReconciler.JOB), any(Duration.class))).thenReturn(true);
+        when(mongoTemplate.insert(any(ReconciliationRun.class))).thenAnswer(inv -> inv.getArgument(0));
+
+        // Cursors, in key order
+        when(mongoTemplate.stream(any(Query.class), eq(Wallet.class)))
+                .thenAnswer(inv -> wallets.values().stream());
+        when(mongoTemplate.stream(any(Query.class), eq(Booking.class)))
+                .thenAnswer(inv -> bookings.values().stream());
+        when(mongoTemplate.stream(any(Query.class), eq(CreditHold.class)))
+                .thenAnswer(inv -> accruals.values().stream());
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("wallet_transactions"), eq(Document.class)))
+                .thenAnswer(inv -> isPayouts(inv.getArgument(0))
+                        ? payouts.values().stream()
+                        : sums.entrySet().stream().map(e -> sumRow(e.getKey(), e.getValue())));
+
+        // Single reads of the rechecks and the company check
+        when(mongoTemplate.findOne(any(Query.class), eq(Wallet.class)))
+                .thenAnswer(inv -> wallets.get(((Query) inv.getArgument(0)).getQueryObject().getString("studentId")));
+        when(mongoTemplate.findById(anyString(), eq(Booking.class)))
+                .thenAnswer(inv -> bookings.get((String) inv.getArgument(0)));
+        when(mongoTemplate.findOne(any(Query.class), eq(CreditHold.class)))
+                .thenAnswer(inv -> accruals.get(((Query) inv.getArgument(0)).getQueryObject().getString("_id")));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("wallets"), eq(Document.class)))
+                .thenAnswer(inv -> results(new Document("total", companyBalance())));
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("wallet_transactions"), eq(Document.class)))
+                .thenAnswer(inv -> {
+                    Aggregation aggregation = inv.getArgument(0);
+                    if (isPayouts(aggregation)) {
+                        String bookingId = match(aggregation).getList("$and", Document.class).get(1).getString("refId");
+                        return payouts.containsKey(bookingId) ? results(payouts.get(bookingId)) : results();
+                    }
+                    String owner = match(aggregation).getString("studentId");
+                    return sums.containsKey(owner) ? results(sumRow(owner, sums.get(owner))) : results();
+                });
+    }
+
+    private static AggregationResults<Document> results(Document... rows) {
+        return new AggregationResults<>(List.of(rows), new Document());
+    }
+
+    private static Document match(Aggregation aggregation) {
+        return aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+    }
+
+    private static boolean isPayouts(Aggregation aggregation) {
+        return aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).stream()
+                .anyMatch(stage -> stage.get("$group") instanceof Document group && group.containsKey("tutorCount"));
+    }
+
+    private static Document sumRow(String owner, long total) {
+        return new Document("_id", owner).append("total", total).append("count", 1L);
+    }
+
+    private long companyBalance() {
+        return wallets.values().stream()
+                .filter(w -> w.getStudentId().startsWith(CompanyWallet.ID))
+                .mapToLong(w -> w.getBalance().minor())
+                .sum();
+    }
+
+    private void wallet(String owner, long balance) {
+        wallets.put(owner, Wallet.builder().studentId(owner).balance(Money.ofMinor(balance)).build());
+    }
+
+    private void booking(String id, String status, long amount, String originalBookingId) {
+        bookings.put(id, Booking.builder().id(id).status(status).amount(Money.ofMinor(amount))
+                .originalBookingId(originalBookingId).build());
+    }
+
+    private void payout(String bookingId, long tutorCount, long tutorTotal, long commissionCount, long commissionTotal) {
+        payouts.put(bookingId, new Document("_id", bookingId)
+                .append("tutorCount", tutorCount).append("tutorTotal", tutorTotal)
+                .append("commissionCount", commissionCount).append("commissionTotal", commissionTotal));
+    }
+
+    private static Discrepancy find(ReconciliationRun run, String subject) {
+        return run.getDiscrepancies().stream().filter(d -> d.getSubject().equals(subject)).findFirst().orElse(null);
+    }
+
+    // ----------------------------------------------------------------------
+    // Wallet balances
+    // ----------------------------------------------------------------------
+    @Test
+    void testReconcile_reportsBalanceMismatchAndMissingWallet() {
+        wallet("S1", 5000);
+        wallet("S2", 1000);
+        wallet("S3", 0);
+        wallet(CompanyWallet.ID + "#0", 500);
+        sums.put("S1", 5000L);
+        sums.put("S2", 2000L);
+        sums.put("S4", 700L);
+        sums.put(CompanyWallet.ID, 500L);
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        assertEquals(ReconciliationRun.COMPLETED, run.getStatus());
+        assertEquals(4, run.getWallets());
+        assertEquals(4, run.getTransactions());
+        assertEquals(2, run.getDiscrepancyCount());
+        assertEquals(Map.of("BALANCE_MISMATCH", 1L, "MISSING_WALLET", 1L), run.getByKind());
+
+        Discrepancy mismatch = find(run, "S2");
+        assertEquals(Discrepancy.Kind.BALANCE_MISMATCH, mismatch.getKind());
+        assertEquals(Money.ofMinor(2000), mismatch.getExpected());
+        assertEquals(Money.ofMinor(1000), mismatch.getActual());
+        assertEquals(Discrepancy.Kind.MISSING_WALLET, find(run, "S4").getKind());
+        assertNotNull(run.getCompletedAt());
+        verify(mongoTemplate).save(run);
+    }
+
+    @Test
+    void testReconcile_walletThatAgreesOnRecheckIsNotReported() {
+        wallet("S1", 5000);
+        sums.put("S1", 5000L);
+        // The cursor saw the balance before the matching transaction was written
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("wallet_transactions"), eq(Document.class)))
+                .thenAnswer(inv -> isPayouts(inv.getArgument(0)) ? payouts.values().stream()
+                        : List.of(sumRow("S1", 4000L)).stream());
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        assertEquals(0, run.getDiscrepancyCount());
+        assertTrue(run.getDiscrepancies().isEmpty());
+    }
+
+    @Test
+    void testReconcile_companyShardsAreCheckedTogether() {
+        wallet(CompanyWallet.ID + "#0", 300);
+        sums.put(CompanyWallet.ID, 500L);
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        Discrepancy company = find(run, CompanyWallet.ID);
+        assertEquals(Discrepancy.Kind.COMPANY_BALANCE_MISMATCH, company.getKind());
+        assertEquals(Money.ofMinor(500), company.getExpected());
+        assertEquals(Money.ofMinor(300), company.getActual());
+        assertEquals(1, run.getDiscrepancyCount());
+    }
+
+    @Test
+    void testReconcile_reportKeepsOnlyTheFirstFindings() {
+        for (int i = 10; i < 25; i++) {
+            wallet("S" + i, 100);
+        }
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        assertEquals(15, run.getDiscrepancyCount());
+        assertEquals(10, run.getDiscrepancies().size());
+    }
+
+    // ----------------------------------------------------------------------
+    // Booking payouts
+    // ----------------------------------------------------------------------
+    @Test
+    void testReconcile_reportsMissingDuplicateAndOrphanPayouts() {
+        booking("B1", "confirmed", 10000, null);
+        payout("B1", 1, 9500, 1, 500);
+        booking("B2", "completed", 5000, null);
+        booking("B3", "confirmed", 5000, "B0");     // paid under the booking it replaced
+        booking("B4", "confirmed", 2000, null);
+        payout("B4", 2, 3800, 1, 100);
+        booking("B5", "cancelled", 3000, null);
+        payout("B6", 1, 950, 1, 50);                // booking deleted
+        booking("B7", "confirmed", 2000, null);
+        payout("B7", 1, 1900, 0, 0);
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        assertEquals(6, run.getBookings());
+        assertEquals(4, run.getDiscrepancyCount());
+        assertEquals(Discrepancy.Kind.MISSING_PAYOUT, find(run, "B2").getKind());
+        assertEquals(Discrepancy.Kind.DUPLICATE_PAYOUT, find(run, "B4").getKind());
+        assertEquals(Discrepancy.Kind.ORPHAN_PAYOUT, find(run, "B6").getKind());
+        assertEquals(Discrepancy.Kind.INCOMPLETE_PAYOUT, find(run, "B7").getKind());
+        assertEquals(Money.ofMinor(1000), find(run, "B6").getActual());
+    }
+
+    @Test
+    void testReconcile_payoutThatDoesNotAddUp() {
+        booking("B1", "completed", 1999, null);
+        payout("B1", 1, 1899, 1, 99);
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        Discrepancy mismatch = find(run, "B1");
+        assertEquals(Discrepancy.Kind.PAYOUT_MISMATCH, mismatch.getKind());
+        assertEquals(Money.ofMinor(1999), mismatch.getExpected());
+        assertEquals(Money.ofMinor(1998), mismatch.getActual());
+    }
+
+    @Test
+    void testReconcile_accruedBookingIsPaidByItsSettlement() {
+        booking("B1", "confirmed", 5000, null);
+        accruals.put("B1", CreditHold.builder().bookingId("B1").status(CreditHold.ACCRUED).amount(Money.ofMinor(5000)).build());
+        booking("B2", "completed", 3000, null);
+        accruals.put("B2", CreditHold.builder().bookingId("B2").status(CreditHold.RELEASED).amount(Money.ofMinor(2000)).build());
+        booking("B3", "confirmed", 4000, null);
+        payout("B3", 1, 3800, 1, 200);
+        accruals.put("B3", CreditHold.builder().bookingId("B3").status(CreditHold.ACCRUED).amount(Money.ofMinor(4000)).build());
+
+        ReconciliationRun run = reconciler.reconcile("test");
+
+        assertEquals(3, run.getBookings());
+        assertEquals(2, run.getDiscrepancyCount());
+        assertNull(find(run, "B1"));
+        assertEquals(Discrepancy.Kind.PAYOUT_MISMATCH, find(run, "B2").getKind());
+        assertEquals(Discrepancy.Kind.DUPLICATE_PAYOUT, find(run, "B3").getKind());
+    }
+
+    // ----------------------------------------------------------------------
+    // Partitions and progress
+    // ----------------------------------------------------------------------
+    @Test
+    void testRanges_splitSampledKeysEvenly() {
+        reconciler = new WalletReconciler(mongoTemplate, companyWallet, leases, 4, 2, 100, 10);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("wallets"), eq(Document.class)))
+                .thenReturn(results(Stream.of("a", "b", "c", "d", "e", "f", "g", "h")
+                        .map(k -> new Document("studentId", k)).toArray(Document[]::new)));
+
+        List<WalletReconciler.KeyRange> ranges = reconciler.ranges("wallets", "studentId");
+
+        assertEquals(List.of(
+                new WalletReconciler.KeyRange(null, "c"),
+                new WalletReconciler.KeyRange("c", "e"),
+                new WalletReconciler.KeyRange("e", "g"),
+                new WalletReconciler.KeyRange("g", null)), ranges);
+        assertEquals(new Document("studentId", new Document("$gte", "c").append("$lt", "e")),
+                ranges.get(1).on("studentId").getCriteriaObject());
+        assertEquals(new Document("studentId", new Document("$lt", "c")), ranges.get(0).on("studentId").getCriteriaObject());
+        assertEquals(new Document(), new WalletReconciler.KeyRange(null, null).on("studentId").getCriteriaObject());
+    }
+
+    @Test
+    void testKeyRange_bookingIdBoundsBecomeHexForRefIds() {
+        ObjectId from = new ObjectId();
+
+        assertEquals(new WalletReconciler.KeyRange(from.toHexString(), null),
+                new WalletReconciler.KeyRange(from, null).asHex());
+    }
+
+    @Test
+    void testReconcile_skippedWhileAnotherRunHoldsTheLease() {
+        when(leases.acquire(eq(WalletReconciler.JOB), any(Duration.class))).thenReturn(false);
+
+        assertNull(reconciler.reconcile("test"));
+        RuntimeException ex = assertThrows(RuntimeException.class, () -> reconciler.start("admin:A1"));
+        assertEquals("A wallet reconciliation is already running", ex.getMessage());
+        verify(mongoTemplate, never()).insert(any(ReconciliationRun.class));
+    }
+
+    @Test
+    void testReconcile_releasesTheLeaseWhenDone() {
+        reconciler.reconcile("test");
+
+        verify(leases, atLeastOnce()).renew(eq(WalletReconciler.JOB), any(Duration.class));
+        verify(leases).release(WalletReconciler.JOB);
+    }
+
+    @Test
+    void testReconcile_failsWhenTheLeaseIsLost() {
+        when(leases.renew(eq(WalletReconciler.JOB), any(Duration.class))).thenReturn(false);
+
+        assertThrows(RuntimeException.class, () -> reconciler.reconcile("test"));
+        verify(leases).release(WalletReconciler.JOB);
+    }
+
+    @Test
+    void testProgress_idleShowsLastRun() {
+        ReconciliationRun last = ReconciliationRun.builder().id("R1").status(ReconciliationRun.COMPLETED).build();
+        when(mongoTemplate.findOne(any(Query.class), eq(ReconciliationRun.class))).thenReturn(last);
+
+        WalletReconciler.Progress progress = reconciler.progress();
+
+        assertFalse(progress.running());
+        assertEquals(last, progress.lastRun());
+    }
+}
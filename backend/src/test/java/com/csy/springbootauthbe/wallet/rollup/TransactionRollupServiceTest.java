@@ -0,0 +1,228 @@
+package com.csy.springbootauthbe.wallet.rollup;
+
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class TransactionRollupServiceTest {
+
+    private static final Instant AT = Instant.parse("2026-03-05T10:00:00Z");
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+    @Mock
+    private BulkOperations bulk;
+
+    private TransactionRollupService service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        service = new TransactionRollupService(mongoTemplate);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(TransactionRollup.class))).thenReturn(bulk);
+        when(mongoTemplate.insert(any(RollupBackfillRun.class))).thenAnswer(inv -> inv.getArgument(0));
+    }
+
+    private static AggregationResults<Document> results(Document... rows) {
+        return new AggregationResults<>(List.of(rows), new Document());
+    }
+
+    private static WalletTransaction txn(String type, String amount) {
+        return new WalletTransaction("T1", "tutor1", type, Money.of(new BigDecimal(amount)), "Payment for B1", "B1",
+                LocalDateTime.ofInstant(AT, ZoneId.systemDefault()));
+    }
+
+    // ----------------------------------------------------------------------
+    // record()
+    // ----------------------------------------------------------------------
+    @Test
+    void testRecord_incrementsDayBucketAndOffersHigh() {
+        service.record(txn("BOOKING_COMMISSION", "5.00"));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate).upsert(query.capture(), update.capture(), eq(TransactionRollup.class));
+        assertEquals("BOOKING_COMMISSION:2026-03-05", query.getValue().getQueryObject().getString("_id"));
+        Document ops = update.getValue().getUpdateObject();
+        assertEquals(1, ops.get("$inc", Document.class).get("count"));
+        assertEquals(500L, ops.get("$inc", Document.class).get("total"));
+        assertEquals(AT, ops.get("$min", Document.class).get("firstLiveAt"));
+        assertEquals(3, ops.get("$setOnInsert", Document.class).get("month"));
+
+        ArgumentCaptor<Query> high = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(high.capture(), any(Update.class), eq(TransactionHigh.class));
+        assertEquals("BOOKING_COMMISSION", high.getValue().getQueryObject().getString("_id"));
+        assertEquals(new Document("$lt", 500L), high.getValue().getQueryObject().get("amount.minor"));
+    }
+
+    @Test
+    void testRecord_bucketsByTheSingaporeDay() {
+        // 20:00 UTC is already 04:00 the next morning in Singapore
+        Instant evening = Instant.parse("2026-03-05T20:00:00Z");
+        service.record(new WalletTransaction("T2", "tutor1", "BOOKING_COMMISSION", Money.of(new BigDecimal("5.00")),
+                "Payment for B2", "B2", LocalDateTime.ofInstant(evening, ZoneId.systemDefault())));
+
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).upsert(query.capture(), any(Update.class), eq(TransactionRollup.class));
+        assertEquals("BOOKING_COMMISSION:2026-03-06", query.getValue().getQueryObject().getString("_id"));
+    }
+
+    @Test
+    void testRecord_smallerThanHighIsIgnored() {
+        doThrow(new DuplicateKeyException("E11000 duplicate key"))
+                .when(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(TransactionHigh.class));
+
+        assertDoesNotThrow(() -> service.record(txn("BOOKING_PAYMENT_TUTOR", "95.00")));
+    }
+
+    @Test
+    void testRecord_untypedTransactionIsSkipped() {
+        service.record(txn(null, "5.00"));
+
+        verifyNoInteractions(mongoTemplate);
+    }
+
+    // ----------------------------------------------------------------------
+    // monthlyTotals()
+    // ----------------------------------------------------------------------
+    @Test
+    void testMonthlyTotals_addsLiveAndBackfilledFiguresInMonthOrder() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(TransactionRollup.class), eq(Document.class)))
+                .thenReturn(results(
+                        new Document("_id", new Document("year", 2026).append("month", 1).append("type", "BOOKING_COMMISSION"))
+                                .append("count", 2L).append("total", 1000L)
+                                .append("backfillCount", 3L).append("backfillTotal", 1500L),
+                        new Document("_id", new Document("year", null).append("month", null).append("type", "BOOKING_COMMISSION"))
+                                .append("count", 0L).append("backfillCount", 1L).append("backfillTotal", 100L),
+                        new Document("_id", new Document("year", 2025).append("month", 12).append("type", "BOOKING_COMMISSION"))
+                                .append("count", 1L).append("total", 700L)));
+
+        List<TransactionRollupService.MonthTotal> totals = service.monthlyTotals(List.of("BOOKING_COMMISSION"));
+
+        assertEquals(List.of(
+                new TransactionRollupService.MonthTotal(2025, 12, "BOOKING_COMMISSION", 1, 700),
+                new TransactionRollupService.MonthTotal(2026, 1, "BOOKING_COMMISSION", 5, 2500),
+                new TransactionRollupService.MonthTotal(null, null, "BOOKING_COMMISSION", 1, 100)),
+                totals);
+    }
+
+    // ----------------------------------------------------------------------
+    // backfill()
+    // ----------------------------------------------------------------------
+    @Test
+    void testBackfill_completedRunIsNotRepeated() {
+        when(mongoTemplate.findById(TransactionRollupService.BACKFILL_ID, RollupBackfillRun.class))
+                .thenReturn(RollupBackfillRun.builder().id(TransactionRollupService.BACKFILL_ID)
+                        .cutoff(AT).completedAt(AT).build());
+
+        service.backfill();
+
+        verify(mongoTemplate, never()).aggregate(any(Aggregation.class), anyString(), eq(Document.class));
+        verify(mongoTemplate, never()).save(any(RollupBackfillRun.class));
+    }
+
+    @Test
+    void testBackfill_setsBucketsBeforeFirstLiveTransaction() {
+        when(mongoTemplate.findOne(any(Query.class), eq(TransactionRollup.class)))
+                .thenReturn(TransactionRollup.builder().firstLiveAt(AT).build());
+        ObjectId largestId = new ObjectId();
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("wallet_transactions"), eq(Document.class)))
+                .thenReturn(results(
+                        new Document("_id", new Document("type", "BOOKING_PAYMENT_TUTOR")
+                                .append("year", 2026).append("month", 3).append("day", 1))
+                                .append("count", 4).append("total", 38000L)
+                                .append("maxAmount", 19000L)
+                                .append("maxId", largestId).append("maxDescription", "Payment (95%) for booking ID: B9")
+                                .append("maxCreatedAt", Date.from(AT.minusSeconds(86400 * 4))),
+                        new Document("_id", new Document("type", "BOOKING_PAYMENT_TUTOR")
+                                .append("year", 2026).append("month", 3).append("day", 2))
+                                .append("count", 1).append("total", 9500L)
+                                .append("maxAmount", 9500L)
+                                .append("maxId", new ObjectId()).append("maxDescription", "smaller"),
+                        new Document("_id", new Document("type", "PURCHASE")
+                                .append("year", null).append("month", null).append("day", null))
+                                .append("count", 2).append("total", 4000L)
+                                .append("maxAmount", 2000L)
+                                .append("maxId", new ObjectId()).append("maxDescription", "Top-up credits")));
+
+        RollupBackfillRun run = service.backfill();
+
+        assertEquals(AT, run.getCutoff());
+        assertEquals(3, run.getBuckets());
+        assertEquals(7, run.getTransactions());
+        assertNotNull(run.getCompletedAt());
+        verify(mongoTemplate).save(run);
+
+        ArgumentCaptor<Query> bucket = ArgumentCaptor.forClass(Query.class);
+        ArgumentCaptor<Update> update = ArgumentCaptor.forClass(Update.class);
+        verify(bulk, times(3)).upsert(bucket.capture(), update.capture());
+        verify(bulk).execute();
+        assertEquals(List.of("BOOKING_PAYMENT_TUTOR:2026-03-01", "BOOKING_PAYMENT_TUTOR:2026-03-02", "PURCHASE:undated"),
+                bucket.getAllValues().stream().map(q -> q.getQueryObject().getString("_id")).toList());
+        Document set = update.getAllValues().get(0).getUpdateObject().get("$set", Document.class);
+        assertEquals(4L, set.get("backfillCount"));
+        assertEquals(38000L, set.get("backfillTotal"));
+        assertFalse(update.getAllValues().get(0).getUpdateObject().containsKey("$inc"));
+
+        // Days are cut in Singapore time, like the live buckets
+        ArgumentCaptor<Aggregation> pipeline = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(pipeline.capture(), eq("wallet_transactions"), eq(Document.class));
+        Document project = pipeline.getValue().getPipeline().getOperations().get(1)
+                .toPipelineStages(Aggregation.DEFAULT_CONTEXT).get(0).get("$project", Document.class);
+        assertEquals("Asia/Singapore",
+                project.get("day", Document.class).get("$dayOfMonth", Document.class).get("timezone"));
+
+        // Only the largest of each type is offered as its high
+        ArgumentCaptor<Update> high = ArgumentCaptor.forClass(Update.class);
+        verify(mongoTemplate, times(2)).upsert(any(Query.class), high.capture(), eq(TransactionHigh.class));
+        assertTrue(high.getAllValues().stream()
+                .map(u -> u.getUpdateObject().get("$set", Document.class))
+                .anyMatch(s -> largestId.toString().equals(s.get("transactionId"))
+                        && Money.ofMinor(19000).equals(s.get("amount"))
+                        && AT.minusSeconds(86400 * 4).equals(s.get("createdAt"))));
+    }
+
+    @Test
+    void testBackfill_withoutLiveTransactionsCoversEverythingSoFar() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq("wallet_transactions"), eq(Document.class)))
+                .thenReturn(results());
+        Instant before = Instant.now();
+
+        RollupBackfillRun run = service.backfill();
+
+        assertFalse(run.getCutoff().isBefore(before));
+        assertEquals(0, run.getTransactions());
+        verify(bulk, never()).execute();
+        verify(mongoTemplate).save(run);
+    }
+
+    @Test
+    void testBucketId() {
+        assertEquals("PURCHASE:2026-03-05", TransactionRollupService.bucketId("PURCHASE", LocalDate.of(2026, 3, 5)));
+        assertEquals("PURCHASE:undated", TransactionRollupService.bucketId("PURCHASE", null));
+    }
+}
@@ -0,0 +1,103 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationResults;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CompanyWalletTest {
+
+    @Mock
+    private MongoTemplate mongoTemplate;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Wallet.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(
+                        List.of(new Document("total", 4250L)), new Document()));
+    }
+
+    @Test
+    void testShardFor_stableAndWithinRange() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 8, 5);
+        for (int i = 0; i < 100; i++) {
+            String shard = wallet.shardFor("booking-" + i);
+            assertEquals(shard, wallet.shardFor("booking-" + i));
+            assertTrue(wallet.accounts().contains(shard));
+            assertNotEquals(CompanyWallet.ID, shard);
+        }
+    }
+
+    @Test
+    void testShardFor_bookingsSpreadOverAllShards() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 8, 5);
+        int[] perShard = new int[8];
+        for (int i = 0; i < 8000; i++) {
+            String shard = wallet.shardFor(java.util.UUID.randomUUID().toString());
+            perShard[Integer.parseInt(shard.substring(shard.indexOf('#') + 1))]++;
+        }
+        for (int count : perShard) {
+            assertTrue(count > 500 && count < 1500, "uneven shard load " + count);
+        }
+    }
+
+    @Test
+    void testAccounts_includeOriginalDocumentAndEveryShard() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 4, 5);
+        assertEquals(List.of("COMPANY_WALLET", "COMPANY_WALLET#0", "COMPANY_WALLET#1",
+                "COMPANY_WALLET#2", "COMPANY_WALLET#3"), wallet.accounts());
+    }
+
+    @Test
+    void testBalance_sumsShardsInOneQuery() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 4, 5);
+
+        assertEquals(Money.ofMinor(4250), wallet.balance());
+
+        ArgumentCaptor<Aggregation> captor = ArgumentCaptor.forClass(Aggregation.class);
+        verify(mongoTemplate).aggregate(captor.capture(), eq(Wallet.class), eq(Document.class));
+        Document match = captor.getValue().toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+        assertEquals(wallet.accounts(), match.get("studentId", Document.class).get("$in"));
+    }
+
+    @Test
+    void testBalance_cachedWithinStaleness() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 4, 60);
+
+        wallet.balance();
+        wallet.balance();
+        wallet.balance();
+
+        verify(mongoTemplate, times(1)).aggregate(any(Aggregation.class), eq(Wallet.class), eq(Document.class));
+    }
+
+    @Test
+    void testBalance_zeroStalenessAlwaysReloads() {
+        CompanyWallet wallet = new CompanyWallet(mongoTemplate, 4, 0);
+
+        wallet.balance();
+        wallet.balance();
+
+        verify(mongoTemplate, times(2)).aggregate(any(Aggregation.class), eq(Wallet.class), eq(Document.class));
+    }
+
+    @Test
+    void testBalance_noWalletsIsZero() {
+        when(mongoTemplate.aggregate(any(Aggregation.class), eq(Wallet.class), eq(Document.class)))
+                .thenReturn(new AggregationResults<>(List.of(), new Document()));
+        assertEquals(Money.ZERO, new CompanyWallet(mongoTemplate, 4, 5).balance());
+    }
+}
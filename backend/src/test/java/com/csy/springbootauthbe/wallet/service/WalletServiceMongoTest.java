@@ -0,0 +1,115 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.index.IndexCatalog;
+import com.csy.springbootauthbe.common.index.IndexCatalogInitializer;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxService;
+import com.csy.springbootauthbe.config.EmbeddedMongo;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.Wallet;
+import com.csy.springbootauthbe.wallet.ledger.LedgerService;
+import com.csy.springbootauthbe.wallet.repository.WalletTransactionRepository;
+import com.csy.springbootauthbe.wallet.rollup.TransactionRollupService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Wallet updates racing on a real mongod, where the conditional $inc and the unique indexes
+ * decide the outcome. Journal, transaction history, outbox, commission shards and rollups are mocked.
+ */
+class WalletServiceMongoTest {
+
+    private static final Instant LESSON_END = Instant.parse("2030-01-07T03:00:00Z");
+
+    private MongoTemplate mongoTemplate;
+    private WalletService walletService;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = EmbeddedMongo.template("wallet_service_test");
+        new IndexCatalogInitializer(new IndexCatalog(), mongoTemplate, mock(ApplicationEventPublisher.class)).run(null);
+        walletService = new WalletService(mongoTemplate, mock(WalletTransactionRepository.class),
+                mock(OutboxService.class), mock(LedgerService.class), mock(CompanyWallet.class), mock(TransactionRollupService.class));
+        walletService.addCredits("user1", money("100.00"), "REF0");
+    }
+
+    @Test
+    void testHoldCredits_parallelHoldsNeverOverspend() throws Exception {
+        // 100.00 covers exactly ten 10.00 holds; forty requests race for them
+        int requests = 40;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger refused = new AtomicInteger();
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            String bookingId = "BKG-" + i;
+            done.add(pool.submit(() -> {
+                start.await();
+                try {
+                    walletService.holdCredits("user1", money("10.00"), bookingId, CreditHold.expiryFor(LESSON_END));
+                    held.incrementAndGet();
+                } catch (RuntimeException e) {
+                    refused.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        Wallet wallet = walletService.getWallet("user1");
+        assertEquals(10, held.get());
+        assertEquals(requests - 10, refused.get());
+        assertEquals(0, Money.ZERO.compareTo(wallet.getBalance()));
+        assertEquals(0, money("100.00").compareTo(wallet.getHeld()));
+        assertEquals(10, mongoTemplate.count(Query.query(Criteria.where("status").is(CreditHold.ACTIVE)), CreditHold.class));
+    }
+
+    @Test
+    void testParallelCreditsHoldsAndDebits_balanceStaysExact() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String bookingId = "BKG-" + i;
+            done.add(pool.submit(() -> walletService.addCredits("user1", money("3.00"), "REF")));
+            done.add(pool.submit(() -> walletService.deductCredits("user1", money("2.00"), "BKG")));
+            done.add(pool.submit(() -> {
+                walletService.holdCredits("user1", money("1.00"), bookingId, CreditHold.expiryFor(LESSON_END));
+                walletService.refundStudent("user1", money("1.00"), bookingId);
+                return null;
+            }));
+        }
+        for (Future<?> f : done) f.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        // 100 + 50 * (3 - 2), every hold refunded; no update is lost to a read-modify-write race
+        Wallet wallet = walletService.getWallet("user1");
+        assertEquals(0, money("150.00").compareTo(wallet.getBalance()));
+        assertEquals(0, Money.ZERO.compareTo(wallet.getHeld()));
+        assertEquals(1, mongoTemplate.count(Query.query(Criteria.where("studentId").is("user1")), Wallet.class));
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
@@ -1,19 +1,39 @@
 package com.csy.springbootauthbe.wallet.service;
 
 import com.csy.springbootauthbe.admin.dto.AdminDashboardDTO;
-import com.csy.springbootauthbe.wallet.dto.MonthlyEarningDTO;
+import com.csy.springbootauthbe.booking.entity.Booking;
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.common.outbox.OutboxService;
+import com.csy.springbootauthbe.wallet.entity.CreditHold;
+import com.csy.springbootauthbe.wallet.entity.SettlementRun;
+import com.csy.springbootauthbe.wallet.entity.SettlementStatement;
 import com.csy.springbootauthbe.wallet.entity.Wallet;
 import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
-import com.csy.springbootauthbe.wallet.repository.WalletRepository;
+import com.csy.springbootauthbe.wallet.ledger.JournalLine;
+import com.csy.springbootauthbe.wallet.ledger.LedgerService;
 import com.csy.springbootauthbe.wallet.repository.WalletTransactionRepository;
+import com.csy.springbootauthbe.wallet.rollup.TransactionHigh;
+import com.csy.springbootauthbe.wallet.rollup.TransactionRollupService;
+import com.mongodb.client.result.UpdateResult;
+import org.bson.Document;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.BasicQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -21,40 +41,327 @@ import static org.mockito.Mockito.*;
 class WalletServiceTest {
 
     @Mock
-    private WalletRepository walletRepo;
+    private MongoTemplate mongoTemplate;
     @Mock
     private WalletTransactionRepository txnRepo;
+    @Mock
+    private OutboxService outboxService;
+    @Mock
+    private LedgerService ledger;
+    @Mock
+    private CompanyWallet companyWallet;
+    @Mock
+    private TransactionRollupService rollups;
     @InjectMocks
     private WalletService walletService;
 
-    private Wallet sampleWallet;
+    /** Stands in for the wallets collection, keyed by its unique studentId. */
+    private final Map<String, Wallet> wallets = new HashMap<>();
 
     @BeforeEach
     void setup() {
         MockitoAnnotations.openMocks(this);
-        sampleWallet = new Wallet("id1", "user1", new BigDecimal("100.00"),
-                "SGD", null, false, LocalDateTime.now());
+        wallets.put("user1", new Wallet("id1", "user1", money("100.00"), Money.ZERO,
+                "SGD", null, false, LocalDateTime.now()));
+        when(companyWallet.shardFor(anyString())).thenAnswer(inv -> "COMPANY_WALLET#" + Math.floorMod(inv.getArgument(0).hashCode(), 4));
+        when(companyWallet.balance()).thenReturn(Money.ZERO);
+
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Wallet.class)))
+                .thenAnswer(inv -> {
+                    FindAndModifyOptions options = inv.getArgument(2);
+                    return apply(inv.getArgument(0), inv.getArgument(1), options.isUpsert(), options.isReturnNew());
+                });
+        when(mongoTemplate.upsert(any(Query.class), any(Update.class), eq(Wallet.class))).thenAnswer(inv -> {
+            apply(inv.getArgument(0), inv.getArgument(1), true, true);
+            return null;
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(Wallet.class))).thenAnswer(inv -> {
+            apply(inv.getArgument(0), inv.getArgument(1), false, true);
+            return null;
+        });
+        BulkOperations bulk = mock(BulkOperations.class);
+        when(mongoTemplate.bulkOps(any(BulkOperations.BulkMode.class), eq(Wallet.class))).thenReturn(bulk);
+        when(bulk.updateOne(any(Query.class), any(Update.class))).thenAnswer(inv -> {
+            apply(inv.getArgument(0), inv.getArgument(1), false, true);
+            return bulk;
+        });
+        when(bulk.upsert(any(Query.class), any(Update.class))).thenAnswer(inv -> {
+            apply(inv.getArgument(0), inv.getArgument(1), true, true);
+            return bulk;
+        });
+
+        // credit_holds and settlement_statements
+        when(mongoTemplate.insertAll(anyCollection())).thenAnswer(inv -> {
+            Collection<?> batch = inv.getArgument(0);
+            if (!batch.isEmpty() && batch.iterator().next() instanceof SettlementStatement) {
+                batch.forEach(s -> statements.add((SettlementStatement) s));
+                return batch;
+            }
+            return insertHolds((Collection<CreditHold>) batch);
+        });
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(CreditHold.class)))
+                .thenAnswer(inv -> {
+                    List<CreditHold> updated = updateHolds(inv.getArgument(0), inv.getArgument(1), 1);
+                    return updated.isEmpty() ? null : updated.get(0);
+                });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(CreditHold.class))).thenAnswer(inv -> {
+            long n = updateHolds(inv.getArgument(0), inv.getArgument(1), Integer.MAX_VALUE).size();
+            return UpdateResult.acknowledged(n, n, null);
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(CreditHold.class))).thenAnswer(inv -> {
+            long n = updateHolds(inv.getArgument(0), inv.getArgument(1), 1).size();
+            return UpdateResult.acknowledged(n, n, null);
+        });
+        when(mongoTemplate.find(any(Query.class), eq(CreditHold.class))).thenAnswer(inv -> findHolds(inv.getArgument(0)));
+        when(mongoTemplate.stream(any(Query.class), eq(CreditHold.class))).thenAnswer(inv -> findHolds(inv.getArgument(0))
+                .stream().sorted(Comparator.comparing(CreditHold::getTutorId).thenComparing(CreditHold::getBookingId)));
+        when(mongoTemplate.aggregateStream(any(Aggregation.class), eq("credit_holds"), eq(Document.class))).thenAnswer(inv -> {
+            // $match then $group by studentId summing amount.minor
+            Aggregation aggregation = inv.getArgument(0);
+            Document match = aggregation.toPipeline(Aggregation.DEFAULT_CONTEXT).get(0).get("$match", Document.class);
+            Map<String, Long> perStudent = findHolds(new BasicQuery(match)).stream()
+                    .collect(Collectors.groupingBy(CreditHold::getStudentId, LinkedHashMap::new,
+                            Collectors.summingLong(h -> h.getAmount().minor())));
+            return perStudent.entrySet().stream().map(e -> new Document("_id", e.getKey()).append("total", e.getValue()));
+        });
+        when(mongoTemplate.findOne(any(Query.class), eq(CreditHold.class))).thenAnswer(inv -> {
+            synchronized (this) {
+                return holds.values().stream().min(Comparator.comparing(CreditHold::getCreatedAt)).map(WalletServiceTest::copy).orElse(null);
+            }
+        });
+        when(mongoTemplate.exists(any(Query.class), eq(CreditHold.class)))
+                .thenAnswer(inv -> !findHolds(inv.getArgument(0)).isEmpty());
+        when(mongoTemplate.remove(any(Query.class), eq(CreditHold.class))).thenAnswer(inv -> {
+            synchronized (this) {
+                findHolds(inv.getArgument(0)).forEach(h -> holds.remove(h.getBookingId()));
+            }
+            return null;
+        });
+
+        // settlement_statements reads and paidAt marks
+        when(mongoTemplate.find(any(Query.class), eq(SettlementStatement.class))).thenAnswer(inv -> {
+            Collection<?> ids = (Collection<?>) ((Query) inv.getArgument(0)).getQueryObject().get("_id", Document.class).get("$in");
+            return statements.stream().filter(st -> ids.contains(st.getId())).toList();
+        });
+        when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(SettlementStatement.class))).thenAnswer(inv -> {
+            Collection<?> ids = (Collection<?>) ((Query) inv.getArgument(0)).getQueryObject().get("_id", Document.class).get("$in");
+            Instant paidAt = (Instant) ((Update) inv.getArgument(1)).getUpdateObject().get("$set", Document.class).get("paidAt");
+            statements.stream().filter(st -> ids.contains(st.getId())).forEach(st -> st.setPaidAt(paidAt));
+            return null;
+        });
+
+        // settlement_runs
+        when(mongoTemplate.insert(any(SettlementRun.class))).thenAnswer(inv -> {
+            SettlementRun run = inv.getArgument(0);
+            runs.put(run.getId(), run);
+            return run;
+        });
+        when(mongoTemplate.find(any(Query.class), eq(SettlementRun.class))).thenAnswer(inv -> runs.values().stream()
+                .filter(r -> SettlementRun.CLAIMED.equals(r.getStatus())).toList());
+        when(mongoTemplate.remove(any(SettlementRun.class))).thenAnswer(inv -> {
+            runs.remove(((SettlementRun) inv.getArgument(0)).getId());
+            return null;
+        });
+        when(mongoTemplate.updateFirst(any(Query.class), any(Update.class), eq(SettlementRun.class))).thenAnswer(inv -> {
+            SettlementRun run = runs.get(((Query) inv.getArgument(0)).getQueryObject().getString("_id"));
+            Document set = ((Update) inv.getArgument(1)).getUpdateObject().get("$set", Document.class);
+            if (set.containsKey("status") && failRunPaid) {
+                failRunPaid = false;
+                throw new RuntimeException("mongo down");
+            }
+            if (set.containsKey("commissionPaidAt")) run.setCommissionPaidAt((Instant) set.get("commissionPaidAt"));
+            if (set.containsKey("status")) {
+                run.setStatus(set.getString("status"));
+                run.setPaidAt((Instant) set.get("paidAt"));
+                run.setStatements(set.getInteger("statements"));
+            }
+            return null;
+        });
+    }
+
+    /** Stands in for the credit_holds collection, keyed by bookingId. */
+    private final Map<String, CreditHold> holds = new LinkedHashMap<>();
+
+    /** Statements the settlement runs inserted. */
+    private final List<SettlementStatement> statements = new ArrayList<>();
+
+    /** Stands in for the settlement_runs collection. */
+    private final Map<String, SettlementRun> runs = new LinkedHashMap<>();
+    /** Fails the next write that marks a settlement run PAID. */
+    private boolean failRunPaid;
+
+    private synchronized Collection<CreditHold> insertHolds(Collection<CreditHold> batch) {
+        for (CreditHold hold : batch) {
+            if (holds.containsKey(hold.getBookingId())) {
+                throw new DuplicateKeyException("E11000 duplicate key " + hold.getBookingId());
+            }
+            holds.put(hold.getBookingId(), copy(hold));
+        }
+        return batch;
+    }
+
+    private synchronized List<CreditHold> findHolds(Query query) {
+        Document filter = query.getQueryObject();
+        List<CreditHold> found = new ArrayList<>();
+        for (CreditHold hold : holds.values()) {
+            if (matches(hold, filter)) found.add(copy(hold));
+            if (query.getLimit() > 0 && found.size() == query.getLimit()) break;
+        }
+        return found;
+    }
+
+    private synchronized List<CreditHold> updateHolds(Query query, Update update, int max) {
+        Document set = update.getUpdateObject().get("$set", Document.class);
+        List<CreditHold> updated = new ArrayList<>();
+        for (CreditHold hold : holds.values()) {
+            if (updated.size() == max || !matches(hold, query.getQueryObject())) continue;
+            set.forEach((field, value) -> {
+                switch (field) {
+                    case "status" -> hold.setStatus((String) value);
+                    case "settledAt" -> hold.setSettledAt((Instant) value);
+                    case "settlementId" -> hold.setSettlementId((String) value);
+                    case "tutorId" -> hold.setTutorId((String) value);
+                    case "accruedAt" -> hold.setAccruedAt((Instant) value);
+                    case "refundedAt" -> hold.setRefundedAt((Instant) value);
+                    default -> fail("unexpected field " + field);
+                }
+            });
+            updated.add(copy(hold));
+        }
+        return updated;
+    }
+
+    private static CreditHold copy(CreditHold h) {
+        return new CreditHold(h.getBookingId(), h.getStudentId(), h.getAmount(), h.getStatus(),
+                h.getCreatedAt(), h.getExpiresAt(), h.getSettledAt(), h.getSettlementId(), h.getTutorId(), h.getAccruedAt(),
+                h.getRefundedAt());
+    }
+
+    private static boolean matches(CreditHold hold, Document filter) {
+        for (Map.Entry<String, Object> condition : filter.entrySet()) {
+            Object actual = switch (condition.getKey()) {
+                case "_id" -> hold.getBookingId();
+                case "studentId" -> hold.getStudentId();
+                case "status" -> hold.getStatus();
+                case "settlementId" -> hold.getSettlementId();
+                case "createdAt" -> hold.getCreatedAt();
+                case "expiresAt" -> hold.getExpiresAt();
+                case "tutorId" -> hold.getTutorId();
+                case "accruedAt" -> hold.getAccruedAt();
+                case "refundedAt" -> hold.getRefundedAt();
+                default -> throw new AssertionError("unexpected filter " + condition.getKey());
+            };
+            Object expected = condition.getValue();
+            if (expected instanceof Document op) {
+                if (op.containsKey("$exists") && op.getBoolean("$exists") != (actual != null)) return false;
+                if (op.containsKey("$in") && !((Collection<?>) op.get("$in")).contains(actual)) return false;
+                if (op.containsKey("$lte") && (actual == null || ((Instant) actual).isAfter((Instant) op.get("$lte")))) return false;
+                if (op.containsKey("$lt") && (actual == null || !((Instant) actual).isBefore((Instant) op.get("$lt")))) return false;
+            } else if (!Objects.equals(expected, actual)) {
+                return false;
+            }
+        }
+        return true;
     }
 
+    /** Evaluates the studentId/balance.minor filters and $inc/$set/$setOnInsert the service sends, atomically. */
+    private synchronized Wallet apply(Query query, Update update, boolean upsert, boolean returnNew) {
+        Document filter = query.getQueryObject();
+        Document ops = update.getUpdateObject();
+        String studentId = filter.getString("studentId");
+        Wallet wallet = wallets.get(studentId);
+
+        if (wallet != null && filter.get("balance.minor") instanceof Document bound) {
+            long balance = wallet.getBalance().minor();
+            if (bound.containsKey("$gte") && balance < (Long) bound.get("$gte")) return null;
+            if (bound.containsKey("$gt") && balance <= (Long) bound.get("$gt")) return null;
+        }
+        boolean inserted = false;
+        if (wallet == null) {
+            if (!upsert) return null;
+            wallet = new Wallet(UUID.randomUUID().toString(), studentId, Money.ZERO, Money.ZERO, null, null, null, null);
+            wallets.put(studentId, wallet);
+            inserted = true;
+        }
+        Wallet before = copy(wallet);
+
+        if (inserted) set(wallet, ops.get("$setOnInsert", Document.class));
+        set(wallet, ops.get("$set", Document.class));
+        Document inc = ops.get("$inc", Document.class);
+        if (inc != null && inc.containsKey("balance.minor")) {
+            wallet.setBalance(wallet.getBalance().plus(Money.ofMinor((Long) inc.get("balance.minor"))));
+        }
+        if (inc != null && inc.containsKey("held.minor")) {
+            wallet.setHeld(wallet.getHeld().plus(Money.ofMinor((Long) inc.get("held.minor"))));
+        }
+        return returnNew ? copy(wallet) : (inserted ? null : before);
+    }
+
+    private static void set(Wallet wallet, Document fields) {
+        if (fields == null) return;
+        fields.forEach((field, value) -> {
+            switch (field) {
+                case "balance" -> wallet.setBalance((Money) value);
+                case "balance.minor" -> wallet.setBalance(Money.ofMinor((Long) value));
+                case "balance.currency" -> assertEquals(wallet.getBalance().currency(), value);
+                case "held" -> wallet.setHeld((Money) value);
+                case "currency" -> wallet.setCurrency((String) value);
+                case "walletPin" -> wallet.setWalletPin((String) value);
+                case "pinSet" -> wallet.setPinSet((Boolean) value);
+                case "updatedAt" -> wallet.setUpdatedAt((LocalDateTime) value);
+                default -> fail("unexpected field " + field);
+            }
+        });
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+
+    private static Wallet copy(Wallet w) {
+        return new Wallet(w.getId(), w.getStudentId(), w.getBalance(), w.getHeld(), w.getCurrency(),
+                w.getWalletPin(), w.getPinSet(), w.getUpdatedAt());
+    }
+
+    private Money balanceOf(String studentId) {
+        return wallets.get(studentId).getBalance();
+    }
+
+    private Money heldOf(String studentId) {
+        return wallets.get(studentId).getHeld();
+    }
+
+    private static final Instant LESSON_END = Instant.parse("2030-01-07T03:00:00Z");
+
     // ----------------------------------------------------------------------
     // getWallet()
     // ----------------------------------------------------------------------
     @Test
     void testGetWallet_existingWallet() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
         Wallet result = walletService.getWallet("user1");
-        assertEquals(sampleWallet, result);
-        verify(walletRepo, never()).save(any());
+        assertEquals("id1", result.getId());
+        assertEquals(0, money("100.00").compareTo(result.getBalance()));
+        assertEquals(1, wallets.size());
     }
 
     @Test
     void testGetWallet_createsNewWalletWhenAbsent() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.empty());
-        when(walletRepo.save(any(Wallet.class))).thenAnswer(i -> i.getArgument(0));
-        Wallet result = walletService.getWallet("user1");
-        assertEquals("user1", result.getStudentId());
-        assertEquals(BigDecimal.ZERO, result.getBalance());
-        verify(walletRepo).save(any(Wallet.class));
+        Wallet result = walletService.getWallet("user2");
+        assertEquals("user2", result.getStudentId());
+        assertEquals(0, Money.ZERO.compareTo(result.getBalance()));
+        assertEquals("SGD", result.getCurrency());
+        assertFalse(result.getPinSet());
+        verify(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Wallet.class));
+    }
+
+    @Test
+    void testGetWallet_retriesWhenParallelInsertWins() {
+        Wallet existing = copy(wallets.get("user1"));
+        doThrow(new DuplicateKeyException("E11000 duplicate key studentId"))
+                .doReturn(existing)
+                .when(mongoTemplate).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Wallet.class));
+
+        assertSame(existing, walletService.getWallet("user1"));
     }
 
     // ----------------------------------------------------------------------
@@ -62,18 +369,15 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testSetAndVerifyWalletPin_success() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        when(walletRepo.save(any(Wallet.class))).thenAnswer(i -> i.getArgument(0));
         walletService.setWalletPin("user1", "1234");
-        assertTrue(sampleWallet.getPinSet());
-        assertNotNull(sampleWallet.getWalletPin());
+        assertTrue(wallets.get("user1").getPinSet());
+        assertNotNull(wallets.get("user1").getWalletPin());
         assertTrue(walletService.verifyWalletPin("user1", "1234"));
+        assertEquals(0, money("100.00").compareTo(balanceOf("user1")));
     }
 
     @Test
     void testVerifyWalletPin_returnsFalseWhenPinNotSet() {
-        sampleWallet.setWalletPin(null);
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
         assertFalse(walletService.verifyWalletPin("user1", "any"));
     }
 
@@ -82,10 +386,21 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testAddCredits_incrementsBalanceAndCreatesTransaction() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        walletService.addCredits("user1", new BigDecimal("50.00"), "REF123");
-        assertEquals(new BigDecimal("150.00"), sampleWallet.getBalance());
+        walletService.addCredits("user1", money("50.00"), "REF123");
+        assertEquals(money("150.00"), balanceOf("user1"));
         verify(txnRepo).save(any(WalletTransaction.class));
+        verify(outboxService).append(argThat(e -> OutboxEntry.WALLET_TRANSACTION.equals(e.getAggregateType())
+                && "PURCHASE".equals(e.getEventType())));
+        verify(ledger).post(eq("PURCHASE"), eq("REF123"), anyString(),
+                eq(JournalLine.of(LedgerService.TOP_UP, new BigDecimal("-50.00"))),
+                eq(JournalLine.of("user1", new BigDecimal("50.00"))));
+    }
+
+    @Test
+    void testAddCredits_createsWalletOnFirstTopUp() {
+        walletService.addCredits("user2", money("25.00"), "REF124");
+        assertEquals(money("25.00"), balanceOf("user2"));
+        assertEquals("SGD", wallets.get("user2").getCurrency());
     }
 
     // ----------------------------------------------------------------------
@@ -93,19 +408,29 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testDeductCredits_successful() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        walletService.deductCredits("user1", new BigDecimal("40.00"), "BKG1");
-        assertEquals(new BigDecimal("60.00"), sampleWallet.getBalance());
+        Wallet result = walletService.deductCredits("user1", money("40.00"), "BKG1");
+        assertEquals(money("60.00"), balanceOf("user1"));
+        assertEquals(money("60.00"), result.getBalance());
         verify(txnRepo).save(any(WalletTransaction.class));
     }
 
     @Test
     void testDeductCredits_insufficientBalanceThrows() {
-        sampleWallet.setBalance(new BigDecimal("10.00"));
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        assertThrows(RuntimeException.class,
-                () -> walletService.deductCredits("user1", new BigDecimal("50.00"), "BKG1"));
+        wallets.get("user1").setBalance(money("10.00"));
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> walletService.deductCredits("user1", money("50.00"), "BKG1"));
+        assertEquals("Insufficient credits", ex.getMessage());
+        assertEquals(money("10.00"), balanceOf("user1"));
         verify(txnRepo, never()).save(any());
+        verify(outboxService, never()).append(any());
+        verifyNoInteractions(ledger);
+    }
+
+    @Test
+    void testDeductCredits_noWalletThrows() {
+        assertThrows(RuntimeException.class,
+                () -> walletService.deductCredits("user2", money("1.00"), "BKG1"));
+        assertFalse(wallets.containsKey("user2"));
     }
 
     // ----------------------------------------------------------------------
@@ -113,18 +438,73 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testHoldCredits_success() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        walletService.holdCredits("user1", new BigDecimal("30.00"), "BKG2");
-        assertEquals(new BigDecimal("70.00"), sampleWallet.getBalance());
+        walletService.holdCredits("user1", money("30.00"), "BKG2", CreditHold.expiryFor(LESSON_END));
+        assertEquals(money("70.00"), balanceOf("user1"));
+        assertEquals(money("30.00"), heldOf("user1"));
+        CreditHold hold = holds.get("BKG2");
+        assertEquals(CreditHold.ACTIVE, hold.getStatus());
+        assertEquals("user1", hold.getStudentId());
+        assertEquals(money("30.00"), hold.getAmount());
+        assertEquals(LESSON_END.plus(CreditHold.GRACE), hold.getExpiresAt());
         verify(txnRepo).save(any(WalletTransaction.class));
+        verify(ledger).post(eq("BOOKING_HOLD"), eq("BKG2"), anyString(),
+                eq(JournalLine.of("user1", new BigDecimal("-30.00"))),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("30.00"))));
+    }
+
+    @Test
+    void testHoldCredits_exactBalanceSucceeds() {
+        walletService.holdCredits("user1", money("100.00"), "BKG2", CreditHold.expiryFor(LESSON_END));
+        assertEquals(0, Money.ZERO.compareTo(balanceOf("user1")));
     }
 
     @Test
     void testHoldCredits_insufficientFundsThrows() {
-        sampleWallet.setBalance(BigDecimal.ZERO);
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        assertThrows(RuntimeException.class,
-                () -> walletService.holdCredits("user1", new BigDecimal("1.00"), "BKG2"));
+        wallets.get("user1").setBalance(Money.ZERO);
+        RuntimeException ex = assertThrows(RuntimeException.class,
+                () -> walletService.holdCredits("user1", money("1.00"), "BKG2", CreditHold.expiryFor(LESSON_END)));
+        assertEquals("Insufficient credits to hold for booking", ex.getMessage());
+        assertTrue(holds.isEmpty());
+    }
+
+    @Test
+    void testHoldCredits_seriesIsOneWalletUpdateAndAHoldPerBooking() {
+        walletService.holdCredits("user1", List.of(
+                CreditHold.of("B1", money("20.00"), LESSON_END),
+                CreditHold.of("B2", money("20.00"), LESSON_END),
+                CreditHold.of("B3", money("20.00"), LESSON_END)), "RECURRING-S1");
+
+        assertEquals(money("40.00"), balanceOf("user1"));
+        assertEquals(money("60.00"), heldOf("user1"));
+        assertEquals(Set.of("B1", "B2", "B3"), holds.keySet());
+        verify(mongoTemplate, times(1)).findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class), eq(Wallet.class));
+        verify(txnRepo, times(1)).save(argThat((WalletTransaction t) -> "RECURRING-S1".equals(t.getRefId())));
+    }
+
+    @Test
+    void testHoldCredits_failedHoldInsertGivesCreditsBack() {
+        CreditHold existing = CreditHold.builder().bookingId("B2").studentId("other").amount(money("1.00"))
+                .status(CreditHold.ACTIVE).createdAt(Instant.EPOCH).build();
+        holds.put("B2", existing);
+
+        assertThrows(DuplicateKeyException.class, () -> walletService.holdCredits("user1", List.of(
+                CreditHold.of("B1", money("20.00"), LESSON_END),
+                CreditHold.of("B2", money("20.00"), LESSON_END)), "RECURRING-S1"));
+
+        assertEquals(0, money("100.00").compareTo(balanceOf("user1")));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        assertFalse(holds.containsKey("B1"));
+        assertEquals("other", holds.get("B2").getStudentId());
+        verifyNoInteractions(ledger, txnRepo);
+    }
+
+    @Test
+    void testGetActiveHolds() {
+        walletService.holdCredits("user1", money("30.00"), "BKG2", CreditHold.expiryFor(LESSON_END));
+        walletService.refundStudent("user1", money("30.00"), "BKG2");
+        walletService.holdCredits("user1", money("10.00"), "BKG3", CreditHold.expiryFor(LESSON_END));
+
+        assertEquals(List.of("BKG3"), walletService.getActiveHolds("user1").stream().map(CreditHold::getBookingId).toList());
     }
 
     // ----------------------------------------------------------------------
@@ -132,17 +512,237 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testReleaseToTutor_distributesFundsCorrectly() {
-        Wallet tutor = new Wallet("id2", "tutor1", BigDecimal.ZERO, "SGD", null, false, LocalDateTime.now());
-        Wallet company = new Wallet("id3", "COMPANY_WALLET", BigDecimal.ZERO, "SGD", null, false, LocalDateTime.now());
-
-        when(walletRepo.findByStudentId("tutor1")).thenReturn(Optional.of(tutor));
-        when(walletRepo.findByStudentId("COMPANY_WALLET")).thenReturn(Optional.of(company));
+        String shard = companyWallet.shardFor("BKG3");
+        wallets.put(shard, new Wallet("id3", shard, Money.ZERO, Money.ZERO, "SGD", null, false, LocalDateTime.now()));
 
-        walletService.releaseToTutor("student1", "tutor1", new BigDecimal("100.00"), "BKG3");
+        walletService.releaseToTutor("student1", "tutor1", money("100.00"), "BKG3");
 
-        assertEquals(new BigDecimal("95.0000"), tutor.getBalance());
-        assertEquals(new BigDecimal("5.0000"), company.getBalance());
+        assertEquals(money("95.00"), balanceOf("tutor1"));
+        assertEquals(money("5.00"), balanceOf(shard));
+        assertFalse(wallets.containsKey("COMPANY_WALLET"));
         verify(txnRepo, times(3)).save(any(WalletTransaction.class));
+        verify(outboxService, times(3)).append(any(OutboxEntry.class));
+        // one journal entry moves the whole amount out of escrow
+        verify(ledger).post(eq("BOOKING_RELEASE"), eq("BKG3"), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-100.00"))),
+                eq(JournalLine.of("tutor1", new BigDecimal("95.00"))),
+                eq(JournalLine.of("COMPANY_WALLET", new BigDecimal("5.00"))));
+    }
+
+    @Test
+    void testReleaseToTutor_commissionIsWholeCentsAndSplitAddsUp() {
+        walletService.releaseToTutor("student1", "tutor1", money("19.99"), "BKG3");
+
+        // 5% of 19.99 is 0.9995, rounded half up to 1.00; the tutor gets the rest
+        assertEquals(money("18.99"), balanceOf("tutor1"));
+        assertEquals(money("1.00"), balanceOf(companyWallet.shardFor("BKG3")));
+    }
+
+    @Test
+    void testReleaseToTutor_commissionSpreadsOverShards() {
+        for (int i = 0; i < 40; i++) {
+            walletService.releaseToTutor("student1", "tutor1", money("20.00"), "BKG-" + i);
+        }
+
+        Money commission = Money.ZERO;
+        int shards = 0;
+        for (Wallet w : wallets.values()) {
+            if (w.getStudentId().startsWith("COMPANY_WALLET#")) {
+                commission = commission.plus(w.getBalance());
+                shards++;
+            }
+        }
+        assertTrue(shards > 1);
+        assertEquals(0, money("40.00").compareTo(commission));
+    }
+
+    @Test
+    void testGetWallet_companyWalletShowsShardTotal() {
+        when(companyWallet.balance()).thenReturn(money("12.50"));
+        assertEquals(money("12.50"), walletService.getWallet("COMPANY_WALLET").getBalance());
+    }
+
+    @Test
+    void testReleaseToTutor_settlesHold() {
+        walletService.holdCredits("user1", money("40.00"), "BKG5", CreditHold.expiryFor(LESSON_END));
+
+        walletService.releaseToTutor("user1", "tutor1", money("40.00"), "BKG5");
+
+        assertEquals(CreditHold.RELEASED, holds.get("BKG5").getStatus());
+        assertEquals(money("60.00"), balanceOf("user1"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        assertEquals(money("38.00"), balanceOf("tutor1"));
+    }
+
+    @Test
+    void testReleaseToTutor_settledHoldIsNotPaidTwice() {
+        walletService.holdCredits("user1", money("40.00"), "BKG5", CreditHold.expiryFor(LESSON_END));
+        walletService.refundStudent("user1", money("40.00"), "BKG5");
+
+        assertThrows(RuntimeException.class,
+                () -> walletService.releaseToTutor("user1", "tutor1", money("40.00"), "BKG5"));
+        assertFalse(wallets.containsKey("tutor1"));
+        assertEquals(CreditHold.REFUNDED, holds.get("BKG5").getStatus());
+    }
+
+    // ----------------------------------------------------------------------
+    // accrueToTutor() / settleAccruedPayouts()
+    // ----------------------------------------------------------------------
+    @Test
+    void testAccrueToTutor_onlyTurnsTheHoldIntoAPayable() {
+        walletService.holdCredits("user1", money("40.00"), "BKG5", CreditHold.expiryFor(LESSON_END));
+        clearInvocations(txnRepo, ledger);
+
+        walletService.accrueToTutor("user1", "tutor1", money("40.00"), "BKG5");
+
+        CreditHold hold = holds.get("BKG5");
+        assertEquals(CreditHold.ACCRUED, hold.getStatus());
+        assertEquals("tutor1", hold.getTutorId());
+        assertNotNull(hold.getAccruedAt());
+        assertFalse(wallets.containsKey("tutor1"));
+        assertEquals(money("40.00"), heldOf("user1"));
+        verifyNoInteractions(txnRepo, ledger);
+
+        // A later cancel does not refund a payable
+        walletService.refundStudent("user1", money("40.00"), "BKG5");
+        assertEquals(CreditHold.ACCRUED, holds.get("BKG5").getStatus());
+        assertEquals(money("60.00"), balanceOf("user1"));
+    }
+
+    @Test
+    void testAccrueToTutor_withoutHoldReleasesRightAway() {
+        walletService.accrueToTutor("student1", "tutor1", money("100.00"), "BKG3");
+
+        assertEquals(money("95.00"), balanceOf("tutor1"));
+        verify(ledger).post(eq("BOOKING_RELEASE"), eq("BKG3"), anyString(), any(JournalLine.class), any(JournalLine.class), any(JournalLine.class));
+    }
+
+    @Test
+    void testSettleAccruedPayouts_onePaymentPerTutor() {
+        wallets.put("user2", new Wallet("id2", "user2", money("50.00"), Money.ZERO, "SGD", null, false, LocalDateTime.now()));
+        walletService.holdCredits("user1", money("19.99"), "B1", CreditHold.expiryFor(LESSON_END));
+        walletService.holdCredits("user2", money("20.00"), "B2", CreditHold.expiryFor(LESSON_END));
+        walletService.holdCredits("user1", money("10.00"), "B3", CreditHold.expiryFor(LESSON_END));
+        walletService.holdCredits("user1", money("5.00"), "LATER", CreditHold.expiryFor(LESSON_END));
+        walletService.accrueToTutor("user1", "tutor1", money("19.99"), "B1");
+        walletService.accrueToTutor("user2", "tutor1", money("20.00"), "B2");
+        walletService.accrueToTutor("user1", "tutor2", money("10.00"), "B3");
+        Instant cutoff = Instant.now().plusSeconds(1);
+        holds.get("LATER").setStatus(CreditHold.ACCRUED);
+        holds.get("LATER").setTutorId("tutor1");
+        holds.get("LATER").setAccruedAt(cutoff);
+        clearInvocations(txnRepo, ledger);
+
+        // A batch size of one pays each tutor and unholds each student on its own bulk write
+        assertEquals(2, walletService.settleAccruedPayouts(cutoff, 1));
+
+        // 1.00 + 1.00 commission on tutor1's 39.99, 0.50 on tutor2's 10.00
+        assertEquals(money("37.99"), balanceOf("tutor1"));
+        assertEquals(money("9.50"), balanceOf("tutor2"));
+        Money commission = wallets.values().stream().filter(w -> w.getStudentId().startsWith("COMPANY_WALLET#"))
+                .map(Wallet::getBalance).reduce(Money.ZERO, Money::plus);
+        assertEquals(money("2.50"), commission);
+        assertEquals(money("5.00"), heldOf("user1"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user2")));
+        assertEquals(money("65.01"), balanceOf("user1"));
+        assertEquals(CreditHold.RELEASED, holds.get("B1").getStatus());
+        assertEquals(CreditHold.ACCRUED, holds.get("LATER").getStatus());
+
+        assertEquals(List.of("tutor1", "tutor2"), statements.stream().map(SettlementStatement::getTutorId).toList());
+        SettlementStatement first = statements.get(0);
+        assertEquals(2, first.getBookings());
+        assertEquals(money("39.99"), first.getGross());
+        assertEquals(money("2.00"), first.getCommission());
+        assertEquals(List.of("B1", "B2"), first.getLines().stream().map(SettlementStatement.Line::getBookingId).toList());
+        assertEquals(cutoff, first.getPeriodEnd());
+        assertNotNull(first.getPeriodStart());
+
+        assertNotNull(first.getPaidAt());
+        assertEquals(List.of(SettlementRun.PAID), runs.values().stream().map(SettlementRun::getStatus).toList());
+
+        verify(ledger).postOnce(eq(first.getId()), eq("SETTLEMENT"), eq(first.getId()), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-39.99"))),
+                eq(JournalLine.of("tutor1", new BigDecimal("37.99"))),
+                eq(JournalLine.of("COMPANY_WALLET", new BigDecimal("2.00"))));
+        verify(ledger, times(2)).postOnce(anyString(), eq("SETTLEMENT"), anyString(), anyString(),
+                any(JournalLine.class), any(JournalLine.class), any(JournalLine.class));
+        verify(txnRepo, times(2)).save(argThat((WalletTransaction t) -> "SETTLEMENT_PAYMENT_TUTOR".equals(t.getType())));
+        verify(txnRepo, times(1)).save(argThat((WalletTransaction t) -> "SETTLEMENT_COMMISSION".equals(t.getType())
+                && money("2.50").equals(t.getAmount())));
+
+        // Settled payables are not paid again, and an empty run leaves no record
+        assertEquals(0, walletService.settleAccruedPayouts(cutoff, 1));
+        assertEquals(money("37.99"), balanceOf("tutor1"));
+        assertEquals(1, runs.size());
+    }
+
+    @Test
+    void testSettleAccruedPayouts_interruptedRunIsFinishedOnce() {
+        wallets.put("user2", new Wallet("id2", "user2", money("50.00"), Money.ZERO, "SGD", null, false, LocalDateTime.now()));
+        walletService.holdCredits("user1", money("20.00"), "B1", CreditHold.expiryFor(LESSON_END));
+        walletService.holdCredits("user2", money("10.00"), "B2", CreditHold.expiryFor(LESSON_END));
+        walletService.accrueToTutor("user1", "tutor1", money("20.00"), "B1");
+        walletService.accrueToTutor("user2", "tutor2", money("10.00"), "B2");
+        Instant cutoff = Instant.now().plusSeconds(1);
+
+        // The lease is lost after tutor1's batch: tutor1 is paid, nothing else is
+        assertThrows(RuntimeException.class, () -> walletService.settleAccruedPayouts(cutoff, 1, () -> false));
+        assertEquals(money("19.00"), balanceOf("tutor1"));
+        assertFalse(wallets.containsKey("tutor2"));
+        assertEquals(money("20.00"), heldOf("user1"));
+        assertEquals(CreditHold.ACCRUED, holds.get("B1").getStatus());
+        SettlementRun interrupted = runs.values().iterator().next();
+        assertEquals(SettlementRun.CLAIMED, interrupted.getStatus());
+        when(txnRepo.existsById(interrupted.getId() + ":tutor1")).thenReturn(true);
+
+        // The next run finishes it first, without paying tutor1 again
+        assertEquals(2, walletService.settleAccruedPayouts(cutoff, 1));
+
+        assertEquals(money("19.00"), balanceOf("tutor1"));
+        assertEquals(money("9.50"), balanceOf("tutor2"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user2")));
+        assertEquals(CreditHold.RELEASED, holds.get("B1").getStatus());
+        assertEquals(CreditHold.RELEASED, holds.get("B2").getStatus());
+        assertEquals(2, statements.size());
+        assertEquals(SettlementRun.PAID, runs.get(interrupted.getId()).getStatus());
+        Money commission = wallets.values().stream().filter(w -> w.getStudentId().startsWith("COMPANY_WALLET#"))
+                .map(Wallet::getBalance).reduce(Money.ZERO, Money::plus);
+        assertEquals(money("1.50"), commission);
+        verify(txnRepo, times(2)).save(argThat((WalletTransaction t) -> "SETTLEMENT_PAYMENT_TUTOR".equals(t.getType())));
+        verify(txnRepo, times(1)).save(argThat((WalletTransaction t) -> "SETTLEMENT_COMMISSION".equals(t.getType())));
+    }
+
+    @Test
+    void testSettleAccruedPayouts_resumedRunDoesNotCreditTheCommissionTwice() {
+        walletService.holdCredits("user1", money("20.00"), "B1", CreditHold.expiryFor(LESSON_END));
+        walletService.accrueToTutor("user1", "tutor1", money("20.00"), "B1");
+        Instant cutoff = Instant.now().plusSeconds(1);
+
+        // Everything is paid but the run stops before it is marked PAID
+        failRunPaid = true;
+        assertThrows(RuntimeException.class, () -> walletService.settleAccruedPayouts(cutoff, 500));
+        SettlementRun interrupted = runs.values().iterator().next();
+        assertEquals(SettlementRun.CLAIMED, interrupted.getStatus());
+        assertNotNull(interrupted.getCommissionPaidAt());
+
+        walletService.settleAccruedPayouts(cutoff, 500);
+
+        assertEquals(SettlementRun.PAID, runs.get(interrupted.getId()).getStatus());
+        Money commission = wallets.values().stream().filter(w -> w.getStudentId().startsWith("COMPANY_WALLET#"))
+                .map(Wallet::getBalance).reduce(Money.ZERO, Money::plus);
+        assertEquals(money("1.00"), commission);
+        assertEquals(money("19.00"), balanceOf("tutor1"));
+    }
+
+    @Test
+    void testSettleAccruedPayouts_nothingAccrued() {
+        walletService.holdCredits("user1", money("20.00"), "LIVE", CreditHold.expiryFor(LESSON_END));
+
+        assertEquals(0, walletService.settleAccruedPayouts(Instant.now(), 500));
+        assertTrue(statements.isEmpty());
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Wallet.class));
+        assertEquals(CreditHold.ACTIVE, holds.get("LIVE").getStatus());
     }
 
     // ----------------------------------------------------------------------
@@ -150,10 +750,156 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testRefundStudent_addsAmount() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
-        walletService.refundStudent("user1", new BigDecimal("20.00"), "BKG4");
-        assertEquals(new BigDecimal("120.00"), sampleWallet.getBalance());
+        // Booked, and its credits held under a random reference, before the first hold document
+        walletService.holdCredits("user1", money("10.00"), "LATER", CreditHold.expiryFor(LESSON_END));
+        bookingCreated("BKG4", LocalDateTime.now().minusDays(1));
+        clearInvocations(ledger, txnRepo);
+
+        walletService.refundStudent("user1", money("20.00"), "BKG4");
+        assertEquals(money("110.00"), balanceOf("user1"));
         verify(txnRepo).save(any(WalletTransaction.class));
+        verify(ledger).post(eq("BOOKING_REFUND"), eq("BKG4"), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-20.00"))),
+                eq(JournalLine.of("user1", new BigDecimal("20.00"))));
+    }
+
+    @Test
+    void testRefundStudent_legacyBookingIsRefundedOnce() {
+        bookingCreated("BKG4", LocalDateTime.now().minusDays(1));
+        when(mongoTemplate.exists(argThat((Query q) -> "BOOKING_REFUND".equals(q.getQueryObject().get("type"))
+                && "BKG4".equals(q.getQueryObject().get("refId"))), eq(WalletTransaction.class))).thenReturn(true);
+
+        walletService.refundStudent("user1", money("20.00"), "BKG4");
+
+        assertEquals(money("100.00"), balanceOf("user1"));
+        verify(txnRepo, never()).save(any(WalletTransaction.class));
+    }
+
+    @Test
+    void testRefundStudent_bookingSinceHoldDocumentsWithoutHoldCreditsNothing() {
+        walletService.holdCredits("user1", money("10.00"), "EARLIER", CreditHold.expiryFor(LESSON_END));
+        bookingCreated("BKG7", LocalDateTime.now().plusMinutes(1));
+        clearInvocations(ledger, txnRepo);
+
+        walletService.refundStudent("user1", money("20.00"), "BKG7");
+
+        assertEquals(money("90.00"), balanceOf("user1"));
+        verify(txnRepo, never()).save(any(WalletTransaction.class));
+    }
+
+    private void bookingCreated(String bookingId, LocalDateTime createdAt) {
+        when(mongoTemplate.findById(bookingId, Booking.class))
+                .thenReturn(Booking.builder().id(bookingId).studentId("user1").createdAt(createdAt).build());
+    }
+
+    @Test
+    void testRefundStudent_withoutAnyHoldCreditsNothing() {
+        walletService.refundStudent("user1", money("20.00"), "NEVER-HELD");
+
+        assertEquals(money("100.00"), balanceOf("user1"));
+        verify(ledger, never()).post(anyString(), anyString(), anyString(), any(JournalLine[].class));
+        verify(txnRepo, never()).save(any(WalletTransaction.class));
+    }
+
+    @Test
+    void testRefundStudent_settlesHoldOnce() {
+        walletService.holdCredits("user1", money("30.00"), "BKG6", CreditHold.expiryFor(LESSON_END));
+
+        walletService.refundStudent("user1", money("30.00"), "BKG6");
+        walletService.refundStudent("user1", money("30.00"), "BKG6");
+
+        assertEquals(CreditHold.REFUNDED, holds.get("BKG6").getStatus());
+        assertEquals(0, money("100.00").compareTo(balanceOf("user1")));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        verify(txnRepo, times(1)).save(argThat((WalletTransaction t) -> "BOOKING_REFUND".equals(t.getType())));
+    }
+
+    @Test
+    void testRefundHolds_refundsTheSeriesAsAWhole() {
+        walletService.holdCredits("user1", List.of(
+                CreditHold.of("R1", money("20.00"), CreditHold.expiryFor(LESSON_END)),
+                CreditHold.of("R2", money("20.00"), CreditHold.expiryFor(LESSON_END)),
+                CreditHold.of("R3", money("20.00"), CreditHold.expiryFor(LESSON_END))), "RECURRING-S");
+        walletService.refundStudent("user1", money("20.00"), "R3");
+        clearInvocations(ledger, txnRepo);
+
+        walletService.refundHolds("user1", List.of("R1", "R2", "R3"), "RECURRING-S");
+
+        assertEquals(money("100.00"), balanceOf("user1"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        assertEquals(CreditHold.REFUNDED, holds.get("R1").getStatus());
+        verify(ledger, times(1)).post(eq("BOOKING_REFUND"), eq("RECURRING-S"), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-40.00"))),
+                eq(JournalLine.of("user1", new BigDecimal("40.00"))));
+        verify(txnRepo, times(1)).save(any(WalletTransaction.class));
+    }
+
+    // ----------------------------------------------------------------------
+    // reclaimExpiredHolds()
+    // ----------------------------------------------------------------------
+    @Test
+    void testReclaimExpiredHolds_returnsCreditsInBulk() {
+        wallets.put("user2", new Wallet("id2", "user2", Money.ZERO, Money.ZERO, "SGD", null, false, LocalDateTime.now()));
+        Instant past = Instant.now().minusSeconds(60);
+        walletService.holdCredits("user1", money("10.00"), "E1", past);
+        walletService.holdCredits("user1", money("15.00"), "E2", past);
+        walletService.holdCredits("user1", money("20.00"), "LIVE", CreditHold.expiryFor(LESSON_END));
+        walletService.addCredits("user2", money("5.00"), "REF");
+        walletService.holdCredits("user2", money("5.00"), "E3", past);
+        clearInvocations(ledger, txnRepo);
+
+        int reclaimed = walletService.reclaimExpiredHolds(100);
+
+        assertEquals(3, reclaimed);
+        assertEquals(money("80.00"), balanceOf("user1"));
+        assertEquals(money("20.00"), heldOf("user1"));
+        assertEquals(money("5.00"), balanceOf("user2"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user2")));
+        assertEquals(CreditHold.EXPIRED, holds.get("E1").getStatus());
+        assertEquals(CreditHold.ACTIVE, holds.get("LIVE").getStatus());
+        verify(mongoTemplate, times(1)).bulkOps(any(BulkOperations.BulkMode.class), eq(Wallet.class));
+        verify(ledger, times(1)).post(eq("BOOKING_REFUND"), anyString(), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-30.00"))),
+                eq(JournalLine.of("user1", new BigDecimal("25.00"))),
+                eq(JournalLine.of("user2", new BigDecimal("5.00"))));
+        verify(txnRepo, times(3)).save(any(WalletTransaction.class));
+
+        // A later cancel of an expired booking does not refund it again
+        walletService.refundStudent("user1", money("10.00"), "E1");
+        assertEquals(money("80.00"), balanceOf("user1"));
+    }
+
+    @Test
+    void testReclaimExpiredHolds_paysHoldsAnInterruptedSweepClaimed() {
+        Instant past = Instant.now().minusSeconds(60);
+        walletService.holdCredits("user1", money("10.00"), "E1", past);
+        walletService.holdCredits("user1", money("15.00"), "E2", past);
+        // A sweep claimed E1 and stopped before paying it back
+        holds.get("E1").setStatus(CreditHold.EXPIRED);
+        holds.get("E1").setSettlementId("CRASHED");
+        clearInvocations(ledger, txnRepo);
+
+        assertEquals(2, walletService.reclaimExpiredHolds(100));
+
+        assertEquals(money("100.00"), balanceOf("user1"));
+        assertEquals(0, Money.ZERO.compareTo(heldOf("user1")));
+        assertNotNull(holds.get("E1").getRefundedAt());
+        assertNotNull(holds.get("E2").getRefundedAt());
+        verify(ledger, times(1)).post(eq("BOOKING_REFUND"), eq("CRASHED"), anyString(),
+                eq(JournalLine.of(LedgerService.ESCROW, new BigDecimal("-10.00"))),
+                eq(JournalLine.of("user1", new BigDecimal("10.00"))));
+
+        // Both are paid now, a further sweep finds nothing
+        assertEquals(0, walletService.reclaimExpiredHolds(100));
+        assertEquals(money("100.00"), balanceOf("user1"));
+    }
+
+    @Test
+    void testReclaimExpiredHolds_nothingExpired() {
+        walletService.holdCredits("user1", money("20.00"), "LIVE", CreditHold.expiryFor(LESSON_END));
+
+        assertEquals(0, walletService.reclaimExpiredHolds(100));
+        verify(mongoTemplate, never()).bulkOps(any(BulkOperations.BulkMode.class), eq(Wallet.class));
     }
 
     // ----------------------------------------------------------------------
@@ -161,22 +907,37 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testSimulateWithdrawal_success() {
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
         Map<String, Object> result = walletService.simulateWithdrawal("user1");
         assertEquals("Withdrawal successful", result.get("message"));
-        assertEquals(BigDecimal.ZERO, sampleWallet.getBalance());
-        verify(txnRepo).save(any(WalletTransaction.class));
+        assertEquals(money("100.00"), result.get("withdrawnAmount"));
+        assertEquals(0, Money.ZERO.compareTo(balanceOf("user1")));
+        verify(txnRepo).save(argThat((WalletTransaction t) -> money("-100.00").equals(t.getAmount())));
+        verify(ledger).post(eq("WITHDRAWAL"), startsWith("MOCK-"), anyString(),
+                eq(JournalLine.of("user1", new BigDecimal("-100.00"))),
+                eq(JournalLine.of(LedgerService.WITHDRAWALS, new BigDecimal("100.00"))));
     }
 
     @Test
     void testSimulateWithdrawal_noFunds() {
-        sampleWallet.setBalance(BigDecimal.ZERO);
-        when(walletRepo.findByStudentId("user1")).thenReturn(Optional.of(sampleWallet));
+        wallets.get("user1").setBalance(Money.ZERO);
         Map<String, Object> result = walletService.simulateWithdrawal("user1");
         assertEquals("No funds available to withdraw", result.get("message"));
         verify(txnRepo, never()).save(any());
     }
 
+    // ----------------------------------------------------------------------
+    // getLedgerBalance()
+    // ----------------------------------------------------------------------
+    @Test
+    void testGetLedgerBalance_nowOrAsOf() {
+        java.time.Instant at = java.time.Instant.parse("2026-01-01T00:00:00Z");
+        when(ledger.balanceOf("user1")).thenReturn(new BigDecimal("100.00"));
+        when(ledger.balanceAt("user1", at)).thenReturn(new BigDecimal("40.00"));
+
+        assertEquals(new BigDecimal("100.00"), walletService.getLedgerBalance("user1", null));
+        assertEquals(new BigDecimal("40.00"), walletService.getLedgerBalance("user1", at));
+    }
+
     // ----------------------------------------------------------------------
     // getTransactions()
     // ----------------------------------------------------------------------
@@ -192,30 +953,34 @@ class WalletServiceTest {
     // ----------------------------------------------------------------------
     @Test
     void testGetTransactionMetrics_fullData() {
-        WalletTransaction highest = new WalletTransaction("id1", "user1", "TYPE",
-                new BigDecimal("100"), "desc", "ref", LocalDateTime.now());
-        MonthlyEarningDTO dto = new MonthlyEarningDTO();
-        dto.set_id(1);
-        dto.setTotal(200.0);
-
-        when(txnRepo.getTotalEarnings()).thenReturn(1000.0);
-        when(txnRepo.getTotalCommission()).thenReturn(50.0);
-        when(txnRepo.getHighestTransaction()).thenReturn(highest);
-        when(txnRepo.getMonthlyEarnings()).thenReturn(List.of(dto));
+        when(rollups.monthlyTotals(anyCollection())).thenReturn(List.of(
+                new TransactionRollupService.MonthTotal(2025, 1, "BOOKING_COMMISSION", 2, 1000),
+                new TransactionRollupService.MonthTotal(2025, 1, "BOOKING_PAYMENT_TUTOR", 2, 19000),
+                new TransactionRollupService.MonthTotal(2026, 1, "BOOKING_COMMISSION", 1, 4000),
+                new TransactionRollupService.MonthTotal(2026, 1, "BOOKING_PAYMENT_TUTOR", 1, 76000),
+                new TransactionRollupService.MonthTotal(null, null, "BOOKING_COMMISSION", 1, 500)));
+        when(rollups.highest(anyCollection())).thenReturn(TransactionHigh.builder()
+                .type("BOOKING_PAYMENT_TUTOR").amount(money("760.00")).description("desc").build());
+        when(companyWallet.balance()).thenReturn(money("50.00"));
 
         AdminDashboardDTO.TransactionMetrics metrics = walletService.getTransactionMetrics();
-        assertEquals(1000.0, metrics.getTotalEarnings());
+        assertEquals(1005.0, metrics.getTotalEarnings());
         assertEquals(50.0, metrics.getCommissionCollected());
-        assertNotNull(metrics.getHighestTransaction());
-        assertEquals("JANUARY", metrics.getMonthlyEarnings().get(0).getMonth());
+        assertEquals("desc", metrics.getHighestTransaction().getDescription());
+        assertEquals(760.0, metrics.getHighestTransaction().getAmount());
+        // January of each year is its own point
+        assertEquals(List.of("JANUARY 2025", "JANUARY 2026"),
+                metrics.getMonthlyEarnings().stream().map(AdminDashboardDTO.MonthlyEarnings::getMonth).toList());
+        assertEquals(40.0, metrics.getMonthlyEarnings().get(1).getTotal());
+        verify(rollups).monthlyTotals(List.of("BOOKING_PAYMENT_TUTOR", "BOOKING_COMMISSION",
+                "SETTLEMENT_PAYMENT_TUTOR", "SETTLEMENT_COMMISSION"));
+        verifyNoInteractions(txnRepo);
     }
 
     @Test
     void testGetTransactionMetrics_handlesNullsAndEmptyData() {
-        when(txnRepo.getTotalEarnings()).thenReturn(null);
-        when(txnRepo.getTotalCommission()).thenReturn(null);
-        when(txnRepo.getHighestTransaction()).thenReturn(null);
-        when(txnRepo.getMonthlyEarnings()).thenReturn(List.of(new MonthlyEarningDTO()));
+        when(rollups.monthlyTotals(anyCollection())).thenReturn(List.of());
+        when(rollups.highest(anyCollection())).thenReturn(null);
 
         AdminDashboardDTO.TransactionMetrics metrics = walletService.getTransactionMetrics();
         assertEquals(0.0, metrics.getTotalEarnings());
@@ -223,4 +988,20 @@ class WalletServiceTest {
         assertNull(metrics.getHighestTransaction());
         assertTrue(metrics.getMonthlyEarnings().isEmpty());
     }
+
+    @Test
+    void testTransactionsAreCountedInRollups() {
+        walletService.addCredits("user1", money("20.00"), "REF1");
+
+        verify(rollups).record(argThat(t -> "PURCHASE".equals(t.getType())
+                && money("20.00").equals(t.getAmount())));
+    }
+
+    @Test
+    void testRollupFailureDoesNotFailTheWrite() {
+        doThrow(new RuntimeException("rollups down")).when(rollups).record(any());
+
+        assertDoesNotThrow(() -> walletService.addCredits("user1", money("20.00"), "REF1"));
+        assertEquals(money("120.00"), balanceOf("user1"));
+    }
 }
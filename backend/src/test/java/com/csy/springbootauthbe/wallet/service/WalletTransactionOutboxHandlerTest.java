@@ -0,0 +1,66 @@
+package com.csy.springbootauthbe.wallet.service;
+
+import com.csy.springbootauthbe.common.money.Money;
+import com.csy.springbootauthbe.common.outbox.OutboxEntry;
+import com.csy.springbootauthbe.notification.entity.Notification;
+import com.csy.springbootauthbe.notification.service.NotificationService;
+import com.csy.springbootauthbe.wallet.entity.WalletTransaction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class WalletTransactionOutboxHandlerTest {
+
+    @Mock private NotificationService notificationService;
+
+    private WalletTransactionOutboxHandler handler;
+
+    @BeforeEach
+    void setup() {
+        MockitoAnnotations.openMocks(this);
+        handler = new WalletTransactionOutboxHandler(notificationService);
+    }
+
+    private static OutboxEntry entry(String type, String amount) {
+        return OutboxEntry.forTransaction(new WalletTransaction("TX1", "user1", type,
+                Money.of(new BigDecimal(amount)), "desc", "REF1", LocalDateTime.now()));
+    }
+
+    @Test
+    void testHandle_topUpNotifiesTheWalletOwner() {
+        assertTrue(handler.handle(entry("PURCHASE", "50.00")).isDone());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationService).createNotifications(captor.capture());
+        Notification n = captor.getValue().get(0);
+        assertEquals("user1", n.getUserId());
+        assertEquals("wallet_purchase", n.getType());
+        assertTrue(n.getMessage().contains("$50.00"));
+    }
+
+    @Test
+    void testHandle_withdrawalShowsThePositiveAmount() {
+        handler.handle(entry("WITHDRAWAL", "-20.00"));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Notification>> captor = ArgumentCaptor.forClass(List.class);
+        verify(notificationService).createNotifications(captor.capture());
+        assertTrue(captor.getValue().get(0).getMessage().startsWith("$20.00 "));
+    }
+
+    @Test
+    void testHandle_bookingTransactionsAreConsumedQuietly() {
+        assertTrue(handler.handle(entry("BOOKING_HOLD", "-10.00")).isDone());
+        verifyNoInteractions(notificationService);
+    }
+}